@@ -19,6 +19,7 @@
 package org.apache.cassandra.sidecar.common.testing;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
 
 import io.kubernetes.client.openapi.ApiException;
 import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
@@ -33,34 +34,36 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class DelegateTest
 {
     @CassandraIntegrationTest
-    void testCorrectVersionIsEnabled(CassandraTestContext context)
+    void testCorrectVersionIsEnabled(CassandraTestContext context) throws InterruptedException, ExecutionException
     {
         CassandraVersionProvider provider = new CassandraVersionProvider.Builder().add(new V30()).build();
         CassandraAdapterDelegate delegate = new CassandraAdapterDelegate(provider, context.session);
         delegate.checkSession();
+        delegate.healthCheck().get();
         SimpleCassandraVersion version = delegate.getVersion();
         assertThat(version).isNotNull();
     }
 
     @CassandraIntegrationTest
-    void testHealthCheck(CassandraTestContext context) throws InterruptedException, ApiException, IOException
+    void testHealthCheck(CassandraTestContext context) throws InterruptedException, ApiException, IOException,
+                                                              ExecutionException
     {
         CassandraVersionProvider provider = new CassandraVersionProvider.Builder().add(new V30()).build();
         CassandraAdapterDelegate delegate = new CassandraAdapterDelegate(provider, context.session);
 
         delegate.checkSession();
-        delegate.healthCheck();
+        delegate.healthCheck().get();
 
         assertThat(delegate.isUp()).isTrue();
 
         context.container.disableBinary();
 
-        delegate.healthCheck();
+        delegate.healthCheck().get();
         assertThat(delegate.isUp()).isFalse();
 
         context.container.enableBinary();
 
-        delegate.healthCheck();
+        delegate.healthCheck().get();
 
         assertThat(delegate.isUp()).isTrue();
     }
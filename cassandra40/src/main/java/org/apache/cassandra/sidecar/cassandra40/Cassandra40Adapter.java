@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.cassandra40;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import org.apache.cassandra.sidecar.common.CQLSession;
+import org.apache.cassandra.sidecar.common.ICassandraAdapter;
+import org.apache.cassandra.sidecar.common.JmxClient;
+import org.apache.cassandra.sidecar.common.NodeStatus;
+
+/**
+ * Adapter for Cassandra 4.0
+ */
+public class Cassandra40Adapter implements ICassandraAdapter
+{
+    private static final String[] IMPORT_SIGNATURE = { Set.class.getName(), boolean.class.getName(),
+                                                       boolean.class.getName(), boolean.class.getName(),
+                                                       boolean.class.getName(), boolean.class.getName(),
+                                                       boolean.class.getName() };
+    private static final String[] TAKE_SNAPSHOT_SIGNATURE = { String.class.getName(), Map.class.getName(),
+                                                              String[].class.getName() };
+    private static final String[] CLEAR_SNAPSHOT_SIGNATURE = { String.class.getName(), String[].class.getName() };
+    private static final String STORAGE_SERVICE = "org.apache.cassandra.db:type=StorageService";
+    // whichever of these a gauge, counter, histogram or timer has
+    private static final String[] METRIC_ATTRIBUTES = { "Value", "Count", "Min", "Max", "Mean", "50thPercentile",
+                                                        "95thPercentile", "99thPercentile", "OneMinuteRate" };
+
+    private static final String LOCAL_QUERY = "select host_id, broadcast_address, broadcast_port, rpc_address, " +
+                                              "rpc_port, data_center, rack, release_version from system.local";
+    private static final String PEERS_QUERY = "select host_id, peer, peer_port, native_address, native_port, " +
+                                              "data_center, rack, release_version from system.peers_v2";
+
+    private final CQLSession session;
+    @Nullable
+    private final JmxClient jmxClient;
+
+    public Cassandra40Adapter(CQLSession session, @Nullable JmxClient jmxClient)
+    {
+        this.session = session;
+        this.jmxClient = jmxClient;
+    }
+
+    /**
+     * Reads every node's status from {@code system.local} and {@code system.peers_v2}.  Blocks on both queries, and
+     * isn't meant to be called per request, the {@link org.apache.cassandra.sidecar.common.CassandraAdapterDelegate}
+     * loads it once and keeps it up to date from driver events.
+     *
+     * The local node is up, since it just answered.  Whether peers are up isn't in the system tables.
+     */
+    @Override
+    public List<NodeStatus> getStatus()
+    {
+        ListenableFuture<ResultSet> local = session.executeAsync(null, LOCAL_QUERY);
+        ListenableFuture<ResultSet> peers = session.executeAsync(null, PEERS_QUERY);
+
+        List<NodeStatus> statuses = new ArrayList<>();
+        for (Row row : Futures.getUnchecked(local))
+        {
+            statuses.add(new NodeStatus(row.getUUID("host_id"),
+                                        row.getInet("broadcast_address"), row.getInt("broadcast_port"),
+                                        row.getInet("rpc_address"), row.getInt("rpc_port"),
+                                        row.getString("data_center"), row.getString("rack"),
+                                        row.getString("release_version"), NodeStatus.State.UP));
+        }
+        for (Row row : Futures.getUnchecked(peers))
+        {
+            // peers which are still joining may not have an id yet
+            if (row.isNull("host_id"))
+                continue;
+            statuses.add(new NodeStatus(row.getUUID("host_id"),
+                                        row.getInet("peer"), row.getInt("peer_port"),
+                                        row.getInet("native_address"), row.getInt("native_port"),
+                                        row.getString("data_center"), row.getString("rack"),
+                                        row.getString("release_version"), NodeStatus.State.UNKNOWN));
+        }
+        return statuses;
+    }
+
+    /**
+     * Calls {@code ColumnFamilyStoreMBean.importNewSSTables} with the same defaults as {@code nodetool import}
+     */
+    @Override
+    public List<String> importSSTables(String keyspace, String table, String directory)
+    {
+        if (jmxClient == null)
+            throw new IllegalStateException("Importing SSTables requires a JMX connection");
+
+        Set<String> directories = new HashSet<>();
+        directories.add(directory);
+        Object[] params = { directories,
+                            true,   // resetLevel
+                            true,   // clearRepaired
+                            true,   // verifySSTables
+                            true,   // verifyTokens
+                            true,   // invalidateCaches
+                            false   // extendedVerify
+        };
+        return jmxClient.invoke(tableMBean(keyspace, table), "importNewSSTables", params, IMPORT_SIGNATURE);
+    }
+
+    /**
+     * Calls {@code StorageServiceMBean.takeSnapshot}, flushing the tables first as {@code nodetool snapshot} does
+     */
+    @Override
+    public void takeSnapshot(String tag, List<String> entities)
+    {
+        if (jmxClient == null)
+            throw new IllegalStateException("Taking snapshots requires a JMX connection");
+
+        Object[] params = { tag, Collections.singletonMap("skipFlush", "false"), entities.toArray(new String[0]) };
+        jmxClient.invoke(storageServiceMBean(), "takeSnapshot", params, TAKE_SNAPSHOT_SIGNATURE);
+    }
+
+    /**
+     * Calls {@code StorageServiceMBean.clearSnapshot}
+     */
+    @Override
+    public void clearSnapshot(String tag, List<String> keyspaces)
+    {
+        if (jmxClient == null)
+            throw new IllegalStateException("Clearing snapshots requires a JMX connection");
+
+        Object[] params = { tag, keyspaces.toArray(new String[0]) };
+        jmxClient.invoke(storageServiceMBean(), "clearSnapshot", params, CLEAR_SNAPSHOT_SIGNATURE);
+    }
+
+    /**
+     * Reads every metric of the table in one JMX round trip per metric, over the shared connection.  The metric names
+     * are only queried again when tables are created or dropped.
+     */
+    @Override
+    public Map<String, Map<String, Object>> getTableStats(String keyspace, String table)
+    {
+        if (jmxClient == null)
+            throw new IllegalStateException("Table stats require a JMX connection");
+
+        Map<ObjectName, Map<String, Object>> metrics = jmxClient.queryAttributes(tableMetrics(keyspace, table),
+                                                                                 METRIC_ATTRIBUTES);
+        if (metrics.isEmpty())
+            throw new NoSuchElementException(String.format("Unknown table %s.%s", keyspace, table));
+
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        metrics.forEach((name, values) -> stats.put(name.getKeyProperty("name"), values));
+        return stats;
+    }
+
+    private static ObjectName tableMetrics(String keyspace, String table)
+    {
+        try
+        {
+            return new ObjectName(String.format("org.apache.cassandra.metrics:type=Table,keyspace=%s,scope=%s,name=*",
+                                                keyspace, table));
+        }
+        catch (MalformedObjectNameException e)
+        {
+            throw new IllegalArgumentException(String.format("Invalid keyspace %s or table %s", keyspace, table), e);
+        }
+    }
+
+    private static ObjectName tableMBean(String keyspace, String table)
+    {
+        try
+        {
+            return new ObjectName(String.format("org.apache.cassandra.db:type=Tables,keyspace=%s,table=%s",
+                                                keyspace, table));
+        }
+        catch (MalformedObjectNameException e)
+        {
+            throw new IllegalArgumentException(String.format("Invalid keyspace %s or table %s", keyspace, table), e);
+        }
+    }
+
+    private static ObjectName storageServiceMBean()
+    {
+        try
+        {
+            return new ObjectName(STORAGE_SERVICE);
+        }
+        catch (MalformedObjectNameException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
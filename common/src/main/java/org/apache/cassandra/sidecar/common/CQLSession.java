@@ -20,17 +20,32 @@ package org.apache.cassandra.sidecar.common;
 
 import java.net.InetSocketAddress;
 import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Timer;
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.NettyOptions;
+import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolVersion;
 import com.datastax.driver.core.QueryOptions;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.policies.ExponentialReconnectionPolicy;
 import com.datastax.driver.core.policies.ReconnectionPolicy;
 import com.datastax.driver.core.policies.RoundRobinPolicy;
@@ -39,20 +54,46 @@ import com.datastax.driver.core.policies.WhiteListPolicy;
 /**
  * Represents a connection to Cassandra cluster. Currently supports returning the local connection only as
  * defined in the Configuration.
+ *
+ * A single instance is meant to be shared by everything talking to the managed Cassandra instance, so that all of
+ * the sidecar's requests are multiplexed over the few connections allowed by its {@link PoolingOptions}.  Requests
+ * made through {@link #executeAsync(Statement)} are bounded by an in-flight limit, and rejected once it's reached
+ * rather than queueing up without bound behind a slow node.
+ *
+ * Statements run through {@link #executeAsync(String, String, Object...)} are prepared once and then reused from the
+ * session's {@link PreparedStatementCache}, which is invalidated whenever the session reconnects.  The session isn't
+ * bound to a keyspace, and a statement can only be prepared in one of its own with protocol v5, which Cassandra 4.0
+ * negotiates only as a beta; below that, a statement with a keyspace fails to prepare, so tables should be qualified.
+ *
+ * If given a {@link Timer}, the latency of every request is recorded in it, so slow responses can be told apart
+ * from slow Cassandra requests.
  */
 public class CQLSession
 {
     private static final Logger logger = LoggerFactory.getLogger(CQLSession.class);
+    public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 1024;
 
     @Nullable
-    private Session localSession;
+    private volatile Session localSession;
     private final InetSocketAddress inet;
     private final WhiteListPolicy wlp;
     private NettyOptions nettyOptions;
     private QueryOptions queryOptions;
     private ReconnectionPolicy reconnectionPolicy;
+    private final PoolingOptions poolingOptions;
+    private final int maxInFlightRequests;
+    private final Semaphore inFlightRequests;
+    @Nullable
+    private final Timer requestLatency;
+    private final PreparedStatementCache preparedStatements = new PreparedStatementCache(this::prepareUncached);
 
     public CQLSession(String host, Integer port, Integer healthCheckFrequency)
+    {
+        this(host, port, healthCheckFrequency, new PoolingOptions(), DEFAULT_MAX_IN_FLIGHT_REQUESTS, null);
+    }
+
+    public CQLSession(String host, Integer port, Integer healthCheckFrequency, PoolingOptions poolingOptions,
+                      int maxInFlightRequests, @Nullable Timer requestLatency)
     {
         // this was originally using unresolved Inet addresses, but it would fail when trying to
         // connect to a docker container
@@ -63,6 +104,10 @@ public class CQLSession
         this.nettyOptions = new NettyOptions();
         this.queryOptions = new QueryOptions().setConsistencyLevel(ConsistencyLevel.ONE);
         this.reconnectionPolicy = new ExponentialReconnectionPolicy(1000, healthCheckFrequency);
+        this.poolingOptions = poolingOptions;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.inFlightRequests = new Semaphore(maxInFlightRequests);
+        this.requestLatency = requestLatency;
     }
 
     public CQLSession(InetSocketAddress target, NettyOptions options)
@@ -72,6 +117,10 @@ public class CQLSession
         this.nettyOptions = options;
         this.queryOptions = new QueryOptions().setConsistencyLevel(ConsistencyLevel.ONE);
         reconnectionPolicy = new ExponentialReconnectionPolicy(100, 1000);
+        this.poolingOptions = new PoolingOptions();
+        this.maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+        this.inFlightRequests = new Semaphore(maxInFlightRequests);
+        this.requestLatency = null;
     }
 
     /**
@@ -82,7 +131,15 @@ public class CQLSession
      * @return Session
      */
     @Nullable
-    public synchronized Session getLocalCql()
+    public Session getLocalCql()
+    {
+        // connected sessions are read without locking, since every request goes through here
+        Session session = localSession;
+        return session != null ? session : connect();
+    }
+
+    @Nullable
+    private synchronized Session connect()
     {
         Cluster cluster = null;
         try
@@ -95,12 +152,15 @@ public class CQLSession
                                  .withLoadBalancingPolicy(wlp)
                                  .withQueryOptions(queryOptions)
                                  .withReconnectionPolicy(reconnectionPolicy)
+                                 .withPoolingOptions(poolingOptions)
                                  .withoutMetrics()
                                  // tests can create a lot of these Cluster objects, to avoid creating HWTs and
                                  // event thread pools for each we have the override
                                  .withNettyOptions(nettyOptions)
                                  .build();
                 localSession = cluster.connect();
+                // statements prepared on a previous Cluster are unknown to this one
+                preparedStatements.invalidateAll();
             }
         }
         catch (Exception e)
@@ -121,12 +181,101 @@ public class CQLSession
         return localSession;
     }
 
+    /**
+     * Executes the statement on the local session, counting it against the in-flight limit until it completes
+     *
+     * @return the statement's result, or a failed future if Cassandra can't be reached or the sidecar already has
+     * the maximum number of requests in flight, in which case it fails with a {@link RejectedExecutionException}
+     */
+    public ListenableFuture<ResultSet> executeAsync(Statement statement)
+    {
+        Session session = getLocalCql();
+        if (session == null)
+            return Futures.immediateFailedFuture(new IllegalStateException("Unable to connect to " + inet));
+
+        if (!inFlightRequests.tryAcquire())
+            return Futures.immediateFailedFuture(new RejectedExecutionException(
+            String.format("Too many CQL requests in flight to %s, the limit is %d", inet, maxInFlightRequests)));
+
+        long start = System.nanoTime();
+        ResultSetFuture future;
+        try
+        {
+            future = session.executeAsync(statement);
+        }
+        catch (RuntimeException e)
+        {
+            inFlightRequests.release();
+            return Futures.immediateFailedFuture(e);
+        }
+        future.addListener(() ->
+        {
+            inFlightRequests.release();
+            if (requestLatency != null)
+                requestLatency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    /**
+     * Prepares the statement, unless it's already been prepared, binds the values and executes it
+     *
+     * @param keyspace the keyspace the statement is prepared in, which needs protocol v5, or null if its tables are
+     *                 fully qualified
+     * @see #executeAsync(Statement)
+     */
+    public ListenableFuture<ResultSet> executeAsync(@Nullable String keyspace, String cql, Object... values)
+    {
+        return Futures.transformAsync(prepareAsync(keyspace, cql),
+                                      prepared -> executeAsync(prepared.bind(values)),
+                                      MoreExecutors.directExecutor());
+    }
+
+    /**
+     * @param keyspace the keyspace the statement is prepared in, which needs protocol v5, or null if its tables are
+     *                 fully qualified
+     * @return the cached prepared statement, prepared first if this is the first time it's been asked for
+     */
+    public ListenableFuture<PreparedStatement> prepareAsync(@Nullable String keyspace, String cql)
+    {
+        return preparedStatements.prepare(keyspace, cql);
+    }
+
+    public PreparedStatementCache getPreparedStatements()
+    {
+        return preparedStatements;
+    }
+
+    private ListenableFuture<PreparedStatement> prepareUncached(RegularStatement statement)
+    {
+        Session session = getLocalCql();
+        if (session == null)
+            return Futures.immediateFailedFuture(new IllegalStateException("Unable to connect to " + inet));
+
+        // older protocols have nowhere to send the keyspace, so the driver would silently prepare without it
+        ProtocolVersion version = session.getCluster().getConfiguration().getProtocolOptions().getProtocolVersion();
+        if (statement.getKeyspace() != null && version.compareTo(ProtocolVersion.V5) < 0)
+            return Futures.immediateFailedFuture(new IllegalArgumentException(
+            "Preparing in keyspace " + statement.getKeyspace() + " needs protocol v5, but " + version +
+            " is in use; qualify the table names instead"));
+        return session.prepareAsync(statement);
+    }
+
+    /**
+     * @return the number of requests made through {@link #executeAsync(Statement)} which haven't completed yet
+     */
+    public int getInFlightRequests()
+    {
+        return maxInFlightRequests - inFlightRequests.availablePermits();
+    }
+
     public synchronized void close()
     {
         if (localSession != null)
         {
             localSession.getCluster().close();
             localSession = null;
+            preparedStatements.invalidateAll();
         }
     }
 }
@@ -18,20 +18,40 @@
 
 package org.apache.cassandra.sidecar.common;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import javax.annotation.Nullable;
 
-import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.Host;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.SchemaChangeListener;
+import com.datastax.driver.core.SchemaChangeListenerBase;
 import com.datastax.driver.core.Session;
-import com.datastax.driver.core.exceptions.NoHostAvailableException;
 
 
 /**
@@ -44,20 +64,66 @@ import com.datastax.driver.core.exceptions.NoHostAvailableException;
  * 1. The session lazily connects
  * 2. We might need to swap out the adapter if the version has changed
  *
+ * Health checks run asynchronously on the delegate's own schedule, and every result is published as an immutable
+ * {@link HealthSnapshot}.  {@link #isUp()} and {@link #getVersion()} only read the latest snapshot, so callers never
+ * block on the driver, even if Cassandra is slow or down.
+ *
+ * The cluster's status is loaded from the adapter once, then kept up to date from the driver's host events, and
+ * published as an immutable {@link ClusterStatus}, so serving it never touches Cassandra either.
+ *
+ * {@link TokenRing}s are built from the driver's metadata on first use and cached per keyspace until a node joins or
+ * leaves, or a keyspace changes, rather than being recomputed for every lookup.
+ *
+ * Health transitions and node changes are also pushed to any registered {@link ChangeListener}s as they happen.
+ *
+ * The {@link CQLSession} is shared with everything else talking to Cassandra, and is closed when the delegate stops.
  */
 public class CassandraAdapterDelegate implements ICassandraAdapter, Host.StateListener
 {
+    private static final String HEALTH_CHECK_QUERY = "select release_version from system.local";
+
     private final CQLSession cqlSession;
+    @Nullable
+    private final JmxClient jmxClient;
     private final CassandraVersionProvider versionProvider;
-    private Session session;
-    private SimpleCassandraVersion currentVersion;
-    private ICassandraAdapter adapter;
-    private Boolean isUp = false;
+    private volatile Session session;
+    private volatile ICassandraAdapter adapter;
+    private final AtomicReference<HealthSnapshot> health = new AtomicReference<>(HealthSnapshot.UNKNOWN);
+    private final AtomicBoolean probeInFlight = new AtomicBoolean(false);
+    private final AtomicReference<ClusterStatus> status = new AtomicReference<>(ClusterStatus.EMPTY);
+    private volatile boolean statusLoaded = false;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, TokenRing> rings = new ConcurrentHashMap<>();
+    // bumped on every change which may move token ownership, so rings built from older metadata aren't cached
+    private final AtomicLong ringGeneration = new AtomicLong();
+    private final SchemaChangeListener schemaListener = new SchemaChangeListenerBase()
+    {
+        @Override
+        public void onKeyspaceAdded(KeyspaceMetadata keyspace)
+        {
+            invalidateRings();
+        }
+
+        @Override
+        public void onKeyspaceRemoved(KeyspaceMetadata keyspace)
+        {
+            invalidateRings();
+        }
+
+        @Override
+        public void onKeyspaceChanged(KeyspaceMetadata current, KeyspaceMetadata previous)
+        {
+            invalidateRings();
+        }
+    };
     private final int refreshRate;
 
     private static final Logger logger = LoggerFactory.getLogger(CassandraAdapterDelegate.class);
-    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-    private boolean registered = false;
+    private final ScheduledExecutorService executor =
+    Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("cassandra-health-check-%d")
+                                                                         .setDaemon(true)
+                                                                         .build());
+    private boolean started = false;
 
     public CassandraAdapterDelegate(CassandraVersionProvider provider, CQLSession cqlSession)
     {
@@ -65,35 +131,36 @@ public class CassandraAdapterDelegate implements ICassandraAdapter, Host.StateLi
     }
 
     public CassandraAdapterDelegate(CassandraVersionProvider provider, CQLSession cqlSession, int refreshRate)
+    {
+        this(provider, cqlSession, null, refreshRate);
+    }
+
+    public CassandraAdapterDelegate(CassandraVersionProvider provider, CQLSession cqlSession,
+                                    @Nullable JmxClient jmxClient, int refreshRate)
     {
         this.cqlSession = cqlSession;
+        this.jmxClient = jmxClient;
         this.versionProvider = provider;
         this.refreshRate = refreshRate;
     }
 
     public synchronized void start()
     {
+        if (started)
+            return;
+
         logger.info("Starting health check");
+        started = true;
         executor.scheduleWithFixedDelay(this::healthCheck, 0, refreshRate, TimeUnit.MILLISECONDS);
-        maybeRegisterHostListener();
-    }
-
-    private synchronized void maybeRegisterHostListener()
-    {
-        if (!registered)
-        {
-            checkSession();
-            if (session != null)
-            {
-                session.getCluster().register(this);
-            }
-        }
     }
 
     public synchronized void stop()
     {
         logger.info("Stopping health check");
         executor.shutdown();
+        cqlSession.close();
+        if (jmxClient != null)
+            jmxClient.close();
     }
 
     /**
@@ -105,71 +172,360 @@ public class CassandraAdapterDelegate implements ICassandraAdapter, Host.StateLi
         if (session == null)
         {
             session = cqlSession.getLocalCql();
-            start();
+            if (session != null)
+            {
+                session.getCluster().register(this);
+                session.getCluster().register(schemaListener);
+            }
         }
     }
 
     /**
-     * Should be called on initial connect as well as when a server comes back since it might be from an upgrade
-     * synchronized so we don't flood the DB with version requests
+     * Should be called on initial connect as well as when a server comes back since it might be from an upgrade.
+     * Only one probe is in flight at a time; concurrent callers get the current snapshot instead of flooding the DB
+     * with version requests.
      *
      * If the healthcheck determines we've changed versions, it should load the proper adapter
+     *
+     * @return a future completed with the snapshot published by this probe
      */
-    public synchronized void healthCheck()
+    public ListenableFuture<HealthSnapshot> healthCheck()
     {
-        Preconditions.checkNotNull(session);
+        checkSession();
+        Session activeSession = session;
+        if (activeSession == null)
+        {
+            return Futures.immediateFuture(publish(health.get().withUp(false, System.currentTimeMillis())));
+        }
+
+        if (!probeInFlight.compareAndSet(false, true))
+        {
+            return Futures.immediateFuture(health.get());
+        }
+
+        SettableFuture<HealthSnapshot> result = SettableFuture.create();
+        Futures.addCallback(cqlSession.executeAsync(null, HEALTH_CHECK_QUERY), new FutureCallback<ResultSet>()
+        {
+            public void onSuccess(ResultSet rs)
+            {
+                try
+                {
+                    result.set(onVersion(rs.one().getString("release_version")));
+                }
+                catch (Throwable t)
+                {
+                    onFailure(t);
+                }
+                finally
+                {
+                    probeInFlight.set(false);
+                }
+            }
+
+            public void onFailure(Throwable t)
+            {
+                probeInFlight.set(false);
+                if (t instanceof RejectedExecutionException)
+                {
+                    // the session is saturated, which says nothing about whether Cassandra is up
+                    logger.debug("Health check skipped", t);
+                    result.set(health.get());
+                    return;
+                }
+                logger.debug("Health check failed", t);
+                result.set(publish(health.get().withUp(false, System.currentTimeMillis())));
+            }
+        }, executor);
+        return result;
+    }
+
+    private HealthSnapshot onVersion(String version)
+    {
+        // this might swap the adapter out
+        SimpleCassandraVersion newVersion = SimpleCassandraVersion.create(version);
+        SimpleCassandraVersion previousVersion = health.get().getVersion();
+        if (!newVersion.equals(previousVersion))
+        {
+            // statements prepared against the old version may no longer be valid, e.g. if system tables changed
+            if (previousVersion != null)
+                cqlSession.getPreparedStatements().invalidateAll();
+            adapter = versionProvider.getCassandra(newVersion).create(cqlSession, jmxClient);
+            logger.info("Cassandra version change detected.  New adapter loaded: {}", adapter);
+            statusLoaded = false;
+        }
+        if (!statusLoaded)
+        {
+            // off the probe's callback, since loading blocks on the adapter's queries
+            ICassandraAdapter current = adapter;
+            executor.execute(() -> loadStatus(current));
+        }
+        logger.debug("Cassandra version {}", newVersion);
+        return publish(new HealthSnapshot(true, newVersion, System.currentTimeMillis()));
+    }
+
+    private HealthSnapshot publish(HealthSnapshot snapshot)
+    {
+        HealthSnapshot previous = health.getAndSet(snapshot);
+        if (!previous.hasSameState(snapshot))
+        {
+            for (ChangeListener listener : listeners)
+            {
+                try
+                {
+                    listener.onHealthChange(snapshot);
+                }
+                catch (Exception e)
+                {
+                    logger.warn("Listener {} failed on health change", listener, e);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    public void addListener(ChangeListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ChangeListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+
+    private void loadStatus(ICassandraAdapter loadFrom)
+    {
+        if (statusLoaded || loadFrom != adapter)
+            return;
+
         try
         {
-            String version = session.execute("select release_version from system.local")
-                    .one()
-                    .getString("release_version");
-            isUp = true;
-            // this might swap the adapter out
-            SimpleCassandraVersion newVersion = SimpleCassandraVersion.create(version);
-            if (!newVersion.equals(currentVersion))
+            List<NodeStatus> nodes = loadFrom.getStatus();
+            if (nodes == null)
+                return;
+
+            // the system tables don't say whether peers are up, but the driver knows
+            Session activeSession = session;
+            Map<UUID, Host> hosts = new HashMap<>();
+            if (activeSession != null)
             {
-                currentVersion = SimpleCassandraVersion.create(version);
-                adapter = versionProvider.getCassandra(version).create(cqlSession);
-                logger.info("Cassandra version change detected.  New adapter loaded: {}", adapter);
+                for (Host host : activeSession.getCluster().getMetadata().getAllHosts())
+                {
+                    if (host.getHostId() != null)
+                        hosts.put(host.getHostId(), host);
+                }
             }
-            logger.info("Cassandra version {}");
+            List<NodeStatus> withState = new ArrayList<>(nodes.size());
+            for (NodeStatus node : nodes)
+            {
+                Host host = hosts.get(node.getHostId());
+                if (host != null && node.getState() == NodeStatus.State.UNKNOWN)
+                    node = node.withState(host.isUp() ? NodeStatus.State.UP : NodeStatus.State.DOWN);
+                withState.add(node);
+            }
+
+            ClusterStatus loaded = changeStatus(s -> s.withNodes(withState, System.currentTimeMillis()));
+            statusLoaded = true;
+            logger.info("Loaded cluster status {}", loaded);
+        }
+        catch (Exception e)
+        {
+            logger.warn("Failed to load cluster status, will retry on the next health check", e);
         }
-        catch (NoHostAvailableException e)
+    }
+
+    private void updateStatus(Host host, NodeStatus.State state)
+    {
+        NodeStatus node = NodeStatus.from(host, state);
+        if (node != null)
+            changeStatus(s -> s.withNode(node, System.currentTimeMillis()));
+    }
+
+    /**
+     * Applies the change to the status, then tells the listeners about every node it added, changed or removed
+     *
+     * @return the new status
+     */
+    private ClusterStatus changeStatus(UnaryOperator<ClusterStatus> change)
+    {
+        ClusterStatus previous;
+        ClusterStatus next;
+        do
         {
-            isUp = false;
+            previous = status.get();
+            next = change.apply(previous);
         }
+        while (!status.compareAndSet(previous, next));
+
+        if (previous != next && !listeners.isEmpty())
+            notifyNodeChanges(previous, next);
+        return next;
     }
 
+    private void notifyNodeChanges(ClusterStatus previous, ClusterStatus next)
+    {
+        for (ChangeListener listener : listeners)
+        {
+            try
+            {
+                for (NodeStatus node : next.getNodes())
+                {
+                    if (!node.equals(previous.getNode(node.getHostId())))
+                        listener.onNodeChange(node);
+                }
+                for (NodeStatus node : previous.getNodes())
+                {
+                    if (next.getNode(node.getHostId()) == null)
+                        listener.onNodeRemoved(node.getHostId());
+                }
+            }
+            catch (Exception e)
+            {
+                logger.warn("Listener {} failed on status change", listener, e);
+            }
+        }
+    }
 
+    /**
+     * @return the cached status of every node, without querying Cassandra
+     */
     @Override
     public List<NodeStatus> getStatus()
+    {
+        return status.get().getNodes();
+    }
+
+    /**
+     * @return the latest cluster status snapshot, {@link ClusterStatus#EMPTY} until it has been loaded
+     */
+    public ClusterStatus getClusterStatus()
+    {
+        return status.get();
+    }
+
+    /**
+     * Blocks on a JMX round trip, so must not be called from an event loop
+     *
+     * @throws IllegalStateException if Cassandra hasn't been reached yet, so there's no adapter to import with
+     */
+    @Override
+    public List<String> importSSTables(String keyspace, String table, String directory)
     {
         checkSession();
-        return adapter.getStatus();
+        ICassandraAdapter current = adapter;
+        if (current == null)
+            throw new IllegalStateException("Cassandra is not available");
+        return current.importSSTables(keyspace, table, directory);
+    }
+
+    /**
+     * Blocks on a JMX round trip, and on Cassandra flushing the tables, so must not be called from an event loop
+     *
+     * @throws IllegalStateException if Cassandra hasn't been reached yet
+     */
+    @Override
+    public void takeSnapshot(String tag, List<String> entities)
+    {
+        checkSession();
+        ICassandraAdapter current = adapter;
+        if (current == null)
+            throw new IllegalStateException("Cassandra is not available");
+        current.takeSnapshot(tag, entities);
+    }
+
+    /**
+     * Blocks on a JMX round trip, so must not be called from an event loop
+     *
+     * @throws IllegalStateException if Cassandra hasn't been reached yet
+     */
+    @Override
+    public void clearSnapshot(String tag, List<String> keyspaces)
+    {
+        checkSession();
+        ICassandraAdapter current = adapter;
+        if (current == null)
+            throw new IllegalStateException("Cassandra is not available");
+        current.clearSnapshot(tag, keyspaces);
+    }
+
+    /**
+     * Blocks on a JMX round trip per metric, so must not be called from an event loop
+     *
+     * @throws IllegalStateException if Cassandra hasn't been reached yet
+     */
+    @Override
+    public Map<String, Map<String, Object>> getTableStats(String keyspace, String table)
+    {
+        checkSession();
+        ICassandraAdapter current = adapter;
+        if (current == null)
+            throw new IllegalStateException("Cassandra is not available");
+        return current.getTableStats(keyspace, table);
+    }
+
+    /**
+     * @return the keyspace's token ring, only built from the driver's metadata if the topology or the keyspace has
+     * changed since it was last asked for
+     * @throws IllegalStateException         if Cassandra hasn't been reached yet
+     * @throws NoSuchElementException        if the keyspace doesn't exist
+     * @throws UnsupportedOperationException if the cluster doesn't use the Murmur3 partitioner
+     */
+    public TokenRing getTokenRing(String keyspace)
+    {
+        TokenRing ring = rings.get(keyspace);
+        if (ring != null)
+            return ring;
+
+        checkSession();
+        Session activeSession = session;
+        if (activeSession == null)
+            throw new IllegalStateException("Cassandra is not available");
+
+        long generation = ringGeneration.get();
+        ring = TokenRing.build(activeSession.getCluster().getMetadata(), keyspace);
+        rings.put(keyspace, ring);
+        // if the ring changed while building, what was built may be stale, so leave it to the next caller
+        if (generation != ringGeneration.get())
+            rings.remove(keyspace, ring);
+        return ring;
+    }
+
+    private void invalidateRings()
+    {
+        ringGeneration.incrementAndGet();
+        rings.clear();
     }
 
     @Override
     public void onAdd(Host host)
     {
+        invalidateRings();
+        updateStatus(host, host.isUp() ? NodeStatus.State.UP : NodeStatus.State.UNKNOWN);
         healthCheck();
     }
 
     @Override
     public void onUp(Host host)
     {
+        updateStatus(host, NodeStatus.State.UP);
         healthCheck();
-        isUp = true;
     }
 
     @Override
     public void onDown(Host host)
     {
-        isUp = false;
+        updateStatus(host, NodeStatus.State.DOWN);
+        // events arrive for every node in the cluster, so probe rather than assume it's the local one which is down
+        healthCheck();
     }
 
     @Override
     public void onRemove(Host host)
     {
+        invalidateRings();
+        if (host.getHostId() != null)
+            changeStatus(s -> s.withoutNode(host.getHostId(), System.currentTimeMillis()));
         healthCheck();
     }
 
@@ -183,14 +539,21 @@ public class CassandraAdapterDelegate implements ICassandraAdapter, Host.StateLi
     {
     }
 
+    /**
+     * @return the latest published health snapshot, never null
+     */
+    public HealthSnapshot getHealth()
+    {
+        return health.get();
+    }
+
     public boolean isUp()
     {
-        return isUp;
+        return health.get().isUp();
     }
 
     public SimpleCassandraVersion getVersion()
     {
-        healthCheck();
-        return currentVersion;
+        return health.get().getVersion();
     }
 }
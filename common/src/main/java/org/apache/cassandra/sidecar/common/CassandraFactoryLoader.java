@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Discovers {@link ICassandraFactory} implementations from the standard {@link java.util.ServiceLoader}
+ * provider-configuration files, {@code META-INF/services/org.apache.cassandra.sidecar.common.ICassandraFactory},
+ * so adapter modules only need to be on the classpath to be picked up.
+ *
+ * {@link java.util.ServiceLoader} itself instantiates every provider it finds, so the files are read directly
+ * instead.  Each factory class is loaded without being initialized, only to read its {@link MinimumVersion}, and is
+ * instantiated the first time a Cassandra version resolves to it.  The rest of an adapter's classes are only loaded
+ * once the adapter is created.
+ */
+public final class CassandraFactoryLoader
+{
+    private static final Logger logger = LoggerFactory.getLogger(CassandraFactoryLoader.class);
+    static final String SERVICES_RESOURCE = "META-INF/services/" + ICassandraFactory.class.getName();
+
+    private CassandraFactoryLoader()
+    {
+    }
+
+    /**
+     * Registers every factory the class loader can see with the builder
+     *
+     * @throws IllegalStateException if a listed class isn't a factory or doesn't declare its minimum version
+     */
+    public static void discover(ClassLoader classLoader, CassandraVersionProvider.Builder builder)
+    {
+        for (String className : factoryClassNames(classLoader))
+        {
+            Class<? extends ICassandraFactory> type = load(classLoader, className);
+            MinimumVersion minimumVersion = type.getAnnotation(MinimumVersion.class);
+            if (minimumVersion == null)
+                throw new IllegalStateException(className + " is not annotated with @MinimumVersion");
+
+            logger.info("Discovered {} for Cassandra {} and later", className, minimumVersion.value());
+            builder.add(SimpleCassandraVersion.create(minimumVersion.value()), () -> instantiate(type));
+        }
+    }
+
+    static Set<String> factoryClassNames(ClassLoader classLoader)
+    {
+        Set<String> classNames = new LinkedHashSet<>();
+        try
+        {
+            Enumeration<URL> resources = classLoader.getResources(SERVICES_RESOURCE);
+            while (resources.hasMoreElements())
+                readClassNames(resources.nextElement(), classNames);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to read " + SERVICES_RESOURCE, e);
+        }
+        return classNames;
+    }
+
+    private static void readClassNames(URL resource, Set<String> classNames) throws IOException
+    {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(),
+                                                                              StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                int comment = line.indexOf('#');
+                String className = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (!className.isEmpty())
+                    classNames.add(className);
+            }
+        }
+    }
+
+    private static Class<? extends ICassandraFactory> load(ClassLoader classLoader, String className)
+    {
+        try
+        {
+            Class<?> type = Class.forName(className, false, classLoader);
+            if (!ICassandraFactory.class.isAssignableFrom(type))
+                throw new IllegalStateException(className + " does not implement " + ICassandraFactory.class);
+            return type.asSubclass(ICassandraFactory.class);
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new IllegalStateException("Cassandra adapter factory not found: " + className, e);
+        }
+    }
+
+    private static ICassandraFactory instantiate(Class<? extends ICassandraFactory> type)
+    {
+        try
+        {
+            logger.info("Loading Cassandra adapter factory {}", type.getName());
+            return type.getConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Failed to instantiate " + type.getName(), e);
+        }
+    }
+}
@@ -20,50 +20,81 @@ package org.apache.cassandra.sidecar.common;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import javax.annotation.concurrent.NotThreadSafe;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Suppliers;
 
 /**
  * Manages multiple Cassandra versions
+ *
+ * The factories are indexed by their {@link MinimumVersion} when the provider is built, so resolving a version is a
+ * floor lookup rather than a scan which reads annotations and parses versions.  Resolutions are also memoized, since
+ * the same handful of versions are asked for over and over.
+ *
+ * Factories can be registered lazily, with {@link Builder#add(SimpleCassandraVersion, Supplier)} or discovered by
+ * {@link Builder#discover(ClassLoader)}, in which case they're only instantiated the first time a version resolves
+ * to them.
  */
 public class CassandraVersionProvider
 {
-    final ArrayList<ICassandraFactory> versions;
+    private final NavigableMap<SimpleCassandraVersion, Supplier<ICassandraFactory>> byMinimumVersion;
+    private final Map<SimpleCassandraVersion, ICassandraFactory> resolved = new ConcurrentHashMap<>();
 
     public CassandraVersionProvider(ArrayList<ICassandraFactory> versions)
     {
-        this.versions = versions;
+        this(index(versions.stream()
+                           .map(f -> new Registration(SimpleCassandraVersion.create(f), () -> f))
+                           .collect(Collectors.toList())));
+    }
+
+    private CassandraVersionProvider(NavigableMap<SimpleCassandraVersion, Supplier<ICassandraFactory>> byMinimumVersion)
+    {
+        this.byMinimumVersion = byMinimumVersion;
+    }
+
+    private static NavigableMap<SimpleCassandraVersion, Supplier<ICassandraFactory>> index(List<Registration> factories)
+    {
+        NavigableMap<SimpleCassandraVersion, Supplier<ICassandraFactory>> index = new TreeMap<>();
+        // factories registered later win if they declare the same minimum version
+        for (Registration registration : factories)
+            index.put(registration.minimumVersion, Suppliers.memoize(registration.factory::get)::get);
+        return index;
     }
 
+    /**
+     * Instantiates every registered factory, including the lazily registered ones
+     */
     @VisibleForTesting
     public List<ICassandraFactory> getAllVersions()
     {
-        return this.versions;
+        return byMinimumVersion.values().stream().map(Supplier::get).collect(Collectors.toList());
     }
 
     /**
      * For the provided CassandraVersion, return a new ICassandraFactory instance
      * that meets the minimum version requirements
      * That factory can be used to create an ICassandraAdapter
+     *
+     * If the version is older than every factory's minimum version, the factory with the lowest minimum version is
+     * returned
      * @param requestedVersion
      * @return
      */
     public ICassandraFactory getCassandra(SimpleCassandraVersion requestedVersion)
     {
-        ICassandraFactory result = versions.get(0);
-
-        for (ICassandraFactory f : versions)
+        ICassandraFactory result = resolved.get(requestedVersion);
+        if (result == null)
         {
-            SimpleCassandraVersion currentMinVersion = SimpleCassandraVersion.create(result);
-            SimpleCassandraVersion nextVersion = SimpleCassandraVersion.create(f);
-
-            // skip if we can rule this out early
-            if (nextVersion.isGreaterThan(requestedVersion)) continue;
-
-            if (requestedVersion.isGreaterThan(currentMinVersion))
-            {
-                result = f;
-            }
+            Map.Entry<SimpleCassandraVersion, Supplier<ICassandraFactory>> entry =
+            byMinimumVersion.floorEntry(requestedVersion);
+            result = (entry != null ? entry : byMinimumVersion.firstEntry()).getValue().get();
+            resolved.put(requestedVersion, result);
         }
         return result;
     }
@@ -79,13 +110,28 @@ public class CassandraVersionProvider
         return getCassandra(version);
     }
 
+    /**
+     * A factory and the minimum version it supports
+     */
+    private static class Registration
+    {
+        private final SimpleCassandraVersion minimumVersion;
+        private final Supplier<? extends ICassandraFactory> factory;
+
+        Registration(SimpleCassandraVersion minimumVersion, Supplier<? extends ICassandraFactory> factory)
+        {
+            this.minimumVersion = minimumVersion;
+            this.factory = factory;
+        }
+    }
+
     /**
      * Builder for VersionProvider
      */
     @NotThreadSafe
     public static class Builder
     {
-        ArrayList<ICassandraFactory> versions;
+        List<Registration> versions;
         public Builder()
         {
             versions = new ArrayList<>();
@@ -97,13 +143,31 @@ public class CassandraVersionProvider
             {
                 throw new IllegalStateException("At least one ICassandraFactory is required");
             }
-            return new CassandraVersionProvider(versions);
+            return new CassandraVersionProvider(index(versions));
         }
+
         public Builder add(ICassandraFactory version)
         {
-            versions.add(version);
+            return add(SimpleCassandraVersion.create(version), () -> version);
+        }
+
+        /**
+         * Registers a factory which is only created once a version resolves to it
+         */
+        public Builder add(SimpleCassandraVersion minimumVersion, Supplier<? extends ICassandraFactory> factory)
+        {
+            versions.add(new Registration(minimumVersion, factory));
             return this;
         }
 
+        /**
+         * Registers every factory listed by the class loader's {@code META-INF/services} provider-configuration
+         * files, see {@link CassandraFactoryLoader}
+         */
+        public Builder discover(ClassLoader classLoader)
+        {
+            CassandraFactoryLoader.discover(classLoader, this);
+            return this;
+        }
     }
 }
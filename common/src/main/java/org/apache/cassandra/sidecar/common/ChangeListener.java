@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.util.UUID;
+
+/**
+ * Told by the {@link CassandraAdapterDelegate} about changes as soon as it sees them, so they can be pushed to
+ * clients instead of being polled for.  Called from the driver's and the health check's threads, so implementations
+ * must not block.
+ */
+public interface ChangeListener
+{
+    /**
+     * Cassandra went up or down, or its version changed
+     */
+    void onHealthChange(HealthSnapshot health);
+
+    /**
+     * A node joined, or its state or details changed
+     */
+    void onNodeChange(NodeStatus node);
+
+    /**
+     * A node left the cluster
+     */
+    void onNodeRemoved(UUID hostId);
+}
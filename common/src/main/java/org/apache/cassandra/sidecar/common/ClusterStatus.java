@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Immutable view of every node's {@link NodeStatus}.  Each change produces a new snapshot with a higher version, so
+ * readers can tell whether anything changed since they last looked without comparing the nodes.
+ */
+public final class ClusterStatus
+{
+    public static final ClusterStatus EMPTY = new ClusterStatus(0, 0, ImmutableMap.of());
+
+    private final long version;
+    private final long timestamp;
+    private final ImmutableMap<UUID, NodeStatus> nodes;
+
+    private ClusterStatus(long version, long timestamp, ImmutableMap<UUID, NodeStatus> nodes)
+    {
+        this.version = version;
+        this.timestamp = timestamp;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @return a counter incremented by every change, 0 until the status has been loaded
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return time in millis of the last change
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    public List<NodeStatus> getNodes()
+    {
+        return nodes.values().asList();
+    }
+
+    /**
+     * @return the node's status, or null if it isn't part of the cluster
+     */
+    @Nullable
+    public NodeStatus getNode(UUID hostId)
+    {
+        return nodes.get(hostId);
+    }
+
+    /**
+     * @return a snapshot with exactly the given nodes
+     */
+    public ClusterStatus withNodes(Collection<NodeStatus> statuses, long timestamp)
+    {
+        ImmutableMap.Builder<UUID, NodeStatus> builder = ImmutableMap.builder();
+        for (NodeStatus status : statuses)
+            builder.put(status.getHostId(), status);
+        return new ClusterStatus(version + 1, timestamp, builder.build());
+    }
+
+    /**
+     * @return a snapshot with the node added or replaced, or this snapshot if it already has the same status
+     */
+    public ClusterStatus withNode(NodeStatus status, long timestamp)
+    {
+        if (status.equals(nodes.get(status.getHostId())))
+            return this;
+
+        ImmutableMap.Builder<UUID, NodeStatus> builder = ImmutableMap.builder();
+        for (Map.Entry<UUID, NodeStatus> entry : nodes.entrySet())
+        {
+            if (!entry.getKey().equals(status.getHostId()))
+                builder.put(entry);
+        }
+        builder.put(status.getHostId(), status);
+        return new ClusterStatus(version + 1, timestamp, builder.build());
+    }
+
+    /**
+     * @return a snapshot with the node's state changed, or this snapshot if the node is unknown or already in it
+     */
+    public ClusterStatus withState(UUID hostId, NodeStatus.State state, long timestamp)
+    {
+        NodeStatus status = nodes.get(hostId);
+        return status == null ? this : withNode(status.withState(state), timestamp);
+    }
+
+    /**
+     * @return a snapshot without the node, or this snapshot if the node is unknown
+     */
+    public ClusterStatus withoutNode(UUID hostId, long timestamp)
+    {
+        if (!nodes.containsKey(hostId))
+            return this;
+
+        ImmutableMap.Builder<UUID, NodeStatus> builder = ImmutableMap.builder();
+        for (Map.Entry<UUID, NodeStatus> entry : nodes.entrySet())
+        {
+            if (!entry.getKey().equals(hostId))
+                builder.put(entry);
+        }
+        return new ClusterStatus(version + 1, timestamp, builder.build());
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ClusterStatus{version=" + version + ", timestamp=" + timestamp + ", nodes=" + nodes.values() + '}';
+    }
+}
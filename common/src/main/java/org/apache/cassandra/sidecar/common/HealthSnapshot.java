@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable view of the last health check result.  Published by the {@link CassandraAdapterDelegate} through an
+ * atomic reference so readers never take a lock or touch Cassandra.
+ */
+public final class HealthSnapshot
+{
+    public static final HealthSnapshot UNKNOWN = new HealthSnapshot(false, null, 0);
+
+    private final boolean up;
+    @Nullable
+    private final SimpleCassandraVersion version;
+    private final long timestamp;
+
+    public HealthSnapshot(boolean up, @Nullable SimpleCassandraVersion version, long timestamp)
+    {
+        this.up = up;
+        this.version = version;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return true if the last probe reached Cassandra
+     */
+    public boolean isUp()
+    {
+        return up;
+    }
+
+    /**
+     * @return the last version reported by Cassandra, or null if it has never been reached
+     */
+    @Nullable
+    public SimpleCassandraVersion getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return time in millis at which this snapshot was taken
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * Creates a new snapshot with the given status, keeping the last known version
+     */
+    public HealthSnapshot withUp(boolean isUp, long timestamp)
+    {
+        return new HealthSnapshot(isUp, version, timestamp);
+    }
+
+    /**
+     * @return true if both snapshots have the same status and version, regardless of when they were taken
+     */
+    public boolean hasSameState(HealthSnapshot other)
+    {
+        return up == other.up && Objects.equals(version, other.version);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "HealthSnapshot{up=" + up + ", version=" + version + ", timestamp=" + timestamp + '}';
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.cassandra.sidecar.common;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Core Cassandra Adapter interface
@@ -30,4 +31,44 @@ public interface ICassandraAdapter
 {
     List<NodeStatus> getStatus();
 
+    /**
+     * Loads the SSTables in the directory into the table, as {@code nodetool import} does
+     *
+     * @return the directories which failed to import, empty if everything was imported
+     */
+    default List<String> importSSTables(String keyspace, String table, String directory)
+    {
+        throw new UnsupportedOperationException("Importing SSTables is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Snapshots the keyspaces or tables, as {@code nodetool snapshot} does
+     *
+     * @param entities keyspace names or {@code keyspace.table} names, every keyspace if empty
+     */
+    default void takeSnapshot(String tag, List<String> entities)
+    {
+        throw new UnsupportedOperationException("Taking snapshots is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Removes the snapshot from the keyspaces, as {@code nodetool clearsnapshot} does
+     *
+     * @param keyspaces keyspace names, every keyspace if empty
+     */
+    default void clearSnapshot(String tag, List<String> keyspaces)
+    {
+        throw new UnsupportedOperationException("Clearing snapshots is not supported by " + getClass().getName());
+    }
+
+    /**
+     * Reads the table's metrics, as {@code nodetool tablestats} does
+     *
+     * @return each metric's values by metric name, such as {@code Count} and {@code 99thPercentile} of a latency
+     * @throws java.util.NoSuchElementException if the table has no metrics, because it doesn't exist
+     */
+    default Map<String, Map<String, Object>> getTableStats(String keyspace, String table)
+    {
+        throw new UnsupportedOperationException("Table stats are not supported by " + getClass().getName());
+    }
 }
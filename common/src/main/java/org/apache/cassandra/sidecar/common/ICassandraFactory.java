@@ -24,4 +24,12 @@ package org.apache.cassandra.sidecar.common;
 public interface ICassandraFactory
 {
     ICassandraAdapter create(CQLSession session);
+
+    /**
+     * Creates an adapter which can also reach Cassandra over JMX.  Adapters which only need CQL don't override this.
+     */
+    default ICassandraAdapter create(CQLSession session, JmxClient jmxClient)
+    {
+        return create(session);
+    }
 }
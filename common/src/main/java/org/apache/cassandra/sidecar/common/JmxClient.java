@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.management.Attribute;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerDelegate;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.relation.MBeanServerNotificationFilter;
+import javax.management.remote.JMXConnectionNotification;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connection to Cassandra's JMX server, for the operations and metrics which aren't exposed over CQL.  Everything in
+ * the sidecar reading JMX goes through the one client per Cassandra instance, rather than connecting per request as
+ * nodetool does.
+ *
+ * The connection is opened lazily, kept open between calls, and dropped when it fails or the server closes it, so the
+ * next call reconnects.  Reads are retried once on a fresh connection, since an idle connection may have gone stale,
+ * while operations are not, since they may have run before the connection failed.
+ *
+ * Attributes are read in one round trip per MBean, and the names matching a pattern are cached until MBeans are
+ * registered or unregistered, so reading a set of metrics costs one round trip per MBean and no queries.
+ */
+public class JmxClient implements Closeable
+{
+    private static final Logger logger = LoggerFactory.getLogger(JmxClient.class);
+
+    private final JMXServiceURL serviceUrl;
+    private final Map<ObjectName, Set<ObjectName>> names = new ConcurrentHashMap<>();
+    // bumped whenever the cached names may be stale, so queries racing an invalidation don't cache their result
+    private final AtomicLong namesGeneration = new AtomicLong();
+    private final NotificationListener connectionListener = this::connectionChanged;
+    private final NotificationListener registrationListener = (notification, handback) -> invalidateNames();
+    // the connector's own lock is held while it notifies the connection listener, so it's only ever closed or asked
+    // for its connection without holding this client's lock
+    @Nullable
+    private JMXConnector connector;
+    @Nullable
+    private MBeanServerConnection connection;
+
+    public JmxClient(String host, int port)
+    {
+        try
+        {
+            serviceUrl = new JMXServiceURL(String.format("service:jmx:rmi:///jndi/rmi://%s:%d/jmxrmi", host, port));
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalArgumentException(String.format("Invalid JMX host %s or port %d", host, port), e);
+        }
+    }
+
+    /**
+     * Invokes an MBean operation
+     *
+     * @throws RuntimeException wrapping the JMX or connection failure
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T invoke(ObjectName name, String operation, Object[] params, String[] signature)
+    {
+        MBeanServerConnection current = null;
+        try
+        {
+            current = connection();
+            return (T) current.invoke(name, operation, params, signature);
+        }
+        catch (IOException e)
+        {
+            disconnect(current);
+            throw new RuntimeException(String.format("Failed to invoke %s on %s", operation, name), e);
+        }
+        catch (JMException e)
+        {
+            throw new RuntimeException(String.format("Failed to invoke %s on %s", operation, name), e);
+        }
+    }
+
+    /**
+     * Reads the attributes of an MBean in one round trip
+     *
+     * @return the values by attribute name, leaving out any attributes the MBean doesn't have
+     * @throws RuntimeException wrapping the JMX or connection failure, including the MBean not being registered
+     */
+    public Map<String, Object> getAttributes(ObjectName name, String... attributes)
+    {
+        return read(String.format("Failed to read %s", name), server -> attributes(server, name, attributes));
+    }
+
+    /**
+     * Reads the same attributes of each MBean, in one round trip per MBean over the one connection
+     *
+     * @return the values by attribute name for each MBean, leaving out MBeans unregistered in the meantime
+     * @throws RuntimeException wrapping the JMX or connection failure
+     */
+    public Map<ObjectName, Map<String, Object>> getAttributes(Collection<ObjectName> mbeans, String... attributes)
+    {
+        return read(String.format("Failed to read %d MBeans", mbeans.size()), server ->
+        {
+            Map<ObjectName, Map<String, Object>> values = new LinkedHashMap<>();
+            for (ObjectName name : mbeans)
+            {
+                try
+                {
+                    values.put(name, attributes(server, name, attributes));
+                }
+                catch (InstanceNotFoundException e)
+                {
+                    logger.debug("{} was unregistered before it could be read", name);
+                }
+            }
+            return values;
+        });
+    }
+
+    /**
+     * Reads the same attributes of every MBean matching the pattern
+     *
+     * @see #queryNames(ObjectName)
+     * @see #getAttributes(Collection, String...)
+     */
+    public Map<ObjectName, Map<String, Object>> queryAttributes(ObjectName pattern, String... attributes)
+    {
+        return getAttributes(queryNames(pattern), attributes);
+    }
+
+    /**
+     * Finds the MBeans matching the pattern, only asking the server again once MBeans have been registered or
+     * unregistered since it was last asked
+     *
+     * @return the names, empty if none match
+     * @throws RuntimeException wrapping the JMX or connection failure
+     */
+    public Set<ObjectName> queryNames(ObjectName pattern)
+    {
+        Set<ObjectName> cached = names.get(pattern);
+        if (cached != null)
+            return cached;
+
+        long generation = namesGeneration.get();
+        Set<ObjectName> found = read(String.format("Failed to query %s", pattern), server ->
+                                     Collections.unmodifiableSet(server.queryNames(pattern, null)));
+        synchronized (this)
+        {
+            if (namesGeneration.get() == generation)
+                names.put(pattern, found);
+        }
+        return found;
+    }
+
+    private static Map<String, Object> attributes(MBeanServerConnection server, ObjectName name,
+                                                  String[] attributes) throws IOException, JMException
+    {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Attribute attribute : server.getAttributes(name, attributes).asList())
+            values.put(attribute.getName(), attribute.getValue());
+        return values;
+    }
+
+    private <T> T read(String failure, Read<T> read)
+    {
+        MBeanServerConnection current = null;
+        try
+        {
+            current = connection();
+            try
+            {
+                return read.read(current);
+            }
+            catch (IOException e)
+            {
+                logger.debug("JMX read failed, retrying on a new connection", e);
+                disconnect(current);
+                current = connection();
+                return read.read(current);
+            }
+        }
+        catch (IOException e)
+        {
+            disconnect(current);
+            throw new RuntimeException(failure, e);
+        }
+        catch (JMException e)
+        {
+            throw new RuntimeException(failure, e);
+        }
+    }
+
+    private synchronized MBeanServerConnection connection() throws IOException
+    {
+        if (connection != null)
+            return connection;
+
+        logger.info("Connecting to JMX at {}", serviceUrl);
+        JMXConnector connecting = JMXConnectorFactory.connect(serviceUrl);
+        MBeanServerConnection connected;
+        try
+        {
+            connected = connecting.getMBeanServerConnection();
+            MBeanServerNotificationFilter filter = new MBeanServerNotificationFilter();
+            filter.enableAllObjectNames();
+            connected.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener, filter, null);
+        }
+        catch (IOException | JMException e)
+        {
+            // nothing can be waiting on this client's lock from the new connector yet, so it's safe to close here
+            close(connecting);
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+        // names were invalidated when the last connection was dropped, so MBeans which came and went meanwhile are
+        // queried afresh
+        connecting.addConnectionNotificationListener(connectionListener, null, connecting);
+        connector = connecting;
+        connection = connected;
+        return connected;
+    }
+
+    private void connectionChanged(Notification notification, Object handback)
+    {
+        String type = notification.getType();
+        if (!JMXConnectionNotification.FAILED.equals(type) && !JMXConnectionNotification.CLOSED.equals(type))
+            return;
+
+        synchronized (this)
+        {
+            // only drop the connection the notification is about, not one opened since
+            if (connector != handback)
+                return;
+            logger.info("JMX connection to {} was {}", serviceUrl,
+                        JMXConnectionNotification.FAILED.equals(type) ? "lost" : "closed");
+            connector = null;
+            connection = null;
+        }
+        invalidateNames();
+    }
+
+    private synchronized void invalidateNames()
+    {
+        namesGeneration.incrementAndGet();
+        names.clear();
+    }
+
+    /**
+     * Drops the connection if it's still the one which failed, rather than one another thread has opened since
+     */
+    private void disconnect(@Nullable MBeanServerConnection failed)
+    {
+        JMXConnector closing;
+        synchronized (this)
+        {
+            if (failed == null || connection != failed)
+                return;
+            closing = connector;
+            connector = null;
+            connection = null;
+        }
+        close(closing);
+        invalidateNames();
+    }
+
+    private static void close(JMXConnector connector)
+    {
+        try
+        {
+            connector.close();
+        }
+        catch (IOException e)
+        {
+            logger.debug("Failed to close JMX connector", e);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        JMXConnector closing;
+        synchronized (this)
+        {
+            closing = connector;
+            connector = null;
+            connection = null;
+        }
+        if (closing != null)
+            close(closing);
+        invalidateNames();
+    }
+
+    /**
+     * A read over the connection, which is safe to retry
+     */
+    private interface Read<T>
+    {
+        T read(MBeanServerConnection server) throws IOException, JMException;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Computes partition key tokens the way Cassandra's {@code Murmur3Partitioner} does, which is the 64 bit half of
+ * MurmurHash3_x64_128 including Cassandra's sign extension of the tail bytes.  Returns primitive tokens so batch
+ * lookups don't allocate a token object per key.
+ */
+public final class Murmur3
+{
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private Murmur3()
+    {
+    }
+
+    /**
+     * @param key the serialized partition key, read from its position to its limit without being consumed
+     * @return the key's token
+     */
+    public static long token(ByteBuffer key)
+    {
+        if (!key.hasRemaining())
+            return Long.MIN_VALUE;
+        long hash = hash64(key, key.position(), key.remaining());
+        // Long.MIN_VALUE is reserved as the minimum token
+        return hash == Long.MIN_VALUE ? Long.MAX_VALUE : hash;
+    }
+
+    private static long hash64(ByteBuffer key, int offset, int length)
+    {
+        int blocks = length >> 4;
+        long h1 = 0;
+        long h2 = 0;
+
+        for (int i = 0; i < blocks; i++)
+        {
+            long k1 = block(key, offset, i * 2);
+            long k2 = block(key, offset, i * 2 + 1);
+
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = offset + blocks * 16;
+        int remaining = length & 15;
+        // the tail bytes are sign extended, as in Cassandra, so tokens match for keys with bytes >= 0x80
+        if (remaining > 8)
+        {
+            long k2 = 0;
+            for (int i = remaining - 1; i >= 8; i--)
+                k2 ^= ((long) key.get(tail + i)) << ((i - 8) * 8);
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        }
+        if (remaining > 0)
+        {
+            long k1 = 0;
+            for (int i = Math.min(remaining, 8) - 1; i >= 0; i--)
+                k1 ^= ((long) key.get(tail + i)) << (i * 8);
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        return h1 + h2;
+    }
+
+    private static long block(ByteBuffer key, int offset, int index)
+    {
+        int start = offset + (index << 3);
+        long block = 0;
+        for (int i = 7; i >= 0; i--)
+            block = (block << 8) | (key.get(start + i) & 0xffL);
+        return block;
+    }
+
+    private static long fmix(long k)
+    {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -16,13 +16,187 @@
  * limitations under the License.
  */
 
-
 package org.apache.cassandra.sidecar.common;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Objects;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+import com.datastax.driver.core.Host;
+
 /**
- * Placeholder
+ * Immutable status of a single node in the cluster, as seen by the sidecar
  */
-public class NodeStatus
+public final class NodeStatus
 {
+    /**
+     * Whether the node is reachable, as far as the driver knows
+     */
+    public enum State
+    {
+        UP, DOWN, UNKNOWN
+    }
+
+    private final UUID hostId;
+    @Nullable
+    private final String address;
+    private final int port;
+    @Nullable
+    private final String nativeAddress;
+    private final int nativePort;
+    @Nullable
+    private final String datacenter;
+    @Nullable
+    private final String rack;
+    @Nullable
+    private final String releaseVersion;
+    private final State state;
+
+    public NodeStatus(UUID hostId, @Nullable InetAddress address, int port, @Nullable InetAddress nativeAddress,
+                      int nativePort, @Nullable String datacenter, @Nullable String rack,
+                      @Nullable String releaseVersion, State state)
+    {
+        this.hostId = Objects.requireNonNull(hostId, "hostId");
+        this.address = address != null ? address.getHostAddress() : null;
+        this.port = port;
+        this.nativeAddress = nativeAddress != null ? nativeAddress.getHostAddress() : null;
+        this.nativePort = nativePort;
+        this.datacenter = datacenter;
+        this.rack = rack;
+        this.releaseVersion = releaseVersion;
+        this.state = state;
+    }
+
+    private NodeStatus(NodeStatus other, State state)
+    {
+        this.hostId = other.hostId;
+        this.address = other.address;
+        this.port = other.port;
+        this.nativeAddress = other.nativeAddress;
+        this.nativePort = other.nativePort;
+        this.datacenter = other.datacenter;
+        this.rack = other.rack;
+        this.releaseVersion = other.releaseVersion;
+        this.state = state;
+    }
+
+    /**
+     * Builds the status from the driver's metadata for the host, which the driver keeps up to date from
+     * {@code system.peers} and topology events without any further queries
+     *
+     * @return the status, or null if the driver doesn't know the host's id yet
+     */
+    @Nullable
+    public static NodeStatus from(Host host, State state)
+    {
+        if (host.getHostId() == null)
+            return null;
+
+        InetSocketAddress broadcast = host.getBroadcastSocketAddress();
+        InetSocketAddress nativeTransport = host.getEndPoint().resolve();
+        return new NodeStatus(host.getHostId(),
+                              broadcast != null ? broadcast.getAddress() : host.getBroadcastAddress(),
+                              broadcast != null ? broadcast.getPort() : 0,
+                              nativeTransport.getAddress(),
+                              nativeTransport.getPort(),
+                              host.getDatacenter(),
+                              host.getRack(),
+                              host.getCassandraVersion() != null ? host.getCassandraVersion().toString() : null,
+                              state);
+    }
+
+    public NodeStatus withState(State state)
+    {
+        return state == this.state ? this : new NodeStatus(this, state);
+    }
+
+    public UUID getHostId()
+    {
+        return hostId;
+    }
+
+    /**
+     * @return the node's broadcast address, which other nodes talk to it on
+     */
+    @Nullable
+    public String getAddress()
+    {
+        return address;
+    }
+
+    public int getPort()
+    {
+        return port;
+    }
+
+    /**
+     * @return the address clients connect to for CQL
+     */
+    @Nullable
+    public String getNativeAddress()
+    {
+        return nativeAddress;
+    }
+
+    public int getNativePort()
+    {
+        return nativePort;
+    }
+
+    @Nullable
+    public String getDatacenter()
+    {
+        return datacenter;
+    }
+
+    @Nullable
+    public String getRack()
+    {
+        return rack;
+    }
+
+    @Nullable
+    public String getReleaseVersion()
+    {
+        return releaseVersion;
+    }
+
+    public State getState()
+    {
+        return state;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (!(o instanceof NodeStatus))
+            return false;
+        NodeStatus that = (NodeStatus) o;
+        return port == that.port
+               && nativePort == that.nativePort
+               && hostId.equals(that.hostId)
+               && Objects.equals(address, that.address)
+               && Objects.equals(nativeAddress, that.nativeAddress)
+               && Objects.equals(datacenter, that.datacenter)
+               && Objects.equals(rack, that.rack)
+               && Objects.equals(releaseVersion, that.releaseVersion)
+               && state == that.state;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(hostId, address, port, nativeAddress, nativePort, datacenter, rack, releaseVersion, state);
+    }
 
+    @Override
+    public String toString()
+    {
+        return "NodeStatus{hostId=" + hostId + ", address=" + address + ':' + port + ", datacenter=" + datacenter +
+               ", rack=" + rack + ", releaseVersion=" + releaseVersion + ", state=" + state + '}';
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.SimpleStatement;
+
+/**
+ * Prepares each distinct statement once and hands out the same {@link PreparedStatement} afterwards.  Statements are
+ * keyed by their CQL text and keyspace, and are prepared lazily and asynchronously the first time they're asked for.
+ * Concurrent callers share the pending future, and a failed preparation is evicted so the next caller retries it.
+ *
+ * Prepared statements only live as long as the driver's Cluster, so {@link CQLSession} invalidates the cache whenever
+ * it reconnects, and the {@link CassandraAdapterDelegate} whenever Cassandra's version changes.  While the Cluster is
+ * up the driver re-prepares statements on nodes which restart by itself.
+ */
+public class PreparedStatementCache
+{
+    private final Function<RegularStatement, ListenableFuture<PreparedStatement>> preparer;
+    private final ConcurrentMap<Key, ListenableFuture<PreparedStatement>> statements = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param preparer prepares a statement asynchronously, only called on cache misses
+     */
+    public PreparedStatementCache(Function<RegularStatement, ListenableFuture<PreparedStatement>> preparer)
+    {
+        this.preparer = preparer;
+    }
+
+    /**
+     * @param keyspace the keyspace the statement is prepared in, which needs protocol v5, or null if its tables are
+     *                 fully qualified
+     * @return the prepared statement, which may still be being prepared
+     */
+    public ListenableFuture<PreparedStatement> prepare(@Nullable String keyspace, String cql)
+    {
+        Key key = new Key(keyspace, cql);
+        ListenableFuture<PreparedStatement> cached = statements.get(key);
+        if (cached == null)
+        {
+            SettableFuture<PreparedStatement> pending = SettableFuture.create();
+            cached = statements.putIfAbsent(key, pending);
+            if (cached == null)
+            {
+                misses.increment();
+                load(key, pending);
+                return pending;
+            }
+        }
+        hits.increment();
+        return cached;
+    }
+
+    private void load(Key key, SettableFuture<PreparedStatement> pending)
+    {
+        // registered first, so even a preparation which fails straight away is evicted
+        Futures.addCallback(pending, new FutureCallback<PreparedStatement>()
+        {
+            public void onSuccess(PreparedStatement result)
+            {
+            }
+
+            public void onFailure(Throwable t)
+            {
+                statements.remove(key, pending);
+            }
+        }, MoreExecutors.directExecutor());
+
+        SimpleStatement statement = new SimpleStatement(key.cql);
+        if (key.keyspace != null)
+            statement.setKeyspace(key.keyspace);
+        try
+        {
+            pending.setFuture(preparer.apply(statement));
+        }
+        catch (RuntimeException e)
+        {
+            pending.setException(e);
+        }
+    }
+
+    /**
+     * Drops every statement, so they're prepared again the next time they're used
+     */
+    public void invalidateAll()
+    {
+        statements.clear();
+    }
+
+    /**
+     * @return the number of statements which were already prepared or being prepared when asked for
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of times a statement had to be prepared
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    public int size()
+    {
+        return statements.size();
+    }
+
+    private static class Key
+    {
+        @Nullable
+        private final String keyspace;
+        private final String cql;
+
+        Key(@Nullable String keyspace, String cql)
+        {
+            this.keyspace = keyspace;
+            this.cql = cql;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            Key that = (Key) o;
+            return Objects.equals(keyspace, that.keyspace) && cql.equals(that.cql);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(keyspace, cql);
+        }
+    }
+}
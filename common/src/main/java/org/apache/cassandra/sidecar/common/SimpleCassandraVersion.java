@@ -18,6 +18,8 @@
 
 package org.apache.cassandra.sidecar.common;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -48,6 +50,13 @@ public class SimpleCassandraVersion implements Comparable<SimpleCassandraVersion
     private static final Pattern pattern = Pattern.compile(VERSION_REGEXP);
     private static final Pattern SNAPSHOT = Pattern.compile("-SNAPSHOT");
 
+    /**
+     * Parsed versions, since the same release_version strings are parsed on every health check.  Bounded, so
+     * parsing arbitrary strings can't grow it forever.
+     */
+    private static final int MAX_CACHED_VERSIONS = 64;
+    private static final ConcurrentMap<String, SimpleCassandraVersion> parsed = new ConcurrentHashMap<>();
+
     public final int major;
     public final int minor;
     public final int patch;
@@ -60,6 +69,18 @@ public class SimpleCassandraVersion implements Comparable<SimpleCassandraVersion
      *                                  represent a version
      */
     public static SimpleCassandraVersion create(String version)
+    {
+        SimpleCassandraVersion cached = parsed.get(version);
+        if (cached != null)
+            return cached;
+
+        SimpleCassandraVersion result = parse(version);
+        if (parsed.size() < MAX_CACHED_VERSIONS)
+            parsed.putIfAbsent(version, result);
+        return result;
+    }
+
+    private static SimpleCassandraVersion parse(String version)
     {
         String stripped = SNAPSHOT.matcher(version).replaceFirst("");
         Matcher matcher = pattern.matcher(stripped);
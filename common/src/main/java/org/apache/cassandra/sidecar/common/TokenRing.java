@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.TokenRange;
+
+/**
+ * An immutable view of which nodes replicate each token range of a keyspace, for a cluster using the
+ * {@code Murmur3Partitioner}.
+ *
+ * The ring is kept as a sorted array of primitive tokens, each the inclusive end of a range, with the range's replicas
+ * at the same index.  Looking a token up is a binary search, and keys are hashed with {@link Murmur3}, so resolving
+ * many keys neither allocates per key nor touches the driver.  Ranges with the same replicas share one list.
+ */
+public class TokenRing
+{
+    public static final String MURMUR3_PARTITIONER = "org.apache.cassandra.dht.Murmur3Partitioner";
+
+    private final String keyspace;
+    private final long[] tokens;
+    private final List<List<String>> replicas;
+
+    /**
+     * @param keyspace the keyspace whose replication the ring reflects
+     * @param tokens   the end token of every range, sorted in ascending order
+     * @param replicas the replicas of each range, at the same index as its end token
+     */
+    public TokenRing(String keyspace, long[] tokens, List<List<String>> replicas)
+    {
+        Preconditions.checkArgument(tokens.length > 0, "The ring has no tokens");
+        Preconditions.checkArgument(tokens.length == replicas.size(), "Expected replicas for %s tokens, got %s",
+                                    tokens.length, replicas.size());
+        for (int i = 1; i < tokens.length; i++)
+            Preconditions.checkArgument(tokens[i - 1] < tokens[i], "Tokens are not sorted and distinct");
+
+        this.keyspace = keyspace;
+        this.tokens = tokens;
+        Map<List<String>, List<String>> interned = new HashMap<>();
+        List<List<String>> shared = new ArrayList<>(replicas.size());
+        for (List<String> endpoints : replicas)
+        {
+            List<String> copy = Collections.unmodifiableList(new ArrayList<>(endpoints));
+            List<String> previous = interned.putIfAbsent(copy, copy);
+            shared.add(previous != null ? previous : copy);
+        }
+        this.replicas = Collections.unmodifiableList(shared);
+    }
+
+    /**
+     * Builds the ring from the driver's view of the cluster.  This walks every range of the ring, so callers should
+     * keep the result until the topology or the keyspace's replication changes.
+     *
+     * @throws UnsupportedOperationException if the cluster doesn't use the Murmur3 partitioner
+     * @throws NoSuchElementException        if the keyspace doesn't exist
+     * @throws IllegalStateException         if the driver doesn't know the ring yet
+     */
+    public static TokenRing build(Metadata metadata, String keyspace)
+    {
+        String partitioner = metadata.getPartitioner();
+        if (!MURMUR3_PARTITIONER.equals(partitioner))
+            throw new UnsupportedOperationException("Unsupported partitioner " + partitioner);
+        if (metadata.getKeyspace(keyspace) == null)
+            throw new NoSuchElementException("Unknown keyspace " + keyspace);
+
+        Set<TokenRange> ranges = metadata.getTokenRanges();
+        if (ranges.isEmpty())
+            throw new IllegalStateException("The token ring is not known yet");
+
+        TokenRange[] sorted = ranges.toArray(new TokenRange[0]);
+        Arrays.sort(sorted, (a, b) -> Long.compare(value(a), value(b)));
+        long[] tokens = new long[sorted.length];
+        List<List<String>> replicas = new ArrayList<>(sorted.length);
+        for (int i = 0; i < sorted.length; i++)
+        {
+            tokens[i] = value(sorted[i]);
+            Set<Host> hosts = metadata.getReplicas(keyspace, sorted[i]);
+            List<String> endpoints = new ArrayList<>(hosts.size());
+            for (Host host : hosts)
+                endpoints.add(address(host));
+            replicas.add(endpoints);
+        }
+        return new TokenRing(metadata.getKeyspace(keyspace).getName(), tokens, replicas);
+    }
+
+    private static long value(TokenRange range)
+    {
+        return (Long) range.getEnd().getValue();
+    }
+
+    private static String address(Host host)
+    {
+        InetSocketAddress broadcast = host.getBroadcastSocketAddress();
+        InetAddress address = broadcast != null ? broadcast.getAddress() : host.getBroadcastAddress();
+        if (address == null)
+            address = host.getEndPoint().resolve().getAddress();
+        return address.getHostAddress();
+    }
+
+    /**
+     * @return the token of a serialized partition key, as Cassandra's {@code Murmur3Partitioner} computes it
+     */
+    public static long token(ByteBuffer key)
+    {
+        return Murmur3.token(key);
+    }
+
+    /**
+     * @return the index of the range owning the token, the first range ending at or after it, wrapping around
+     */
+    public int indexOf(long token)
+    {
+        int index = Arrays.binarySearch(tokens, token);
+        if (index < 0)
+            index = -index - 1;
+        return index == tokens.length ? 0 : index;
+    }
+
+    public List<String> replicas(long token)
+    {
+        return replicas.get(indexOf(token));
+    }
+
+    public List<String> replicas(ByteBuffer key)
+    {
+        return replicas(token(key));
+    }
+
+    public String getKeyspace()
+    {
+        return keyspace;
+    }
+
+    public int size()
+    {
+        return tokens.length;
+    }
+
+    /**
+     * @return the exclusive start of the range at the index, which is the end of the previous range
+     */
+    public long getStart(int index)
+    {
+        return tokens[index == 0 ? tokens.length - 1 : index - 1];
+    }
+
+    /**
+     * @return the inclusive end of the range at the index
+     */
+    public long getEnd(int index)
+    {
+        return tokens[index];
+    }
+
+    public List<String> getReplicas(int index)
+    {
+        return replicas.get(index);
+    }
+}
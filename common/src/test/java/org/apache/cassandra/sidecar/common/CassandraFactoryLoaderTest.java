@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.cassandra.sidecar.mocks.V30;
+import org.apache.cassandra.sidecar.mocks.V40;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class CassandraFactoryLoaderTest
+{
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    @Test
+    void discoversFactoriesLazily(@TempDir Path dir) throws IOException
+    {
+        ClassLoader classLoader = withServices(dir, "# comment",
+                                               V30.class.getName(),
+                                               "",
+                                               CountingV41.class.getName() + "  # trailing comment",
+                                               V40.class.getName());
+        assertThat(CassandraFactoryLoader.factoryClassNames(classLoader))
+        .containsExactly(V30.class.getName(), CountingV41.class.getName(), V40.class.getName());
+
+        instances.set(0);
+        CassandraVersionProvider provider = new CassandraVersionProvider.Builder().discover(classLoader).build();
+        assertThat(instances).hasValue(0);
+
+        assertThat(provider.getCassandra("4.0.1")).isInstanceOf(V40.class);
+        assertThat(instances).hasValue(0);
+
+        assertThat(provider.getCassandra("4.1.0")).isInstanceOf(CountingV41.class);
+        assertThat(provider.getCassandra("4.2.0")).isInstanceOf(CountingV41.class);
+        assertThat(instances).hasValue(1);
+    }
+
+    @Test
+    void rejectsFactoryWithoutMinimumVersion(@TempDir Path dir) throws IOException
+    {
+        ClassLoader classLoader = withServices(dir, Unversioned.class.getName());
+        assertThatIllegalStateException()
+        .isThrownBy(() -> new CassandraVersionProvider.Builder().discover(classLoader))
+        .withMessageContaining("@MinimumVersion");
+    }
+
+    @Test
+    void rejectsNonFactory(@TempDir Path dir) throws IOException
+    {
+        ClassLoader classLoader = withServices(dir, String.class.getName());
+        assertThatIllegalStateException()
+        .isThrownBy(() -> new CassandraVersionProvider.Builder().discover(classLoader))
+        .withMessageContaining("does not implement");
+    }
+
+    private static ClassLoader withServices(Path dir, String... lines) throws IOException
+    {
+        File services = dir.resolve(CassandraFactoryLoader.SERVICES_RESOURCE).toFile();
+        assertThat(services.getParentFile().mkdirs()).isTrue();
+        Files.write(services.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        // only lists the services file above, classes still come from the test classpath
+        return new URLClassLoader(new URL[]{ dir.toUri().toURL() }, CassandraFactoryLoaderTest.class.getClassLoader())
+        {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException
+            {
+                return findResources(name);
+            }
+        };
+    }
+
+    /**
+     * Counts how many times it's instantiated
+     */
+    @MinimumVersion("4.1.0")
+    public static class CountingV41 implements ICassandraFactory
+    {
+        public CountingV41()
+        {
+            instances.incrementAndGet();
+        }
+
+        @Override
+        public ICassandraAdapter create(CQLSession session)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Missing its minimum version
+     */
+    public static class Unversioned implements ICassandraFactory
+    {
+        @Override
+        public ICassandraAdapter create(CQLSession session)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClusterStatusTest
+{
+    static final UUID ID1 = UUID.randomUUID();
+    static final UUID ID2 = UUID.randomUUID();
+
+    @Test
+    void emptyUntilLoaded()
+    {
+        assertThat(ClusterStatus.EMPTY.getVersion()).isZero();
+        assertThat(ClusterStatus.EMPTY.getNodes()).isEmpty();
+    }
+
+    @Test
+    void everyChangeIncrementsTheVersion()
+    {
+        ClusterStatus loaded = ClusterStatus.EMPTY.withNodes(Arrays.asList(node(ID1, NodeStatus.State.UP),
+                                                                           node(ID2, NodeStatus.State.UNKNOWN)), 1);
+        assertThat(loaded.getVersion()).isEqualTo(1);
+        assertThat(loaded.getNodes()).extracting(NodeStatus::getHostId).containsExactly(ID1, ID2);
+
+        ClusterStatus down = loaded.withState(ID2, NodeStatus.State.DOWN, 2);
+        assertThat(down.getVersion()).isEqualTo(2);
+        assertThat(down.getTimestamp()).isEqualTo(2);
+        assertThat(down.getNodes()).extracting(NodeStatus::getState)
+                                   .containsExactly(NodeStatus.State.UP, NodeStatus.State.DOWN);
+
+        ClusterStatus removed = down.withoutNode(ID1, 3);
+        assertThat(removed.getVersion()).isEqualTo(3);
+        assertThat(removed.getNodes()).extracting(NodeStatus::getHostId).containsExactly(ID2);
+    }
+
+    @Test
+    void unchangedStatusKeepsTheSnapshot()
+    {
+        ClusterStatus loaded = ClusterStatus.EMPTY.withNodes(Arrays.asList(node(ID1, NodeStatus.State.UP)), 1);
+        assertThat(loaded.withNode(node(ID1, NodeStatus.State.UP), 2)).isSameAs(loaded);
+        assertThat(loaded.withState(ID1, NodeStatus.State.UP, 2)).isSameAs(loaded);
+        assertThat(loaded.withState(ID2, NodeStatus.State.DOWN, 2)).isSameAs(loaded);
+        assertThat(loaded.withoutNode(ID2, 2)).isSameAs(loaded);
+    }
+
+    @Test
+    void addedNodeIsAppended()
+    {
+        ClusterStatus loaded = ClusterStatus.EMPTY.withNodes(Arrays.asList(node(ID1, NodeStatus.State.UP)), 1);
+        ClusterStatus added = loaded.withNode(node(ID2, NodeStatus.State.UP), 2);
+        assertThat(added.getVersion()).isEqualTo(2);
+        assertThat(added.getNodes()).extracting(NodeStatus::getHostId).containsExactly(ID1, ID2);
+    }
+
+    static NodeStatus node(UUID hostId, NodeStatus.State state)
+    {
+        InetAddress address = InetAddress.getLoopbackAddress();
+        return new NodeStatus(hostId, address, 7000, address, 9042, "datacenter1", "rack1", "4.0.0", state);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.ServerSocket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+import javax.management.remote.MBeanServerForwarder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JmxClientTest
+{
+    private static final String TABLE_METRICS = "org.apache.cassandra.metrics:type=Table,keyspace=ks,scope=tbl,name=*";
+
+    int port;
+    Registry registry;
+    MBeanServer mbeans;
+    JMXConnectorServer server;
+    AtomicInteger queries;
+    AtomicInteger reads;
+    JmxClient client;
+
+    @BeforeEach
+    void startServer() throws Exception
+    {
+        try (ServerSocket socket = new ServerSocket(0))
+        {
+            port = socket.getLocalPort();
+        }
+        registry = LocateRegistry.createRegistry(port);
+        mbeans = MBeanServerFactory.newMBeanServer();
+        queries = new AtomicInteger();
+        reads = new AtomicInteger();
+        register("ReadLatency", 10, 2.5);
+        register("WriteLatency", 20, 1.5);
+        server = startConnectorServer();
+        client = new JmxClient("localhost", port);
+    }
+
+    @AfterEach
+    void stopServer() throws IOException
+    {
+        client.close();
+        server.stop();
+        UnicastRemoteObject.unexportObject(registry, true);
+    }
+
+    @Test
+    void readsAttributesInOneRoundTrip() throws Exception
+    {
+        Map<String, Object> values = client.getAttributes(metric("ReadLatency"), "Count", "Mean", "Value");
+
+        // attributes the MBean doesn't have are left out
+        assertThat(values).containsOnlyKeys("Count", "Mean");
+        assertThat(values.get("Count")).isEqualTo(10L);
+        assertThat(values.get("Mean")).isEqualTo(2.5);
+        assertThat(reads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void cachesPatternQueriesUntilMBeansChange() throws Exception
+    {
+        Map<ObjectName, Map<String, Object>> metrics = client.queryAttributes(new ObjectName(TABLE_METRICS), "Count");
+        assertThat(metrics).containsOnlyKeys(metric("ReadLatency"), metric("WriteLatency"));
+        assertThat(metrics.get(metric("WriteLatency")).get("Count")).isEqualTo(20L);
+
+        client.queryAttributes(new ObjectName(TABLE_METRICS), "Count");
+        assertThat(queries.get()).isEqualTo(1);
+        assertThat(reads.get()).isEqualTo(4);
+
+        // registering a metric is noticed, asynchronously, and the names queried again
+        register("RangeLatency", 30, 0.5);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (client.queryNames(new ObjectName(TABLE_METRICS)).size() < 3 && System.nanoTime() < deadline)
+            Thread.sleep(20);
+        assertThat(client.queryNames(new ObjectName(TABLE_METRICS))).contains(metric("RangeLatency"));
+        assertThat(queries.get()).isGreaterThan(1);
+    }
+
+    @Test
+    void reconnectsAfterTheServerRestarts() throws Exception
+    {
+        assertThat(client.getAttributes(metric("ReadLatency"), "Count").get("Count")).isEqualTo(10L);
+
+        server.stop();
+        server = startConnectorServer();
+
+        assertThat(client.getAttributes(metric("ReadLatency"), "Count").get("Count")).isEqualTo(10L);
+        assertThat(client.queryNames(new ObjectName(TABLE_METRICS))).hasSize(2);
+    }
+
+    private JMXConnectorServer startConnectorServer() throws IOException
+    {
+        JMXServiceURL url = new JMXServiceURL(String.format("service:jmx:rmi:///jndi/rmi://localhost:%d/jmxrmi", port));
+        JMXConnectorServer connectorServer = JMXConnectorServerFactory.newJMXConnectorServer(url, null, mbeans);
+        // counts the round trips the client makes
+        connectorServer.setMBeanServerForwarder((MBeanServerForwarder) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[]{ MBeanServerForwarder.class }, (proxy, method, args) ->
+        {
+            switch (method.getName())
+            {
+                case "getMBeanServer":
+                    return mbeans;
+                case "setMBeanServer":
+                    return null;
+                case "queryNames":
+                    // the server also queries for notification broadcasters
+                    if (new ObjectName(TABLE_METRICS).equals(args[0]))
+                        queries.incrementAndGet();
+                    break;
+                case "getAttributes":
+                    reads.incrementAndGet();
+                    break;
+                default:
+                    break;
+            }
+            try
+            {
+                return method.invoke(mbeans, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        }));
+        connectorServer.start();
+        return connectorServer;
+    }
+
+    private void register(String name, long count, double mean) throws Exception
+    {
+        mbeans.registerMBean(new StandardMBean(new Latency(count, mean), LatencyMBean.class), metric(name));
+    }
+
+    private static ObjectName metric(String name) throws Exception
+    {
+        return new ObjectName(TABLE_METRICS.replace("name=*", "name=" + name));
+    }
+
+    /**
+     * The attributes of a Cassandra latency metric used here
+     */
+    public interface LatencyMBean
+    {
+        long getCount();
+
+        double getMean();
+    }
+
+    static class Latency implements LatencyMBean
+    {
+        private final long count;
+        private final double mean;
+
+        Latency(long count, double mean)
+        {
+            this.count = count;
+            this.mean = mean;
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        public double getMean()
+        {
+            return mean;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PreparedStatementCacheTest
+{
+    private static final String CQL = "select release_version from system.local";
+
+    List<RegularStatement> prepared;
+    List<SettableFuture<PreparedStatement>> pending;
+    PreparedStatementCache cache;
+
+    @BeforeEach
+    void setupCache()
+    {
+        prepared = new ArrayList<>();
+        pending = new ArrayList<>();
+        cache = new PreparedStatementCache(statement ->
+        {
+            SettableFuture<PreparedStatement> future = SettableFuture.create();
+            prepared.add(statement);
+            pending.add(future);
+            return future;
+        });
+    }
+
+    @Test
+    void preparesOnlyOnce()
+    {
+        ListenableFuture<PreparedStatement> first = cache.prepare(null, CQL);
+        ListenableFuture<PreparedStatement> second = cache.prepare(null, CQL);
+
+        assertThat(second).isSameAs(first);
+        assertThat(prepared).hasSize(1);
+        assertThat(prepared.get(0).getQueryString()).isEqualTo(CQL);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    void keyedByKeyspace()
+    {
+        cache.prepare("ks1", "select * from t");
+        cache.prepare("ks2", "select * from t");
+
+        assertThat(prepared).hasSize(2);
+        assertThat(prepared.get(0).getKeyspace()).isEqualTo("ks1");
+        assertThat(prepared.get(1).getKeyspace()).isEqualTo("ks2");
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void failedPreparationIsRetried()
+    {
+        ListenableFuture<PreparedStatement> first = cache.prepare(null, CQL);
+        pending.get(0).setException(new RuntimeException("unavailable"));
+
+        assertThat(first.isDone()).isTrue();
+        assertThat(cache.size()).isZero();
+
+        cache.prepare(null, CQL);
+        assertThat(prepared).hasSize(2);
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    void preparerThrowing()
+    {
+        PreparedStatementCache throwing = new PreparedStatementCache(statement ->
+        {
+            throw new IllegalStateException("not connected");
+        });
+
+        assertThat(throwing.prepare(null, CQL).isDone()).isTrue();
+        assertThat(throwing.size()).isZero();
+    }
+
+    @Test
+    void invalidateAll()
+    {
+        cache.prepare(null, CQL);
+        cache.invalidateAll();
+        cache.prepare(null, CQL);
+
+        assertThat(prepared).hasSize(2);
+    }
+}
@@ -82,4 +82,30 @@ class SimpleCassandraVersionProviderTest
         assertThat(cassandra).hasSameClassAs(new V40());
     }
 
+    @Test
+    void olderThanEveryAdapter()
+    {
+        ICassandraFactory cassandra = provider.getCassandra(SimpleCassandraVersion.create("2.2.0"));
+        assertThat(cassandra).hasSameClassAs(new V30());
+    }
+
+    @Test
+    void ensureOutOfOrderInsertionResolvesLowerVersions()
+    {
+        builder = new CassandraVersionProvider.Builder();
+        provider = builder.add(new V40())
+                          .add(new V41())
+                          .add(new V30()).build();
+
+        ICassandraFactory cassandra = provider.getCassandra(SimpleCassandraVersion.create("3.11.0"));
+        assertThat(cassandra).hasSameClassAs(new V30());
+    }
+
+    @Test
+    void repeatedLookupsResolveTheSameFactory()
+    {
+        ICassandraFactory first = provider.getCassandra("4.0.1");
+        ICassandraFactory second = provider.getCassandra("4.0.1");
+        assertThat(second).isSameAs(first).hasSameClassAs(new V40());
+    }
 }
@@ -118,4 +118,13 @@ public class SimpleCassandraVersionTest
 
     }
 
+    @Test
+    void testRepeatedParsesAreCached()
+    {
+        SimpleCassandraVersion first = SimpleCassandraVersion.create("4.0.1");
+        assertThat(SimpleCassandraVersion.create("4.0.1")).isSameAs(first);
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> SimpleCassandraVersion.create("not a version"));
+    }
+
 }
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenRingTest
+{
+    static final List<String> A = Arrays.asList("10.0.0.1", "10.0.0.2");
+    static final List<String> B = Arrays.asList("10.0.0.2", "10.0.0.3");
+    static final List<String> C = Arrays.asList("10.0.0.3", "10.0.0.1");
+
+    @Test
+    void hashesKeysLikeTheMurmur3Partitioner()
+    {
+        // tokens computed by the driver's Murmur3 partitioner
+        assertThat(Murmur3.token(utf8("key"))).isEqualTo(-6847573755651342660L);
+        assertThat(Murmur3.token(utf8("hello"))).isEqualTo(-3758069500696749310L);
+        assertThat(Murmur3.token(utf8("partition-key-0001"))).isEqualTo(-4702419024183491970L);
+        assertThat(Murmur3.token(utf8("abcdefghijklmnopq"))).isEqualTo(8459014091212432983L);
+        // bytes with the high bit set are sign extended in the tail
+        assertThat(Murmur3.token(ByteBuffer.wrap(new byte[]{ (byte) 0xff, (byte) 0x80, 1 })))
+        .isEqualTo(-6979169580508520651L);
+        assertThat(Murmur3.token(ByteBuffer.allocate(0))).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    void hashesWithoutConsumingTheKey()
+    {
+        ByteBuffer key = ByteBuffer.wrap("xxkey".getBytes(StandardCharsets.UTF_8));
+        key.position(2);
+        assertThat(Murmur3.token(key)).isEqualTo(-6847573755651342660L);
+        assertThat(key.position()).isEqualTo(2);
+    }
+
+    @Test
+    void findsTheRangeEndingAtOrAfterTheToken()
+    {
+        TokenRing ring = new TokenRing("ks", new long[]{ -100, 0, 100 }, Arrays.asList(A, B, C));
+        assertThat(ring.replicas(-100)).isEqualTo(A);
+        assertThat(ring.replicas(-99)).isEqualTo(B);
+        assertThat(ring.replicas(0)).isEqualTo(B);
+        assertThat(ring.replicas(1)).isEqualTo(C);
+        assertThat(ring.replicas(100)).isEqualTo(C);
+    }
+
+    @Test
+    void wrapsAroundTheRing()
+    {
+        TokenRing ring = new TokenRing("ks", new long[]{ -100, 0, 100 }, Arrays.asList(A, B, C));
+        assertThat(ring.replicas(101)).isEqualTo(A);
+        assertThat(ring.replicas(Long.MAX_VALUE)).isEqualTo(A);
+        assertThat(ring.replicas(Long.MIN_VALUE)).isEqualTo(A);
+        assertThat(ring.getStart(0)).isEqualTo(100);
+        assertThat(ring.getEnd(0)).isEqualTo(-100);
+    }
+
+    @Test
+    void sharesIdenticalReplicaLists()
+    {
+        TokenRing ring = new TokenRing("ks", new long[]{ 1, 2 }, Arrays.asList(A, Arrays.asList("10.0.0.1",
+                                                                                                 "10.0.0.2")));
+        assertThat(ring.getReplicas(0)).isSameAs(ring.getReplicas(1));
+    }
+
+    @Test
+    void rejectsUnsortedTokens()
+    {
+        assertThatThrownBy(() -> new TokenRing("ks", new long[]{ 2, 1 }, Arrays.asList(A, B)))
+        .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenRing("ks", new long[0], Collections.emptyList()))
+        .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ByteBuffer utf8(String key)
+    {
+        return ByteBuffer.wrap(key.getBytes(StandardCharsets.UTF_8));
+    }
+}
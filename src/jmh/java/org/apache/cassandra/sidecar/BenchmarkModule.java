@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import org.apache.cassandra.sidecar.common.CQLSession;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.common.CassandraVersionProvider;
+
+/**
+ * Overrides the {@link MainModule} for benchmarks with their configuration, and a Cassandra which is always up
+ * without one running, so the health route answers 200 without the delegate ever touching the network.
+ */
+public class BenchmarkModule extends AbstractModule
+{
+    private final Configuration conf;
+
+    public BenchmarkModule(Configuration conf)
+    {
+        this.conf = conf;
+    }
+
+    @Override
+    protected void configure()
+    {
+        bind(Configuration.class).toInstance(conf);
+    }
+
+    @Provides
+    @Singleton
+    public CassandraAdapterDelegate cassandraAdapterDelegate(CassandraVersionProvider provider, CQLSession session)
+    {
+        return new CassandraAdapterDelegate(provider, session)
+        {
+            @Override
+            public boolean isUp()
+            {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.sidecar.common.CQLSession;
+import org.apache.cassandra.sidecar.common.CassandraVersionProvider;
+import org.apache.cassandra.sidecar.common.ICassandraAdapter;
+import org.apache.cassandra.sidecar.common.ICassandraFactory;
+import org.apache.cassandra.sidecar.common.MinimumVersion;
+import org.apache.cassandra.sidecar.common.SimpleCassandraVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures resolving a Cassandra release_version to its adapter factory, as the health check does on every poll.
+ *
+ * Run with {@code ./gradlew jmh -Pjmh.includes=CassandraVersionProviderBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CassandraVersionProviderBenchmark
+{
+    @Param({ "3.11.10", "4.0.1", "5.0-beta1-SNAPSHOT" })
+    public String releaseVersion;
+
+    private CassandraVersionProvider provider;
+    private SimpleCassandraVersion version;
+
+    @Setup
+    public void setup()
+    {
+        provider = new CassandraVersionProvider.Builder().add(new V30())
+                                                         .add(new V3011())
+                                                         .add(new V40())
+                                                         .add(new V405())
+                                                         .add(new V41())
+                                                         .add(new V50())
+                                                         .build();
+        version = SimpleCassandraVersion.create(releaseVersion);
+    }
+
+    @Benchmark
+    public ICassandraFactory resolveReleaseVersion()
+    {
+        return provider.getCassandra(SimpleCassandraVersion.create(releaseVersion));
+    }
+
+    @Benchmark
+    public ICassandraFactory resolveParsedVersion()
+    {
+        return provider.getCassandra(version);
+    }
+
+    @Benchmark
+    public SimpleCassandraVersion parseReleaseVersion()
+    {
+        return SimpleCassandraVersion.create(releaseVersion);
+    }
+
+    /**
+     * Adapter factories which are only resolved, never used
+     */
+    abstract static class BenchmarkFactory implements ICassandraFactory
+    {
+        @Override
+        public ICassandraAdapter create(CQLSession session)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @MinimumVersion("3.0.0")
+    static class V30 extends BenchmarkFactory
+    {
+    }
+
+    @MinimumVersion("3.11.0")
+    static class V3011 extends BenchmarkFactory
+    {
+    }
+
+    @MinimumVersion("4.0.0")
+    static class V40 extends BenchmarkFactory
+    {
+    }
+
+    @MinimumVersion("4.0.5")
+    static class V405 extends BenchmarkFactory
+    {
+    }
+
+    @MinimumVersion("4.1.0")
+    static class V41 extends BenchmarkFactory
+    {
+    }
+
+    @MinimumVersion("5.0.0")
+    static class V50 extends BenchmarkFactory
+    {
+    }
+}
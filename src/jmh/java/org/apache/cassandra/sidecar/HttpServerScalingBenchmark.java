@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.ext.web.Router;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures health endpoint requests/sec as the number of HTTP server verticles grows.
+ *
+ * Run with {@code ./gradlew jmh -Pjmh.includes=HttpServerScalingBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(64)
+public class HttpServerScalingBenchmark
+{
+    private static final String HOST = "127.0.0.1";
+    private static final int PORT = 9143;
+
+    @Param({ "1", "2", "4", "8" })
+    public int instances;
+
+    private Vertx serverVertx;
+    private Vertx clientVertx;
+    private HttpClient client;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        Configuration conf = new Configuration.Builder()
+                             .setCassandraHost(HOST)
+                             .setCassandraPort(9042)
+                             .setHost(HOST)
+                             .setPort(PORT)
+                             .setHealthCheckFrequency(1000)
+                             .setRateLimitEnabled(false)
+                             .setServerVerticleInstances(instances)
+                             .build();
+
+        // the delegate is never started, so the health route answers from its snapshot without touching Cassandra
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bind(Configuration.class).toInstance(conf);
+            }
+        }));
+        serverVertx = injector.getInstance(Vertx.class);
+        Router router = injector.getInstance(Router.class);
+        HttpServerOptions options = injector.getInstance(HttpServerOptions.class);
+
+        CompletableFuture<String> deployed = new CompletableFuture<>();
+        serverVertx.deployVerticle(() -> new HttpServerVerticle(router, options, HOST, PORT),
+                                   new DeploymentOptions().setInstances(instances), ar ->
+        {
+            if (ar.succeeded())
+                deployed.complete(ar.result());
+            else
+                deployed.completeExceptionally(ar.cause());
+        });
+        deployed.get(30, TimeUnit.SECONDS);
+
+        clientVertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(VertxOptions.DEFAULT_EVENT_LOOP_POOL_SIZE));
+        client = clientVertx.createHttpClient(new HttpClientOptions().setDefaultHost(HOST)
+                                                                     .setDefaultPort(PORT)
+                                                                     .setKeepAlive(true)
+                                                                     .setMaxPoolSize(64));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        client.close();
+        clientVertx.close(ar -> serverVertx.close(ar2 -> closed.complete(null)));
+        closed.get(30, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public int health() throws Exception
+    {
+        CompletableFuture<Integer> status = new CompletableFuture<>();
+        client.get("/api/v1/__health", response ->
+        {
+            response.exceptionHandler(status::completeExceptionally);
+            // anything else, a 429 from the rate limiter say, would be measuring the wrong thing
+            response.endHandler(v ->
+            {
+                if (response.statusCode() == 200)
+                    status.complete(response.statusCode());
+                else
+                    status.completeExceptionally(new IllegalStateException("Unexpected status "
+                                                                            + response.statusCode()));
+            });
+        })
+              .exceptionHandler(status::completeExceptionally)
+              .end();
+        return status.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.ext.web.Router;
+import org.apache.cassandra.sidecar.routes.HealthService;
+import org.apache.cassandra.sidecar.routes.RouteBinder;
+import org.jboss.resteasy.plugins.server.vertx.VertxRequestHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cost of a health check dispatched natively by the {@link RouteBinder} against the same request going
+ * through the catch-all regex route into RESTEasy's JAX-RS dispatch, which every request used to take.  Both servers
+ * run only the routing under test, in a single verticle, so the difference per request is the dispatch.
+ *
+ * The time per request shows the CPU saved.  Run with the GC profiler to see the bytes allocated per request, in
+ * {@code gc.alloc.rate.norm}:
+ * {@code ./gradlew jmh -Pjmh.includes=RoutingBenchmark -Pjmh.profilers=gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(16)
+public class RoutingBenchmark
+{
+    private static final String HOST = "127.0.0.1";
+    private static final int PORT = 9143;
+
+    @Param({ "NATIVE", "RESTEASY" })
+    public String dispatch;
+
+    private Vertx serverVertx;
+    private Vertx clientVertx;
+    private HttpClient client;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        Configuration conf = new Configuration.Builder()
+                             .setCassandraHost(HOST)
+                             .setCassandraPort(9042)
+                             .setHost(HOST)
+                             .setPort(PORT)
+                             .setHealthCheckFrequency(1000)
+                             .build();
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new BenchmarkModule(conf)));
+        serverVertx = injector.getInstance(Vertx.class);
+
+        Router router = Router.router(serverVertx);
+        if ("NATIVE".equals(dispatch))
+        {
+            new RouteBinder(router).bind(injector.getInstance(HealthService.class));
+        }
+        else
+        {
+            VertxRequestHandler restHandler = injector.getInstance(VertxRequestHandler.class);
+            router.route().pathRegex(".*").handler(rc -> restHandler.handle(rc.request()));
+        }
+
+        CompletableFuture<String> deployed = new CompletableFuture<>();
+        serverVertx.deployVerticle(() -> new HttpServerVerticle(router, new HttpServerOptions(), HOST, PORT),
+                                   new DeploymentOptions(), ar ->
+        {
+            if (ar.succeeded())
+                deployed.complete(ar.result());
+            else
+                deployed.completeExceptionally(ar.cause());
+        });
+        deployed.get(30, TimeUnit.SECONDS);
+
+        clientVertx = Vertx.vertx();
+        client = clientVertx.createHttpClient(new HttpClientOptions().setDefaultHost(HOST)
+                                                                     .setDefaultPort(PORT)
+                                                                     .setKeepAlive(true)
+                                                                     .setMaxPoolSize(16));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        client.close();
+        clientVertx.close(ar -> serverVertx.close(ar2 -> closed.complete(null)));
+        closed.get(30, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public int health() throws Exception
+    {
+        CompletableFuture<Integer> status = new CompletableFuture<>();
+        client.get("/api/v1/__health", response ->
+        {
+            response.exceptionHandler(status::completeExceptionally);
+            response.endHandler(v -> status.complete(response.statusCode()));
+        })
+              .exceptionHandler(status::completeExceptionally)
+              .end();
+        int code = status.get(10, TimeUnit.SECONDS);
+        if (code != 200)
+            throw new IllegalStateException("Health check answered " + code);
+        return code;
+    }
+}
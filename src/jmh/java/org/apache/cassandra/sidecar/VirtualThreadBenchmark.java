@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.util.Modules;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.Router;
+import org.apache.cassandra.sidecar.common.CQLSession;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.common.CassandraVersionProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares requests/sec and the latency percentiles of thousands of concurrent callers clearing a snapshot, where
+ * each JMX call takes {@link #SLOW_MILLIS}, when the blocking calls run on a worker pool against when each runs in a
+ * virtual thread of its own.
+ *
+ * The virtual thread mode needs Java 21 or later, on older JDKs it falls back to the pool and both modes should
+ * measure the same.
+ *
+ * Run with {@code ./gradlew jmh -Pjmh.includes=VirtualThreadBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+// Guice generates classes through ClassLoader.defineClass, which Java 21 only allows once java.lang is opened, while
+// Java 8 skips the option it doesn't know
+@Fork(value = 1, jvmArgsAppend = { "-XX:+IgnoreUnrecognizedVMOptions", "--add-opens=java.base/java.lang=ALL-UNNAMED" })
+@Threads(VirtualThreadBenchmark.CONCURRENCY)
+public class VirtualThreadBenchmark
+{
+    static final int CONCURRENCY = 2000;
+
+    private static final String HOST = "127.0.0.1";
+    private static final int PORT = 9143;
+    private static final int CONNECTIONS = 8;
+    private static final int SLOW_MILLIS = 20;
+    // a generous pool, the shipped default of 4 would leave the pool mode hopelessly behind
+    private static final int JMX_WORKER_POOL_SIZE = 64;
+
+    @Param({ "false", "true" })
+    public boolean virtualThreads;
+
+    private Vertx serverVertx;
+    private Vertx clientVertx;
+    private HttpClient client;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        Configuration conf = new Configuration.Builder()
+                             .setCassandraHost(HOST)
+                             .setCassandraPort(9042)
+                             .setHost(HOST)
+                             .setPort(PORT)
+                             .setHealthCheckFrequency(1000)
+                             .setRateLimitEnabled(false)
+                             .setHttp2MaxConcurrentStreams(CONCURRENCY)
+                             .setJmxWorkerPoolSize(JMX_WORKER_POOL_SIZE)
+                             .setVirtualThreadsEnabled(virtualThreads)
+                             .build();
+
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bind(Configuration.class).toInstance(conf);
+                install(new SlowCassandraModule());
+            }
+        }));
+        serverVertx = injector.getInstance(Vertx.class);
+        Router router = injector.getInstance(Router.class);
+        HttpServerOptions options = injector.getInstance(HttpServerOptions.class);
+
+        CompletableFuture<String> deployed = new CompletableFuture<>();
+        serverVertx.deployVerticle(() -> new HttpServerVerticle(router, options, HOST, PORT),
+                                   new DeploymentOptions().setInstances(conf.getServerVerticleInstances()), ar ->
+        {
+            if (ar.succeeded())
+                deployed.complete(ar.result());
+            else
+                deployed.completeExceptionally(ar.cause());
+        });
+        deployed.get(30, TimeUnit.SECONDS);
+
+        // multiplexing the callers over a few HTTP/2 connections, rather than opening thousands
+        clientVertx = Vertx.vertx();
+        client = clientVertx.createHttpClient(new HttpClientOptions().setDefaultHost(HOST)
+                                                                     .setDefaultPort(PORT)
+                                                                     .setKeepAlive(true)
+                                                                     .setProtocolVersion(HttpVersion.HTTP_2)
+                                                                     .setHttp2ClearTextUpgrade(false)
+                                                                     .setHttp2MaxPoolSize(CONNECTIONS)
+                                                                     .setHttp2MultiplexingLimit(CONCURRENCY
+                                                                                                / CONNECTIONS));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        client.close();
+        clientVertx.close(ar -> serverVertx.close(ar2 -> closed.complete(null)));
+        closed.get(30, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public int clearSnapshot() throws Exception
+    {
+        CompletableFuture<Integer> status = new CompletableFuture<>();
+        client.delete("/api/v1/snapshots/benchmark?keyspace=keyspace1", response ->
+        {
+            response.exceptionHandler(status::completeExceptionally);
+            // anything else, a 429 from the rate limiter say, would be measuring the wrong thing
+            response.endHandler(v ->
+            {
+                if (response.statusCode() == 200)
+                    status.complete(response.statusCode());
+                else
+                    status.completeExceptionally(new IllegalStateException("Unexpected status "
+                                                                            + response.statusCode()));
+            });
+        })
+              .exceptionHandler(status::completeExceptionally)
+              .end();
+        return status.get(60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stands in for a Cassandra whose JMX calls are slow, without needing one running
+     */
+    public static class SlowCassandraModule extends AbstractModule
+    {
+        @Override
+        protected void configure()
+        {
+        }
+
+        @Provides
+        @Singleton
+        public CassandraAdapterDelegate cassandraAdapterDelegate(CassandraVersionProvider provider, CQLSession session)
+        {
+            return new CassandraAdapterDelegate(provider, session)
+            {
+                @Override
+                public void clearSnapshot(String tag, List<String> keyspaces)
+                {
+                    Uninterruptibles.sleepUninterruptibly(SLOW_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            };
+        }
+    }
+}
@@ -19,6 +19,8 @@
 package org.apache.cassandra.sidecar;
 
 import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,7 +28,19 @@ import org.slf4j.LoggerFactory;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import io.vertx.core.http.HttpServer;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.ext.web.Router;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.concurrent.BlockedThreadMonitor;
+import org.apache.cassandra.sidecar.concurrent.WorkerPools;
+import org.apache.cassandra.sidecar.jobs.JobManager;
+import org.apache.cassandra.sidecar.snapshots.SnapshotLister;
+import org.apache.cassandra.sidecar.utils.KeyStoreReloader;
 import org.apache.cassandra.sidecar.utils.SslUtils;
 
 /**
@@ -36,28 +50,122 @@ import org.apache.cassandra.sidecar.utils.SslUtils;
 public class CassandraSidecarDaemon
 {
     private static final Logger logger = LoggerFactory.getLogger(CassandraSidecarDaemon.class);
-    private final HttpServer server;
+    private static final long STOP_TIMEOUT_SECONDS = 30;
+
+    private final Vertx vertx;
+    private final Router router;
+    private final HttpServerOptions serverOptions;
     private final Configuration config;
+    private final CassandraAdapterDelegate cassandra;
+    private final KeyStoreReloader keyStores;
+    private final SnapshotLister snapshots;
+    private final JobManager jobs;
+    private final WorkerPools workerPools;
+    private final BlockedThreadMonitor blockedThreads;
+    private volatile String deploymentId;
 
     @Inject
-    public CassandraSidecarDaemon(HttpServer server, Configuration config)
+    public CassandraSidecarDaemon(Vertx vertx, Router router, HttpServerOptions serverOptions, Configuration config,
+                                  CassandraAdapterDelegate cassandra, KeyStoreReloader keyStores,
+                                  SnapshotLister snapshots, JobManager jobs, WorkerPools workerPools,
+                                  BlockedThreadMonitor blockedThreads)
     {
-        this.server = server;
+        this.vertx = vertx;
+        this.router = router;
+        this.serverOptions = serverOptions;
         this.config = config;
+        this.cassandra = cassandra;
+        this.keyStores = keyStores;
+        this.snapshots = snapshots;
+        this.jobs = jobs;
+        this.workerPools = workerPools;
+        this.blockedThreads = blockedThreads;
     }
 
     public void start()
+    {
+        start(ar ->
+        {
+            if (ar.failed())
+                logger.error("Failed to start Cassandra Sidecar", ar.cause());
+        });
+    }
+
+    /**
+     * Deploys the configured number of HTTP server verticles, all listening on the same port
+     *
+     * @param completionHandler notified once every instance is listening
+     */
+    public void start(Handler<AsyncResult<String>> completionHandler)
     {
         banner(System.out);
         validate();
-        logger.info("Starting Cassandra Sidecar on {}:{}", config.getHost(), config.getPort());
-        server.listen(config.getPort(), config.getHost());
+        int instances = config.getServerVerticleInstances();
+        logger.info("Starting Cassandra Sidecar on {}:{} with {} server instances",
+                    config.getHost(), config.getPort(), instances);
+        cassandra.start();
+        keyStores.start();
+        blockedThreads.start();
+        DeploymentOptions deploymentOptions = new DeploymentOptions().setInstances(instances);
+        vertx.deployVerticle(() -> new HttpServerVerticle(router, serverOptions, config.getHost(), config.getPort()),
+                             deploymentOptions, ar ->
+        {
+            if (ar.succeeded())
+                deploymentId = ar.result();
+            completionHandler.handle(ar);
+        });
     }
 
+    /**
+     * Stops the sidecar, waiting a bounded time for the server instances to finish and the shared resources to close
+     */
     public void stop()
+    {
+        CountDownLatch stopped = new CountDownLatch(1);
+        stop(ar ->
+        {
+            if (ar.failed())
+                logger.error("Failed to stop Cassandra Sidecar cleanly", ar.cause());
+            stopped.countDown();
+        });
+        try
+        {
+            if (!stopped.await(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                logger.warn("Cassandra Sidecar did not stop within {} seconds", STOP_TIMEOUT_SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Undeploys the HTTP server verticles, then closes the resources they share once none of them is serving
+     *
+     * @param completionHandler notified once everything is closed, failed if the undeploy failed
+     */
+    public void stop(Handler<AsyncResult<Void>> completionHandler)
     {
         logger.info("Stopping Cassandra Sidecar");
-        server.close();
+        keyStores.stop();
+        blockedThreads.stop();
+        String id = deploymentId;
+        if (id == null)
+        {
+            closeResources(Future.succeededFuture(), completionHandler);
+            return;
+        }
+        vertx.undeploy(id, ar -> closeResources(ar, completionHandler));
+    }
+
+    private void closeResources(AsyncResult<Void> undeployed, Handler<AsyncResult<Void>> completionHandler)
+    {
+        deploymentId = null;
+        jobs.close();
+        workerPools.close();
+        snapshots.close();
+        cassandra.stop();
+        completionHandler.handle(undeployed);
     }
 
     private void banner(PrintStream out)
@@ -18,19 +18,53 @@
 
 package org.apache.cassandra.sidecar;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
+import com.google.common.collect.ImmutableSet;
+
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpServerOptions;
+import org.apache.cassandra.sidecar.ratelimit.RateLimit;
+
 /**
  * Sidecar configuration
  */
 public class Configuration
 {
+    public static final Set<String> DEFAULT_CHEAP_ROUTES = ImmutableSet.of("/api/v1/__health", "/metrics",
+                                                                           "/api/v1/schema/openapi.json",
+                                                                           "/api/v1/jobs", "/api/v1/jobs/:jobId");
+
     /* Cassandra Host */
     private final String cassandraHost;
 
     /* Cassandra Port */
     private final Integer cassandraPort;
 
+    /* Cassandra JMX Port */
+    private final Integer cassandraJmxPort;
+
+    /* Cassandra data directories */
+    private final List<String> dataDirs;
+
+    /* Directory uploaded SSTables are staged in before they're imported */
+    private final String stagingDir;
+
+    /* Largest SSTable component accepted by an upload */
+    private final long maxUploadSizeBytes;
+
+    /* CQL connection pool settings, shared by every request to Cassandra */
+    private final int cassandraConnectionsPerHost;
+
+    private final int cassandraMaxRequestsPerConnection;
+
+    private final int cassandraMaxInFlightRequests;
+
     /* Sidecar's HTTP REST API port */
     private final Integer port;
 
@@ -55,15 +89,137 @@ public class Configuration
 
     private final boolean isSslEnabled;
 
-    public Configuration(String cassandraHost, Integer cassandraPort, String host, Integer port,
+    /* Use OpenSSL for TLS when it's available, and how often to check the stores for changes */
+    private final boolean isOpenSslEnabled;
+
+    private final int sslReloadIntervalSeconds;
+
+    /* Route requests through RESTEasy instead of the native Vert.x routes */
+    private final boolean isRestEasyEnabled;
+
+    /* Number of HTTP server verticles sharing the listen port */
+    private final int serverVerticleInstances;
+
+    /* Vert.x event loop and worker pool sizes */
+    private final int eventLoopPoolSize;
+
+    private final int workerPoolSize;
+
+    /* Window over which latency percentiles are reported */
+    private final int latencyWindowSeconds;
+
+    /* Fraction of requests written to the access log, overall and by route path pattern */
+    private final double accessLogSampleRate;
+
+    private final Map<String, Double> accessLogRouteSampleRates;
+
+    /* Access log lines waiting to be written before new ones are dropped */
+    private final int accessLogQueueSize;
+
+    /* Log every byte the HTTP server reads and writes, for debugging */
+    private final boolean isLogActivity;
+
+    /* Compress responses for clients which accept it, when they're at least the minimum size */
+    private final boolean isCompressionEnabled;
+
+    private final int compressionLevel;
+
+    private final int compressionMinSize;
+
+    /* Serve HTTP/2 over TLS (ALPN) and cleartext (h2c), with per connection stream and flow control limits */
+    private final boolean isHttp2Enabled;
+
+    private final long http2MaxConcurrentStreams;
+
+    private final int http2InitialWindowSize;
+
+    private final int http2ConnectionWindowSize;
+
+    /* Limits on each client's requests to a route, tighter for routes which aren't among the cheap ones */
+    private final boolean isRateLimitEnabled;
+
+    private final RateLimit rateLimit;
+
+    private final RateLimit expensiveRateLimit;
+
+    private final Set<String> cheapRoutes;
+
+    /* How many keyspace directories are walked at once when listing snapshots */
+    private final int snapshotListParallelism;
+
+    /* How many jobs of each type run at once, how many may wait, and how long finished jobs are kept */
+    private final Map<String, Integer> jobConcurrency;
+
+    private final int defaultJobConcurrency;
+
+    private final int maxQueuedJobs;
+
+    private final int jobRetentionSeconds;
+
+    /* Worker pools for blocking work, and how long event loops and workers may run a task before being blocked */
+    private final int cqlWorkerPoolSize;
+
+    private final int jmxWorkerPoolSize;
+
+    private final int diskWorkerPoolSize;
+
+    private final long blockedEventLoopThresholdMillis;
+
+    private final long blockedWorkerThresholdMillis;
+
+    private final boolean isVirtualThreadsEnabled;
+
+    public Configuration(String cassandraHost, Integer cassandraPort, Integer cassandraJmxPort,
+                         List<String> dataDirs, String stagingDir, long maxUploadSizeBytes,
+                         String host, Integer port,
                          Integer healthCheckFrequencyMillis, boolean isSslEnabled,
                          @Nullable String keyStorePath,
                          @Nullable String keyStorePassword,
                          @Nullable String trustStorePath,
-                         @Nullable String trustStorePassword)
+                         @Nullable String trustStorePassword,
+                         boolean isRestEasyEnabled,
+                         int serverVerticleInstances,
+                         int eventLoopPoolSize,
+                         int workerPoolSize,
+                         int cassandraConnectionsPerHost,
+                         int cassandraMaxRequestsPerConnection,
+                         int cassandraMaxInFlightRequests,
+                         int latencyWindowSeconds,
+                         double accessLogSampleRate,
+                         Map<String, Double> accessLogRouteSampleRates,
+                         int accessLogQueueSize,
+                         boolean isLogActivity,
+                         boolean isCompressionEnabled,
+                         int compressionLevel,
+                         int compressionMinSize,
+                         boolean isOpenSslEnabled,
+                         int sslReloadIntervalSeconds,
+                         boolean isHttp2Enabled,
+                         long http2MaxConcurrentStreams,
+                         int http2InitialWindowSize,
+                         int http2ConnectionWindowSize,
+                         boolean isRateLimitEnabled,
+                         RateLimit rateLimit,
+                         RateLimit expensiveRateLimit,
+                         Set<String> cheapRoutes,
+                         int snapshotListParallelism,
+                         Map<String, Integer> jobConcurrency,
+                         int defaultJobConcurrency,
+                         int maxQueuedJobs,
+                         int jobRetentionSeconds,
+                         int cqlWorkerPoolSize,
+                         int jmxWorkerPoolSize,
+                         int diskWorkerPoolSize,
+                         long blockedEventLoopThresholdMillis,
+                         long blockedWorkerThresholdMillis,
+                         boolean isVirtualThreadsEnabled)
     {
         this.cassandraHost = cassandraHost;
         this.cassandraPort = cassandraPort;
+        this.cassandraJmxPort = cassandraJmxPort;
+        this.dataDirs = dataDirs;
+        this.stagingDir = stagingDir;
+        this.maxUploadSizeBytes = maxUploadSizeBytes;
         this.host = host;
         this.port = port;
         this.healthCheckFrequencyMillis = healthCheckFrequencyMillis;
@@ -73,6 +229,42 @@ public class Configuration
         this.trustStorePath = trustStorePath;
         this.trustStorePassword = trustStorePassword;
         this.isSslEnabled = isSslEnabled;
+        this.isRestEasyEnabled = isRestEasyEnabled;
+        this.serverVerticleInstances = serverVerticleInstances;
+        this.eventLoopPoolSize = eventLoopPoolSize;
+        this.workerPoolSize = workerPoolSize;
+        this.cassandraConnectionsPerHost = cassandraConnectionsPerHost;
+        this.cassandraMaxRequestsPerConnection = cassandraMaxRequestsPerConnection;
+        this.cassandraMaxInFlightRequests = cassandraMaxInFlightRequests;
+        this.latencyWindowSeconds = latencyWindowSeconds;
+        this.accessLogSampleRate = accessLogSampleRate;
+        this.accessLogRouteSampleRates = accessLogRouteSampleRates;
+        this.accessLogQueueSize = accessLogQueueSize;
+        this.isLogActivity = isLogActivity;
+        this.isCompressionEnabled = isCompressionEnabled;
+        this.compressionLevel = compressionLevel;
+        this.compressionMinSize = compressionMinSize;
+        this.isOpenSslEnabled = isOpenSslEnabled;
+        this.sslReloadIntervalSeconds = sslReloadIntervalSeconds;
+        this.isHttp2Enabled = isHttp2Enabled;
+        this.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+        this.http2InitialWindowSize = http2InitialWindowSize;
+        this.http2ConnectionWindowSize = http2ConnectionWindowSize;
+        this.isRateLimitEnabled = isRateLimitEnabled;
+        this.rateLimit = rateLimit;
+        this.expensiveRateLimit = expensiveRateLimit;
+        this.cheapRoutes = cheapRoutes;
+        this.snapshotListParallelism = snapshotListParallelism;
+        this.jobConcurrency = jobConcurrency;
+        this.defaultJobConcurrency = defaultJobConcurrency;
+        this.maxQueuedJobs = maxQueuedJobs;
+        this.jobRetentionSeconds = jobRetentionSeconds;
+        this.cqlWorkerPoolSize = cqlWorkerPoolSize;
+        this.jmxWorkerPoolSize = jmxWorkerPoolSize;
+        this.diskWorkerPoolSize = diskWorkerPoolSize;
+        this.blockedEventLoopThresholdMillis = blockedEventLoopThresholdMillis;
+        this.blockedWorkerThresholdMillis = blockedWorkerThresholdMillis;
+        this.isVirtualThreadsEnabled = isVirtualThreadsEnabled;
     }
 
     /**
@@ -95,6 +287,46 @@ public class Configuration
         return cassandraPort;
     }
 
+    /**
+     * Get the Cassandra JMX port
+     *
+     * @return
+     */
+    public Integer getCassandraJmxPort()
+    {
+        return cassandraJmxPort;
+    }
+
+    /**
+     * Get the Cassandra data directories
+     *
+     * @return
+     */
+    public List<String> getDataDirs()
+    {
+        return dataDirs;
+    }
+
+    /**
+     * Get the directory uploaded SSTables are staged in
+     *
+     * @return
+     */
+    public String getStagingDir()
+    {
+        return stagingDir;
+    }
+
+    /**
+     * Get the largest SSTable component, in bytes, an upload may send
+     *
+     * @return
+     */
+    public long getMaxUploadSizeBytes()
+    {
+        return maxUploadSizeBytes;
+    }
+
     /**
      *  Sidecar's listen address
      *
@@ -179,6 +411,370 @@ public class Configuration
         return trustStorePassword;
     }
 
+    /**
+     * Get whether TLS uses OpenSSL when it's available, rather than the JDK's implementation
+     *
+     * @return
+     */
+    public boolean isOpenSslEnabled()
+    {
+        return isOpenSslEnabled;
+    }
+
+    /**
+     * Get how often the keystore and truststore are checked for changes, in seconds, or 0 to never reload them
+     *
+     * @return
+     */
+    public int getSslReloadIntervalSeconds()
+    {
+        return sslReloadIntervalSeconds;
+    }
+
+    /**
+     * Get whether the RESTEasy JAX-RS compatibility path is enabled
+     *
+     * @return
+     */
+    public boolean isRestEasyEnabled()
+    {
+        return isRestEasyEnabled;
+    }
+
+    /**
+     * Get the number of HTTP server verticle instances to deploy
+     *
+     * @return
+     */
+    public int getServerVerticleInstances()
+    {
+        return serverVerticleInstances;
+    }
+
+    /**
+     * Get the number of Vert.x event loop threads
+     *
+     * @return
+     */
+    public int getEventLoopPoolSize()
+    {
+        return eventLoopPoolSize;
+    }
+
+    /**
+     * Get the number of Vert.x worker threads
+     *
+     * @return
+     */
+    public int getWorkerPoolSize()
+    {
+        return workerPoolSize;
+    }
+
+    /**
+     * Get the number of CQL connections to open to Cassandra
+     *
+     * @return
+     */
+    public int getCassandraConnectionsPerHost()
+    {
+        return cassandraConnectionsPerHost;
+    }
+
+    /**
+     * Get the maximum number of concurrent requests on each CQL connection
+     *
+     * @return
+     */
+    public int getCassandraMaxRequestsPerConnection()
+    {
+        return cassandraMaxRequestsPerConnection;
+    }
+
+    /**
+     * Get the maximum number of CQL requests in flight, beyond which requests are rejected
+     *
+     * @return
+     */
+    public int getCassandraMaxInFlightRequests()
+    {
+        return cassandraMaxInFlightRequests;
+    }
+
+    /**
+     * Get the rolling window in seconds over which request latency percentiles are reported
+     *
+     * @return
+     */
+    public int getLatencyWindowSeconds()
+    {
+        return latencyWindowSeconds;
+    }
+
+    /**
+     * Get the fraction of requests written to the access log, for routes without a rate of their own
+     *
+     * @return
+     */
+    public double getAccessLogSampleRate()
+    {
+        return accessLogSampleRate;
+    }
+
+    /**
+     * Get the fraction of requests written to the access log by route path pattern
+     *
+     * @return
+     */
+    public Map<String, Double> getAccessLogRouteSampleRates()
+    {
+        return accessLogRouteSampleRates;
+    }
+
+    /**
+     * Get the number of access log lines which can wait to be written before new ones are dropped
+     *
+     * @return
+     */
+    public int getAccessLogQueueSize()
+    {
+        return accessLogQueueSize;
+    }
+
+    /**
+     * Get whether the HTTP server logs all of its network activity
+     *
+     * @return
+     */
+    public boolean isLogActivity()
+    {
+        return isLogActivity;
+    }
+
+    /**
+     * Get whether responses are compressed for clients which accept it
+     *
+     * @return
+     */
+    public boolean isCompressionEnabled()
+    {
+        return isCompressionEnabled;
+    }
+
+    /**
+     * Get the gzip and deflate compression level, from 1 (fastest) to 9 (smallest)
+     *
+     * @return
+     */
+    public int getCompressionLevel()
+    {
+        return compressionLevel;
+    }
+
+    /**
+     * Get the size in bytes below which responses aren't worth compressing
+     *
+     * @return
+     */
+    public int getCompressionMinSize()
+    {
+        return compressionMinSize;
+    }
+
+    /**
+     * Get whether clients can use HTTP/2, negotiated with ALPN over TLS or with prior knowledge or an upgrade in the
+     * clear
+     *
+     * @return
+     */
+    public boolean isHttp2Enabled()
+    {
+        return isHttp2Enabled;
+    }
+
+    /**
+     * Get the number of HTTP/2 streams a client can have open at once on a single connection
+     *
+     * @return
+     */
+    public long getHttp2MaxConcurrentStreams()
+    {
+        return http2MaxConcurrentStreams;
+    }
+
+    /**
+     * Get the HTTP/2 flow control window of each stream in bytes, which bounds how much of a response is sent
+     * before the client acknowledges it
+     *
+     * @return
+     */
+    public int getHttp2InitialWindowSize()
+    {
+        return http2InitialWindowSize;
+    }
+
+    /**
+     * Get the HTTP/2 flow control window shared by all streams of a connection in bytes, or -1 to use the default
+     *
+     * @return
+     */
+    public int getHttp2ConnectionWindowSize()
+    {
+        return http2ConnectionWindowSize;
+    }
+
+    /**
+     * Get whether clients are held to rate and in-flight limits on each route
+     *
+     * @return
+     */
+    public boolean isRateLimitEnabled()
+    {
+        return isRateLimitEnabled;
+    }
+
+    /**
+     * Get the limits of each client on cheap routes
+     *
+     * @return
+     */
+    public RateLimit getRateLimit()
+    {
+        return rateLimit;
+    }
+
+    /**
+     * Get the limits of each client on routes which query Cassandra or stream files, which is any not among the
+     * cheap routes
+     *
+     * @return
+     */
+    public RateLimit getExpensiveRateLimit()
+    {
+        return expensiveRateLimit;
+    }
+
+    /**
+     * Get the path patterns of the routes which are cheap to answer, such as the health check
+     *
+     * @return
+     */
+    public Set<String> getCheapRoutes()
+    {
+        return cheapRoutes;
+    }
+
+    /**
+     * Get how many keyspace directories are walked in parallel when listing snapshots
+     *
+     * @return
+     */
+    public int getSnapshotListParallelism()
+    {
+        return snapshotListParallelism;
+    }
+
+    /**
+     * Get how many jobs of each type may run at once, keyed by job type
+     *
+     * @return
+     */
+    public Map<String, Integer> getJobConcurrency()
+    {
+        return jobConcurrency;
+    }
+
+    /**
+     * Get how many jobs of a type without its own concurrency may run at once
+     *
+     * @return
+     */
+    public int getDefaultJobConcurrency()
+    {
+        return defaultJobConcurrency;
+    }
+
+    /**
+     * Get how many jobs of a type may be waiting or running before further ones are rejected
+     *
+     * @return
+     */
+    public int getMaxQueuedJobs()
+    {
+        return maxQueuedJobs;
+    }
+
+    /**
+     * Get how long finished jobs are kept for clients to look up
+     *
+     * @return
+     */
+    public int getJobRetentionSeconds()
+    {
+        return jobRetentionSeconds;
+    }
+
+    /**
+     * Get how many threads run blocking driver calls
+     *
+     * @return
+     */
+    public int getCqlWorkerPoolSize()
+    {
+        return cqlWorkerPoolSize;
+    }
+
+    /**
+     * Get how many threads run JMX calls
+     *
+     * @return
+     */
+    public int getJmxWorkerPoolSize()
+    {
+        return jmxWorkerPoolSize;
+    }
+
+    /**
+     * Get how many threads walk and read the data directories
+     *
+     * @return
+     */
+    public int getDiskWorkerPoolSize()
+    {
+        return diskWorkerPoolSize;
+    }
+
+    /**
+     * Get how long an event loop may take to get round to new work before it's reported as blocked
+     *
+     * @return
+     */
+    public long getBlockedEventLoopThresholdMillis()
+    {
+        return blockedEventLoopThresholdMillis;
+    }
+
+    /**
+     * Get how long a worker may run a task before it's reported as blocked
+     *
+     * @return
+     */
+    public long getBlockedWorkerThresholdMillis()
+    {
+        return blockedWorkerThresholdMillis;
+    }
+
+    /**
+     * Get whether blocking work runs in a virtual thread per task, when the JDK has them, rather than on the
+     * worker pools
+     *
+     * @return
+     */
+    public boolean isVirtualThreadsEnabled()
+    {
+        return isVirtualThreadsEnabled;
+    }
+
     /**
      * Configuration Builder
      */
@@ -186,6 +782,10 @@ public class Configuration
     {
         private String cassandraHost;
         private Integer cassandraPort;
+        private Integer cassandraJmxPort = 7199;
+        private List<String> dataDirs = Collections.singletonList("/var/lib/cassandra/data");
+        private String stagingDir = "/var/lib/cassandra/staging";
+        private long maxUploadSizeBytes = 128L * 1024 * 1024 * 1024;
         private String host;
         private Integer port;
         private Integer healthCheckFrequencyMillis;
@@ -194,6 +794,42 @@ public class Configuration
         private String trustStorePath;
         private String trustStorePassword;
         private boolean isSslEnabled;
+        private boolean isOpenSslEnabled = true;
+        private int sslReloadIntervalSeconds = 60;
+        private boolean isRestEasyEnabled;
+        private int serverVerticleInstances = Runtime.getRuntime().availableProcessors();
+        private int eventLoopPoolSize = VertxOptions.DEFAULT_EVENT_LOOP_POOL_SIZE;
+        private int workerPoolSize = VertxOptions.DEFAULT_WORKER_POOL_SIZE;
+        private int cassandraConnectionsPerHost = 1;
+        private int cassandraMaxRequestsPerConnection = 1024;
+        private int cassandraMaxInFlightRequests = 1024;
+        private int latencyWindowSeconds = 60;
+        private double accessLogSampleRate = 1.0;
+        private Map<String, Double> accessLogRouteSampleRates = Collections.emptyMap();
+        private int accessLogQueueSize = 8192;
+        private boolean isLogActivity;
+        private boolean isCompressionEnabled;
+        private int compressionLevel = HttpServerOptions.DEFAULT_COMPRESSION_LEVEL;
+        private int compressionMinSize = 1024;
+        private boolean isHttp2Enabled = true;
+        private long http2MaxConcurrentStreams = HttpServerOptions.DEFAULT_INITIAL_SETTINGS_MAX_CONCURRENT_STREAMS;
+        private int http2InitialWindowSize = 1024 * 1024;
+        private int http2ConnectionWindowSize = HttpServerOptions.DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE;
+        private boolean isRateLimitEnabled = true;
+        private RateLimit rateLimit = new RateLimit(500, 1000, 256);
+        private RateLimit expensiveRateLimit = new RateLimit(100, 200, 64);
+        private Set<String> cheapRoutes = DEFAULT_CHEAP_ROUTES;
+        private int snapshotListParallelism = Math.min(4, Runtime.getRuntime().availableProcessors());
+        private Map<String, Integer> jobConcurrency = Collections.emptyMap();
+        private int defaultJobConcurrency = 1;
+        private int maxQueuedJobs = 64;
+        private int jobRetentionSeconds = 3600;
+        private int cqlWorkerPoolSize = 8;
+        private int jmxWorkerPoolSize = 4;
+        private int diskWorkerPoolSize = 4;
+        private long blockedEventLoopThresholdMillis = 200;
+        private long blockedWorkerThresholdMillis = TimeUnit.MINUTES.toMillis(1);
+        private boolean isVirtualThreadsEnabled;
 
         public Builder setCassandraHost(String host)
         {
@@ -207,6 +843,30 @@ public class Configuration
             return this;
         }
 
+        public Builder setCassandraJmxPort(Integer port)
+        {
+            this.cassandraJmxPort = port;
+            return this;
+        }
+
+        public Builder setDataDirs(List<String> dirs)
+        {
+            this.dataDirs = dirs;
+            return this;
+        }
+
+        public Builder setStagingDir(String dir)
+        {
+            this.stagingDir = dir;
+            return this;
+        }
+
+        public Builder setMaxUploadSizeBytes(long bytes)
+        {
+            this.maxUploadSizeBytes = bytes;
+            return this;
+        }
+
         public Builder setHost(String host)
         {
             this.host = host;
@@ -255,10 +915,240 @@ public class Configuration
             return this;
         }
 
+        public Builder setOpenSslEnabled(boolean enabled)
+        {
+            this.isOpenSslEnabled = enabled;
+            return this;
+        }
+
+        public Builder setSslReloadIntervalSeconds(int seconds)
+        {
+            this.sslReloadIntervalSeconds = seconds;
+            return this;
+        }
+
+        public Builder setRestEasyEnabled(boolean enabled)
+        {
+            this.isRestEasyEnabled = enabled;
+            return this;
+        }
+
+        public Builder setServerVerticleInstances(int instances)
+        {
+            this.serverVerticleInstances = instances;
+            return this;
+        }
+
+        public Builder setEventLoopPoolSize(int size)
+        {
+            this.eventLoopPoolSize = size;
+            return this;
+        }
+
+        public Builder setWorkerPoolSize(int size)
+        {
+            this.workerPoolSize = size;
+            return this;
+        }
+
+        public Builder setCassandraConnectionsPerHost(int connections)
+        {
+            this.cassandraConnectionsPerHost = connections;
+            return this;
+        }
+
+        public Builder setCassandraMaxRequestsPerConnection(int requests)
+        {
+            this.cassandraMaxRequestsPerConnection = requests;
+            return this;
+        }
+
+        public Builder setCassandraMaxInFlightRequests(int requests)
+        {
+            this.cassandraMaxInFlightRequests = requests;
+            return this;
+        }
+
+        public Builder setLatencyWindowSeconds(int seconds)
+        {
+            this.latencyWindowSeconds = seconds;
+            return this;
+        }
+
+        public Builder setAccessLogSampleRate(double rate)
+        {
+            this.accessLogSampleRate = rate;
+            return this;
+        }
+
+        public Builder setAccessLogRouteSampleRates(Map<String, Double> rates)
+        {
+            this.accessLogRouteSampleRates = rates;
+            return this;
+        }
+
+        public Builder setAccessLogQueueSize(int size)
+        {
+            this.accessLogQueueSize = size;
+            return this;
+        }
+
+        public Builder setLogActivity(boolean enabled)
+        {
+            this.isLogActivity = enabled;
+            return this;
+        }
+
+        public Builder setCompressionEnabled(boolean enabled)
+        {
+            this.isCompressionEnabled = enabled;
+            return this;
+        }
+
+        public Builder setCompressionLevel(int level)
+        {
+            this.compressionLevel = level;
+            return this;
+        }
+
+        public Builder setCompressionMinSize(int size)
+        {
+            this.compressionMinSize = size;
+            return this;
+        }
+
+        public Builder setHttp2Enabled(boolean enabled)
+        {
+            this.isHttp2Enabled = enabled;
+            return this;
+        }
+
+        public Builder setHttp2MaxConcurrentStreams(long streams)
+        {
+            this.http2MaxConcurrentStreams = streams;
+            return this;
+        }
+
+        public Builder setHttp2InitialWindowSize(int size)
+        {
+            this.http2InitialWindowSize = size;
+            return this;
+        }
+
+        public Builder setHttp2ConnectionWindowSize(int size)
+        {
+            this.http2ConnectionWindowSize = size;
+            return this;
+        }
+
+        public Builder setRateLimitEnabled(boolean enabled)
+        {
+            this.isRateLimitEnabled = enabled;
+            return this;
+        }
+
+        public Builder setRateLimit(RateLimit limit)
+        {
+            this.rateLimit = limit;
+            return this;
+        }
+
+        public Builder setExpensiveRateLimit(RateLimit limit)
+        {
+            this.expensiveRateLimit = limit;
+            return this;
+        }
+
+        public Builder setCheapRoutes(Set<String> routes)
+        {
+            this.cheapRoutes = routes;
+            return this;
+        }
+
+        public Builder setSnapshotListParallelism(int parallelism)
+        {
+            this.snapshotListParallelism = parallelism;
+            return this;
+        }
+
+        public Builder setJobConcurrency(Map<String, Integer> concurrency)
+        {
+            this.jobConcurrency = concurrency;
+            return this;
+        }
+
+        public Builder setDefaultJobConcurrency(int concurrency)
+        {
+            this.defaultJobConcurrency = concurrency;
+            return this;
+        }
+
+        public Builder setMaxQueuedJobs(int maxQueued)
+        {
+            this.maxQueuedJobs = maxQueued;
+            return this;
+        }
+
+        public Builder setJobRetentionSeconds(int seconds)
+        {
+            this.jobRetentionSeconds = seconds;
+            return this;
+        }
+
+        public Builder setCqlWorkerPoolSize(int size)
+        {
+            this.cqlWorkerPoolSize = size;
+            return this;
+        }
+
+        public Builder setJmxWorkerPoolSize(int size)
+        {
+            this.jmxWorkerPoolSize = size;
+            return this;
+        }
+
+        public Builder setDiskWorkerPoolSize(int size)
+        {
+            this.diskWorkerPoolSize = size;
+            return this;
+        }
+
+        public Builder setBlockedEventLoopThresholdMillis(long millis)
+        {
+            this.blockedEventLoopThresholdMillis = millis;
+            return this;
+        }
+
+        public Builder setBlockedWorkerThresholdMillis(long millis)
+        {
+            this.blockedWorkerThresholdMillis = millis;
+            return this;
+        }
+
+        public Builder setVirtualThreadsEnabled(boolean enabled)
+        {
+            this.isVirtualThreadsEnabled = enabled;
+            return this;
+        }
+
         public Configuration build()
         {
-            return new Configuration(cassandraHost, cassandraPort, host, port, healthCheckFrequencyMillis, isSslEnabled,
-                                     keyStorePath, keyStorePassword, trustStorePath, trustStorePassword);
+            return new Configuration(cassandraHost, cassandraPort, cassandraJmxPort, dataDirs, stagingDir,
+                                     maxUploadSizeBytes, host, port,
+                                     healthCheckFrequencyMillis, isSslEnabled, keyStorePath, keyStorePassword,
+                                     trustStorePath, trustStorePassword,
+                                     isRestEasyEnabled, serverVerticleInstances, eventLoopPoolSize, workerPoolSize,
+                                     cassandraConnectionsPerHost, cassandraMaxRequestsPerConnection,
+                                     cassandraMaxInFlightRequests, latencyWindowSeconds, accessLogSampleRate,
+                                     accessLogRouteSampleRates, accessLogQueueSize, isLogActivity,
+                                     isCompressionEnabled, compressionLevel, compressionMinSize, isOpenSslEnabled,
+                                     sslReloadIntervalSeconds, isHttp2Enabled, http2MaxConcurrentStreams,
+                                     http2InitialWindowSize, http2ConnectionWindowSize, isRateLimitEnabled,
+                                     rateLimit, expensiveRateLimit, cheapRoutes, snapshotListParallelism,
+                                     jobConcurrency, defaultJobConcurrency, maxQueuedJobs, jobRetentionSeconds,
+                                     cqlWorkerPoolSize, jmxWorkerPoolSize, diskWorkerPoolSize,
+                                     blockedEventLoopThresholdMillis, blockedWorkerThresholdMillis,
+                                     isVirtualThreadsEnabled);
         }
     }
 }
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.ext.web.Router;
+
+/**
+ * Serves the sidecar's HTTP API.  The daemon deploys several instances of this verticle, each bound to its own
+ * event loop, and Vert.x balances connections on the shared listen port between them.
+ */
+public class HttpServerVerticle extends AbstractVerticle
+{
+    private final Router router;
+    private final HttpServerOptions options;
+    private final String host;
+    private final int port;
+    private HttpServer server;
+
+    public HttpServerVerticle(Router router, HttpServerOptions options, String host, int port)
+    {
+        this.router = router;
+        this.options = options;
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise)
+    {
+        server = vertx.createHttpServer(options).requestHandler(router);
+        server.listen(port, host, ar -> startPromise.handle(ar.mapEmpty()));
+    }
+
+    @Override
+    public void stop(Promise<Void> stopPromise)
+    {
+        if (server == null)
+        {
+            stopPromise.complete();
+            return;
+        }
+        server.close(stopPromise);
+    }
+}
@@ -22,30 +22,73 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.configuration2.YAMLConfiguration;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.PoolingOptions;
 import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.ssl.OpenSsl;
 import io.vertx.core.Vertx;
 import io.vertx.core.VertxOptions;
-import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.Http2Settings;
 import io.vertx.core.http.HttpServerOptions;
-import io.vertx.core.net.JksOptions;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.net.JdkSSLEngineOptions;
+import io.vertx.core.net.OpenSSLEngineOptions;
 import io.vertx.ext.dropwizard.DropwizardMetricsOptions;
 import io.vertx.ext.web.Router;
-import io.vertx.ext.web.handler.LoggerHandler;
+import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.StaticHandler;
-import org.apache.cassandra.sidecar.cassandra40.Cassandra40Factory;
 import org.apache.cassandra.sidecar.common.CQLSession;
 import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
 import org.apache.cassandra.sidecar.common.CassandraVersionProvider;
+import org.apache.cassandra.sidecar.common.JmxClient;
+import org.apache.cassandra.sidecar.common.PreparedStatementCache;
+import org.apache.cassandra.sidecar.logging.AccessLogHandler;
+import org.apache.cassandra.sidecar.metrics.LatencyReservoir;
+import org.apache.cassandra.sidecar.metrics.RequestLatencyHandler;
+import org.apache.cassandra.sidecar.ratelimit.RateLimit;
+import org.apache.cassandra.sidecar.ratelimit.RateLimiter;
+import org.apache.cassandra.sidecar.routes.ChangeStreamService;
+import org.apache.cassandra.sidecar.routes.ClusterStatusService;
 import org.apache.cassandra.sidecar.routes.HealthService;
+import org.apache.cassandra.sidecar.routes.JobListService;
+import org.apache.cassandra.sidecar.routes.JobService;
+import org.apache.cassandra.sidecar.routes.MetricsService;
+import org.apache.cassandra.sidecar.routes.ReplicasService;
+import org.apache.cassandra.sidecar.routes.RouteBinder;
+import org.apache.cassandra.sidecar.routes.SSTableImport;
+import org.apache.cassandra.sidecar.routes.SSTableUpload;
+import org.apache.cassandra.sidecar.routes.SSTableUploadCleanup;
+import org.apache.cassandra.sidecar.routes.SnapshotListService;
+import org.apache.cassandra.sidecar.routes.SnapshotService;
+import org.apache.cassandra.sidecar.routes.StreamSSTableComponent;
 import org.apache.cassandra.sidecar.routes.SwaggerOpenApiResource;
+import org.apache.cassandra.sidecar.routes.TableStatsService;
+import org.apache.cassandra.sidecar.routes.TokenRingService;
+import org.apache.cassandra.sidecar.utils.CompressionHandler;
+import org.apache.cassandra.sidecar.utils.KeyStoreReloader;
 import org.jboss.resteasy.plugins.server.vertx.VertxRegistry;
 import org.jboss.resteasy.plugins.server.vertx.VertxRequestHandler;
 import org.jboss.resteasy.plugins.server.vertx.VertxResteasyDeployment;
@@ -56,42 +99,108 @@ import org.jboss.resteasy.plugins.server.vertx.VertxResteasyDeployment;
 public class MainModule extends AbstractModule
 {
     private static final Logger logger = LoggerFactory.getLogger(MainModule.class);
+    private static final String METRIC_REGISTRY = "cassandra-sidecar";
+    private static final String CASSANDRA_LATENCY_METRIC = "sidecar_cassandra_request_duration_seconds";
+    private static final String PREPARED_STATEMENTS_METRIC = "sidecar.cql.prepared_statements";
 
     @Provides
     @Singleton
-    public Vertx getVertx()
+    public Vertx getVertx(Configuration conf)
     {
-        return Vertx.vertx(new VertxOptions().setMetricsOptions(new DropwizardMetricsOptions()
+        // Vert.x logs the stack traces of threads blocked past the same thresholds the BlockedThreadMonitor counts
+        return Vertx.vertx(new VertxOptions().setEventLoopPoolSize(conf.getEventLoopPoolSize())
+                                             .setWorkerPoolSize(conf.getWorkerPoolSize())
+                                             .setMaxEventLoopExecuteTime(conf.getBlockedEventLoopThresholdMillis())
+                                             .setMaxEventLoopExecuteTimeUnit(TimeUnit.MILLISECONDS)
+                                             .setMaxWorkerExecuteTime(conf.getBlockedWorkerThresholdMillis())
+                                             .setMaxWorkerExecuteTimeUnit(TimeUnit.MILLISECONDS)
+                                             .setMetricsOptions(new DropwizardMetricsOptions()
                                                                 .setEnabled(true)
+                                                                .setRegistryName(METRIC_REGISTRY)
                                                                 .setJmxEnabled(true)
                                                                 .setJmxDomain("cassandra-sidecar-metrics")));
     }
 
+    /**
+     * The registry Vert.x reports its metrics to, shared so the sidecar's own metrics can be exported with them
+     */
     @Provides
     @Singleton
-    public HttpServer vertxServer(Vertx vertx, Configuration conf, Router router, VertxRequestHandler restHandler)
+    public MetricRegistry metricRegistry()
     {
-        HttpServerOptions options = new HttpServerOptions().setLogActivity(true);
+        return SharedMetricRegistries.getOrCreate(METRIC_REGISTRY);
+    }
 
-        if (conf.isSslEnabled())
+    @Provides
+    @Singleton
+    public HttpServerOptions vertxServerOptions(Configuration conf, KeyStoreReloader keyStores)
+    {
+        HttpServerOptions options = new HttpServerOptions().setLogActivity(conf.isLogActivity())
+                                                            .setCompressionSupported(conf.isCompressionEnabled())
+                                                            .setCompressionLevel(conf.getCompressionLevel());
+        configureHttp2(conf, options);
+
+        // missing keystore settings are reported when the daemon starts
+        if (conf.isSslEnabled() && conf.getKeyStorePath() != null && conf.getKeystorePassword() != null)
+            configureSsl(conf, options, keyStores);
+
+        return options;
+    }
+
+    /**
+     * Lets clients multiplex many requests over a single connection with HTTP/2, either negotiated with ALPN or
+     * cleartext h2c, with flow control windows large enough that streaming SSTable components isn't held up waiting
+     * for acknowledgements
+     */
+    private static void configureHttp2(Configuration conf, HttpServerOptions options)
+    {
+        // h2c is turned away by the router instead, see requireHttp1
+        if (!conf.isHttp2Enabled())
+            return;
+
+        options.setInitialSettings(new Http2Settings().setMaxConcurrentStreams(conf.getHttp2MaxConcurrentStreams())
+                                                      .setInitialWindowSize(conf.getHttp2InitialWindowSize()))
+               .setHttp2ConnectionWindowSize(conf.getHttp2ConnectionWindowSize());
+    }
+
+    /**
+     * Serves TLS with OpenSSL when it's available, resuming sessions, and with certificates reloaded when they change
+     */
+    private static void configureSsl(Configuration conf, HttpServerOptions options, KeyStoreReloader keyStores)
+    {
+        boolean openSsl = conf.isOpenSslEnabled() && OpenSSLEngineOptions.isAvailable()
+                          && OpenSsl.supportsKeyManagerFactory();
+        if (conf.isOpenSslEnabled() && !openSsl)
+            logger.warn("OpenSSL is not available, using the JDK's TLS implementation: {}",
+                        OpenSsl.unavailabilityCause().toString());
+        try
         {
-            options.setKeyStoreOptions(new JksOptions()
-                                       .setPath(conf.getKeyStorePath())
-                                       .setPassword(conf.getKeystorePassword()))
-                   .setSsl(conf.isSslEnabled());
+            options.setSsl(true)
+                   .setSslEngineOptions(openSsl
+                                        ? new OpenSSLEngineOptions().setSessionCacheEnabled(true)
+                                        : new JdkSSLEngineOptions())
+                   .setKeyCertOptions(keyStores.keyCertOptions(openSsl));
 
             if (conf.getTrustStorePath() != null && conf.getTruststorePassword() != null)
-            {
-                options.setTrustStoreOptions(new JksOptions()
-                                             .setPath(conf.getTrustStorePath())
-                                             .setPassword(conf.getTruststorePassword()));
-            }
+                options.setTrustOptions(keyStores.trustOptions());
+        }
+        catch (IOException | GeneralSecurityException e)
+        {
+            throw new RuntimeException("Invalid keystore parameters for SSL", e);
         }
 
-        router.route().pathRegex(".*").handler(rc -> restHandler.handle(rc.request()));
-
-        return vertx.createHttpServer(options)
-                    .requestHandler(router);
+        // Netty 4.1.42 predates ALPN support in the JDK 8 updates Vert.x detects it in, so only OpenSSL negotiates it
+        // and HTTP/2 over TLS needs OpenSSL, while cleartext h2c works either way
+        if (openSsl && OpenSSLEngineOptions.isAlpnAvailable())
+        {
+            options.setUseAlpn(true).setAlpnVersions(conf.isHttp2Enabled()
+                                                     ? Arrays.asList(HttpVersion.HTTP_2, HttpVersion.HTTP_1_1)
+                                                     : Collections.singletonList(HttpVersion.HTTP_1_1));
+        }
+        else if (conf.isHttp2Enabled())
+        {
+            logger.info("HTTP/2 over TLS needs OpenSSL for ALPN, clients will use HTTP/1.1");
+        }
     }
 
     @Provides
@@ -110,10 +219,25 @@ public class MainModule extends AbstractModule
 
     @Provides
     @Singleton
-    public Router vertxRouter(Vertx vertx)
+    public Router vertxRouter(Vertx vertx, Configuration conf, HealthService healthService,
+                              ClusterStatusService clusterStatusService,
+                              StreamSSTableComponent streamSSTableComponent, SSTableUpload sstableUpload,
+                              SSTableImport sstableImport, SSTableUploadCleanup sstableUploadCleanup,
+                              TokenRingService tokenRingService, ReplicasService replicasService,
+                              ChangeStreamService changeStreamService, MetricsService metricsService,
+                              RequestLatencyHandler requestLatency, AccessLogHandler accessLog,
+                              CompressionHandler compression, RateLimiter rateLimiter,
+                              SnapshotListService snapshotListService, SnapshotService snapshotService,
+                              JobListService jobListService, JobService jobService,
+                              TableStatsService tableStatsService, Provider<VertxRequestHandler> restHandler)
     {
         Router router = Router.router(vertx);
-        router.route().handler(LoggerHandler.create());
+        if (!conf.isHttp2Enabled())
+            router.route().handler(MainModule::requireHttp1);
+        router.route().handler(requestLatency);
+        router.route().handler(accessLog);
+        if (conf.isCompressionEnabled())
+            router.route().handler(compression);
 
         // Static web assets for Swagger
         StaticHandler swaggerStatic = StaticHandler.create("META-INF/resources/webjars/swagger-ui");
@@ -123,9 +247,50 @@ public class MainModule extends AbstractModule
         StaticHandler docs = StaticHandler.create("docs");
         router.route().path("/docs/*").handler(docs);
 
+        // requests are admitted once their route is known, so each route can have its own limits
+        new RouteBinder(router, rateLimiter::admit).bind(healthService)
+                                                   .bind(ClusterStatusService.Api.class, clusterStatusService)
+                                                   .bind(StreamSSTableComponent.Api.class, streamSSTableComponent)
+                                                   .bind(SSTableUpload.Api.class, sstableUpload)
+                                                   .bind(SSTableImport.Api.class, sstableImport)
+                                                   .bind(SSTableUploadCleanup.Api.class, sstableUploadCleanup)
+                                                   .bind(TokenRingService.Api.class, tokenRingService)
+                                                   .bind(ReplicasService.Api.class, replicasService)
+                                                   .bind(ChangeStreamService.Api.class, changeStreamService)
+                                                   .bind(MetricsService.Api.class, metricsService)
+                                                   .bind(SnapshotListService.Api.class, snapshotListService)
+                                                   .bind(SnapshotService.Api.class, snapshotService)
+                                                   .bind(JobListService.Api.class, jobListService)
+                                                   .bind(JobService.Api.class, jobService)
+                                                   .bind(TableStatsService.Api.class, tableStatsService)
+                                                   .bind(new SwaggerOpenApiResource());
+
+        // RESTEasy only picks up whatever the native routes don't handle
+        if (conf.isRestEasyEnabled())
+        {
+            VertxRequestHandler handler = restHandler.get();
+            router.route().pathRegex(".*").handler(rc -> handler.handle(rc.request()));
+        }
+
         return router;
     }
 
+    /**
+     * Vert.x 3.8 accepts cleartext h2c on every server unless a JVM-wide system property says otherwise, so with HTTP/2
+     * disabled, requests which arrive over it, with prior knowledge or by upgrading, are reset with the error telling
+     * clients to retry over HTTP/1.1
+     */
+    private static void requireHttp1(RoutingContext rc)
+    {
+        if (rc.request().version() != HttpVersion.HTTP_2)
+        {
+            rc.next();
+            return;
+        }
+        rc.response().reset(Http2Error.HTTP_1_1_REQUIRED.code());
+        rc.request().connection().goAway(Http2Error.HTTP_1_1_REQUIRED.code());
+    }
+
     @Provides
     @Singleton
     public Configuration configuration() throws ConfigurationException, IOException
@@ -143,6 +308,13 @@ public class MainModule extends AbstractModule
             return new Configuration.Builder()
                     .setCassandraHost(yamlConf.get(String.class, "cassandra.host"))
                     .setCassandraPort(yamlConf.get(Integer.class, "cassandra.port"))
+                    .setCassandraJmxPort(yamlConf.get(Integer.class, "cassandra.jmx_port", 7199))
+                    .setDataDirs(yamlConf.getList(String.class, "cassandra.data_dirs",
+                                                  Collections.singletonList("/var/lib/cassandra/data")))
+                    .setStagingDir(yamlConf.get(String.class, "sidecar.uploads.staging_dir",
+                                                "/var/lib/cassandra/staging"))
+                    .setMaxUploadSizeBytes(yamlConf.get(Long.class, "sidecar.uploads.max_size_bytes",
+                                                        128L * 1024 * 1024 * 1024))
                     .setHost(yamlConf.get(String.class, "sidecar.host"))
                     .setPort(yamlConf.get(Integer.class, "sidecar.port"))
                     .setHealthCheckFrequency(yamlConf.get(Integer.class, "healthcheck.poll_freq_millis"))
@@ -151,6 +323,65 @@ public class MainModule extends AbstractModule
                     .setTrustStorePath(yamlConf.get(String.class, "sidecar.ssl.truststore.path", null))
                     .setTrustStorePassword(yamlConf.get(String.class, "sidecar.ssl.truststore.password", null))
                     .setSslEnabled(yamlConf.get(Boolean.class, "sidecar.ssl.enabled", false))
+                    .setOpenSslEnabled(yamlConf.get(Boolean.class, "sidecar.ssl.use_openssl", true))
+                    .setSslReloadIntervalSeconds(yamlConf.get(Integer.class, "sidecar.ssl.reload_interval_seconds",
+                                                              60))
+                    .setRestEasyEnabled(yamlConf.get(Boolean.class, "sidecar.resteasy.enabled", false))
+                    .setServerVerticleInstances(yamlConf.get(Integer.class, "sidecar.server.instances",
+                                                             Runtime.getRuntime().availableProcessors()))
+                    .setEventLoopPoolSize(yamlConf.get(Integer.class, "sidecar.server.event_loop_pool_size",
+                                                       VertxOptions.DEFAULT_EVENT_LOOP_POOL_SIZE))
+                    .setWorkerPoolSize(yamlConf.get(Integer.class, "sidecar.server.worker_pool_size",
+                                                    VertxOptions.DEFAULT_WORKER_POOL_SIZE))
+                    .setCassandraConnectionsPerHost(yamlConf.get(Integer.class, "cassandra.pool.connections_per_host",
+                                                                 1))
+                    .setCassandraMaxRequestsPerConnection(yamlConf.get(Integer.class,
+                                                                       "cassandra.pool.max_requests_per_connection",
+                                                                       1024))
+                    .setCassandraMaxInFlightRequests(yamlConf.get(Integer.class,
+                                                                  "cassandra.pool.max_in_flight_requests",
+                                                                  CQLSession.DEFAULT_MAX_IN_FLIGHT_REQUESTS))
+                    .setLatencyWindowSeconds(yamlConf.get(Integer.class, "sidecar.metrics.latency_window_seconds",
+                                                          60))
+                    .setAccessLogSampleRate(yamlConf.get(Double.class, "sidecar.access_log.sample_rate", 1.0))
+                    .setAccessLogRouteSampleRates(routeSampleRates(yamlConf, "sidecar.access_log.route_sample_rates"))
+                    .setAccessLogQueueSize(yamlConf.get(Integer.class, "sidecar.access_log.queue_size", 8192))
+                    .setLogActivity(yamlConf.get(Boolean.class, "sidecar.debug.log_activity", false))
+                    .setCompressionEnabled(yamlConf.get(Boolean.class, "sidecar.compression.enabled", false))
+                    .setCompressionLevel(yamlConf.get(Integer.class, "sidecar.compression.level",
+                                                      HttpServerOptions.DEFAULT_COMPRESSION_LEVEL))
+                    .setCompressionMinSize(yamlConf.get(Integer.class, "sidecar.compression.min_size", 1024))
+                    .setHttp2Enabled(yamlConf.get(Boolean.class, "sidecar.http2.enabled", true))
+                    .setHttp2MaxConcurrentStreams(yamlConf.get(Long.class, "sidecar.http2.max_concurrent_streams",
+                                                               HttpServerOptions
+                                                               .DEFAULT_INITIAL_SETTINGS_MAX_CONCURRENT_STREAMS))
+                    .setHttp2InitialWindowSize(yamlConf.get(Integer.class, "sidecar.http2.initial_window_size",
+                                                            1024 * 1024))
+                    .setHttp2ConnectionWindowSize(yamlConf.get(Integer.class, "sidecar.http2.connection_window_size",
+                                                               HttpServerOptions.DEFAULT_HTTP2_CONNECTION_WINDOW_SIZE))
+                    .setRateLimitEnabled(yamlConf.get(Boolean.class, "sidecar.rate_limit.enabled", true))
+                    .setRateLimit(rateLimit(yamlConf, "sidecar.rate_limit.cheap", new RateLimit(500, 1000, 256)))
+                    .setExpensiveRateLimit(rateLimit(yamlConf, "sidecar.rate_limit.expensive",
+                                                     new RateLimit(100, 200, 64)))
+                    .setCheapRoutes(new HashSet<>(yamlConf.getList(String.class, "sidecar.rate_limit.cheap_routes",
+                                                                   new ArrayList<>(Configuration
+                                                                                   .DEFAULT_CHEAP_ROUTES))))
+                    .setSnapshotListParallelism(yamlConf.get(Integer.class, "sidecar.snapshots.list_parallelism",
+                                                             Math.min(4, Runtime.getRuntime()
+                                                                                .availableProcessors())))
+                    .setJobConcurrency(jobConcurrency(yamlConf, "sidecar.jobs.concurrency"))
+                    .setDefaultJobConcurrency(yamlConf.get(Integer.class, "sidecar.jobs.default_concurrency", 1))
+                    .setMaxQueuedJobs(yamlConf.get(Integer.class, "sidecar.jobs.max_queued", 64))
+                    .setJobRetentionSeconds(yamlConf.get(Integer.class, "sidecar.jobs.retention_seconds", 3600))
+                    .setCqlWorkerPoolSize(yamlConf.get(Integer.class, "sidecar.worker_pools.cql", 8))
+                    .setJmxWorkerPoolSize(yamlConf.get(Integer.class, "sidecar.worker_pools.jmx", 4))
+                    .setDiskWorkerPoolSize(yamlConf.get(Integer.class, "sidecar.worker_pools.disk", 4))
+                    .setBlockedEventLoopThresholdMillis(yamlConf.get(Long.class,
+                                                                     "sidecar.blocked_threads.event_loop_millis",
+                                                                     200L))
+                    .setBlockedWorkerThresholdMillis(yamlConf.get(Long.class, "sidecar.blocked_threads.worker_millis",
+                                                                  TimeUnit.MINUTES.toMillis(1)))
+                    .setVirtualThreadsEnabled(yamlConf.get(Boolean.class, "sidecar.virtual_threads.enabled", false))
                     .build();
         }
         catch (MalformedURLException e)
@@ -159,29 +390,95 @@ public class MainModule extends AbstractModule
         }
     }
 
+    private static RateLimit rateLimit(YAMLConfiguration yamlConf, String prefix, RateLimit defaults)
+    {
+        return new RateLimit(yamlConf.getDouble(prefix + ".requests_per_second", defaults.getRequestsPerSecond()),
+                             yamlConf.getInt(prefix + ".burst", defaults.getBurst()),
+                             yamlConf.getInt(prefix + ".max_in_flight", defaults.getMaxInFlight()));
+    }
+
+    /**
+     * Reads sample rates keyed by route path pattern, such as {@code /api/v1/keyspace/:keyspace/ring: 0.1}
+     */
+    private static Map<String, Double> routeSampleRates(YAMLConfiguration yamlConf, String prefix)
+    {
+        Map<String, Double> rates = new HashMap<>();
+        Iterator<String> keys = yamlConf.getKeys(prefix);
+        while (keys.hasNext())
+        {
+            String key = keys.next();
+            rates.put(key.substring(prefix.length() + 1), yamlConf.getDouble(key));
+        }
+        return rates;
+    }
+
+    /**
+     * Reads how many jobs may run at once keyed by job type, such as {@code snapshot: 1}
+     */
+    private static Map<String, Integer> jobConcurrency(YAMLConfiguration yamlConf, String prefix)
+    {
+        Map<String, Integer> concurrency = new HashMap<>();
+        Iterator<String> keys = yamlConf.getKeys(prefix);
+        while (keys.hasNext())
+        {
+            String key = keys.next();
+            concurrency.put(key.substring(prefix.length() + 1), yamlConf.getInt(key));
+        }
+        return concurrency;
+    }
+
     @Provides
-    public CQLSession session(Configuration config)
+    @Singleton
+    public CQLSession session(Configuration config, MetricRegistry registry)
     {
         String host = config.getCassandraHost();
-        Integer port = config.getPort();
+        Integer port = config.getCassandraPort();
         Integer healthCheckFrequencyMillis = config.getHealthCheckFrequencyMillis();
 
-        return new CQLSession(host, port, healthCheckFrequencyMillis);
+        // the driver keeps between core and max connections, sized the same so the pool never churns
+        PoolingOptions poolingOptions = new PoolingOptions()
+                                        .setConnectionsPerHost(HostDistance.LOCAL,
+                                                               config.getCassandraConnectionsPerHost(),
+                                                               config.getCassandraConnectionsPerHost())
+                                        .setMaxRequestsPerConnection(HostDistance.LOCAL,
+                                                                     config.getCassandraMaxRequestsPerConnection());
+
+        // tracked apart from the HTTP request latencies, so slow responses can be attributed to Cassandra or not
+        int window = config.getLatencyWindowSeconds();
+        Timer requestLatency = registry.timer(CASSANDRA_LATENCY_METRIC,
+                                              () -> new Timer(new LatencyReservoir(window, TimeUnit.SECONDS)));
+        CQLSession session = new CQLSession(host, port, healthCheckFrequencyMillis, poolingOptions,
+                                            config.getCassandraMaxInFlightRequests(), requestLatency);
+
+        PreparedStatementCache statements = session.getPreparedStatements();
+        registry.gauge(PREPARED_STATEMENTS_METRIC + ".hits", () -> (Gauge<Long>) statements::getHits);
+        registry.gauge(PREPARED_STATEMENTS_METRIC + ".misses", () -> (Gauge<Long>) statements::getMisses);
+        registry.gauge(PREPARED_STATEMENTS_METRIC + ".size", () -> (Gauge<Integer>) statements::size);
+        return session;
     }
 
     @Provides
     @Singleton
     public CassandraVersionProvider cassandraVersionProvider()
     {
+        // adapter modules on the classpath register themselves, and are only loaded once their version is seen
         CassandraVersionProvider.Builder builder = new CassandraVersionProvider.Builder();
-        builder.add(new Cassandra40Factory());
+        builder.discover(MainModule.class.getClassLoader());
         return builder.build();
     }
 
     @Provides
+    @Singleton
+    public JmxClient jmxClient(Configuration config)
+    {
+        return new JmxClient(config.getCassandraHost(), config.getCassandraJmxPort());
+    }
+
+    @Provides
+    @Singleton
     public CassandraAdapterDelegate cassandraAdapterDelegate(CassandraVersionProvider provider, CQLSession session,
-                                                             Configuration config)
+                                                             JmxClient jmxClient, Configuration config)
     {
-        return new CassandraAdapterDelegate(provider, session, config.getHealthCheckFrequencyMillis());
+        return new CassandraAdapterDelegate(provider, session, jmxClient, config.getHealthCheckFrequencyMillis());
     }
 }
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.concurrent;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import org.apache.cassandra.sidecar.Configuration;
+import org.apache.cassandra.sidecar.metrics.PrometheusExporter;
+
+/**
+ * Measures how long event loops take to get round to new work, and notices event loops and workers which are stuck.
+ *
+ * A dedicated thread, which can't itself be held up by a stuck event loop, sends each event loop a probe every
+ * {@value #CHECK_INTERVAL_MILLIS}ms and records how long it takes to run as {@value #LAG_METRIC}.  An event loop
+ * which hasn't run its probe within {@link Configuration#getBlockedEventLoopThresholdMillis()} is counted once as
+ * {@value #BLOCKED_EVENT_LOOP_METRIC}, and {@value #BLOCKED_EVENT_LOOPS_METRIC} is how many are blocked right now.
+ * Tasks on the {@link WorkerPools} running for longer than {@link Configuration#getBlockedWorkerThresholdMillis()}
+ * are counted once each as {@value #BLOCKED_WORKER_METRIC}, labelled with their pool.
+ *
+ * Vert.x's own blocked thread checker logs the stack traces of the same threads, with the same thresholds.
+ */
+@Singleton
+public class BlockedThreadMonitor
+{
+    public static final String LAG_METRIC = "sidecar.event_loop.lag";
+    public static final String BLOCKED_EVENT_LOOP_METRIC = "sidecar.event_loop.blocked";
+    public static final String BLOCKED_EVENT_LOOPS_METRIC = "sidecar.event_loop.blocked_threads";
+    public static final String BLOCKED_WORKER_METRIC = "sidecar.workers.blocked";
+    static final long CHECK_INTERVAL_MILLIS = 100;
+    private static final Logger logger = LoggerFactory.getLogger(BlockedThreadMonitor.class);
+
+    private final Vertx vertx;
+    private final WorkerPools pools;
+    private final int eventLoops;
+    private final long eventLoopThresholdNanos;
+    private final long workerThresholdNanos;
+    private final Timer lag;
+    private final Meter blockedEventLoop;
+    private final Map<WorkerPool, Meter> blockedWorkers = new EnumMap<>(WorkerPool.class);
+    private volatile List<Probe> probes = new ArrayList<>();
+    private Thread thread;
+
+    @Inject
+    public BlockedThreadMonitor(Vertx vertx, WorkerPools pools, MetricRegistry registry, Configuration config)
+    {
+        this.vertx = vertx;
+        this.pools = pools;
+        this.eventLoops = config.getEventLoopPoolSize();
+        this.eventLoopThresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getBlockedEventLoopThresholdMillis());
+        this.workerThresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getBlockedWorkerThresholdMillis());
+        this.lag = registry.timer(LAG_METRIC);
+        this.blockedEventLoop = registry.meter(BLOCKED_EVENT_LOOP_METRIC);
+        for (WorkerPool pool : WorkerPool.values())
+            blockedWorkers.put(pool, registry.meter(PrometheusExporter.name(BLOCKED_WORKER_METRIC,
+                                                                            "pool", pool.poolName())));
+        registry.gauge(BLOCKED_EVENT_LOOPS_METRIC, () -> (Gauge<Integer>) this::blockedEventLoops);
+    }
+
+    public synchronized void start()
+    {
+        if (thread != null)
+            return;
+        thread = new Thread(this::run, "sidecar-blocked-thread-monitor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop()
+    {
+        if (thread == null)
+            return;
+        thread.interrupt();
+        thread = null;
+    }
+
+    /**
+     * @return how many event loops haven't run their probe within the threshold
+     */
+    int blockedEventLoops()
+    {
+        long now = System.nanoTime();
+        int blocked = 0;
+        for (Probe probe : probes)
+        {
+            if (probe.blockedFor(now) > eventLoopThresholdNanos)
+                blocked++;
+        }
+        return blocked;
+    }
+
+    private void run()
+    {
+        // this isn't a Vert.x thread, so each context is a new one on the next event loop, covering all of them
+        List<Probe> created = new ArrayList<>(eventLoops);
+        for (int i = 0; i < eventLoops; i++)
+            created.add(new Probe(vertx.getOrCreateContext()));
+        probes = created;
+
+        while (!Thread.currentThread().isInterrupted())
+        {
+            long now = System.nanoTime();
+            for (Probe probe : created)
+                probe.check(now);
+            checkWorkers(now);
+
+            try
+            {
+                Thread.sleep(CHECK_INTERVAL_MILLIS);
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+        }
+    }
+
+    private void checkWorkers(long now)
+    {
+        for (WorkerPools.RunningTask task : pools.running())
+        {
+            if (!task.reported && now - task.startNanos > workerThresholdNanos)
+            {
+                task.reported = true;
+                blockedWorkers.get(task.pool).mark();
+                logger.warn("Worker {} has been running a task for {}ms", task.thread.getName(),
+                            TimeUnit.NANOSECONDS.toMillis(now - task.startNanos));
+            }
+        }
+    }
+
+    /**
+     * Tracks the probe outstanding on one event loop.  A new probe is only sent once the last has run.
+     */
+    private class Probe
+    {
+        private final Context context;
+        // when the outstanding probe was sent, or 0 if none is
+        private volatile long sentAt;
+        private volatile String threadName = "event loop";
+        // only touched by the monitor
+        private boolean reported;
+
+        Probe(Context context)
+        {
+            this.context = context;
+        }
+
+        void check(long now)
+        {
+            long sent = sentAt;
+            if (sent == 0)
+            {
+                reported = false;
+                sentAt = now;
+                context.runOnContext(v ->
+                {
+                    lag.update(System.nanoTime() - now, TimeUnit.NANOSECONDS);
+                    threadName = Thread.currentThread().getName();
+                    sentAt = 0;
+                });
+            }
+            else if (!reported && now - sent > eventLoopThresholdNanos)
+            {
+                reported = true;
+                blockedEventLoop.mark();
+                logger.warn("{} has been blocked for {}ms", threadName, TimeUnit.NANOSECONDS.toMillis(now - sent));
+            }
+        }
+
+        long blockedFor(long now)
+        {
+            long sent = sentAt;
+            return sent == 0 ? 0 : now - sent;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+
+/**
+ * Starts virtual threads on JDKs which have them.  The sidecar is built for Java 8, so the JDK 21 API is looked up
+ * reflectively, once.
+ */
+final class VirtualThreads
+{
+    @Nullable
+    private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+    @Nullable
+    private static final Method NAME = method(builderClass(), "name", String.class, long.class);
+    @Nullable
+    private static final Method FACTORY = method(builderClass(), "factory");
+    @Nullable
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = method(Executors.class, "newThreadPerTaskExecutor",
+                                                                      ThreadFactory.class);
+
+    private VirtualThreads()
+    {
+    }
+
+    /**
+     * @return whether this JDK can start virtual threads
+     */
+    static boolean isAvailable()
+    {
+        ExecutorService probe = newThreadPerTaskExecutor("sidecar-virtual-probe-");
+        if (probe == null)
+            return false;
+
+        probe.shutdown();
+        return true;
+    }
+
+    /**
+     * Creates an executor starting a virtual thread for each task, named with the prefix and a counter
+     *
+     * @return the executor, or null if this JDK can't start virtual threads
+     */
+    @Nullable
+    static ExecutorService newThreadPerTaskExecutor(String namePrefix)
+    {
+        if (OF_VIRTUAL == null || NAME == null || FACTORY == null || NEW_THREAD_PER_TASK_EXECUTOR == null)
+            return null;
+
+        try
+        {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            // e.g. virtual threads being a preview feature which isn't enabled
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Class<?> builderClass()
+    {
+        try
+        {
+            return Class.forName("java.lang.Thread$Builder");
+        }
+        catch (ClassNotFoundException e)
+        {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Method method(@Nullable Class<?> type, String name, Class<?>... parameterTypes)
+    {
+        if (type == null)
+            return null;
+
+        try
+        {
+            return type.getMethod(name, parameterTypes);
+        }
+        catch (NoSuchMethodException e)
+        {
+            return null;
+        }
+    }
+}
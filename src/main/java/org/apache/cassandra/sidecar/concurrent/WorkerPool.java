@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.concurrent;
+
+/**
+ * The kinds of blocking work the sidecar does, each run on its own pool so one slow dependency can only tie up its
+ * own workers.
+ *
+ * Anything else a route does must not block: reading the delegate's cached health, cluster status and version,
+ * Vert.x's asynchronous file system and streams, and the driver's asynchronous queries can all run on event loops.
+ */
+public enum WorkerPool
+{
+    /**
+     * Synchronous driver calls, and anything which may connect to Cassandra first, such as building a token ring
+     */
+    CQL("sidecar-cql"),
+
+    /**
+     * JMX calls, such as importing SSTables or taking snapshots
+     */
+    JMX("sidecar-jmx"),
+
+    /**
+     * Walking and reading the data directories
+     */
+    DISK("sidecar-disk");
+
+    private final String threadName;
+
+    WorkerPool(String threadName)
+    {
+        this.threadName = threadName;
+    }
+
+    /**
+     * @return the name of the pool, which its threads are named after
+     */
+    public String poolName()
+    {
+        return threadName;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.concurrent;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import org.apache.cassandra.sidecar.Configuration;
+
+/**
+ * Runs blocking work on a named, bounded Vert.x worker pool for its {@link WorkerPool}, rather than on an event loop
+ * or Vert.x's shared worker pool.  Vert.x reports each pool's usage and queueing under
+ * {@code vertx.pools.worker.<name>}, and warns about tasks running longer than
+ * {@link Configuration#getBlockedWorkerThresholdMillis()}.
+ *
+ * With {@link Configuration#isVirtualThreadsEnabled()} on a JDK with virtual threads, each task runs in a virtual
+ * thread of its own instead, named after its pool, so a burst of slow calls doesn't queue behind a handful of pooled
+ * threads.  On older JDKs the pools are used regardless.
+ *
+ * The tasks running on each pool are tracked, so the {@link BlockedThreadMonitor} can tell which are stuck.
+ */
+@Singleton
+public class WorkerPools implements Closeable
+{
+    private static final Logger logger = LoggerFactory.getLogger(WorkerPools.class);
+
+    private final Vertx vertx;
+    private final Map<WorkerPool, WorkerExecutor> executors = new EnumMap<>(WorkerPool.class);
+    private final Map<WorkerPool, ExecutorService> virtualThreads = new EnumMap<>(WorkerPool.class);
+    private final Set<RunningTask> running = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public WorkerPools(Vertx vertx, Configuration config)
+    {
+        this.vertx = vertx;
+        long maxExecuteTime = config.getBlockedWorkerThresholdMillis();
+        executors.put(WorkerPool.CQL, vertx.createSharedWorkerExecutor(WorkerPool.CQL.poolName(),
+                                                                       config.getCqlWorkerPoolSize(),
+                                                                       maxExecuteTime, TimeUnit.MILLISECONDS));
+        executors.put(WorkerPool.JMX, vertx.createSharedWorkerExecutor(WorkerPool.JMX.poolName(),
+                                                                       config.getJmxWorkerPoolSize(),
+                                                                       maxExecuteTime, TimeUnit.MILLISECONDS));
+        executors.put(WorkerPool.DISK, vertx.createSharedWorkerExecutor(WorkerPool.DISK.poolName(),
+                                                                        config.getDiskWorkerPoolSize(),
+                                                                        maxExecuteTime, TimeUnit.MILLISECONDS));
+
+        if (config.isVirtualThreadsEnabled())
+        {
+            for (WorkerPool pool : WorkerPool.values())
+            {
+                ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor(pool.poolName() + "-virtual-");
+                if (executor == null)
+                {
+                    logger.warn("Virtual threads need Java 21 or later, running blocking work on the worker pools");
+                    break;
+                }
+                virtualThreads.put(pool, executor);
+            }
+        }
+    }
+
+    /**
+     * Runs the task on the pool, or in a virtual thread, with tasks run in no particular order, then calls the handler
+     * back on the caller's context
+     */
+    public <T> void executeBlocking(WorkerPool pool, Callable<T> task, Handler<AsyncResult<T>> resultHandler)
+    {
+        ExecutorService virtual = virtualThreads.get(pool);
+        if (virtual == null)
+        {
+            executors.get(pool).<T>executeBlocking(promise -> promise.handle(run(pool, task)), false, resultHandler);
+            return;
+        }
+
+        Context context = vertx.getOrCreateContext();
+        virtual.execute(() ->
+        {
+            AsyncResult<T> result = run(pool, task);
+            context.runOnContext(v -> resultHandler.handle(result));
+        });
+    }
+
+    private <T> AsyncResult<T> run(WorkerPool pool, Callable<T> task)
+    {
+        RunningTask current = new RunningTask(pool, Thread.currentThread(), System.nanoTime());
+        running.add(current);
+        try
+        {
+            return Future.succeededFuture(task.call());
+        }
+        catch (Throwable t)
+        {
+            return Future.failedFuture(t);
+        }
+        finally
+        {
+            running.remove(current);
+        }
+    }
+
+    /**
+     * @return the tasks running right now
+     */
+    Collection<RunningTask> running()
+    {
+        return Collections.unmodifiableSet(running);
+    }
+
+    @Override
+    public void close()
+    {
+        executors.values().forEach(WorkerExecutor::close);
+        virtualThreads.values().forEach(ExecutorService::shutdown);
+    }
+
+    /**
+     * A task on one of the pools, with the thread running it and since when
+     */
+    static final class RunningTask
+    {
+        final WorkerPool pool;
+        final Thread thread;
+        final long startNanos;
+        // only touched by the monitor
+        boolean reported;
+
+        RunningTask(WorkerPool pool, Thread thread, long startNanos)
+        {
+            this.pool = pool;
+            this.thread = thread;
+            this.startNanos = startNanos;
+        }
+    }
+}
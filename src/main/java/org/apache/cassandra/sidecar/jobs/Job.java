@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.jobs;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * A long-running operation submitted to the {@link JobManager}, which clients poll or stream for its progress and
+ * result.  Its getters are what clients see, serialized to JSON.
+ *
+ * The job is updated from the worker thread running it and read from event loops, so its state is volatile.  Each
+ * field is consistent on its own; a reader may see the status change before the result, but a job is only reported
+ * done once its result or error is set.
+ */
+public class Job
+{
+    private final String id;
+    private final String type;
+    private final long submittedAt;
+    private final Set<Runnable> listeners = ConcurrentHashMap.newKeySet();
+    private volatile JobStatus status = JobStatus.PENDING;
+    private volatile double progress;
+    @Nullable
+    private volatile String message;
+    @Nullable
+    private volatile Object result;
+    @Nullable
+    private volatile String error;
+    private volatile long startedAt;
+    private volatile long completedAt;
+
+    Job(String id, String type, long submittedAt)
+    {
+        this.id = id;
+        this.type = type;
+        this.submittedAt = submittedAt;
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    public String getType()
+    {
+        return type;
+    }
+
+    public JobStatus getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * @return how far along the job is, from 0 to 1
+     */
+    public double getProgress()
+    {
+        return progress;
+    }
+
+    /**
+     * @return what the job is doing, or did last
+     */
+    @Nullable
+    public String getMessage()
+    {
+        return message;
+    }
+
+    @Nullable
+    public Object getResult()
+    {
+        return result;
+    }
+
+    @Nullable
+    public String getError()
+    {
+        return error;
+    }
+
+    public long getSubmittedAt()
+    {
+        return submittedAt;
+    }
+
+    /**
+     * @return when the job started running, or 0 if it's still pending
+     */
+    public long getStartedAt()
+    {
+        return startedAt;
+    }
+
+    /**
+     * @return when the job succeeded or failed, or 0 if it hasn't finished
+     */
+    public long getCompletedAt()
+    {
+        return completedAt;
+    }
+
+    /**
+     * Reports how far along the job is, for clients polling or streaming it
+     *
+     * @param fraction from 0 to 1
+     */
+    public void reportProgress(double fraction, String message)
+    {
+        this.progress = Math.max(0, Math.min(1, fraction));
+        this.message = message;
+        changed();
+    }
+
+    /**
+     * Runs the listener, on whichever thread changed the job, whenever it makes progress or finishes
+     */
+    public void addListener(Runnable listener)
+    {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener)
+    {
+        listeners.remove(listener);
+    }
+
+    void started(long now)
+    {
+        startedAt = now;
+        status = JobStatus.RUNNING;
+        changed();
+    }
+
+    void succeeded(@Nullable Object result, long now)
+    {
+        this.result = result;
+        this.progress = 1;
+        completedAt = now;
+        status = JobStatus.SUCCEEDED;
+        changed();
+    }
+
+    void failed(Throwable cause, long now)
+    {
+        this.error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName();
+        completedAt = now;
+        status = JobStatus.FAILED;
+        changed();
+    }
+
+    private void changed()
+    {
+        for (Runnable listener : listeners)
+            listener.run();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.jobs;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import org.apache.cassandra.sidecar.Configuration;
+
+/**
+ * Runs operations which take too long to answer within a request, such as snapshots and imports, as jobs which
+ * clients look up by id once submitted.
+ *
+ * Each type of job has its own named Vert.x worker pool, {@code sidecar-job-<type>}, so jobs never run on an event
+ * loop or take the workers routes need, and a burst of one type can't hold up the others.  How many jobs of a type
+ * run at once is configured per type; further jobs wait, up to {@link Configuration#getMaxQueuedJobs()} of a type
+ * including the running ones, beyond which submissions are rejected.
+ *
+ * Finished jobs are kept for {@link Configuration#getJobRetentionSeconds()} so clients can pick up their result,
+ * then evicted, so memory is bounded by the rate jobs are submitted at.
+ */
+@Singleton
+public class JobManager implements Closeable
+{
+    private static final Logger logger = LoggerFactory.getLogger(JobManager.class);
+    private static final long MAX_EVICTION_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Vertx vertx;
+    private final Configuration config;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, JobQueue> queues = new ConcurrentHashMap<>();
+    private final long evictionTimer;
+
+    @Inject
+    public JobManager(Vertx vertx, Configuration config)
+    {
+        this.vertx = vertx;
+        this.config = config;
+        long interval = Math.min(MAX_EVICTION_INTERVAL_MILLIS,
+                                 Math.max(1, TimeUnit.SECONDS.toMillis(config.getJobRetentionSeconds())));
+        this.evictionTimer = vertx.setPeriodic(interval, id -> evict(System.currentTimeMillis()));
+    }
+
+    /**
+     * Queues the task on its type's worker pool
+     *
+     * @return the job, pending until a worker picks it up
+     * @throws RejectedExecutionException if too many jobs of the type are already waiting or running
+     */
+    public <T> Job submit(String type, JobTask<T> task)
+    {
+        JobQueue queue = queues.computeIfAbsent(type, this::newQueue);
+        if (queue.active.incrementAndGet() > config.getMaxQueuedJobs())
+        {
+            queue.active.decrementAndGet();
+            throw new RejectedExecutionException(String.format("Too many %s jobs waiting, at most %d are queued",
+                                                               type, config.getMaxQueuedJobs()));
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), type, System.currentTimeMillis());
+        jobs.put(job.getId(), job);
+        logger.info("Submitted {} job {}", type, job.getId());
+        // the job records its own outcome, nothing waits on the executor's result
+        queue.executor.<Void>executeBlocking(promise ->
+        {
+            job.started(System.currentTimeMillis());
+            try
+            {
+                job.succeeded(task.run(job), System.currentTimeMillis());
+                logger.info("{} job {} succeeded", type, job.getId());
+            }
+            catch (Throwable t)
+            {
+                job.failed(t, System.currentTimeMillis());
+                logger.warn("{} job {} failed", type, job.getId(), t);
+            }
+            finally
+            {
+                queue.active.decrementAndGet();
+                promise.complete();
+            }
+        }, false, null);
+        return job;
+    }
+
+    /**
+     * @return the job, or null if there's no such job or it finished long enough ago to have been evicted
+     */
+    @Nullable
+    public Job get(String id)
+    {
+        return jobs.get(id);
+    }
+
+    /**
+     * @param type only list jobs of this type, or null for every job
+     * @return the jobs, oldest first
+     */
+    public List<Job> list(@Nullable String type)
+    {
+        List<Job> listed = new ArrayList<>();
+        for (Job job : jobs.values())
+        {
+            if (type == null || type.equals(job.getType()))
+                listed.add(job);
+        }
+        listed.sort(Comparator.comparingLong(Job::getSubmittedAt));
+        return listed;
+    }
+
+    /**
+     * Removes the jobs which finished more than the retention period ago
+     */
+    void evict(long now)
+    {
+        long cutoff = now - TimeUnit.SECONDS.toMillis(config.getJobRetentionSeconds());
+        jobs.values().removeIf(job -> job.getStatus().isDone() && job.getCompletedAt() <= cutoff);
+    }
+
+    @Override
+    public void close()
+    {
+        vertx.cancelTimer(evictionTimer);
+        queues.values().forEach(queue -> queue.executor.close());
+    }
+
+    private JobQueue newQueue(String type)
+    {
+        int concurrency = config.getJobConcurrency().getOrDefault(type, config.getDefaultJobConcurrency());
+        // jobs are expected to run long, Vert.x shouldn't report them as blocked threads
+        WorkerExecutor executor = vertx.createSharedWorkerExecutor("sidecar-job-" + type, concurrency,
+                                                                   Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        return new JobQueue(executor);
+    }
+
+    /**
+     * A type's worker pool, and how many of its jobs are waiting or running
+     */
+    private static class JobQueue
+    {
+        private final WorkerExecutor executor;
+        private final AtomicInteger active = new AtomicInteger();
+
+        JobQueue(WorkerExecutor executor)
+        {
+            this.executor = executor;
+        }
+    }
+}
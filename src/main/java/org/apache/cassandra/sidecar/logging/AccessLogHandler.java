@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.logging;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.Configuration;
+import org.apache.cassandra.sidecar.routes.RouteBinder;
+
+/**
+ * Logs a sample of the requests answered, through the {@link AccessLogWriter}.
+ *
+ * Each route path pattern can have its own sample rate, so frequently polled endpoints like the health check don't
+ * drown out everything else.  Server errors are always logged.  Requests left out by sampling are counted in
+ * {@value #SAMPLED_OUT_METRIC}.
+ */
+@Singleton
+public class AccessLogHandler implements Handler<RoutingContext>
+{
+    public static final String SAMPLED_OUT_METRIC = "sidecar.access_log.sampled_out";
+    private final AccessLogWriter writer;
+    private final double sampleRate;
+    private final Map<String, Double> routeSampleRates;
+    private final Meter sampledOut;
+
+    @Inject
+    public AccessLogHandler(AccessLogWriter writer, MetricRegistry registry, Configuration config)
+    {
+        this.writer = writer;
+        this.sampleRate = config.getAccessLogSampleRate();
+        this.routeSampleRates = config.getAccessLogRouteSampleRates();
+        this.sampledOut = registry.meter(SAMPLED_OUT_METRIC);
+    }
+
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        if (writer.isEnabled())
+        {
+            long timestamp = System.currentTimeMillis();
+            long start = System.nanoTime();
+            rc.addBodyEndHandler(v -> log(rc, timestamp, System.nanoTime() - start));
+        }
+        rc.next();
+    }
+
+    private void log(RoutingContext rc, long timestamp, long durationNanos)
+    {
+        HttpServerResponse response = rc.response();
+        int status = response.getStatusCode();
+        if (status < 500 && !sampled(RouteBinder.matchedPath(rc)))
+        {
+            sampledOut.mark();
+            return;
+        }
+
+        HttpServerRequest request = rc.request();
+        SocketAddress remote = request.remoteAddress();
+        writer.offer(new AccessLogWriter.Entry(timestamp, remote != null ? remote.host() : null, request.method(),
+                                               request.uri(), request.version(), status, response.bytesWritten(),
+                                               request.getHeader(HttpHeaderNames.REFERER),
+                                               request.getHeader(HttpHeaderNames.USER_AGENT), durationNanos));
+    }
+
+    private boolean sampled(String route)
+    {
+        Double routeRate = route != null ? routeSampleRates.get(route) : null;
+        double rate = routeRate != null ? routeRate : sampleRate;
+        if (rate >= 1)
+            return true;
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+}
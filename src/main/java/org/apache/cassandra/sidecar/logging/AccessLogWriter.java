@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.logging;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
+import org.apache.cassandra.sidecar.Configuration;
+
+/**
+ * Writes the access log from a single background thread, so requests never wait for lines to be formatted or written.
+ *
+ * Request handlers only capture what a line needs and {@link #offer} it to a bounded, lock-free queue.  When the
+ * writer falls behind and the queue is full, lines are dropped and counted in {@value #DROPPED_METRIC} instead of
+ * holding up the event loops.  Every line is formatted into the same buffer, and the timestamp is only formatted
+ * again once the second changes.
+ *
+ * Lines are written at INFO to the {@value #LOGGER} logger, so they can be sent to their own appender.
+ */
+@Singleton
+public class AccessLogWriter
+{
+    public static final String LOGGER = "org.apache.cassandra.sidecar.AccessLog";
+    public static final String DROPPED_METRIC = "sidecar.access_log.dropped";
+    private static final Logger accessLog = LoggerFactory.getLogger(LOGGER);
+    private static final Logger logger = LoggerFactory.getLogger(AccessLogWriter.class);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final long MAX_IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int capacity;
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Meter dropped;
+    private volatile Thread thread;
+    private volatile boolean idle;
+
+    // only used by the writer thread
+    private final StringBuilder line = new StringBuilder(256);
+    private long formattedSecond = Long.MIN_VALUE;
+    private String formattedDate;
+
+    @Inject
+    public AccessLogWriter(MetricRegistry registry, Configuration config)
+    {
+        this(registry, config.getAccessLogQueueSize());
+        Thread writer = new Thread(this::run, "sidecar-access-log");
+        writer.setDaemon(true);
+        thread = writer;
+        writer.start();
+    }
+
+    AccessLogWriter(MetricRegistry registry, int capacity)
+    {
+        this.capacity = capacity;
+        this.dropped = registry.meter(DROPPED_METRIC);
+    }
+
+    /**
+     * @return whether access log lines are written at all
+     */
+    public boolean isEnabled()
+    {
+        return accessLog.isInfoEnabled();
+    }
+
+    /**
+     * Queues a line to be written, or drops it if too many are already waiting
+     *
+     * @return whether the line was queued
+     */
+    public boolean offer(Entry entry)
+    {
+        if (size.incrementAndGet() > capacity)
+        {
+            size.decrementAndGet();
+            dropped.mark();
+            return false;
+        }
+        queue.offer(entry);
+        if (idle)
+            LockSupport.unpark(thread);
+        return true;
+    }
+
+    private void run()
+    {
+        while (true)
+        {
+            try
+            {
+                if (drain() == 0)
+                {
+                    // producers only wake the writer up when they see it's idle, so check again before parking
+                    idle = true;
+                    if (queue.isEmpty())
+                        LockSupport.parkNanos(this, MAX_IDLE_NANOS);
+                    idle = false;
+                }
+            }
+            catch (Throwable t)
+            {
+                logger.warn("Failed to write the access log", t);
+            }
+        }
+    }
+
+    /**
+     * Writes every queued line
+     *
+     * @return the number of lines written
+     */
+    int drain()
+    {
+        int written = 0;
+        Entry entry;
+        while ((entry = queue.poll()) != null)
+        {
+            size.decrementAndGet();
+            line.setLength(0);
+            format(entry, line);
+            accessLog.info(line.toString());
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * Formats the entry in the combined log format, followed by the time taken to answer in milliseconds
+     */
+    void format(Entry entry, StringBuilder out)
+    {
+        out.append(entry.remoteHost != null ? entry.remoteHost : "-")
+           .append(" - - [").append(date(entry.timestampMillis)).append("] \"")
+           .append(entry.method).append(' ').append(entry.uri).append(' ').append(version(entry.version))
+           .append("\" ").append(entry.status).append(' ').append(entry.bytesSent).append(' ');
+        quoted(entry.referrer, out).append(' ');
+        quoted(entry.userAgent, out).append(' ');
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(entry.durationNanos);
+        long fraction = micros % 1000;
+        out.append(micros / 1000).append('.');
+        if (fraction < 100)
+            out.append(fraction < 10 ? "00" : "0");
+        out.append(fraction);
+    }
+
+    private String date(long timestampMillis)
+    {
+        long second = timestampMillis / 1000;
+        if (second != formattedSecond)
+        {
+            formattedDate = DATE_FORMAT.format(Instant.ofEpochSecond(second));
+            formattedSecond = second;
+        }
+        return formattedDate;
+    }
+
+    private static StringBuilder quoted(@Nullable String value, StringBuilder out)
+    {
+        if (value == null)
+            return out.append("\"-\"");
+
+        out.append('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                out.append('\\');
+            out.append(c);
+        }
+        return out.append('"');
+    }
+
+    private static String version(HttpVersion version)
+    {
+        switch (version)
+        {
+            case HTTP_1_0:
+                return "HTTP/1.0";
+            case HTTP_2:
+                return "HTTP/2.0";
+            default:
+                return "HTTP/1.1";
+        }
+    }
+
+    /**
+     * What's captured of a request to log it
+     */
+    public static class Entry
+    {
+        final long timestampMillis;
+        @Nullable
+        final String remoteHost;
+        final HttpMethod method;
+        final String uri;
+        final HttpVersion version;
+        final int status;
+        final long bytesSent;
+        @Nullable
+        final String referrer;
+        @Nullable
+        final String userAgent;
+        final long durationNanos;
+
+        public Entry(long timestampMillis, @Nullable String remoteHost, HttpMethod method, String uri,
+                     HttpVersion version, int status, long bytesSent, @Nullable String referrer,
+                     @Nullable String userAgent, long durationNanos)
+        {
+            this.timestampMillis = timestampMillis;
+            this.remoteHost = remoteHost;
+            this.method = method;
+            this.uri = uri;
+            this.version = version;
+            this.status = status;
+            this.bytesSent = bytesSent;
+            this.referrer = referrer;
+            this.userAgent = userAgent;
+            this.durationNanos = durationNanos;
+        }
+    }
+}
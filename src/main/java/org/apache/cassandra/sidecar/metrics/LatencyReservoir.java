@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.metrics;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * A {@link Reservoir} for latencies in nanoseconds which counts every value, in the manner of HdrHistogram, rather
+ * than sampling them.  Values are counted in log-linear buckets of microseconds, 64 per power of two, so percentiles
+ * are within 1/64th of the recorded value, however many values there are.
+ *
+ * Recording is lock free: a value increments one atomic bucket, so it can be done from any event loop.  Counts are
+ * kept over a rolling window, in four slices which are replaced as they expire, and snapshots cover the slice being
+ * recorded to plus the three before it.
+ */
+public class LatencyReservoir implements Reservoir
+{
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    // values from 2^37 microseconds, over a day and a half, are counted in the last bucket
+    private static final int MAX_SHIFT = 30;
+    static final int BUCKETS = SUB_BUCKETS + MAX_SHIFT * HALF_SUB_BUCKETS;
+    private static final int SLICES = 4;
+
+    private final long sliceNanos;
+    private final Clock clock;
+    private final AtomicReferenceArray<Slice> slices = new AtomicReferenceArray<>(SLICES);
+
+    public LatencyReservoir(long window, TimeUnit unit)
+    {
+        this(window, unit, Clock.defaultClock());
+    }
+
+    public LatencyReservoir(long window, TimeUnit unit, Clock clock)
+    {
+        Preconditions.checkArgument(window > 0, "The window must be positive");
+        this.sliceNanos = Math.max(1, unit.toNanos(window) / SLICES);
+        this.clock = clock;
+    }
+
+    /**
+     * @return the number of values in the current window
+     */
+    @Override
+    public int size()
+    {
+        return (int) Math.min(Integer.MAX_VALUE, getSnapshot().size());
+    }
+
+    @Override
+    public void update(long nanos)
+    {
+        long epoch = Math.floorDiv(clock.getTick(), sliceNanos);
+        int index = (int) Math.floorMod(epoch, SLICES);
+        Slice slice = slices.get(index);
+        if (slice == null || slice.epoch != epoch)
+        {
+            // whoever loses the race records into the winner's slice, or at worst into the expiring one
+            Slice fresh = new Slice(epoch);
+            slice = slices.compareAndSet(index, slice, fresh) ? fresh : slices.get(index);
+        }
+        slice.record(Math.max(0, nanos));
+    }
+
+    @Override
+    public LatencySnapshot getSnapshot()
+    {
+        long epoch = Math.floorDiv(clock.getTick(), sliceNanos);
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        long sum = 0;
+        long max = 0;
+        for (int i = 0; i < SLICES; i++)
+        {
+            Slice slice = slices.get(i);
+            if (slice == null || slice.epoch <= epoch - SLICES || slice.epoch > epoch)
+                continue;
+            for (int bucket = 0; bucket < BUCKETS; bucket++)
+            {
+                long bucketCount = slice.counts.get(bucket);
+                counts[bucket] += bucketCount;
+                count += bucketCount;
+            }
+            sum += slice.sum.sum();
+            max = Math.max(max, slice.max.get());
+        }
+        return new LatencySnapshot(counts, count, sum, max);
+    }
+
+    static int bucket(long micros)
+    {
+        if (micros < SUB_BUCKETS)
+            return (int) micros;
+        int shift = 64 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        if (shift > MAX_SHIFT)
+            return BUCKETS - 1;
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) (micros >>> shift) - HALF_SUB_BUCKETS;
+    }
+
+    /**
+     * @return the highest value in microseconds counted in the bucket
+     */
+    static long highestValue(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int offset = bucket - SUB_BUCKETS;
+        int shift = offset / HALF_SUB_BUCKETS + 1;
+        long subBucket = offset % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * The counts for one part of the window
+     */
+    private static final class Slice
+    {
+        private final long epoch;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Slice(long epoch)
+        {
+            this.epoch = epoch;
+        }
+
+        void record(long nanos)
+        {
+            counts.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+            sum.add(nanos);
+            max.accumulate(nanos);
+        }
+    }
+
+    /**
+     * Percentiles read from the bucket counts, in nanoseconds, reporting the highest value of each bucket but never
+     * more than the exact maximum
+     */
+    public static final class LatencySnapshot extends Snapshot
+    {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        LatencySnapshot(long[] counts, long count, long sum, long max)
+        {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        @Override
+        public double getValue(double quantile)
+        {
+            Preconditions.checkArgument(quantile >= 0 && quantile <= 1, "%s is not in [0..1]", quantile);
+            if (count == 0)
+                return 0;
+            if (quantile == 1)
+                return max;
+
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++)
+            {
+                seen += counts[bucket];
+                if (seen >= rank)
+                    return Math.min(max, TimeUnit.MICROSECONDS.toNanos(highestValue(bucket)));
+            }
+            return max;
+        }
+
+        /**
+         * @return the highest value of each bucket holding any values, rather than every value
+         */
+        @Override
+        public long[] getValues()
+        {
+            int buckets = 0;
+            for (long bucketCount : counts)
+            {
+                if (bucketCount > 0)
+                    buckets++;
+            }
+            long[] values = new long[buckets];
+            for (int bucket = 0, i = 0; bucket < BUCKETS; bucket++)
+            {
+                if (counts[bucket] > 0)
+                    values[i++] = Math.min(max, TimeUnit.MICROSECONDS.toNanos(highestValue(bucket)));
+            }
+            return values;
+        }
+
+        @Override
+        public int size()
+        {
+            return (int) Math.min(Integer.MAX_VALUE, count);
+        }
+
+        @Override
+        public long getMax()
+        {
+            return max;
+        }
+
+        @Override
+        public double getMean()
+        {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        @Override
+        public long getMin()
+        {
+            for (int bucket = 0; bucket < BUCKETS; bucket++)
+            {
+                if (counts[bucket] > 0)
+                    return TimeUnit.MICROSECONDS.toNanos(bucket < SUB_BUCKETS ? bucket
+                                                                           : highestValue(bucket - 1) + 1);
+            }
+            return 0;
+        }
+
+        @Override
+        public double getStdDev()
+        {
+            if (count < 2)
+                return 0;
+            double mean = getMean();
+            double variance = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++)
+            {
+                if (counts[bucket] == 0)
+                    continue;
+                double difference = TimeUnit.MICROSECONDS.toNanos(highestValue(bucket)) - mean;
+                variance += counts[bucket] * difference * difference;
+            }
+            return Math.sqrt(variance / (count - 1));
+        }
+
+        @Override
+        public void dump(OutputStream output)
+        {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)))
+            {
+                for (long value : getValues())
+                    out.printf("%d%n", value);
+            }
+        }
+    }
+}
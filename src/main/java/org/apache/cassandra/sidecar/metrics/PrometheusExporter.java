@@ -0,0 +1,436 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.google.common.base.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Counting;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricRegistryListener;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Renders a Dropwizard {@link MetricRegistry}, including the Vert.x metrics, in the Prometheus text format.
+ *
+ * Everything about a metric which doesn't change between scrapes, its sanitized name, its TYPE line and the start of
+ * each sample line, is encoded once when the metric is registered, and dropped when it's removed.  A scrape then only
+ * reads the current values and appends them, so rendering a large registry allocates little more than the output.
+ *
+ * Gauges and counters are exported as gauges, meters as counters, and histograms and timers as summaries, with timers
+ * in seconds and their maximum as the 1 quantile.  Metrics registered under a {@link #name(String, String...)} with
+ * labels are exported as one family, sharing a TYPE line.  Families are ordered by their exported name, so each one's
+ * samples are written together even when registry names sort apart, such as {@code foo}, {@code foo.x} and
+ * {@code foo{a="1"}}.
+ */
+@Singleton
+public class PrometheusExporter implements MetricRegistryListener
+{
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final Logger logger = LoggerFactory.getLogger(PrometheusExporter.class);
+    private static final double[] QUANTILES = { 0.5, 0.75, 0.95, 0.98, 0.99, 0.999, 1 };
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    // keyed by exported name and then labels, so the members of a family are next to each other
+    private final ConcurrentNavigableMap<String, Family> families = new ConcurrentSkipListMap<>();
+    // the key of each registered metric, so two metrics which sanitize to the same name don't clash
+    private final Map<String, String> keys = new HashMap<>();
+
+    @Inject
+    public PrometheusExporter(MetricRegistry registry)
+    {
+        // also called back for every metric already registered
+        registry.addListener(this);
+    }
+
+    /**
+     * @param base   the metric's name
+     * @param labels pairs of label names and values
+     * @return a registry name for the metric which is exported with the labels
+     */
+    public static String name(String base, String... labels)
+    {
+        Preconditions.checkArgument(labels.length % 2 == 0, "Labels must be name and value pairs");
+        if (labels.length == 0)
+            return base;
+        StringBuilder name = new StringBuilder(base).append('{');
+        for (int i = 0; i < labels.length; i += 2)
+        {
+            if (i > 0)
+                name.append(',');
+            name.append(sanitize(labels[i])).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++)
+            {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"')
+                    name.append('\\').append(c);
+                else if (c == '\n')
+                    name.append("\\n");
+                else
+                    name.append(c);
+            }
+            name.append('"');
+        }
+        return name.append('}').toString();
+    }
+
+    /**
+     * @return a cursor over the metrics in name order, which is safe to use while metrics are added or removed
+     */
+    public Cursor cursor()
+    {
+        return new Cursor(families.values().iterator());
+    }
+
+    /**
+     * @return the whole registry rendered at once, where it can't be streamed
+     */
+    public Buffer render()
+    {
+        Buffer out = Buffer.buffer();
+        Cursor cursor = cursor();
+        while (cursor.hasNext())
+            cursor.writeNext(out);
+        return out;
+    }
+
+    @Override
+    public void onGaugeAdded(String name, Gauge<?> gauge)
+    {
+        add(name, gauge);
+    }
+
+    @Override
+    public void onGaugeRemoved(String name)
+    {
+        remove(name);
+    }
+
+    @Override
+    public void onCounterAdded(String name, Counter counter)
+    {
+        add(name, counter);
+    }
+
+    @Override
+    public void onCounterRemoved(String name)
+    {
+        remove(name);
+    }
+
+    @Override
+    public void onHistogramAdded(String name, Histogram histogram)
+    {
+        add(name, histogram);
+    }
+
+    @Override
+    public void onHistogramRemoved(String name)
+    {
+        remove(name);
+    }
+
+    @Override
+    public void onMeterAdded(String name, Meter meter)
+    {
+        add(name, meter);
+    }
+
+    @Override
+    public void onMeterRemoved(String name)
+    {
+        remove(name);
+    }
+
+    @Override
+    public void onTimerAdded(String name, Timer timer)
+    {
+        add(name, timer);
+    }
+
+    @Override
+    public void onTimerRemoved(String name)
+    {
+        remove(name);
+    }
+
+    private synchronized void add(String name, Metric metric)
+    {
+        remove(name);
+        int labelsStart = name.indexOf('{');
+        String base = sanitize(labelsStart < 0 ? name : name.substring(0, labelsStart));
+        String labels = labelsStart < 0 ? "" : name.substring(labelsStart);
+        String type = type(metric);
+        String exportedBase = base;
+        for (int i = 2; !fits(exportedBase, labels, type); i++)
+            exportedBase = base + '_' + i;
+        String key = key(exportedBase, labels);
+        keys.put(name, key);
+        families.put(key, new Family(exportedBase, labels, metric, type));
+    }
+
+    private synchronized void remove(String name)
+    {
+        String key = keys.remove(name);
+        if (key != null)
+            families.remove(key);
+    }
+
+    /**
+     * @return whether a metric of the type can join the family with the name, which it can as long as no other member
+     * has the same labels and the family is of the same type
+     */
+    private boolean fits(String name, String labels, String type)
+    {
+        if (families.containsKey(key(name, labels)))
+            return false;
+        Map.Entry<String, Family> member = families.ceilingEntry(key(name, ""));
+        return member == null || !member.getValue().name.equals(name) || member.getValue().type.equals(type);
+    }
+
+    /**
+     * @return the key ordering families by name, with a space since it sorts before anything a name may contain
+     */
+    private static String key(String name, String labels)
+    {
+        return name + ' ' + labels;
+    }
+
+    private static String type(Metric metric)
+    {
+        if (metric instanceof Gauge || metric instanceof Counter)
+            return "gauge";
+        if (metric instanceof Meter)
+            return "counter";
+        return "summary";
+    }
+
+    /**
+     * @return the name with every character Prometheus doesn't allow replaced by an underscore, including colons,
+     * which are reserved for recording rules
+     */
+    static String sanitize(String name)
+    {
+        StringBuilder sanitized = new StringBuilder(name.length() + 1);
+        if (name.isEmpty() || (name.charAt(0) >= '0' && name.charAt(0) <= '9'))
+            sanitized.append('_');
+        for (int i = 0; i < name.length(); i++)
+        {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+            sanitized.append(valid ? c : '_');
+        }
+        return sanitized.toString();
+    }
+
+    /**
+     * Writes the metrics one at a time, with a TYPE line before the first metric written of each family
+     */
+    public static final class Cursor
+    {
+        private final Iterator<Family> families;
+        private String lastWritten = null;
+
+        private Cursor(Iterator<Family> families)
+        {
+            this.families = families;
+        }
+
+        public boolean hasNext()
+        {
+            return families.hasNext();
+        }
+
+        public void writeNext(Buffer out)
+        {
+            Family family = families.next();
+            if (family.write(out, !family.name.equals(lastWritten)))
+                lastWritten = family.name;
+        }
+    }
+
+    /**
+     * One metric, with the parts of its output which never change already encoded
+     */
+    private static final class Family
+    {
+        private final String name;
+        private final String labels;
+        private final Metric metric;
+        private final String type;
+        private final byte[] header;
+        private final byte[][] prefixes;
+
+        Family(String name, String labels, Metric metric, String type)
+        {
+            this.name = name;
+            this.labels = labels;
+            this.metric = metric;
+            this.type = type;
+            if (metric instanceof Gauge || metric instanceof Counter)
+            {
+                header = bytes("# TYPE " + name + " " + type + "\n");
+                prefixes = new byte[][]{ bytes(name + labels + ' ') };
+            }
+            else if (metric instanceof Meter)
+            {
+                header = bytes("# TYPE " + name + "_total " + type + "\n");
+                prefixes = new byte[][]{ bytes(name + "_total" + labels + ' ') };
+            }
+            else
+            {
+                header = bytes("# TYPE " + name + " " + type + "\n");
+                // the quantile goes with any other labels
+                String labelsStart = labels.isEmpty() ? "{" : labels.substring(0, labels.length() - 1) + ',';
+                prefixes = new byte[QUANTILES.length + 1][];
+                for (int i = 0; i < QUANTILES.length; i++)
+                    prefixes[i] = bytes(name + labelsStart + "quantile=\"" + QUANTILES[i] + "\"} ");
+                prefixes[QUANTILES.length] = bytes(name + "_count" + labels + ' ');
+            }
+        }
+
+        /**
+         * Appends the metric's current value, unless it can't be read as a number
+         *
+         * @return true if anything was written
+         */
+        boolean write(Buffer out, boolean withHeader)
+        {
+            try
+            {
+                if (metric instanceof Gauge)
+                    return writeGauge(out, withHeader, ((Gauge<?>) metric).getValue());
+                if (metric instanceof Counter || metric instanceof Meter)
+                    return writeCount(out, withHeader, ((Counting) metric).getCount());
+                if (metric instanceof Timer)
+                    return writeSummary(out, withHeader, ((Timer) metric).getSnapshot(), ((Timer) metric).getCount(),
+                                        NANOS_PER_SECOND);
+                if (metric instanceof Histogram)
+                    return writeSummary(out, withHeader, ((Histogram) metric).getSnapshot(),
+                                        ((Histogram) metric).getCount(), 1);
+            }
+            catch (RuntimeException e)
+            {
+                logger.debug("Failed to read metric {}{}", name, labels, e);
+            }
+            return false;
+        }
+
+        private boolean writeGauge(Buffer out, boolean withHeader, Object value)
+        {
+            double number;
+            if (value instanceof Number)
+                number = ((Number) value).doubleValue();
+            else if (value instanceof Boolean)
+                number = (Boolean) value ? 1 : 0;
+            else
+                return false;
+            if (withHeader)
+                out.appendBytes(header);
+            out.appendBytes(prefixes[0]);
+            appendDouble(out, number);
+            out.appendByte((byte) '\n');
+            return true;
+        }
+
+        private boolean writeCount(Buffer out, boolean withHeader, long count)
+        {
+            if (withHeader)
+                out.appendBytes(header);
+            out.appendBytes(prefixes[0]);
+            appendLong(out, count);
+            out.appendByte((byte) '\n');
+            return true;
+        }
+
+        private boolean writeSummary(Buffer out, boolean withHeader, Snapshot snapshot, long count, double scale)
+        {
+            if (withHeader)
+                out.appendBytes(header);
+            for (int i = 0; i < QUANTILES.length; i++)
+            {
+                out.appendBytes(prefixes[i]);
+                appendDouble(out, snapshot.getValue(QUANTILES[i]) / scale);
+                out.appendByte((byte) '\n');
+            }
+            out.appendBytes(prefixes[QUANTILES.length]);
+            appendLong(out, count);
+            out.appendByte((byte) '\n');
+            return true;
+        }
+
+        private static void appendDouble(Buffer out, double value)
+        {
+            if (Double.isNaN(value))
+                out.appendString("NaN");
+            else if (Double.isInfinite(value))
+                out.appendString(value > 0 ? "+Inf" : "-Inf");
+            else if (value == Math.rint(value) && Math.abs(value) < 1e15)
+                appendLong(out, (long) value);
+            else
+                out.appendString(Double.toString(value));
+        }
+
+        /**
+         * Appends the digits directly, as most values are integers and this is the hot path of a scrape
+         */
+        private static void appendLong(Buffer out, long value)
+        {
+            if (value == Long.MIN_VALUE)
+            {
+                out.appendString(Long.toString(value));
+                return;
+            }
+            if (value < 0)
+            {
+                out.appendByte((byte) '-');
+                value = -value;
+            }
+            long divisor = 1;
+            while (divisor <= value / 10)
+                divisor *= 10;
+            for (; divisor > 0; divisor /= 10)
+                out.appendByte((byte) ('0' + (value / divisor) % 10));
+        }
+
+        private static byte[] bytes(String s)
+        {
+            return s.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
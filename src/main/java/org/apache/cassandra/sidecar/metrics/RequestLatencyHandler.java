@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.Configuration;
+import org.apache.cassandra.sidecar.routes.RouteBinder;
+
+/**
+ * Records how long every request takes to answer, per route and status code, in {@link LatencyReservoir} timers
+ * exported as {@value #METRIC}.  Routes are identified by their path pattern rather than the requested path, so the
+ * number of timers stays bounded.
+ *
+ * Once a route and status have been seen, recording only reads two concurrent maps and updates the timer, without
+ * locking, so it's cheap enough for every request on the event loops.
+ */
+@Singleton
+public class RequestLatencyHandler implements Handler<RoutingContext>
+{
+    public static final String METRIC = "sidecar_http_request_duration_seconds";
+    private static final String UNMATCHED = "unmatched";
+    private static final int MAX_STATUS = 600;
+    private final MetricRegistry registry;
+    private final int windowSeconds;
+    // timers by route, then indexed by status code
+    private final Map<String, AtomicReferenceArray<Timer>> timers = new ConcurrentHashMap<>();
+
+    @Inject
+    public RequestLatencyHandler(MetricRegistry registry, Configuration config)
+    {
+        this.registry = registry;
+        this.windowSeconds = config.getLatencyWindowSeconds();
+    }
+
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        long start = System.nanoTime();
+        rc.addBodyEndHandler(v -> timer(route(rc), rc.response().getStatusCode())
+                                  .update(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        rc.next();
+    }
+
+    private static String route(RoutingContext rc)
+    {
+        String path = RouteBinder.matchedPath(rc);
+        return path != null ? path : UNMATCHED;
+    }
+
+    Timer timer(String route, int status)
+    {
+        AtomicReferenceArray<Timer> byStatus = timers.get(route);
+        if (byStatus == null)
+            byStatus = timers.computeIfAbsent(route, r -> new AtomicReferenceArray<>(MAX_STATUS));
+
+        int index = status > 0 && status < MAX_STATUS ? status : 0;
+        Timer timer = byStatus.get(index);
+        if (timer == null)
+        {
+            // the registry returns the same timer to racing callers
+            timer = registry.timer(PrometheusExporter.name(METRIC, "route", route, "status", Integer.toString(status)),
+                                   () -> new Timer(new LatencyReservoir(windowSeconds, TimeUnit.SECONDS)));
+            byStatus.set(index, timer);
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.ratelimit;
+
+/**
+ * How many requests a single client can make to a route: a steady rate with bursts up to a number of requests, and
+ * a cap on how many can be in flight at once.  Zero or less leaves either limit off.
+ */
+public class RateLimit
+{
+    private final double requestsPerSecond;
+    private final int burst;
+    private final int maxInFlight;
+
+    public RateLimit(double requestsPerSecond, int burst, int maxInFlight)
+    {
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public double getRequestsPerSecond()
+    {
+        return requestsPerSecond;
+    }
+
+    public int getBurst()
+    {
+        return burst;
+    }
+
+    public int getMaxInFlight()
+    {
+        return maxInFlight;
+    }
+
+    @Override
+    public String toString()
+    {
+        return requestsPerSecond + "/s, burst " + burst + ", " + maxInFlight + " in flight";
+    }
+}
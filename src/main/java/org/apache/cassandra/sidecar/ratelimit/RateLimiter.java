@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.ratelimit;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+
+import com.google.common.collect.ImmutableSet;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.Configuration;
+import org.apache.cassandra.sidecar.routes.RouteBinder;
+
+/**
+ * Admits requests to the bound routes within each client's rate and in-flight limits, answering the rest straight
+ * away with 429 and a {@code Retry-After} header.  Rejections are counted in {@value #REJECTED_METRIC}.
+ *
+ * Every route path pattern has its own limits for each client, so a client hammering one endpoint can still use the
+ * others.  Cheap routes like the health check share a generous {@link RateLimit}, while everything else, which
+ * queries Cassandra or streams files, gets a tighter one.  Clients are identified by their TLS certificate's
+ * principal when they present one, otherwise by their IP address.
+ *
+ * State is kept per route and client in concurrent maps, with a {@link TokenBucket} and an in-flight counter that
+ * are each updated with a single atomic operation, so admitting a request doesn't lock.  Clients which have gone
+ * quiet are forgotten periodically.  In-flight requests are counted until their response has ended or its
+ * connection closed, through the response's end handler.  The streaming routes, {@value #EVENTS_ROUTE} with its
+ * Server-Sent Events and web sockets and {@value #JOB_ROUTE} with a job's events, aren't counted in flight at all:
+ * their streams stay open for as long as the client or the job wants, and an upgraded request's response never ends.
+ * They're told apart by route alone, as a client could add the headers asking for a stream to any request.
+ */
+@Singleton
+public class RateLimiter
+{
+    public static final String REJECTED_METRIC = "sidecar.rate_limit.rejected";
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+    private static final String CLIENT_ID = "sidecar.client.id";
+    private static final String NO_PRINCIPAL = "";
+    private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final String EVENTS_ROUTE = "/api/v1/events";
+    private static final String JOB_ROUTE = "/api/v1/jobs/:jobId";
+    private static final Set<String> STREAM_ROUTES = ImmutableSet.of(EVENTS_ROUTE, JOB_ROUTE);
+
+    private final boolean enabled;
+    private final RateLimit cheapLimit;
+    private final RateLimit expensiveLimit;
+    private final Set<String> cheapRoutes;
+    private final Meter rejected;
+    private final Map<String, RouteLimiter> routes = new ConcurrentHashMap<>();
+
+    @Inject
+    public RateLimiter(Vertx vertx, MetricRegistry registry, Configuration config)
+    {
+        this.enabled = config.isRateLimitEnabled();
+        this.cheapLimit = config.getRateLimit();
+        this.expensiveLimit = config.getExpensiveRateLimit();
+        this.cheapRoutes = config.getCheapRoutes();
+        this.rejected = registry.meter(REJECTED_METRIC);
+
+        if (enabled)
+        {
+            logger.info("Limiting each client to {} on {}, and {} on other routes",
+                        cheapLimit, cheapRoutes, expensiveLimit);
+            vertx.setPeriodic(PRUNE_INTERVAL_MILLIS, id -> prune(System.nanoTime()));
+        }
+    }
+
+    /**
+     * Checks the request against its route's limits, answering it with 429 if it's over them
+     *
+     * @return whether the request should be handled
+     */
+    public boolean admit(RoutingContext rc)
+    {
+        if (!enabled)
+            return true;
+
+        String path = RouteBinder.matchedPath(rc);
+        if (path == null)
+            return true;
+
+        RouteLimiter route = routes.get(path);
+        if (route == null)
+            route = routes.computeIfAbsent(path, p -> new RouteLimiter(cheapRoutes.contains(p)
+                                                                        ? cheapLimit
+                                                                        : expensiveLimit));
+        return route.admit(rc, clientId(rc.request()), System.nanoTime(), !STREAM_ROUTES.contains(path));
+    }
+
+    /**
+     * Forgets clients with nothing in flight whose bucket has refilled, as they'd be recreated in the same state
+     */
+    void prune(long nowNanos)
+    {
+        // a request admitted concurrently may briefly be counted against a forgotten client instead of a new one
+        for (RouteLimiter route : routes.values())
+            route.clients.values().removeIf(client -> client.isIdle(nowNanos));
+    }
+
+    int clientCount(String path)
+    {
+        RouteLimiter route = routes.get(path);
+        return route != null ? route.clients.size() : 0;
+    }
+
+    int inFlight(String path)
+    {
+        RouteLimiter route = routes.get(path);
+        return route != null ? route.clients.values().stream().mapToInt(client -> client.inFlight.get()).sum() : 0;
+    }
+
+    private void reject(RoutingContext rc, long retryAfterNanos)
+    {
+        rejected.mark();
+        long seconds = Math.max(1, (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        rc.response()
+          .setStatusCode(HttpResponseStatus.TOO_MANY_REQUESTS.code())
+          .putHeader(HttpHeaderNames.RETRY_AFTER, Long.toString(seconds))
+          .end();
+    }
+
+    /**
+     * @return the principal of the client's certificate if it presented one, otherwise its IP address
+     */
+    static String clientId(HttpServerRequest request)
+    {
+        SSLSession session = request.isSSL() ? request.sslSession() : null;
+        if (session != null)
+        {
+            // looking the principal up throws without a client certificate, so only do it once per TLS session
+            Object principal = session.getValue(CLIENT_ID);
+            if (principal == null)
+            {
+                principal = peerPrincipal(session);
+                session.putValue(CLIENT_ID, principal);
+            }
+            if (!NO_PRINCIPAL.equals(principal))
+                return (String) principal;
+        }
+        SocketAddress remote = request.remoteAddress();
+        return remote != null ? remote.host() : NO_PRINCIPAL;
+    }
+
+    private static String peerPrincipal(SSLSession session)
+    {
+        try
+        {
+            return session.getPeerPrincipal().getName();
+        }
+        catch (SSLPeerUnverifiedException e)
+        {
+            return NO_PRINCIPAL;
+        }
+    }
+
+    /**
+     * The limits of a single route, and how far each client is into them
+     */
+    private class RouteLimiter
+    {
+        private final RateLimit limit;
+        private final Map<String, ClientState> clients = new ConcurrentHashMap<>();
+
+        RouteLimiter(RateLimit limit)
+        {
+            this.limit = limit;
+        }
+
+        boolean admit(RoutingContext rc, String clientId, long nowNanos, boolean countInFlight)
+        {
+            ClientState client = clients.get(clientId);
+            if (client == null)
+                client = clients.computeIfAbsent(clientId, id -> new ClientState(limit, nowNanos));
+
+            long wait = client.bucket != null ? client.bucket.tryAcquire(nowNanos) : 0;
+            if (wait > 0)
+            {
+                reject(rc, wait);
+                return false;
+            }
+
+            if (countInFlight && limit.getMaxInFlight() > 0)
+            {
+                AtomicInteger inFlight = client.inFlight;
+                if (inFlight.incrementAndGet() > limit.getMaxInFlight())
+                {
+                    inFlight.decrementAndGet();
+                    reject(rc, TimeUnit.SECONDS.toNanos(1));
+                    return false;
+                }
+                rc.response().endHandler(v -> inFlight.decrementAndGet());
+            }
+            return true;
+        }
+    }
+
+    /**
+     * One client's use of a route
+     */
+    private static class ClientState
+    {
+        @Nullable
+        private final TokenBucket bucket;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        ClientState(RateLimit limit, long nowNanos)
+        {
+            this.bucket = limit.getRequestsPerSecond() > 0
+                          ? new TokenBucket(limit.getRequestsPerSecond(), limit.getBurst(), nowNanos)
+                          : null;
+        }
+
+        boolean isIdle(long nowNanos)
+        {
+            return inFlight.get() == 0 && (bucket == null || bucket.isFull(nowNanos));
+        }
+    }
+}
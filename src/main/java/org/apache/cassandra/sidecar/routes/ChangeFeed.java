@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.ImmutableMap;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.streams.WriteStream;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.common.ChangeListener;
+import org.apache.cassandra.sidecar.common.ClusterStatus;
+import org.apache.cassandra.sidecar.common.HealthSnapshot;
+import org.apache.cassandra.sidecar.common.NodeStatus;
+
+/**
+ * Pushes the delegate's health transitions and node changes to streaming subscribers, and wakes up health checks
+ * long-polling for a change.  Each event is encoded once, however many subscribers there are.
+ *
+ * Every subscriber has a bounded queue of pending events, which only ever holds the latest event about the same
+ * thing: Cassandra's health, or each node.  Events are only written while the subscriber's connection can take them,
+ * so a slow consumer falls behind rather than buffering without bound.  If its queue fills, the node events are
+ * collapsed into a single {@code status} event carrying the whole cluster status.  A subscriber's queue is only
+ * touched on its connection's event loop, so it needs no locking.
+ */
+@Singleton
+public class ChangeFeed implements ChangeListener
+{
+    static final int MAX_PENDING_EVENTS = 64;
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+    // distinguishes health ETags from before a restart, which start counting from scratch
+    private static final String EPOCH = Long.toHexString(System.currentTimeMillis());
+    private static final String HEALTH = "health";
+    private static final String NODE = "node";
+    private static final String REMOVED = "removed";
+    private static final String STATUS = "status";
+
+    private final Vertx vertx;
+    private final CassandraAdapterDelegate cassandra;
+    private final AtomicLong eventIds = new AtomicLong();
+    private final AtomicLong healthChanges = new AtomicLong();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Set<Runnable> healthWaiters = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public ChangeFeed(Vertx vertx, CassandraAdapterDelegate cassandra)
+    {
+        this.vertx = vertx;
+        this.cassandra = cassandra;
+        cassandra.addListener(this);
+    }
+
+    /**
+     * Streams changes to the response as Server-Sent Events, starting with the current health and cluster status
+     */
+    public void subscribe(HttpServerResponse response)
+    {
+        response.setChunked(true)
+                .putHeader(HttpHeaderNames.CONTENT_TYPE, "text/event-stream")
+                .putHeader(HttpHeaderNames.CACHE_CONTROL, "no-cache");
+        Subscriber subscriber = new Subscriber(vertx.getOrCreateContext(), response)
+        {
+            @Override
+            void write(Event event)
+            {
+                response.write(event.toServerSentEvent());
+            }
+        };
+        response.closeHandler(v -> subscribers.remove(subscriber));
+        // sends the headers straight away, so clients know they're subscribed before anything changes
+        response.write(":\n\n");
+        subscribe(subscriber);
+    }
+
+    /**
+     * Streams changes to the web socket as JSON text messages, starting with the current health and cluster status
+     */
+    public void subscribe(ServerWebSocket webSocket)
+    {
+        Subscriber subscriber = new Subscriber(vertx.getOrCreateContext(), webSocket)
+        {
+            @Override
+            void write(Event event)
+            {
+                webSocket.writeTextMessage(event.toJson());
+            }
+        };
+        webSocket.closeHandler(v -> subscribers.remove(subscriber));
+        subscribe(subscriber);
+    }
+
+    private void subscribe(Subscriber subscriber)
+    {
+        subscribers.add(subscriber);
+        HealthSnapshot health = cassandra.getHealth();
+        if (health != null)
+            subscriber.offer(healthEvent(health));
+        ClusterStatus status = cassandra.getClusterStatus();
+        if (status != null && status.getVersion() > 0)
+            subscriber.offer(statusEvent(status));
+    }
+
+    /**
+     * @return an ETag which changes whenever Cassandra goes up or down, or changes version
+     */
+    public String healthEtag()
+    {
+        return '"' + EPOCH + '-' + healthChanges.get() + '"';
+    }
+
+    /**
+     * Runs the callback once, on the thread which sees the next health change.  Callers should hop back to their own
+     * context, and {@link #cancel(Runnable)} the callback if they stop waiting.
+     */
+    public void onNextHealthChange(Runnable callback)
+    {
+        healthWaiters.add(callback);
+    }
+
+    public void cancel(Runnable callback)
+    {
+        healthWaiters.remove(callback);
+    }
+
+    int subscriberCount()
+    {
+        return subscribers.size();
+    }
+
+    @Override
+    public void onHealthChange(HealthSnapshot health)
+    {
+        healthChanges.incrementAndGet();
+        for (Runnable waiter : healthWaiters)
+        {
+            if (healthWaiters.remove(waiter))
+                waiter.run();
+        }
+        publish(healthEvent(health));
+    }
+
+    @Override
+    public void onNodeChange(NodeStatus node)
+    {
+        publish(new Event(eventIds.incrementAndGet(), NODE, NODE + ':' + node.getHostId(), Json.encode(node)));
+    }
+
+    @Override
+    public void onNodeRemoved(UUID hostId)
+    {
+        // keyed like the node's changes, which its removal makes irrelevant
+        String json = new JsonObject().put("hostId", hostId.toString()).encode();
+        publish(new Event(eventIds.incrementAndGet(), REMOVED, NODE + ':' + hostId, json));
+    }
+
+    private void publish(Event event)
+    {
+        for (Subscriber subscriber : subscribers)
+            subscriber.offer(event);
+    }
+
+    private Event healthEvent(HealthSnapshot health)
+    {
+        String json = new JsonObject().put("up", health.isUp())
+                                      .put("version", health.getVersion() != null
+                                                      ? health.getVersion().toString()
+                                                      : null)
+                                      .put("timestamp", health.getTimestamp())
+                                      .encode();
+        return new Event(eventIds.incrementAndGet(), HEALTH, HEALTH, json);
+    }
+
+    private Event statusEvent(ClusterStatus status)
+    {
+        String json = Json.encode(ImmutableMap.of("version", status.getVersion(),
+                                                  "timestamp", status.getTimestamp(),
+                                                  "nodes", status.getNodes()));
+        return new Event(eventIds.incrementAndGet(), STATUS, STATUS, json);
+    }
+
+    /**
+     * An encoded change, keyed by what it's about so later events can replace it
+     */
+    static final class Event
+    {
+        private final long id;
+        private final String type;
+        private final String key;
+        private final String json;
+
+        Event(long id, String type, String key, String json)
+        {
+            this.id = id;
+            this.type = type;
+            this.key = key;
+            this.json = json;
+        }
+
+        String toServerSentEvent()
+        {
+            return "id: " + id + "\nevent: " + type + "\ndata: " + json + "\n\n";
+        }
+
+        String toJson()
+        {
+            return "{\"id\":" + id + ",\"event\":\"" + type + "\",\"data\":" + json + '}';
+        }
+    }
+
+    /**
+     * A connection being streamed events, with its queue of events waiting to be written
+     */
+    private abstract class Subscriber
+    {
+        private final Context context;
+        private final WriteStream<?> stream;
+        private final Map<String, Event> pending = new LinkedHashMap<>();
+        private boolean awaitingDrain = false;
+
+        Subscriber(Context context, WriteStream<?> stream)
+        {
+            this.context = context;
+            this.stream = stream;
+        }
+
+        abstract void write(Event event);
+
+        void offer(Event event)
+        {
+            context.runOnContext(v ->
+            {
+                enqueue(event);
+                flush();
+            });
+        }
+
+        private void enqueue(Event event)
+        {
+            // re-inserted rather than replaced, so events are written in the order they last changed
+            if (pending.remove(event.key) == null && pending.size() >= MAX_PENDING_EVENTS)
+            {
+                logger.debug("Subscriber fell behind, collapsing {} pending events", pending.size());
+                Event health = pending.get(HEALTH);
+                pending.clear();
+                if (health != null)
+                    pending.put(HEALTH, health);
+                // the status already includes any node change being offered
+                pending.put(STATUS, statusEvent(cassandra.getClusterStatus()));
+                if (!HEALTH.equals(event.key))
+                    return;
+            }
+            pending.put(event.key, event);
+        }
+
+        private void flush()
+        {
+            if (!subscribers.contains(this))
+                return;
+
+            Iterator<Event> events = pending.values().iterator();
+            while (events.hasNext())
+            {
+                if (stream.writeQueueFull())
+                {
+                    if (!awaitingDrain)
+                    {
+                        awaitingDrain = true;
+                        stream.drainHandler(v ->
+                        {
+                            awaitingDrain = false;
+                            flush();
+                        });
+                    }
+                    return;
+                }
+                Event event = events.next();
+                events.remove();
+                write(event);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Streams health transitions and node changes from the {@link ChangeFeed} as they happen, so clients don't have to
+ * poll for them.  Plain requests get Server-Sent Events, requests asking to upgrade get a web socket which carries
+ * the same events as JSON messages.
+ *
+ * Events are {@code health} with Cassandra's status and version, {@code node} with a node's status, {@code removed}
+ * with the id of a node which left, and {@code status} with the whole cluster status.  A {@code status} event is sent
+ * on subscribing, and whenever a subscriber fell too far behind for its node events to be kept.
+ */
+@Singleton
+public class ChangeStreamService implements Handler<RoutingContext>
+{
+    private static final String EVENT_STREAM = "text/event-stream";
+    private final ChangeFeed feed;
+
+    @Inject
+    public ChangeStreamService(ChangeFeed feed)
+    {
+        this.feed = feed;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        if (rc.request().method() == HttpMethod.HEAD)
+        {
+            rc.response().putHeader(HttpHeaderNames.CONTENT_TYPE, EVENT_STREAM).end();
+            return;
+        }
+
+        String upgrade = rc.request().getHeader(HttpHeaderNames.UPGRADE);
+        if (HttpHeaderValues.WEBSOCKET.contentEqualsIgnoreCase(upgrade))
+            feed.subscribe(rc.request().upgrade());
+        else
+            feed.subscribe(rc.response());
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link ChangeStreamService#handle(RoutingContext)}
+     */
+    @Path("/api/v1/events")
+    public interface Api
+    {
+        @Operation(summary = "Stream of health and topology changes",
+        description = "Streams health, node, removed and status events as Server-Sent Events, or as JSON messages " +
+                      "over a web socket if the request asks to upgrade.  The current health and status are sent " +
+                      "first.",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The event stream"),
+        @ApiResponse(responseCode = "101", description = "Switched to a web socket")
+        })
+        @Produces(EVENT_STREAM)
+        @GET
+        Response doGet();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.common.collect.ImmutableMap;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.json.Json;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.common.ClusterStatus;
+
+/**
+ * Serves the status of every node in the cluster from the delegate's cached {@link ClusterStatus}, so polling it
+ * never reaches Cassandra.  The JSON is only encoded once per status version, and the version is also the ETag, so
+ * pollers which send {@code If-None-Match} get an empty 304 until something changes.
+ */
+@Singleton
+public class ClusterStatusService implements Handler<RoutingContext>
+{
+    // distinguishes versions from before a restart, which start counting from scratch
+    private static final String EPOCH = Long.toHexString(System.currentTimeMillis());
+    private final CassandraAdapterDelegate cassandra;
+    private volatile Encoded encoded = new Encoded(ClusterStatus.EMPTY);
+
+    @Inject
+    public ClusterStatusService(CassandraAdapterDelegate cassandra)
+    {
+        this.cassandra = cassandra;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        Encoded current = current();
+        int statusCode = statusCode(current, rc.request().getHeader(HttpHeaderNames.IF_NONE_MATCH));
+        rc.response()
+          .setStatusCode(statusCode)
+          .putHeader(HttpHeaderNames.ETAG, current.etag);
+        if (statusCode == HttpResponseStatus.OK.code())
+        {
+            rc.response()
+              .putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+              .end(current.json);
+        }
+        else
+        {
+            rc.response().end();
+        }
+    }
+
+    private Encoded current()
+    {
+        ClusterStatus status = cassandra.getClusterStatus();
+        Encoded current = encoded;
+        if (current.status != status)
+        {
+            // racing requests may both encode the same status, which is harmless
+            current = new Encoded(status);
+            encoded = current;
+        }
+        return current;
+    }
+
+    private static int statusCode(Encoded current, String ifNoneMatch)
+    {
+        if (current.status.getVersion() == 0)
+            return HttpResponseStatus.SERVICE_UNAVAILABLE.code();
+        if (current.etag.equals(ifNoneMatch))
+            return HttpResponseStatus.NOT_MODIFIED.code();
+        return HttpResponseStatus.OK.code();
+    }
+
+    /**
+     * A status snapshot with its JSON and ETag
+     */
+    private static class Encoded
+    {
+        private final ClusterStatus status;
+        private final String etag;
+        private final String json;
+
+        Encoded(ClusterStatus status)
+        {
+            this.status = status;
+            this.etag = '"' + EPOCH + '-' + status.getVersion() + '"';
+            this.json = Json.encode(ImmutableMap.of("version", status.getVersion(),
+                                                    "timestamp", status.getTimestamp(),
+                                                    "nodes", status.getNodes()));
+        }
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link ClusterStatusService#handle(RoutingContext)}
+     */
+    @Path("/api/v1/cassandra/status")
+    public interface Api
+    {
+        @Operation(summary = "Status of every node in the cluster",
+        description = "Returns each node's address, datacenter, rack, version and whether it's up, as last seen by " +
+                      "the sidecar.  Supports conditional requests with If-None-Match.",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The cluster status"),
+        @ApiResponse(responseCode = "304", description = "The status hasn't changed since the ETag sent"),
+        @ApiResponse(responseCode = "503", description = "The status hasn't been loaded from Cassandra yet")
+        })
+        @Produces(MediaType.APPLICATION_JSON)
+        @GET
+        Response doGet(@HeaderParam("If-None-Match") String ifNoneMatch);
+    }
+}
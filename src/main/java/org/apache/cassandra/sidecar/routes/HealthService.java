@@ -18,9 +18,11 @@
 
 package org.apache.cassandra.sidecar.routes;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -28,43 +30,144 @@ import com.google.common.collect.ImmutableMap;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.Json;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
 import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
 
 /**
  * Provides a simple REST endpoint to determine if a node is available
+ *
+ * The response's ETag changes whenever Cassandra goes up or down.  Instead of polling, clients can send the last ETag
+ * they saw as {@code ?waitForChange=}, and the response is held until the health changes or a timeout passes.
  */
 @Singleton
 @Path("/api/v1/__health")
-public class HealthService
+public class HealthService implements Handler<RoutingContext>
 {
     private static final Logger logger = LoggerFactory.getLogger(HealthService.class);
+    private static final String OK = Json.encode(ImmutableMap.of("status", "OK"));
+    private static final String NOT_OK = Json.encode(ImmutableMap.of("status", "NOT_OK"));
+    static final long LONG_POLL_TIMEOUT_MILLIS = 30_000;
+    private final Vertx vertx;
     private final CassandraAdapterDelegate cassandra;
+    private final ChangeFeed feed;
 
     @Inject
-    public HealthService(CassandraAdapterDelegate cassandra)
+    public HealthService(Vertx vertx, CassandraAdapterDelegate cassandra, ChangeFeed feed)
     {
+        this.vertx = vertx;
         this.cassandra = cassandra;
+        this.feed = feed;
     }
 
     @Operation(summary = "Health Check for Cassandra's status",
-    description = "Returns HTTP 200 if Cassandra is available, 503 otherwise",
+    description = "Returns HTTP 200 if Cassandra is available, 503 otherwise.  With waitForChange set to the last " +
+                  "ETag seen, waits up to 30 seconds for the health to change before responding.",
     responses = {
     @ApiResponse(responseCode = "200", description = "Cassandra is available"),
     @ApiResponse(responseCode = "503", description = "Cassandra is not available")
     })
     @Produces(MediaType.APPLICATION_JSON)
     @GET
-    public Response doGet()
+    public Response doGet(@QueryParam("waitForChange") String waitForChange)
+    {
+        // RESTEasy requests aren't held, the native handler below implements the long poll
+        boolean up = cassandra.isUp();
+        return Response.status(statusCode(up))
+                       .header(HttpHeaderNames.ETAG.toString(), feed.healthEtag())
+                       .entity(up ? OK : NOT_OK)
+                       .build();
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder} from the JAX-RS annotations above
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        String waitForChange = rc.request().getParam("waitForChange");
+        if (waitForChange == null || !waitForChange.equals(feed.healthEtag()))
+        {
+            respond(rc);
+            return;
+        }
+
+        LongPoll poll = new LongPoll(rc);
+        feed.onNextHealthChange(poll);
+        // the health may have changed before the poll was registered
+        if (!waitForChange.equals(feed.healthEtag()))
+            poll.run();
+    }
+
+    private void respond(RoutingContext rc)
+    {
+        boolean up = cassandra.isUp();
+        rc.response()
+          .setStatusCode(statusCode(up))
+          .putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+          .putHeader(HttpHeaderNames.ETAG, feed.healthEtag())
+          .end(up ? OK : NOT_OK);
+    }
+
+    private static int statusCode(boolean up)
+    {
+        return up ? HttpResponseStatus.OK.code() : HttpResponseStatus.SERVICE_UNAVAILABLE.code();
+    }
+
+    /**
+     * A held health check, answered once on its request's context by whichever of the next health change or the
+     * timeout comes first
+     */
+    private class LongPoll implements Runnable
     {
-        Boolean up = cassandra.isUp();
-        int status = up ? HttpResponseStatus.OK.code() : HttpResponseStatus.SERVICE_UNAVAILABLE.code();
-        return Response.status(status).entity(Json.encode(ImmutableMap.of("status", up ?
-                                                                                    "OK" : "NOT_OK"))).build();
+        private final RoutingContext rc;
+        private final Context context;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private final long timer;
+
+        LongPoll(RoutingContext rc)
+        {
+            this.rc = rc;
+            this.context = vertx.getOrCreateContext();
+            this.timer = vertx.setTimer(LONG_POLL_TIMEOUT_MILLIS, id -> finish());
+            rc.response().closeHandler(v ->
+            {
+                done.set(true);
+                cleanUp();
+            });
+        }
+
+        /**
+         * Called by the feed on the next health change
+         */
+        @Override
+        public void run()
+        {
+            context.runOnContext(v -> finish());
+        }
+
+        private void finish()
+        {
+            if (done.compareAndSet(false, true))
+            {
+                cleanUp();
+                respond(rc);
+            }
+        }
+
+        private void cleanUp()
+        {
+            vertx.cancelTimer(timer);
+            feed.cancel(this);
+        }
     }
 }
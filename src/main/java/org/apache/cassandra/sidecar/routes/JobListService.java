@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.common.collect.ImmutableMap;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.json.Json;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.jobs.JobManager;
+
+/**
+ * Lists the jobs which are waiting, running, or finished recently enough to still be kept
+ */
+@Singleton
+public class JobListService implements Handler<RoutingContext>
+{
+    private final JobManager jobs;
+
+    @Inject
+    public JobListService(JobManager jobs)
+    {
+        this.jobs = jobs;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        rc.response()
+          .putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+          .end(toJson(rc.request().getParam("type")));
+    }
+
+    private String toJson(String type)
+    {
+        return Json.encode(ImmutableMap.of("jobs", jobs.list(type)));
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link JobListService#handle(RoutingContext)}
+     */
+    @Path("/api/v1/jobs")
+    public interface Api
+    {
+        @Operation(summary = "List jobs",
+        description = "Lists every job, or the jobs of a type, oldest first",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The jobs")
+        })
+        @Produces(MediaType.APPLICATION_JSON)
+        @GET
+        Response list(@QueryParam("type") String type);
+    }
+}
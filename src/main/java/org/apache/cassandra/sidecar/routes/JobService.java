@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.Json;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.jobs.Job;
+import org.apache.cassandra.sidecar.jobs.JobManager;
+
+/**
+ * Looks up a job's status, progress and result.  Requests accepting {@code text/event-stream} are streamed the job
+ * as Server-Sent Events whenever it changes, until it finishes, rather than having to poll for it.
+ *
+ * Routes which submit jobs answer {@code 202 Accepted} with the job and a {@code Location} header pointing here.
+ */
+@Singleton
+public class JobService implements Handler<RoutingContext>
+{
+    private static final String EVENT_STREAM = "text/event-stream";
+    private static final String JOBS_PATH = "/api/v1/jobs/";
+    private final Vertx vertx;
+    private final JobManager jobs;
+
+    @Inject
+    public JobService(Vertx vertx, JobManager jobs)
+    {
+        this.vertx = vertx;
+        this.jobs = jobs;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        Job job = jobs.get(rc.pathParam("jobId"));
+        if (job == null)
+        {
+            rc.fail(HttpResponseStatus.NOT_FOUND.code());
+            return;
+        }
+
+        String accept = rc.request().getHeader(HttpHeaderNames.ACCEPT);
+        if (rc.request().method() != HttpMethod.HEAD && accept != null && accept.contains(EVENT_STREAM))
+        {
+            new JobStream(vertx.getOrCreateContext(), rc.response(), job).start();
+            return;
+        }
+
+        rc.response()
+          .putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+          .end(Json.encode(job));
+    }
+
+    /**
+     * Answers a request which submitted a job
+     */
+    static void accepted(RoutingContext rc, Job job)
+    {
+        rc.response()
+          .setStatusCode(HttpResponseStatus.ACCEPTED.code())
+          .putHeader(HttpHeaderNames.LOCATION, JOBS_PATH + job.getId())
+          .putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+          .end(Json.encode(job));
+    }
+
+    /**
+     * Writes the job to the response whenever it changes.  Changes made while the last one is still being written
+     * are collapsed into writing the job's latest state, so a job reporting progress quickly can't flood a slow
+     * client.  Apart from the flag saying a write is scheduled, only touched on the response's event loop.
+     */
+    private static class JobStream implements Runnable
+    {
+        private final Context context;
+        private final HttpServerResponse response;
+        private final Job job;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private boolean awaitingDrain;
+        private boolean ended;
+
+        JobStream(Context context, HttpServerResponse response, Job job)
+        {
+            this.context = context;
+            this.response = response;
+            this.job = job;
+        }
+
+        void start()
+        {
+            response.setChunked(true)
+                    .putHeader(HttpHeaderNames.CONTENT_TYPE, EVENT_STREAM)
+                    .putHeader(HttpHeaderNames.CACHE_CONTROL, "no-cache");
+            response.closeHandler(v ->
+            {
+                ended = true;
+                job.removeListener(this);
+            });
+            job.addListener(this);
+            send();
+        }
+
+        /**
+         * Called from whichever thread changed the job
+         */
+        @Override
+        public void run()
+        {
+            if (scheduled.compareAndSet(false, true))
+            {
+                context.runOnContext(v ->
+                {
+                    scheduled.set(false);
+                    send();
+                });
+            }
+        }
+
+        private void send()
+        {
+            if (ended || awaitingDrain)
+                return;
+            if (response.writeQueueFull())
+            {
+                awaitingDrain = true;
+                response.drainHandler(v ->
+                {
+                    awaitingDrain = false;
+                    send();
+                });
+                return;
+            }
+
+            // read once, so a job finishing while being written is still seen to finish
+            boolean done = job.getStatus().isDone();
+            response.write("event: job\ndata: " + Json.encode(job) + "\n\n");
+            if (done)
+            {
+                ended = true;
+                job.removeListener(this);
+                response.end();
+            }
+        }
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link JobService#handle(RoutingContext)}
+     */
+    @Path("/api/v1/jobs/{jobId}")
+    public interface Api
+    {
+        @Operation(summary = "Look up a job",
+        description = "Gets the job's status, progress and result, or streams them as Server-Sent Events until the " +
+                      "job finishes if the request accepts text/event-stream",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The job"),
+        @ApiResponse(responseCode = "404", description = "No such job, or it finished long enough ago to be evicted")
+        })
+        @Produces({ MediaType.APPLICATION_JSON, EVENT_STREAM })
+        @GET
+        Response get(@PathParam("jobId") String jobId);
+    }
+}
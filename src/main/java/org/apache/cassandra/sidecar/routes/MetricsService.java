@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.metrics.PrometheusExporter;
+
+/**
+ * Exposes the sidecar's metrics, including Vert.x's HTTP server, event loop and pool metrics, for Prometheus to
+ * scrape.  The response is streamed in chunks as the metrics are rendered, pausing whenever the connection can't keep
+ * up, so a large registry is never held in memory all at once.
+ */
+@Singleton
+public class MetricsService implements Handler<RoutingContext>
+{
+    static final int CHUNK_SIZE = 32 * 1024;
+    private final PrometheusExporter exporter;
+
+    @Inject
+    public MetricsService(PrometheusExporter exporter)
+    {
+        this.exporter = exporter;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        HttpServerResponse response = rc.response()
+                                        .putHeader(HttpHeaderNames.CONTENT_TYPE, PrometheusExporter.CONTENT_TYPE);
+        if (rc.request().method() == HttpMethod.HEAD)
+        {
+            response.end();
+            return;
+        }
+        response.setChunked(true);
+        stream(response, exporter.cursor());
+    }
+
+    private static void stream(HttpServerResponse response, PrometheusExporter.Cursor metrics)
+    {
+        while (metrics.hasNext())
+        {
+            Buffer chunk = Buffer.buffer(CHUNK_SIZE + 1024);
+            while (metrics.hasNext() && chunk.length() < CHUNK_SIZE)
+                metrics.writeNext(chunk);
+            response.write(chunk);
+
+            if (response.writeQueueFull() && metrics.hasNext())
+            {
+                response.drainHandler(v -> stream(response, metrics));
+                return;
+            }
+        }
+        response.end();
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link MetricsService#handle(RoutingContext)}
+     */
+    @Path("/metrics")
+    public interface Api
+    {
+        @Operation(summary = "Metrics in the Prometheus text format",
+        responses = { @ApiResponse(responseCode = "200", description = "The current value of every metric") })
+        @Produces(PrometheusExporter.CONTENT_TYPE)
+        @GET
+        Response doGet();
+    }
+}
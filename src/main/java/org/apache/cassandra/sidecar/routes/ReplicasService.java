@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.BaseEncoding;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.common.TokenRing;
+import org.apache.cassandra.sidecar.concurrent.WorkerPool;
+import org.apache.cassandra.sidecar.concurrent.WorkerPools;
+
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateKeyspaceName;
+
+/**
+ * Resolves which nodes replicate partition keys or tokens of a keyspace, so clients can route requests without
+ * loading the ring themselves.  Keys are hashed with Murmur3 by the sidecar and looked up in the delegate's cached
+ * {@link TokenRing}, so even batches of thousands of keys don't reach Cassandra.
+ *
+ * A few keys can be sent as repeated {@code key} and {@code token} query parameters.  Batches are POSTed as
+ * {@code {"keys": [...], "tokens": [...], "keyEncoding": "text"}}.  Keys are the serialized partition key, either as
+ * UTF-8 text or, for any other key type including composite keys, as hex.
+ */
+@Singleton
+public class ReplicasService implements Handler<RoutingContext>
+{
+    static final int MAX_BODY_BYTES = 4 * 1024 * 1024;
+    private static final String TEXT = "text";
+    private static final String HEX = "hex";
+    private final WorkerPools workerPools;
+    private final CassandraAdapterDelegate cassandra;
+
+    @Inject
+    public ReplicasService(WorkerPools workerPools, CassandraAdapterDelegate cassandra)
+    {
+        this.workerPools = workerPools;
+        this.cassandra = cassandra;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}.  Building the ring connects to Cassandra on first use,
+     * and large batches take a while to hash, so lookups run on a CQL worker.
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        String keyspace = rc.pathParam("keyspace");
+        if (rc.request().method() != HttpMethod.POST)
+        {
+            List<String> keys = rc.queryParams().getAll("key");
+            List<String> tokens = rc.queryParams().getAll("token");
+            String keyEncoding = rc.request().getParam("keyEncoding");
+            respond(rc, () -> lookup(keyspace, keys, tokens, keyEncoding));
+            return;
+        }
+
+        readBody(rc, body -> respond(rc, () -> lookup(keyspace, body)));
+    }
+
+    private void respond(RoutingContext rc, Supplier<String> lookup)
+    {
+        workerPools.<String>executeBlocking(WorkerPool.CQL, lookup::get, ar ->
+        {
+            if (ar.failed())
+            {
+                rc.fail(statusCode(ar.cause()), ar.cause());
+                return;
+            }
+            rc.response()
+              .putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+              .end(ar.result());
+        });
+    }
+
+    /**
+     * Buffers the request body, failing with 413 rather than buffering more than {@link #MAX_BODY_BYTES}, and with 400
+     * if its {@code Content-Length} is malformed
+     */
+    private static void readBody(RoutingContext rc, Handler<Buffer> bodyHandler)
+    {
+        HttpServerRequest request = rc.request();
+        long declaredLength;
+        try
+        {
+            declaredLength = declaredLength(request);
+        }
+        catch (IllegalArgumentException e)
+        {
+            rc.fail(HttpResponseStatus.BAD_REQUEST.code(), e);
+            return;
+        }
+        if (declaredLength > MAX_BODY_BYTES)
+        {
+            rc.fail(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code());
+            return;
+        }
+
+        Buffer body = Buffer.buffer();
+        AtomicBoolean tooLarge = new AtomicBoolean(false);
+        request.handler(chunk ->
+        {
+            if (tooLarge.get())
+                return;
+            if (body.length() + chunk.length() > MAX_BODY_BYTES)
+            {
+                tooLarge.set(true);
+                rc.fail(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code());
+                return;
+            }
+            body.appendBuffer(chunk);
+        });
+        request.endHandler(v ->
+        {
+            if (!tooLarge.get())
+                bodyHandler.handle(body);
+        });
+    }
+
+    /**
+     * @return the request's {@code Content-Length}, or -1 if it has none, such as when the body is chunked
+     * @throws IllegalArgumentException if it isn't a length
+     */
+    private static long declaredLength(HttpServerRequest request)
+    {
+        String length = request.getHeader(HttpHeaderNames.CONTENT_LENGTH);
+        if (length == null)
+            return -1;
+        try
+        {
+            long declared = Long.parseLong(length.trim());
+            if (declared >= 0)
+                return declared;
+        }
+        catch (NumberFormatException e)
+        {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid Content-Length: " + length);
+    }
+
+    private String lookup(String keyspace, Buffer body)
+    {
+        JsonObject request = body.toJsonObject();
+        return lookup(keyspace, strings(request.getJsonArray("keys")), strings(request.getJsonArray("tokens")),
+                      request.getString("keyEncoding"));
+    }
+
+    /**
+     * Tokens may be sent as JSON strings or numbers, keys only as strings
+     */
+    private static List<String> strings(JsonArray array)
+    {
+        if (array == null)
+            return Collections.emptyList();
+        List<String> strings = new ArrayList<>(array.size());
+        for (Object value : array)
+        {
+            if (value == null)
+                throw new IllegalArgumentException("Keys and tokens can't be null");
+            strings.add(value.toString());
+        }
+        return strings;
+    }
+
+    private String lookup(String keyspace, List<String> keys, List<String> tokens, String keyEncoding)
+    {
+        validateKeyspaceName(keyspace);
+        boolean hex = isHex(keyEncoding);
+        keys = keys != null ? keys : Collections.emptyList();
+        tokens = tokens != null ? tokens : Collections.emptyList();
+        if (keys.isEmpty() && tokens.isEmpty())
+            throw new IllegalArgumentException("No keys or tokens to look up");
+
+        TokenRing ring = cassandra.getTokenRing(keyspace);
+        List<Object> replicas = new ArrayList<>(keys.size() + tokens.size());
+        for (String key : keys)
+        {
+            long token = TokenRing.token(hex ? ByteBuffer.wrap(decodeHex(key))
+                                             : ByteBuffer.wrap(key.getBytes(StandardCharsets.UTF_8)));
+            Map<String, Object> entry = new LinkedHashMap<>(4);
+            entry.put("key", key);
+            entry.put("token", Long.toString(token));
+            entry.put("replicas", ring.replicas(token));
+            replicas.add(entry);
+        }
+        for (String value : tokens)
+        {
+            long token = Long.parseLong(value);
+            replicas.add(ImmutableMap.of("token", Long.toString(token), "replicas", ring.replicas(token)));
+        }
+        return Json.encode(ImmutableMap.of("keyspace", ring.getKeyspace(), "replicas", replicas));
+    }
+
+    private static boolean isHex(String keyEncoding)
+    {
+        if (keyEncoding == null || TEXT.equals(keyEncoding))
+            return false;
+        if (HEX.equals(keyEncoding))
+            return true;
+        throw new IllegalArgumentException("Unknown key encoding " + keyEncoding);
+    }
+
+    private static byte[] decodeHex(String key)
+    {
+        String hex = key.startsWith("0x") ? key.substring(2) : key;
+        // throws IllegalArgumentException for anything which isn't hex
+        return BaseEncoding.base16().lowerCase().decode(hex.toLowerCase());
+    }
+
+    private static int statusCode(Throwable t)
+    {
+        if (t instanceof DecodeException || t instanceof ClassCastException)
+            return HttpResponseStatus.BAD_REQUEST.code();
+        return TokenRingService.statusCode(t);
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link ReplicasService#handle(RoutingContext)}
+     */
+    @Path("/api/v1/keyspace/{keyspace}/replicas")
+    public interface Api
+    {
+        @Operation(summary = "Replicas of partition keys or tokens",
+        description = "Returns the token of each key, and the addresses of the nodes replicating each key or token",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The replicas, in the order the keys and tokens were sent"),
+        @ApiResponse(responseCode = "400", description = "Invalid keyspace name, key or token, or nothing to look up"),
+        @ApiResponse(responseCode = "404", description = "The keyspace doesn't exist"),
+        @ApiResponse(responseCode = "501", description = "The cluster doesn't use the Murmur3 partitioner"),
+        @ApiResponse(responseCode = "503", description = "Cassandra is not available")
+        })
+        @Produces(MediaType.APPLICATION_JSON)
+        @GET
+        Response doGet(@PathParam("keyspace") String keyspace, @QueryParam("key") List<String> keys,
+                       @QueryParam("token") List<String> tokens, @QueryParam("keyEncoding") String keyEncoding);
+
+        @Operation(summary = "Replicas of a batch of partition keys or tokens",
+        description = "Returns the token of each key, and the addresses of the nodes replicating each key or token",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The replicas, in the order the keys and tokens were sent"),
+        @ApiResponse(responseCode = "400", description = "Invalid keyspace name, request, key or token"),
+        @ApiResponse(responseCode = "404", description = "The keyspace doesn't exist"),
+        @ApiResponse(responseCode = "413", description = "The request is too large"),
+        @ApiResponse(responseCode = "501", description = "The cluster doesn't use the Murmur3 partitioner"),
+        @ApiResponse(responseCode = "503", description = "Cassandra is not available")
+        })
+        @Consumes(MediaType.APPLICATION_JSON)
+        @Produces(MediaType.APPLICATION_JSON)
+        @POST
+        Response doPost(@PathParam("keyspace") String keyspace, String body);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.HEAD;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Binds sidecar endpoints directly on the Vert.x {@link Router}, skipping RESTEasy's JAX-RS dispatch.
+ *
+ * The path and HTTP methods are read from the same JAX-RS annotations that Swagger uses to generate the OpenAPI
+ * definition, so the spec and the native routes can't drift apart.  Resources which are only answered natively
+ * carry those annotations on a descriptor interface which nothing implements, so there's no JAX-RS method to reach
+ * by mistake.  Path parameters of the form {@code {name}} are
+ * translated to Vert.x {@code :name} parameters.  As in JAX-RS, a resource supporting GET also answers HEAD.
+ *
+ * The path pattern which matched is kept in the context data under {@link #ROUTE_PATH}, where it's still available
+ * once routing has finished, for instance after a request failed.  An admission check can turn requests away once
+ * their route is known, before they reach the endpoint; it answers the requests it rejects itself.
+ */
+public class RouteBinder
+{
+    private static final Logger logger = LoggerFactory.getLogger(RouteBinder.class);
+    public static final String ROUTE_PATH = "sidecar.route.path";
+    private static final Pattern PATH_PARAM = Pattern.compile("\\{([^}:]+)}");
+
+    private final Router router;
+    private final Predicate<RoutingContext> admission;
+
+    public RouteBinder(Router router)
+    {
+        this(router, rc -> true);
+    }
+
+    public RouteBinder(Router router, Predicate<RoutingContext> admission)
+    {
+        this.router = router;
+        this.admission = admission;
+    }
+
+    /**
+     * Registers the handler for every HTTP method declared on its class
+     *
+     * @param handler a JAX-RS annotated resource which also handles the request natively
+     * @return this binder
+     */
+    public RouteBinder bind(Handler<RoutingContext> handler)
+    {
+        return bind(handler.getClass(), handler);
+    }
+
+    /**
+     * Registers the handler for every HTTP method declared on the descriptor
+     *
+     * @param type    the JAX-RS annotated class or interface describing the route
+     * @param handler answers the route
+     * @return this binder
+     */
+    public RouteBinder bind(Class<?> type, Handler<RoutingContext> handler)
+    {
+        Path path = type.getAnnotation(Path.class);
+        Preconditions.checkArgument(path != null, "%s is not annotated with @Path", type.getName());
+
+        Set<HttpMethod> methods = httpMethods(type);
+        Preconditions.checkArgument(!methods.isEmpty(), "%s does not declare any HTTP methods", type.getName());
+
+        String vertxPath = toVertxPath(path.value());
+        for (HttpMethod method : methods)
+        {
+            logger.debug("Binding {} {} to {}", method, vertxPath, type.getSimpleName());
+            router.route(method, vertxPath).handler(rc ->
+            {
+                rc.put(ROUTE_PATH, vertxPath);
+                if (admission.test(rc))
+                    handler.handle(rc);
+            });
+        }
+        return this;
+    }
+
+    /**
+     * @return the path pattern of the route which answered the request, or null if it isn't known
+     */
+    @Nullable
+    public static String matchedPath(RoutingContext rc)
+    {
+        String path = rc.get(ROUTE_PATH);
+        // once a failure has been answered Vert.x no longer tracks the current route
+        if (path == null && !rc.failed())
+        {
+            Route route = rc.currentRoute();
+            path = route != null ? route.getPath() : null;
+        }
+        return path;
+    }
+
+    static String toVertxPath(String jaxrsPath)
+    {
+        Preconditions.checkArgument(jaxrsPath.indexOf(':') < 0,
+                                    "Regex path parameters are not supported: %s", jaxrsPath);
+        Matcher matcher = PATH_PARAM.matcher(jaxrsPath);
+        return matcher.replaceAll(":$1");
+    }
+
+    private static Set<HttpMethod> httpMethods(Class<?> type)
+    {
+        Set<HttpMethod> methods = new LinkedHashSet<>();
+        for (Method m : type.getMethods())
+        {
+            for (Annotation a : m.getAnnotations())
+            {
+                HttpMethod method = toHttpMethod(a.annotationType());
+                if (method != null)
+                    methods.add(method);
+                if (method == HttpMethod.GET)
+                    methods.add(HttpMethod.HEAD);
+            }
+        }
+        return methods;
+    }
+
+    private static HttpMethod toHttpMethod(Class<? extends Annotation> annotation)
+    {
+        if (annotation == GET.class)
+            return HttpMethod.GET;
+        if (annotation == POST.class)
+            return HttpMethod.POST;
+        if (annotation == PUT.class)
+            return HttpMethod.PUT;
+        if (annotation == DELETE.class)
+            return HttpMethod.DELETE;
+        if (annotation == HEAD.class)
+            return HttpMethod.HEAD;
+        return null;
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.common.collect.ImmutableMap;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.concurrent.WorkerPool;
+import org.apache.cassandra.sidecar.concurrent.WorkerPools;
+import org.apache.cassandra.sidecar.jobs.Job;
+import org.apache.cassandra.sidecar.jobs.JobManager;
+import org.apache.cassandra.sidecar.utils.UploadPathBuilder;
+
+/**
+ * Imports the SSTables staged by {@link SSTableUpload} into Cassandra, the equivalent of {@code nodetool import}.
+ * The table's SSTables are removed from the upload once they have been imported, and the upload itself once no
+ * other tables are left in it.  If any SSTables fail to import they're kept, so the import can be retried or the
+ * upload deleted with {@link SSTableUploadCleanup}.
+ *
+ * With {@code ?async=true} the import is submitted as an {@value #JOB_TYPE} job and the request answered straight
+ * away with the job, to be looked up through {@link JobService}.  The job fails if any SSTables fail to import.
+ */
+@Singleton
+public class SSTableImport implements Handler<RoutingContext>
+{
+    public static final String JOB_TYPE = "import";
+    private static final Logger logger = LoggerFactory.getLogger(SSTableImport.class);
+    private final Vertx vertx;
+    private final WorkerPools workerPools;
+    private final UploadPathBuilder pathBuilder;
+    private final CassandraAdapterDelegate cassandra;
+    private final JobManager jobs;
+
+    @Inject
+    public SSTableImport(Vertx vertx, WorkerPools workerPools, UploadPathBuilder pathBuilder,
+                         CassandraAdapterDelegate cassandra, JobManager jobs)
+    {
+        this.vertx = vertx;
+        this.workerPools = workerPools;
+        this.pathBuilder = pathBuilder;
+        this.cassandra = cassandra;
+        this.jobs = jobs;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}.  The import itself blocks on JMX and on Cassandra
+     * verifying the SSTables, so it runs on a JMX worker.
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        String uploadId = rc.pathParam("uploadId");
+        String keyspace = rc.pathParam("keyspace");
+        String table = rc.pathParam("table");
+        if (Boolean.parseBoolean(rc.request().getParam("async")))
+        {
+            try
+            {
+                JobService.accepted(rc, submit(uploadId, keyspace, table));
+            }
+            catch (RuntimeException e)
+            {
+                rc.fail(statusCode(e), e);
+            }
+            return;
+        }
+
+        workerPools.<List<String>>executeBlocking(WorkerPool.JMX, () -> importSSTables(uploadId, keyspace, table), ar ->
+        {
+            if (ar.failed())
+            {
+                rc.fail(statusCode(ar.cause()), ar.cause());
+                return;
+            }
+
+            List<String> failed = ar.result();
+            rc.response()
+              .setStatusCode(failed.isEmpty() ? HttpResponseStatus.OK.code()
+                                              : HttpResponseStatus.INTERNAL_SERVER_ERROR.code())
+              .putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+              .end(toJson(failed));
+        });
+    }
+
+    /**
+     * @throws RejectedExecutionException if too many import jobs are waiting
+     */
+    private Job submit(String uploadId, String keyspace, String table)
+    {
+        // resolving the directory validates the names, so bad ones are answered straight away
+        pathBuilder.tableDirectory(uploadId, keyspace, table);
+        return jobs.submit(JOB_TYPE, job ->
+        {
+            job.reportProgress(0, String.format("Importing upload %s into %s.%s", uploadId, keyspace, table));
+            List<String> failed = importSSTables(uploadId, keyspace, table);
+            if (!failed.isEmpty())
+                throw new IOException("Failed to import " + failed);
+            return ImmutableMap.of("failedDirectories", failed);
+        });
+    }
+
+    /**
+     * @return the directories which failed to import
+     */
+    private List<String> importSSTables(String uploadId, String keyspace, String table) throws IOException
+    {
+        File directory = pathBuilder.tableDirectory(uploadId, keyspace, table);
+        if (!directory.isDirectory())
+            throw new FileNotFoundException(String.format("Nothing uploaded for %s.%s in upload %s",
+                                                          keyspace, table, uploadId));
+
+        logger.info("Importing SSTables from {} into {}.{}", directory, keyspace, table);
+        List<String> failed = cassandra.importSSTables(keyspace, table, directory.getPath());
+        if (failed.isEmpty())
+        {
+            // other tables may still be waiting to be imported from the same upload
+            vertx.fileSystem().deleteRecursiveBlocking(directory.getPath(), true);
+            File keyspaceDirectory = directory.getParentFile();
+            if (deleteIfEmpty(keyspaceDirectory))
+                deleteIfEmpty(keyspaceDirectory.getParentFile());
+        }
+        else
+        {
+            logger.warn("Failed to import {} into {}.{}", failed, keyspace, table);
+        }
+        return failed;
+    }
+
+    /**
+     * @return whether the directory was deleted, false if anything is left in it
+     */
+    private static boolean deleteIfEmpty(File directory) throws IOException
+    {
+        try
+        {
+            Files.delete(directory.toPath());
+            return true;
+        }
+        catch (DirectoryNotEmptyException e)
+        {
+            return false;
+        }
+        catch (NoSuchFileException e)
+        {
+            // removed by a concurrent import
+            return true;
+        }
+    }
+
+    private static String toJson(List<String> failed)
+    {
+        return Json.encode(ImmutableMap.of("failedDirectories", failed));
+    }
+
+    private static int statusCode(Throwable t)
+    {
+        if (t instanceof IllegalArgumentException)
+            return HttpResponseStatus.BAD_REQUEST.code();
+        if (t instanceof FileNotFoundException)
+            return HttpResponseStatus.NOT_FOUND.code();
+        if (t instanceof RejectedExecutionException)
+            return HttpResponseStatus.TOO_MANY_REQUESTS.code();
+        if (t instanceof IllegalStateException)
+            return HttpResponseStatus.SERVICE_UNAVAILABLE.code();
+        return HttpResponseStatus.INTERNAL_SERVER_ERROR.code();
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link SSTableImport#handle(RoutingContext)}
+     */
+    @Path("/api/v1/uploads/{uploadId}/keyspace/{keyspace}/table/{table}/import")
+    public interface Api
+    {
+        @Operation(summary = "Import uploaded SSTables",
+        description = "Imports every SSTable uploaded for the table into Cassandra, then removes them from the upload",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The SSTables were imported"),
+        @ApiResponse(responseCode = "202", description = "The import was submitted as a job"),
+        @ApiResponse(responseCode = "400", description = "Invalid upload id, keyspace or table name"),
+        @ApiResponse(responseCode = "404", description = "Nothing was uploaded for the table"),
+        @ApiResponse(responseCode = "429", description = "Too many import jobs are waiting"),
+        @ApiResponse(responseCode = "500", description = "Some of the SSTables failed to import"),
+        @ApiResponse(responseCode = "503", description = "Cassandra is not available")
+        })
+        @Produces(MediaType.APPLICATION_JSON)
+        @POST
+        Response doImport(@PathParam("uploadId") String uploadId, @PathParam("keyspace") String keyspace,
+                          @PathParam("table") String table, @QueryParam("async") boolean async);
+    }
+}
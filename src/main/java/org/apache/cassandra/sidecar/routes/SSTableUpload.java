@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import java.io.File;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.common.collect.ImmutableMap;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.CopyOptions;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.Json;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.Configuration;
+import org.apache.cassandra.sidecar.utils.UploadPathBuilder;
+
+/**
+ * Receives a single SSTable component into the staging directory of an upload, to be imported by
+ * {@link SSTableImport} once all of the components have arrived.
+ *
+ * The request body is written to an {@link AsyncFile} as it arrives.  Reading from the connection is paused whenever
+ * the file's write queue is full and resumed once it drains, so heap use stays flat regardless of the component's
+ * size.  The body is digested on the way through; if the request has a {@code Content-MD5} header which doesn't
+ * match, the component is deleted and the upload is rejected.
+ *
+ * Each request writes to a temporary file of its own, which is only renamed over the component once the whole body
+ * has arrived and been verified, so concurrent uploads of the same component can't interleave their writes.
+ *
+ * Components larger than {@link Configuration#getMaxUploadSizeBytes()} are refused with 413, up front when the
+ * {@code Content-Length} says so, otherwise as soon as that many bytes have arrived.
+ */
+@Singleton
+public class SSTableUpload implements Handler<RoutingContext>
+{
+    private static final Logger logger = LoggerFactory.getLogger(SSTableUpload.class);
+    private static final String CONTENT_MD5 = "Content-MD5";
+    private static final OpenOptions OPEN_OPTIONS = new OpenOptions().setWrite(true).setCreateNew(true);
+    private static final CopyOptions REPLACE = new CopyOptions().setReplaceExisting(true).setAtomicMove(true);
+    private final Vertx vertx;
+    private final UploadPathBuilder pathBuilder;
+    private final long maxSizeBytes;
+
+    @Inject
+    public SSTableUpload(Vertx vertx, UploadPathBuilder pathBuilder, Configuration config)
+    {
+        this.vertx = vertx;
+        this.pathBuilder = pathBuilder;
+        this.maxSizeBytes = config.getMaxUploadSizeBytes();
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        HttpServerRequest request = rc.request();
+        // nothing reads the body until the file is open
+        request.pause();
+
+        if (declaredLength(request) > maxSizeBytes)
+        {
+            rejectTooLarge(request);
+            return;
+        }
+
+        File file;
+        try
+        {
+            file = pathBuilder.component(rc.pathParam("uploadId"), rc.pathParam("keyspace"),
+                                         rc.pathParam("table"), rc.pathParam("component"));
+        }
+        catch (IllegalArgumentException e)
+        {
+            rc.fail(HttpResponseStatus.BAD_REQUEST.code(), e);
+            return;
+        }
+
+        String path = file.getPath();
+        // hidden, and named so it can't be mistaken for a component
+        String tempPath = new File(file.getParent(), "." + file.getName() + "." + UUID.randomUUID() + ".tmp").getPath();
+        vertx.fileSystem().mkdirs(file.getParent(), mkdirs ->
+        {
+            if (mkdirs.failed())
+            {
+                rc.fail(mkdirs.cause());
+                return;
+            }
+            vertx.fileSystem().open(tempPath, OPEN_OPTIONS, open ->
+            {
+                if (open.failed())
+                {
+                    rc.fail(open.cause());
+                    return;
+                }
+                receive(rc, path, tempPath, open.result());
+            });
+        });
+    }
+
+    private void receive(RoutingContext rc, String path, String tempPath, AsyncFile file)
+    {
+        HttpServerRequest request = rc.request();
+        MessageDigest digest = md5();
+        String expectedChecksum = request.getHeader(CONTENT_MD5);
+        // set by whichever of the failure, size and end handlers closes the file, as it can only be closed once
+        AtomicBoolean closing = new AtomicBoolean();
+        AtomicLong received = new AtomicLong();
+
+        Handler<Throwable> onFailure = cause ->
+        {
+            if (!closing.compareAndSet(false, true))
+                return;
+            logger.error("Failed to upload {}", path, cause);
+            file.close(closed -> vertx.fileSystem().delete(tempPath, deleted -> rc.fail(cause)));
+        };
+        file.exceptionHandler(onFailure);
+        request.exceptionHandler(onFailure);
+        request.handler(buffer ->
+        {
+            if (closing.get())
+                return;
+            if (received.addAndGet(buffer.length()) > maxSizeBytes)
+            {
+                closing.set(true);
+                logger.warn("Upload of {} exceeded {} bytes", path, maxSizeBytes);
+                file.close(closed -> vertx.fileSystem().delete(tempPath, deleted -> rejectTooLarge(request)));
+                return;
+            }
+            digest.update(buffer.getByteBuf().nioBuffer());
+            file.write(buffer);
+            if (file.writeQueueFull())
+            {
+                request.pause();
+                file.drainHandler(v -> request.resume());
+            }
+        });
+        request.endHandler(v ->
+        {
+            if (closing.compareAndSet(false, true))
+                file.close(closed -> complete(rc, path, tempPath, closed.cause(), expectedChecksum, digest));
+        });
+        request.resume();
+    }
+
+    /**
+     * Verifies the received component and moves it into place, once its file has been closed
+     */
+    private void complete(RoutingContext rc, String path, String tempPath, @Nullable Throwable closeFailure,
+                          @Nullable String expectedChecksum, MessageDigest digest)
+    {
+        if (closeFailure != null)
+        {
+            logger.error("Failed to upload {}", path, closeFailure);
+            vertx.fileSystem().delete(tempPath, deleted -> rc.fail(closeFailure));
+            return;
+        }
+
+        String checksum = Base64.getEncoder().encodeToString(digest.digest());
+        if (!matches(expectedChecksum, checksum))
+        {
+            logger.warn("Checksum mismatch for {}, expected {} but received {}", path, expectedChecksum, checksum);
+            vertx.fileSystem().delete(tempPath, deleted -> rc.fail(HttpResponseStatus.BAD_REQUEST.code()));
+            return;
+        }
+
+        vertx.fileSystem().move(tempPath, path, REPLACE, moved ->
+        {
+            if (moved.failed())
+            {
+                logger.error("Failed to move {} into place", path, moved.cause());
+                vertx.fileSystem().delete(tempPath, deleted -> rc.fail(moved.cause()));
+                return;
+            }
+            logger.debug("Uploaded {} with checksum {}", path, checksum);
+            rc.response()
+              .setStatusCode(HttpResponseStatus.CREATED.code())
+              .putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+              .end(toJson(checksum));
+        });
+    }
+
+    /**
+     * @return the request's {@code Content-Length}, or -1 if it has none, such as when the body is chunked
+     */
+    private static long declaredLength(HttpServerRequest request)
+    {
+        String length = request.getHeader(HttpHeaderNames.CONTENT_LENGTH);
+        if (length == null)
+            return -1;
+        try
+        {
+            return Long.parseLong(length.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Answers 413, then reads and discards whatever is left of the body.  An HTTP/1.x client is told to close the
+     * connection, so it can stop sending rather than pushing the rest of the component through for nothing.
+     */
+    private static void rejectTooLarge(HttpServerRequest request)
+    {
+        if (!request.isEnded())
+        {
+            request.handler(SSTableUpload::discard);
+            request.endHandler(SSTableUpload::discard);
+            request.resume();
+        }
+        HttpServerResponse response = request.response();
+        if (!response.ended())
+        {
+            response.setStatusCode(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code());
+            if (request.version() != HttpVersion.HTTP_2)
+                response.putHeader(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+            response.end();
+        }
+    }
+
+    private static void discard(Object ignored)
+    {
+    }
+
+    private static boolean matches(@Nullable String expectedChecksum, String checksum)
+    {
+        return expectedChecksum == null || expectedChecksum.trim().equals(checksum);
+    }
+
+    private static String toJson(String checksum)
+    {
+        return Json.encode(ImmutableMap.of("checksum", checksum));
+    }
+
+    private static MessageDigest md5()
+    {
+        try
+        {
+            return MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // every JVM is required to support MD5
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link SSTableUpload#handle(RoutingContext)}
+     */
+    @Path("/api/v1/uploads/{uploadId}/keyspace/{keyspace}/table/{table}/component/{component}")
+    public interface Api
+    {
+        @Operation(summary = "Upload an SSTable component",
+        description = "Stages a component such as Data.db or Index.db of an SSTable, to be imported once the upload " +
+                      "is complete.  If a Content-MD5 header is sent, the component is verified against it.",
+        responses = {
+        @ApiResponse(responseCode = "201", description = "The component was staged, returns its MD5 checksum"),
+        @ApiResponse(responseCode = "400", description = "Invalid names, or the checksum doesn't match the content"),
+        @ApiResponse(responseCode = "413", description = "The component is larger than uploads are allowed to be")
+        })
+        @Produces(MediaType.APPLICATION_JSON)
+        @PUT
+        Response upload(@PathParam("uploadId") String uploadId, @PathParam("keyspace") String keyspace,
+                        @PathParam("table") String table, @PathParam("component") String component,
+                        @HeaderParam(CONTENT_MD5) String expectedChecksum, InputStream body);
+    }
+}
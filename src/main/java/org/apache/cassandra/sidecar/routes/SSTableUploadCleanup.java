@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Response;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.utils.UploadPathBuilder;
+
+/**
+ * Deletes an upload and everything staged for it, for uploads which were abandoned or failed to import
+ */
+@Singleton
+public class SSTableUploadCleanup implements Handler<RoutingContext>
+{
+    private final Vertx vertx;
+    private final UploadPathBuilder pathBuilder;
+
+    @Inject
+    public SSTableUploadCleanup(Vertx vertx, UploadPathBuilder pathBuilder)
+    {
+        this.vertx = vertx;
+        this.pathBuilder = pathBuilder;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        String directory;
+        try
+        {
+            directory = pathBuilder.uploadDirectory(rc.pathParam("uploadId")).getPath();
+        }
+        catch (IllegalArgumentException e)
+        {
+            rc.fail(HttpResponseStatus.BAD_REQUEST.code(), e);
+            return;
+        }
+
+        vertx.fileSystem().exists(directory, exists ->
+        {
+            if (exists.failed())
+            {
+                rc.fail(exists.cause());
+                return;
+            }
+            if (!exists.result())
+            {
+                rc.fail(HttpResponseStatus.NOT_FOUND.code());
+                return;
+            }
+            vertx.fileSystem().deleteRecursive(directory, true, deleted ->
+            {
+                if (deleted.failed())
+                    rc.fail(deleted.cause());
+                else
+                    rc.response().end();
+            });
+        });
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link SSTableUploadCleanup#handle(RoutingContext)}
+     */
+    @Path("/api/v1/uploads/{uploadId}")
+    public interface Api
+    {
+        @Operation(summary = "Delete an upload",
+        description = "Deletes all of the SSTable components staged for the upload",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The upload was deleted"),
+        @ApiResponse(responseCode = "400", description = "Invalid upload id"),
+        @ApiResponse(responseCode = "404", description = "The upload does not exist")
+        })
+        @DELETE
+        Response delete(@PathParam("uploadId") String uploadId);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import java.util.List;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.common.collect.ImmutableMap;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.json.Json;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.concurrent.WorkerPool;
+import org.apache.cassandra.sidecar.concurrent.WorkerPools;
+import org.apache.cassandra.sidecar.snapshots.SnapshotInfo;
+import org.apache.cassandra.sidecar.snapshots.SnapshotLister;
+
+/**
+ * Lists every snapshot on the node, or a keyspace's, with how much disk each takes of its own and how much it shares
+ * with live SSTables or other snapshots.
+ */
+@Singleton
+public class SnapshotListService implements Handler<RoutingContext>
+{
+    private final WorkerPools workerPools;
+    private final SnapshotLister lister;
+
+    @Inject
+    public SnapshotListService(WorkerPools workerPools, SnapshotLister lister)
+    {
+        this.workerPools = workerPools;
+        this.lister = lister;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}.  Listing may walk the data directories, so it runs on a
+     * disk worker.
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        String keyspace = rc.request().getParam("keyspace");
+        workerPools.<List<SnapshotInfo>>executeBlocking(WorkerPool.DISK, () -> lister.list(keyspace), ar ->
+        {
+            if (ar.failed())
+            {
+                rc.fail(SnapshotService.statusCode(ar.cause()), ar.cause());
+                return;
+            }
+
+            rc.response()
+              .setStatusCode(HttpResponseStatus.OK.code())
+              .putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+              .end(toJson(ar.result()));
+        });
+    }
+
+    static String toJson(List<SnapshotInfo> snapshots)
+    {
+        return Json.encode(ImmutableMap.of("snapshots", snapshots));
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link SnapshotListService#handle(RoutingContext)}
+     */
+    @Path("/api/v1/snapshots")
+    public interface Api
+    {
+        @Operation(summary = "List snapshots",
+        description = "Lists the snapshots of every table, or of the keyspace's tables, and their sizes on disk",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The snapshots"),
+        @ApiResponse(responseCode = "400", description = "Invalid keyspace name")
+        })
+        @Produces(MediaType.APPLICATION_JSON)
+        @GET
+        Response list(@QueryParam("keyspace") String keyspace);
+    }
+}
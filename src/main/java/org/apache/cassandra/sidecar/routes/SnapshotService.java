@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.concurrent.WorkerPool;
+import org.apache.cassandra.sidecar.concurrent.WorkerPools;
+import org.apache.cassandra.sidecar.jobs.Job;
+import org.apache.cassandra.sidecar.jobs.JobManager;
+import org.apache.cassandra.sidecar.snapshots.SnapshotInfo;
+import org.apache.cassandra.sidecar.snapshots.SnapshotLister;
+import org.apache.cassandra.sidecar.utils.CassandraInputValidator;
+
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateSnapshotName;
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateTableName;
+
+/**
+ * Takes, lists and clears a snapshot, the equivalents of {@code nodetool snapshot}, {@code nodetool listsnapshots}
+ * and {@code nodetool clearsnapshot}.  Snapshots are taken and cleared by Cassandra over JMX, while listing them
+ * reads the data directories, see {@link SnapshotLister}.
+ *
+ * Taking or clearing a snapshot with {@code ?async=true} submits it as a {@value #JOB_TYPE} job and answers straight
+ * away with the job, to be looked up through {@link JobService}; otherwise the request waits for Cassandra.
+ */
+@Singleton
+public class SnapshotService implements Handler<RoutingContext>
+{
+    public static final String JOB_TYPE = "snapshot";
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotService.class);
+    private final WorkerPools workerPools;
+    private final SnapshotLister lister;
+    private final CassandraAdapterDelegate cassandra;
+    private final JobManager jobs;
+
+    @Inject
+    public SnapshotService(WorkerPools workerPools, SnapshotLister lister, CassandraAdapterDelegate cassandra,
+                           JobManager jobs)
+    {
+        this.workerPools = workerPools;
+        this.lister = lister;
+        this.cassandra = cassandra;
+        this.jobs = jobs;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}.  Listing blocks on the disk, so runs on a disk worker,
+     * while taking and clearing block on JMX, so run on a JMX worker or as a job if asked to.
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        String snapshot = rc.pathParam("snapshot");
+        List<String> keyspaces = rc.queryParam("keyspace");
+        HttpMethod method = rc.request().method();
+        Callable<List<SnapshotInfo>> call = call(method, snapshot, keyspaces, rc.request().getParam("table"));
+        if (isAsync(method, Boolean.parseBoolean(rc.request().getParam("async"))))
+        {
+            try
+            {
+                JobService.accepted(rc, submit(method, snapshot, keyspaces, rc.request().getParam("table"), call));
+            }
+            catch (RuntimeException e)
+            {
+                rc.fail(statusCode(e), e);
+            }
+            return;
+        }
+
+        WorkerPool pool = method == HttpMethod.PUT || method == HttpMethod.DELETE ? WorkerPool.JMX : WorkerPool.DISK;
+        workerPools.executeBlocking(pool, call, ar ->
+        {
+            if (ar.failed())
+            {
+                rc.fail(statusCode(ar.cause()), ar.cause());
+                return;
+            }
+
+            if (ar.result() == null)
+            {
+                rc.response().setStatusCode(HttpResponseStatus.OK.code()).end();
+                return;
+            }
+
+            rc.response()
+              .setStatusCode(HttpResponseStatus.OK.code())
+              .putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+              .end(SnapshotListService.toJson(ar.result()));
+        });
+    }
+
+    private List<SnapshotInfo> listSnapshot(String snapshot, List<String> keyspaces) throws FileNotFoundException
+    {
+        List<SnapshotInfo> tables = find(validateSnapshotName(snapshot), keyspaces);
+        if (tables.isEmpty())
+            throw new FileNotFoundException("No such snapshot: " + snapshot);
+        return tables;
+    }
+
+    private Callable<List<SnapshotInfo>> call(HttpMethod method, String snapshot, List<String> keyspaces,
+                                              @Nullable String table)
+    {
+        if (method == HttpMethod.PUT)
+            return () -> takeSnapshot(snapshot, keyspaces, table);
+        if (method == HttpMethod.DELETE)
+        {
+            return () ->
+            {
+                clearSnapshot(snapshot, keyspaces);
+                return null;
+            };
+        }
+        return () -> listSnapshot(snapshot, keyspaces);
+    }
+
+    private static boolean isAsync(HttpMethod method, boolean async)
+    {
+        return async && (method == HttpMethod.PUT || method == HttpMethod.DELETE);
+    }
+
+    /**
+     * Validates the request before submitting it, so bad names are answered straight away rather than failing the job
+     *
+     * @throws RejectedExecutionException if too many snapshot jobs are waiting
+     */
+    private Job submit(HttpMethod method, String snapshot, List<String> keyspaces, @Nullable String table,
+                       Callable<List<SnapshotInfo>> call)
+    {
+        List<String> entities = entities(snapshot, keyspaces, method == HttpMethod.PUT ? table : null);
+        String description = String.format("%s snapshot %s of %s", method == HttpMethod.PUT ? "Taking" : "Clearing",
+                                           snapshot, entities.isEmpty() ? "every keyspace" : entities);
+        return jobs.submit(JOB_TYPE, job ->
+        {
+            job.reportProgress(0, description);
+            return call.call();
+        });
+    }
+
+    /**
+     * @return the keyspaces, or the table as {@code keyspace.table}
+     * @throws IllegalArgumentException if any name is invalid
+     */
+    private static List<String> entities(String snapshot, List<String> keyspaces, @Nullable String table)
+    {
+        validateSnapshotName(snapshot);
+        keyspaces.forEach(CassandraInputValidator::validateKeyspaceName);
+        if (table == null)
+            return keyspaces;
+
+        validateTableName(table);
+        if (keyspaces.size() != 1)
+            throw new IllegalArgumentException("Snapshotting a table requires exactly one keyspace");
+        return Collections.singletonList(keyspaces.get(0) + '.' + table);
+    }
+
+    private List<SnapshotInfo> takeSnapshot(String snapshot, List<String> keyspaces, @Nullable String table)
+    throws SnapshotExistsException
+    {
+        List<String> entities = entities(snapshot, keyspaces, table);
+
+        // Cassandra refuses to reuse a tag, checking first saves a flush and gives a clearer answer
+        if (!find(snapshot, keyspaces).isEmpty())
+            throw new SnapshotExistsException(snapshot);
+
+        logger.info("Taking snapshot {} of {}", snapshot, entities.isEmpty() ? "every keyspace" : entities);
+        try
+        {
+            cassandra.takeSnapshot(snapshot, entities);
+        }
+        finally
+        {
+            lister.invalidate();
+        }
+        return find(snapshot, keyspaces);
+    }
+
+    private void clearSnapshot(String snapshot, List<String> keyspaces)
+    {
+        entities(snapshot, keyspaces, null);
+
+        logger.info("Clearing snapshot {} from {}", snapshot, keyspaces.isEmpty() ? "every keyspace" : keyspaces);
+        try
+        {
+            cassandra.clearSnapshot(snapshot, keyspaces);
+        }
+        finally
+        {
+            lister.invalidate();
+        }
+    }
+
+    private List<SnapshotInfo> find(String snapshot, List<String> keyspaces)
+    {
+        List<SnapshotInfo> snapshots = new ArrayList<>();
+        if (keyspaces.isEmpty())
+        {
+            snapshots.addAll(lister.list(null));
+        }
+        else
+        {
+            for (String keyspace : keyspaces)
+                snapshots.addAll(lister.list(keyspace));
+        }
+        return snapshots.stream()
+                        .filter(info -> info.getName().equals(snapshot))
+                        .collect(Collectors.toList());
+    }
+
+    static int statusCode(Throwable t)
+    {
+        if (t instanceof IllegalArgumentException)
+            return HttpResponseStatus.BAD_REQUEST.code();
+        if (t instanceof FileNotFoundException)
+            return HttpResponseStatus.NOT_FOUND.code();
+        if (t instanceof SnapshotExistsException)
+            return HttpResponseStatus.CONFLICT.code();
+        if (t instanceof RejectedExecutionException)
+            return HttpResponseStatus.TOO_MANY_REQUESTS.code();
+        if (t instanceof IllegalStateException)
+            return HttpResponseStatus.SERVICE_UNAVAILABLE.code();
+        return HttpResponseStatus.INTERNAL_SERVER_ERROR.code();
+    }
+
+    /**
+     * Thrown when taking a snapshot whose tag is already in use
+     */
+    private static class SnapshotExistsException extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        SnapshotExistsException(String snapshot)
+        {
+            super("Snapshot already exists: " + snapshot);
+        }
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link SnapshotService#handle(RoutingContext)}
+     */
+    @Path("/api/v1/snapshots/{snapshot}")
+    public interface Api
+    {
+        @Operation(summary = "List a snapshot",
+        description = "Lists the tables in the snapshot and their sizes on disk",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The snapshot's tables"),
+        @ApiResponse(responseCode = "400", description = "Invalid snapshot or keyspace name"),
+        @ApiResponse(responseCode = "404", description = "No such snapshot")
+        })
+        @Produces(MediaType.APPLICATION_JSON)
+        @GET
+        Response get(@PathParam("snapshot") String snapshot, @QueryParam("keyspace") List<String> keyspaces);
+
+        @Operation(summary = "Take a snapshot",
+        description = "Flushes and snapshots the keyspaces, or the table, or every keyspace if none is given",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The snapshot's tables"),
+        @ApiResponse(responseCode = "202", description = "The snapshot was submitted as a job"),
+        @ApiResponse(responseCode = "400", description = "Invalid snapshot, keyspace or table name"),
+        @ApiResponse(responseCode = "409", description = "The snapshot already exists"),
+        @ApiResponse(responseCode = "429", description = "Too many snapshot jobs are waiting"),
+        @ApiResponse(responseCode = "503", description = "Cassandra is not available")
+        })
+        @Produces(MediaType.APPLICATION_JSON)
+        @PUT
+        Response take(@PathParam("snapshot") String snapshot, @QueryParam("keyspace") List<String> keyspaces,
+                      @QueryParam("table") String table, @QueryParam("async") boolean async);
+
+        @Operation(summary = "Clear a snapshot",
+        description = "Removes the snapshot from the keyspaces, or from every keyspace if none is given",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The snapshot was cleared"),
+        @ApiResponse(responseCode = "202", description = "Clearing the snapshot was submitted as a job"),
+        @ApiResponse(responseCode = "400", description = "Invalid snapshot or keyspace name"),
+        @ApiResponse(responseCode = "429", description = "Too many snapshot jobs are waiting"),
+        @ApiResponse(responseCode = "503", description = "Cassandra is not available")
+        })
+        @Produces(MediaType.APPLICATION_JSON)
+        @DELETE
+        Response clear(@PathParam("snapshot") String snapshot, @QueryParam("keyspace") List<String> keyspaces,
+                       @QueryParam("async") boolean async);
+    }
+}
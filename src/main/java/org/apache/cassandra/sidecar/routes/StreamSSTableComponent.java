@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.utils.FileStreamer;
+import org.apache.cassandra.sidecar.utils.SnapshotPathBuilder;
+
+/**
+ * Streams a single SSTable component out of a snapshot.  Files are sent with {@code sendFile}, which uses the
+ * kernel's sendfile on plain HTTP and chunked file reads under SSL, so components are never buffered on heap.
+ * Byte ranges are supported, see {@link FileStreamer}.
+ */
+@Singleton
+public class StreamSSTableComponent implements Handler<RoutingContext>
+{
+    private static final Logger logger = LoggerFactory.getLogger(StreamSSTableComponent.class);
+    private final SnapshotPathBuilder pathBuilder;
+    private final FileStreamer fileStreamer;
+
+    @Inject
+    public StreamSSTableComponent(SnapshotPathBuilder pathBuilder, FileStreamer fileStreamer)
+    {
+        this.pathBuilder = pathBuilder;
+        this.fileStreamer = fileStreamer;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        pathBuilder.build(rc.pathParam("keyspace"), rc.pathParam("table"),
+                          rc.pathParam("snapshot"), rc.pathParam("component"), ar ->
+        {
+            if (ar.failed())
+            {
+                rc.fail(statusCode(ar.cause()), ar.cause());
+                return;
+            }
+
+            File file = ar.result();
+            logger.debug("Streaming {} to {}", file, rc.request().remoteAddress());
+            fileStreamer.stream(rc, file);
+        });
+    }
+
+    private static int statusCode(Throwable t)
+    {
+        if (t instanceof IllegalArgumentException)
+            return HttpResponseStatus.BAD_REQUEST.code();
+        if (t instanceof FileNotFoundException)
+            return HttpResponseStatus.NOT_FOUND.code();
+        return HttpResponseStatus.INTERNAL_SERVER_ERROR.code();
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link StreamSSTableComponent#handle(RoutingContext)}
+     */
+    @Path("/api/v1/keyspace/{keyspace}/table/{table}/snapshots/{snapshot}/component/{component}")
+    public interface Api
+    {
+        @Operation(summary = "Stream an SSTable component from a snapshot",
+        description = "Streams a component such as Data.db or Index.db of a table's snapshot",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The component's content"),
+        @ApiResponse(responseCode = "206", description = "The requested byte ranges of the component"),
+        @ApiResponse(responseCode = "400", description = "Invalid keyspace, table, snapshot or component name"),
+        @ApiResponse(responseCode = "404", description = "The component does not exist"),
+        @ApiResponse(responseCode = "416", description = "None of the requested byte ranges can be satisfied")
+        })
+        @Produces(MediaType.APPLICATION_OCTET_STREAM)
+        @GET
+        Response stream(@PathParam("keyspace") String keyspace, @PathParam("table") String table,
+                        @PathParam("snapshot") String snapshot, @PathParam("component") String component);
+    }
+}
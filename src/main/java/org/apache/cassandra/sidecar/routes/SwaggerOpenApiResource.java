@@ -1,11 +1,16 @@
 package org.apache.cassandra.sidecar.routes;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.ServletConfig;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
-import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Application;
 import javax.ws.rs.core.Context;
@@ -14,24 +19,57 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
+import com.google.common.hash.Hashing;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.swagger.v3.core.util.Json;
 import io.swagger.v3.jaxrs2.Reader;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.integration.SwaggerConfiguration;
 import io.swagger.v3.oas.models.OpenAPI;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.utils.CompressionHandler;
 
 /**
  * Exposes Swagger OpenAPI definition for all SideCar REST APIs
+ *
+ * The definition can't change while the sidecar runs, so it's serialized once, along with a gzipped copy for clients
+ * which accept it.  Each has a strong ETag derived from the content, which stays the same across restarts and
+ * sidecars of the same version, and requests with a matching {@code If-None-Match} get an empty 304.
  */
-@Path("/api/v1/schema/openapi.{type:json}")
-public class SwaggerOpenApiResource
+@Path("/api/v1/schema/openapi.json")
+public class SwaggerOpenApiResource implements Handler<RoutingContext>
 {
     static final OpenAPI OAS;
+    private static final byte[] JSON;
+    private static final Buffer JSON_BUFFER;
+    private static final Buffer GZIPPED_BUFFER;
+    private static final String ETAG;
+    private static final String GZIPPED_ETAG;
 
     static
     {
         Reader reader = new Reader(new SwaggerConfiguration());
-        OAS = reader.read(new HashSet(Arrays.asList(HealthService.class)));
+        OAS = reader.read(new HashSet(Arrays.asList(HealthService.class, ClusterStatusService.Api.class,
+                                                    StreamSSTableComponent.Api.class,
+                                                    SSTableUpload.Api.class, SSTableImport.Api.class,
+                                                    SSTableUploadCleanup.Api.class, TokenRingService.Api.class,
+                                                    ReplicasService.Api.class, ChangeStreamService.Api.class,
+                                                    MetricsService.Api.class, SnapshotListService.Api.class,
+                                                    SnapshotService.Api.class, JobListService.Api.class,
+                                                    JobService.Api.class, TableStatsService.Api.class)));
+        JSON = Json.pretty(OAS).getBytes(StandardCharsets.UTF_8);
+        JSON_BUFFER = directBuffer(JSON);
+        GZIPPED_BUFFER = directBuffer(gzip(JSON));
+        String hash = Hashing.murmur3_128().hashBytes(JSON).toString();
+        ETAG = '"' + hash + '"';
+        GZIPPED_ETAG = '"' + hash + "-gzip\"";
     }
 
     @Context
@@ -44,15 +82,84 @@ public class SwaggerOpenApiResource
     @Produces({ MediaType.APPLICATION_JSON})
     @Operation(hidden = true)
     public Response getOpenApi(@Context HttpHeaders headers,
-                               @Context UriInfo uriInfo,
-                               @PathParam("type") String type)
+                               @Context UriInfo uriInfo)
     {
+        if (notModified(headers.getHeaderString(HttpHeaders.IF_NONE_MATCH)))
+            return Response.notModified(ETAG).build();
+
         return Response.status(Response.Status.OK)
-                       .entity(Json.pretty(OAS))
+                       .entity(JSON)
                        .type(MediaType.APPLICATION_JSON_TYPE)
+                       .header(HttpHeaders.ETAG, ETAG)
                        .build();
     }
 
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        boolean gzip = CompressionHandler.acceptsGzip(rc.request());
+        HttpServerResponse response = rc.response()
+                                        .putHeader(HttpHeaderNames.ETAG, gzip ? GZIPPED_ETAG : ETAG)
+                                        .putHeader(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        if (notModified(rc.request().getHeader(HttpHeaderNames.IF_NONE_MATCH)))
+        {
+            response.setStatusCode(HttpResponseStatus.NOT_MODIFIED.code()).end();
+            return;
+        }
+
+        response.putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+        if (gzip)
+            response.putHeader(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP).end(GZIPPED_BUFFER);
+        else
+            response.putHeader(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.IDENTITY).end(JSON_BUFFER);
+    }
+
+    /**
+     * @return whether the client already has the definition, in either encoding
+     */
+    private static boolean notModified(String ifNoneMatch)
+    {
+        if (ifNoneMatch == null)
+            return false;
+        for (String etag : ifNoneMatch.split(","))
+        {
+            String trimmed = etag.trim();
+            if (trimmed.equals("*") || trimmed.equals(ETAG) || trimmed.equals(GZIPPED_ETAG))
+                return true;
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] bytes)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)
+        {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        })
+        {
+            gzip.write(bytes);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return a buffer which can be written any number of times without being copied to the heap first
+     */
+    private static Buffer directBuffer(byte[] bytes)
+    {
+        return Buffer.buffer(Unpooled.unreleasableBuffer(Unpooled.directBuffer(bytes.length).writeBytes(bytes)));
+    }
+
     public SwaggerOpenApiResource()
     {
         super();
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.common.collect.ImmutableMap;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.json.Json;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.concurrent.WorkerPool;
+import org.apache.cassandra.sidecar.concurrent.WorkerPools;
+
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateKeyspaceName;
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateTableName;
+
+/**
+ * Returns a table's metrics, as {@code nodetool tablestats} does, read over the adapter's shared JMX connection
+ * rather than a connection per request.
+ */
+@Singleton
+public class TableStatsService implements Handler<RoutingContext>
+{
+    private final WorkerPools workerPools;
+    private final CassandraAdapterDelegate cassandra;
+
+    @Inject
+    public TableStatsService(WorkerPools workerPools, CassandraAdapterDelegate cassandra)
+    {
+        this.workerPools = workerPools;
+        this.cassandra = cassandra;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}.  Reading the metrics blocks on JMX, so runs on a JMX
+     * worker.
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        String keyspace = rc.pathParam("keyspace");
+        String table = rc.pathParam("table");
+        workerPools.<String>executeBlocking(WorkerPool.JMX, () -> json(keyspace, table), ar ->
+        {
+            if (ar.failed())
+            {
+                rc.fail(statusCode(ar.cause()), ar.cause());
+                return;
+            }
+            rc.response()
+              .putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+              .end(ar.result());
+        });
+    }
+
+    private String json(String keyspace, String table)
+    {
+        Map<String, Map<String, Object>> metrics = cassandra.getTableStats(validateKeyspaceName(keyspace),
+                                                                           validateTableName(table));
+        return Json.encode(ImmutableMap.of("keyspace", keyspace, "table", table, "metrics", metrics));
+    }
+
+    static int statusCode(Throwable t)
+    {
+        if (t instanceof IllegalArgumentException)
+            return HttpResponseStatus.BAD_REQUEST.code();
+        if (t instanceof NoSuchElementException)
+            return HttpResponseStatus.NOT_FOUND.code();
+        if (t instanceof UnsupportedOperationException)
+            return HttpResponseStatus.NOT_IMPLEMENTED.code();
+        if (t instanceof IllegalStateException)
+            return HttpResponseStatus.SERVICE_UNAVAILABLE.code();
+        return HttpResponseStatus.INTERNAL_SERVER_ERROR.code();
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link TableStatsService#handle(RoutingContext)}
+     */
+    @Path("/api/v1/keyspace/{keyspace}/table/{table}/stats")
+    public interface Api
+    {
+        @Operation(summary = "Metrics of a table",
+        description = "Returns each of the table's metrics by name, with whichever of its value, count, min, max, " +
+                      "mean, percentiles and one minute rate it has",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The metrics"),
+        @ApiResponse(responseCode = "400", description = "Invalid keyspace or table name"),
+        @ApiResponse(responseCode = "404", description = "The table doesn't exist"),
+        @ApiResponse(responseCode = "503", description = "Cassandra is not available")
+        })
+        @Produces(MediaType.APPLICATION_JSON)
+        @GET
+        Response doGet(@PathParam("keyspace") String keyspace, @PathParam("table") String table);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.google.common.collect.ImmutableMap;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.vertx.core.Handler;
+import io.vertx.core.json.Json;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.common.TokenRing;
+import org.apache.cassandra.sidecar.concurrent.WorkerPool;
+import org.apache.cassandra.sidecar.concurrent.WorkerPools;
+
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateKeyspaceName;
+
+/**
+ * Lists every token range of a keyspace with its replicas, from the delegate's cached {@link TokenRing}.  The JSON
+ * is encoded once per ring, so it's only rebuilt when the topology or the keyspace changes.  Tokens are written as
+ * strings, since JSON parsers commonly lose precision on 64 bit numbers.
+ */
+@Singleton
+public class TokenRingService implements Handler<RoutingContext>
+{
+    private final WorkerPools workerPools;
+    private final CassandraAdapterDelegate cassandra;
+    private volatile Encoded encoded;
+
+    @Inject
+    public TokenRingService(WorkerPools workerPools, CassandraAdapterDelegate cassandra)
+    {
+        this.workerPools = workerPools;
+        this.cassandra = cassandra;
+    }
+
+    /**
+     * Native Vert.x handler, bound by the {@link RouteBinder}.  Building the ring connects to Cassandra on first use,
+     * so it runs on a CQL worker.
+     */
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        String keyspace = rc.pathParam("keyspace");
+        workerPools.<String>executeBlocking(WorkerPool.CQL, () -> json(keyspace), ar ->
+        {
+            if (ar.failed())
+            {
+                rc.fail(statusCode(ar.cause()), ar.cause());
+                return;
+            }
+            rc.response()
+              .putHeader(HttpHeaderNames.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+              .end(ar.result());
+        });
+    }
+
+    private String json(String keyspace)
+    {
+        TokenRing ring = cassandra.getTokenRing(validateKeyspaceName(keyspace));
+        Encoded current = encoded;
+        if (current == null || current.ring != ring)
+        {
+            // only the last ring asked for is kept, which suits the usual case of one keyspace being polled
+            current = new Encoded(ring);
+            encoded = current;
+        }
+        return current.json;
+    }
+
+    static int statusCode(Throwable t)
+    {
+        if (t instanceof IllegalArgumentException)
+            return HttpResponseStatus.BAD_REQUEST.code();
+        if (t instanceof NoSuchElementException)
+            return HttpResponseStatus.NOT_FOUND.code();
+        if (t instanceof UnsupportedOperationException)
+            return HttpResponseStatus.NOT_IMPLEMENTED.code();
+        if (t instanceof IllegalStateException)
+            return HttpResponseStatus.SERVICE_UNAVAILABLE.code();
+        return HttpResponseStatus.INTERNAL_SERVER_ERROR.code();
+    }
+
+    /**
+     * A ring with its JSON
+     */
+    private static class Encoded
+    {
+        private final TokenRing ring;
+        private final String json;
+
+        Encoded(TokenRing ring)
+        {
+            this.ring = ring;
+            List<Object> ranges = new ArrayList<>(ring.size());
+            for (int i = 0; i < ring.size(); i++)
+            {
+                ranges.add(ImmutableMap.of("start", Long.toString(ring.getStart(i)),
+                                           "end", Long.toString(ring.getEnd(i)),
+                                           "replicas", ring.getReplicas(i)));
+            }
+            this.json = Json.encode(ImmutableMap.of("keyspace", ring.getKeyspace(), "ranges", ranges));
+        }
+    }
+
+    /**
+     * Describes the route, for binding and for the OpenAPI definition.  Nothing implements it, the route is answered
+     * by {@link TokenRingService#handle(RoutingContext)}
+     */
+    @Path("/api/v1/keyspace/{keyspace}/ring")
+    public interface Api
+    {
+        @Operation(summary = "Token ranges of a keyspace",
+        description = "Returns each range of the ring, from its exclusive start token to its inclusive end token, " +
+                      "with the addresses of the nodes which replicate it in the keyspace",
+        responses = {
+        @ApiResponse(responseCode = "200", description = "The ranges and their replicas"),
+        @ApiResponse(responseCode = "400", description = "Invalid keyspace name"),
+        @ApiResponse(responseCode = "404", description = "The keyspace doesn't exist"),
+        @ApiResponse(responseCode = "501", description = "The cluster doesn't use the Murmur3 partitioner"),
+        @ApiResponse(responseCode = "503", description = "Cassandra is not available")
+        })
+        @Produces(MediaType.APPLICATION_JSON)
+        @GET
+        Response doGet(@PathParam("keyspace") String keyspace);
+    }
+}
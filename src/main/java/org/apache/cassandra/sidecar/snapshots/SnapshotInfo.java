@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.snapshots;
+
+/**
+ * A table's snapshot and how much disk it takes.
+ *
+ * SSTables in a snapshot are hard links, so they only take space of their own once the live SSTable or other
+ * snapshots linking to the same file are gone.  The size on disk counts every distinct file in the snapshot, while
+ * the true size only counts those nothing else links to, which is what clearing the snapshot would free.
+ */
+public class SnapshotInfo
+{
+    private final String name;
+    private final String keyspace;
+    private final String table;
+    private final String directory;
+    private final int files;
+    private final long sizeOnDisk;
+    private final long trueSize;
+
+    public SnapshotInfo(String name, String keyspace, String table, String directory, int files, long sizeOnDisk,
+                        long trueSize)
+    {
+        this.name = name;
+        this.keyspace = keyspace;
+        this.table = table;
+        this.directory = directory;
+        this.files = files;
+        this.sizeOnDisk = sizeOnDisk;
+        this.trueSize = trueSize;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getKeyspace()
+    {
+        return keyspace;
+    }
+
+    public String getTable()
+    {
+        return table;
+    }
+
+    public String getDirectory()
+    {
+        return directory;
+    }
+
+    public int getFiles()
+    {
+        return files;
+    }
+
+    public long getSizeOnDisk()
+    {
+        return sizeOnDisk;
+    }
+
+    public long getTrueSize()
+    {
+        return trueSize;
+    }
+
+    /**
+     * @return the bytes shared with live SSTables or other snapshots through hard links
+     */
+    public long getSharedSize()
+    {
+        return sizeOnDisk - trueSize;
+    }
+}
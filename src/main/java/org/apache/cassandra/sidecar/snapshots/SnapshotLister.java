@@ -0,0 +1,419 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.snapshots;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import org.apache.cassandra.sidecar.Configuration;
+
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateKeyspaceName;
+
+/**
+ * Lists the snapshots under the configured data directories, with their sizes on disk.
+ *
+ * Keyspace directories are walked in parallel, one task per keyspace in each data directory, on a fork-join pool
+ * bounded by {@link Configuration#getSnapshotListParallelism()}.  Files are grouped by inode so hard links shared
+ * with live SSTables or other snapshots are told apart from what each snapshot holds on its own.
+ *
+ * Each keyspace's snapshots are cached until a {@link WatchService} reports a change to them: a table or a
+ * snapshot being added or removed, a file being linked into or removed from a snapshot, or a live SSTable or
+ * incremental backup being removed, which may leave a file to the snapshots alone.  Repeated listings of
+ * nodes with tens of thousands of SSTables are then answered without touching the disk.  If a directory can't be
+ * watched, for instance because the inotify watch limit has been reached, its keyspace simply isn't cached.
+ *
+ * Listing blocks on the disk, so it mustn't be called from an event loop.
+ */
+@Singleton
+public class SnapshotLister implements Closeable
+{
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotLister.class);
+    private static final String SNAPSHOTS_DIR = "snapshots";
+    private static final String BACKUPS_DIR = "backups";
+
+    private final List<Path> dataDirs;
+    private final ForkJoinPool pool;
+    private final Map<Path, List<SnapshotInfo>> cache = new ConcurrentHashMap<>();
+    // bumped on every invalidation, so a listing racing with a change isn't cached
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Map<WatchKey, Watched> watched = new ConcurrentHashMap<>();
+    @Nullable
+    private volatile WatchService watcher;
+    private volatile boolean closed;
+
+    @Inject
+    public SnapshotLister(Configuration config)
+    {
+        this.dataDirs = ImmutableList.copyOf(config.getDataDirs()
+                                                   .stream()
+                                                   .map(dir -> Paths.get(dir).toAbsolutePath().normalize())
+                                                   .collect(Collectors.toList()));
+        this.pool = new ForkJoinPool(config.getSnapshotListParallelism(), p ->
+        {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("sidecar-snapshot-list-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * @param keyspace only list this keyspace's snapshots, or null for every keyspace
+     * @return the snapshots of every table
+     * @throws IllegalArgumentException if the keyspace name is invalid
+     * @throws UncheckedIOException     if a directory couldn't be read
+     */
+    public List<SnapshotInfo> list(@Nullable String keyspace)
+    {
+        if (keyspace != null)
+            validateKeyspaceName(keyspace);
+        boolean watching = startWatching();
+
+        List<Callable<List<SnapshotInfo>>> tasks = new ArrayList<>();
+        for (Path dataDir : dataDirs)
+        {
+            for (Path keyspaceDir : directories(dataDir))
+            {
+                if (keyspace == null || keyspace.equals(keyspaceDir.getFileName().toString()))
+                    tasks.add(() -> keyspaceSnapshots(keyspaceDir, watching));
+            }
+        }
+
+        List<SnapshotInfo> snapshots = new ArrayList<>();
+        for (Future<List<SnapshotInfo>> result : pool.invokeAll(tasks))
+        {
+            try
+            {
+                snapshots.addAll(Uninterruptibles.getUninterruptibly(result));
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof UncheckedIOException)
+                    throw (UncheckedIOException) e.getCause();
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Forgets every cached listing, for changes made through the sidecar which shouldn't wait for the watcher
+     */
+    public void invalidate()
+    {
+        invalidations.incrementAndGet();
+        cache.clear();
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        pool.shutdownNow();
+        WatchService current = watcher;
+        if (current != null)
+        {
+            try
+            {
+                current.close();
+            }
+            catch (IOException e)
+            {
+                logger.debug("Failed to close the snapshot watcher", e);
+            }
+        }
+    }
+
+    private List<SnapshotInfo> keyspaceSnapshots(Path keyspaceDir, boolean watching)
+    {
+        List<SnapshotInfo> cached = cache.get(keyspaceDir);
+        if (cached != null)
+            return cached;
+
+        long before = invalidations.get();
+        boolean watched = watching && watch(keyspaceDir, keyspaceDir, false);
+        String keyspace = keyspaceDir.getFileName().toString();
+        List<SnapshotInfo> snapshots = new ArrayList<>();
+        for (Path tableDir : directories(keyspaceDir))
+        {
+            // table directories are suffixed with the table id, e.g. my_table-1b255f4def2540a60000000000000005
+            String name = tableDir.getFileName().toString();
+            int idStart = name.lastIndexOf('-');
+            String table = idStart > 0 ? name.substring(0, idStart) : name;
+
+            // new SSTables can't be in a snapshot yet, only removed ones and the snapshots directory matter
+            Path snapshotsDir = tableDir.resolve(SNAPSHOTS_DIR);
+            watched &= !watching || watch(tableDir, keyspaceDir, true);
+            if (!Files.isDirectory(snapshotsDir))
+                continue;
+
+            Path backupsDir = tableDir.resolve(BACKUPS_DIR);
+            if (Files.isDirectory(backupsDir))
+                watched &= !watching || watch(backupsDir, keyspaceDir, true);
+
+            watched &= !watching || watch(snapshotsDir, keyspaceDir, false);
+            for (Path snapshotDir : directories(snapshotsDir))
+            {
+                watched &= !watching || watch(snapshotDir, keyspaceDir, false);
+                snapshots.add(measure(snapshotDir, keyspace, table));
+            }
+        }
+
+        if (watched)
+        {
+            // if an invalidation raced with the walk it either removes this listing or is seen here
+            cache.put(keyspaceDir, snapshots);
+            if (invalidations.get() != before)
+                cache.remove(keyspaceDir);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Adds up the snapshot's files, counting each inode once
+     */
+    static SnapshotInfo measure(Path snapshotDir, String keyspace, String table)
+    {
+        Map<Object, Inode> inodes = new HashMap<>();
+        int files = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(snapshotDir))
+        {
+            for (Path file : stream)
+            {
+                Inode inode = Inode.of(file);
+                if (inode == null)
+                    continue;
+                files++;
+                Inode seen = inodes.putIfAbsent(inode.key, inode);
+                if (seen != null)
+                    seen.linksInSnapshot++;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        long sizeOnDisk = 0;
+        long trueSize = 0;
+        for (Inode inode : inodes.values())
+        {
+            sizeOnDisk += inode.size;
+            if (inode.links <= inode.linksInSnapshot)
+                trueSize += inode.size;
+        }
+        return new SnapshotInfo(snapshotDir.getFileName().toString(), keyspace, table, snapshotDir.toString(), files,
+                                sizeOnDisk, trueSize);
+    }
+
+    private static List<Path> directories(Path parent)
+    {
+        List<Path> directories = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent, Files::isDirectory))
+        {
+            stream.forEach(directories::add);
+        }
+        catch (IOException e)
+        {
+            // the directory may have been removed since it was listed, which just means there's nothing in it
+            if (Files.exists(parent))
+                throw new UncheckedIOException(e);
+        }
+        return directories;
+    }
+
+    private synchronized boolean startWatching()
+    {
+        if (watcher != null)
+            return true;
+        if (closed)
+            return false;
+        try
+        {
+            WatchService service = FileSystems.getDefault().newWatchService();
+            Thread thread = new Thread(() -> processEvents(service), "sidecar-snapshot-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            watcher = service;
+            return true;
+        }
+        catch (IOException | UnsupportedOperationException e)
+        {
+            logger.warn("Snapshot listings won't be cached, the snapshot directories can't be watched", e);
+            return false;
+        }
+    }
+
+    private boolean watch(Path directory, Path keyspaceDir, boolean liveFiles)
+    {
+        WatchService service = watcher;
+        if (service == null)
+            return false;
+        try
+        {
+            WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                                              StandardWatchEventKinds.ENTRY_DELETE);
+            watched.putIfAbsent(key, new Watched(keyspaceDir, liveFiles));
+            return true;
+        }
+        catch (IOException | ClosedWatchServiceException e)
+        {
+            logger.debug("Not caching snapshots of {}, {} can't be watched", keyspaceDir, directory, e);
+            return false;
+        }
+    }
+
+    private void processEvents(WatchService service)
+    {
+        while (true)
+        {
+            WatchKey key;
+            try
+            {
+                key = service.take();
+            }
+            catch (InterruptedException | ClosedWatchServiceException e)
+            {
+                return;
+            }
+
+            Watched target = watched.get(key);
+            for (WatchEvent<?> event : key.pollEvents())
+            {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                    invalidate();
+                else if (target != null && target.affectedBy(event))
+                    invalidate(target.keyspaceDir);
+            }
+
+            // the directory is gone
+            if (!key.reset())
+            {
+                watched.remove(key);
+                if (target != null)
+                    invalidate(target.keyspaceDir);
+            }
+        }
+    }
+
+    private void invalidate(Path keyspaceDir)
+    {
+        invalidations.incrementAndGet();
+        cache.remove(keyspaceDir);
+    }
+
+    /**
+     * The keyspace whose listing a watched directory is part of
+     */
+    private static class Watched
+    {
+        private final Path keyspaceDir;
+        // a table or backups directory, whose files may be linked into snapshots
+        private final boolean liveFiles;
+
+        Watched(Path keyspaceDir, boolean liveFiles)
+        {
+            this.keyspaceDir = keyspaceDir;
+            this.liveFiles = liveFiles;
+        }
+
+        boolean affectedBy(WatchEvent<?> event)
+        {
+            // a removed file may have been the last link outside a snapshot, changing its true size
+            return !liveFiles
+                   || event.kind() == StandardWatchEventKinds.ENTRY_DELETE
+                   || SNAPSHOTS_DIR.equals(String.valueOf(event.context()));
+        }
+    }
+
+    /**
+     * A file's identity on disk, how big it is, and how many links it has
+     */
+    private static class Inode
+    {
+        private final Object key;
+        private final long size;
+        private final int links;
+        private int linksInSnapshot = 1;
+
+        Inode(Object key, long size, int links)
+        {
+            this.key = key;
+            this.size = size;
+            this.links = links;
+        }
+
+        /**
+         * @return the file's inode, or null if it isn't a regular file
+         */
+        @Nullable
+        static Inode of(Path file) throws IOException
+        {
+            try
+            {
+                Map<String, Object> attributes = Files.readAttributes(file, "unix:dev,ino,nlink,size,mode");
+                // S_IFREG
+                if (((Integer) attributes.get("mode") & 0170000) != 0100000)
+                    return null;
+                return new Inode(attributes.get("dev") + ":" + attributes.get("ino"),
+                                 (Long) attributes.get("size"), (Integer) attributes.get("nlink"));
+            }
+            catch (UnsupportedOperationException e)
+            {
+                // without a unix view links can't be counted, so every file is taken to be the snapshot's own
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!attributes.isRegularFile())
+                    return null;
+                Object key = attributes.fileKey();
+                return new Inode(key != null ? key : file, attributes.size(), 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.utils;
+
+import java.util.regex.Pattern;
+
+/**
+ * Validates names taken from requests before they are used to build paths or MBean names, so requests can't refer
+ * to anything outside of the directories they're meant for.
+ */
+public final class CassandraInputValidator
+{
+    private static final Pattern KEYSPACE_TABLE_NAME = Pattern.compile("[a-zA-Z0-9_]+");
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("[a-zA-Z0-9_\\-]+(\\.[a-zA-Z0-9_\\-]+)*");
+    private static final Pattern COMPONENT_NAME = Pattern.compile("[a-zA-Z0-9_\\-.]+\\.(db|cql|json|crc32|txt)");
+    private static final Pattern UPLOAD_ID = Pattern.compile("[a-zA-Z0-9_\\-]{1,64}");
+
+    private CassandraInputValidator()
+    {
+    }
+
+    public static String validateKeyspaceName(String keyspace)
+    {
+        return validate(KEYSPACE_TABLE_NAME, "keyspace", keyspace);
+    }
+
+    public static String validateTableName(String table)
+    {
+        return validate(KEYSPACE_TABLE_NAME, "table", table);
+    }
+
+    public static String validateSnapshotName(String snapshot)
+    {
+        return validate(SNAPSHOT_NAME, "snapshot", snapshot);
+    }
+
+    public static String validateComponentName(String component)
+    {
+        return validate(COMPONENT_NAME, "component", component);
+    }
+
+    public static String validateUploadId(String uploadId)
+    {
+        return validate(UPLOAD_ID, "upload id", uploadId);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name doesn't match the pattern
+     */
+    private static String validate(Pattern pattern, String type, String name)
+    {
+        if (name == null || !pattern.matcher(name).matches())
+            throw new IllegalArgumentException(String.format("Invalid %s name: %s", type, name));
+        return name;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.utils;
+
+import javax.annotation.Nullable;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.Configuration;
+
+/**
+ * Limits the HTTP server's response compression to responses worth compressing: JSON, text and scripts of at least
+ * the configured minimum size, or of unknown size when they're streamed.  Everything else, such as SSTable components
+ * and event streams, is marked with the identity encoding, which the server's compressor leaves alone.
+ *
+ * Responses which already have a {@code Content-Encoding}, like precompressed ones, are sent as they are.
+ */
+@Singleton
+public class CompressionHandler implements Handler<RoutingContext>
+{
+    private final int minSize;
+
+    @Inject
+    public CompressionHandler(Configuration config)
+    {
+        this.minSize = config.getCompressionMinSize();
+    }
+
+    @Override
+    public void handle(RoutingContext rc)
+    {
+        HttpServerResponse response = rc.response();
+        rc.addHeadersEndHandler(v ->
+        {
+            if (!response.headers().contains(HttpHeaderNames.CONTENT_ENCODING) && !worthCompressing(response))
+                response.putHeader(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.IDENTITY);
+        });
+        rc.next();
+    }
+
+    private boolean worthCompressing(HttpServerResponse response)
+    {
+        if (!compressible(response.headers().get(HttpHeaderNames.CONTENT_TYPE)))
+            return false;
+
+        String length = response.headers().get(HttpHeaderNames.CONTENT_LENGTH);
+        try
+        {
+            return length == null || Long.parseLong(length) >= minSize;
+        }
+        catch (NumberFormatException e)
+        {
+            return false;
+        }
+    }
+
+    static boolean compressible(@Nullable String contentType)
+    {
+        if (contentType == null)
+            return false;
+        if (contentType.startsWith("text/"))
+            return !contentType.startsWith("text/event-stream");
+        return contentType.startsWith("application/json")
+               || contentType.startsWith("application/javascript")
+               || contentType.startsWith("application/xml")
+               || contentType.startsWith("image/svg+xml");
+    }
+
+    /**
+     * @return whether the client accepts gzip encoded responses
+     */
+    public static boolean acceptsGzip(HttpServerRequest request)
+    {
+        String acceptEncoding = request.getHeader(HttpHeaderNames.ACCEPT_ENCODING);
+        if (acceptEncoding == null)
+            return false;
+
+        // an explicit gzip coding takes precedence over the wildcard
+        boolean wildcard = false;
+        for (String coding : acceptEncoding.split(","))
+        {
+            int parameters = coding.indexOf(';');
+            String name = (parameters < 0 ? coding : coding.substring(0, parameters)).trim();
+            boolean accepted = parameters < 0 || !isZeroQuality(coding.substring(parameters + 1));
+            if (name.equalsIgnoreCase("gzip"))
+                return accepted;
+            if (name.equals("*"))
+                wildcard = accepted;
+        }
+        return wildcard;
+    }
+
+    private static boolean isZeroQuality(String parameters)
+    {
+        for (String parameter : parameters.split(";"))
+        {
+            String[] nameValue = parameter.trim().split("=", 2);
+            if (nameValue.length == 2 && nameValue[0].trim().equalsIgnoreCase("q"))
+            {
+                try
+                {
+                    return Double.parseDouble(nameValue[1].trim()) == 0;
+                }
+                catch (NumberFormatException e)
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
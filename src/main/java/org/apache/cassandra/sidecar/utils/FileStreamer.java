@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.Nullable;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.cassandra.sidecar.concurrent.WorkerPool;
+import org.apache.cassandra.sidecar.concurrent.WorkerPools;
+
+/**
+ * Streams files to HTTP clients with RFC 7233 range support, so large transfers can be resumed or fetched as disjoint
+ * chunks over several connections.
+ *
+ * Full and single range responses use offset-based {@code sendFile}, which stays zero-copy on plain HTTP/1.1 unless
+ * response compression is enabled.  On HTTP/2 the file is read into DATA frames as the stream's flow control window
+ * allows.  Multiple ranges are sent as {@code multipart/byteranges}, piping each range from
+ * the file with backpressure.  Every response carries a strong ETag derived from the file's inode, size and
+ * modification time, which {@code If-Range} is checked against.
+ */
+@Singleton
+public class FileStreamer
+{
+    private static final Logger logger = LoggerFactory.getLogger(FileStreamer.class);
+    private static final String OCTET_STREAM = "application/octet-stream";
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'",
+                                                                                   Locale.US)
+                                                                        .withZone(ZoneOffset.UTC);
+    // beyond this, a multipart response costs more than just sending the whole file
+    private static final int MAX_RANGES = 32;
+
+    private final Vertx vertx;
+    private final WorkerPools workerPools;
+
+    @Inject
+    public FileStreamer(Vertx vertx, WorkerPools workerPools)
+    {
+        this.vertx = vertx;
+        this.workerPools = workerPools;
+    }
+
+    /**
+     * Streams the file, honouring the request's {@code Range} and {@code If-Range} headers
+     */
+    public void stream(RoutingContext rc, File file)
+    {
+        workerPools.executeBlocking(WorkerPool.DISK, () -> FileInfo.of(file.toPath()), ar ->
+        {
+            if (ar.succeeded())
+                send(rc, ar.result());
+            else if (ar.cause() instanceof NoSuchFileException)
+                rc.fail(HttpResponseStatus.NOT_FOUND.code(), ar.cause());
+            else
+                rc.fail(ar.cause());
+        });
+    }
+
+    private void send(RoutingContext rc, FileInfo info)
+    {
+        HttpServerResponse response = rc.response()
+                                        .putHeader(HttpHeaderNames.ACCEPT_RANGES, "bytes")
+                                        .putHeader(HttpHeaderNames.ETAG, info.etag)
+                                        .putHeader(HttpHeaderNames.LAST_MODIFIED, info.lastModified);
+
+        List<HttpRange> ranges = ranges(rc.request(), info);
+        if (ranges == null)
+        {
+            response.putHeader(HttpHeaderNames.CONTENT_TYPE, OCTET_STREAM)
+                    .sendFile(info.path, ar -> logFailure(ar.cause(), info));
+        }
+        else if (ranges.isEmpty())
+        {
+            response.setStatusCode(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE.code())
+                    .putHeader(HttpHeaderNames.CONTENT_RANGE, "bytes */" + info.size)
+                    .end();
+        }
+        else if (ranges.size() == 1)
+        {
+            HttpRange range = ranges.get(0);
+            response.setStatusCode(HttpResponseStatus.PARTIAL_CONTENT.code())
+                    .putHeader(HttpHeaderNames.CONTENT_TYPE, OCTET_STREAM)
+                    .putHeader(HttpHeaderNames.CONTENT_RANGE, range.contentRange(info.size))
+                    .sendFile(info.path, range.start, range.length(), ar -> logFailure(ar.cause(), info));
+        }
+        else
+        {
+            sendMultipart(response, info, ranges);
+        }
+    }
+
+    /**
+     * Overlapping and adjacent ranges are merged, and a request for more bytes than the file holds, such as the same
+     * range over and over, gets the whole file once instead, see RFC 7233 section 6.1
+     *
+     * @return the ranges to send, empty if none are satisfiable, or null if the whole file should be sent
+     */
+    @Nullable
+    private static List<HttpRange> ranges(HttpServerRequest request, FileInfo info)
+    {
+        String range = request.getHeader(HttpHeaderNames.RANGE);
+        if (range == null)
+            return null;
+
+        // a stale validator means the client's partial copy is out of date, so it gets the whole file again
+        String ifRange = request.getHeader(HttpHeaderNames.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(info.etag) && !ifRange.equals(info.lastModified))
+            return null;
+
+        try
+        {
+            List<HttpRange> ranges = HttpRange.parse(range, info.size);
+            if (ranges.size() > MAX_RANGES || HttpRange.totalLength(ranges) > info.size)
+                return null;
+            return HttpRange.coalesce(ranges);
+        }
+        catch (IllegalArgumentException e)
+        {
+            logger.debug("Ignoring malformed range {}", range);
+            return null;
+        }
+    }
+
+    private void sendMultipart(HttpServerResponse response, FileInfo info, List<HttpRange> ranges)
+    {
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        List<Buffer> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (int i = 0; i < ranges.size(); i++)
+        {
+            HttpRange range = ranges.get(i);
+            String header = (i == 0 ? "--" : "\r\n--") + boundary + "\r\n" +
+                            HttpHeaderNames.CONTENT_TYPE + ": " + OCTET_STREAM + "\r\n" +
+                            HttpHeaderNames.CONTENT_RANGE + ": " + range.contentRange(info.size) + "\r\n\r\n";
+            Buffer buffer = Buffer.buffer(header.getBytes(StandardCharsets.US_ASCII));
+            partHeaders.add(buffer);
+            contentLength += buffer.length() + range.length();
+        }
+        Buffer closing = Buffer.buffer(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        contentLength += closing.length();
+
+        response.setStatusCode(HttpResponseStatus.PARTIAL_CONTENT.code())
+                .putHeader(HttpHeaderNames.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary)
+                .putHeader(HttpHeaderNames.CONTENT_LENGTH, Long.toString(contentLength));
+        writePart(response, info, ranges, partHeaders, closing, 0);
+    }
+
+    private void writePart(HttpServerResponse response, FileInfo info, List<HttpRange> ranges,
+                           List<Buffer> partHeaders, Buffer closing, int index)
+    {
+        if (index == ranges.size())
+        {
+            response.end(closing);
+            return;
+        }
+
+        response.write(partHeaders.get(index));
+        HttpRange range = ranges.get(index);
+        vertx.fileSystem().open(info.path, new OpenOptions().setRead(true).setWrite(false).setCreate(false), ar ->
+        {
+            if (ar.failed())
+            {
+                logFailure(ar.cause(), info);
+                response.close();
+                return;
+            }
+
+            AsyncFile file = ar.result();
+            file.setReadPos(range.start).setReadLength(range.length());
+            file.pipe().endOnComplete(false).to(response, piped ->
+            {
+                file.close();
+                if (piped.succeeded())
+                {
+                    writePart(response, info, ranges, partHeaders, closing, index + 1);
+                }
+                else
+                {
+                    logFailure(piped.cause(), info);
+                    response.close();
+                }
+            });
+        });
+    }
+
+    private static void logFailure(@Nullable Throwable cause, FileInfo info)
+    {
+        if (cause != null)
+            logger.warn("Failed to stream {}", info.path, cause);
+    }
+
+    /**
+     * The attributes a response is built from, read once per request
+     */
+    private static class FileInfo
+    {
+        final String path;
+        final long size;
+        final String etag;
+        final String lastModified;
+
+        private FileInfo(String path, long size, String etag, String lastModified)
+        {
+            this.path = path;
+            this.size = size;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        static FileInfo of(Path path) throws IOException
+        {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            String etag = '"' + Long.toHexString(inode(path, attributes)) + '-' + Long.toHexString(size) + '-'
+                          + Long.toHexString(modified) + '"';
+            return new FileInfo(path.toString(), size, etag, HTTP_DATE.format(Instant.ofEpochMilli(modified)));
+        }
+
+        private static long inode(Path path, BasicFileAttributes attributes) throws IOException
+        {
+            try
+            {
+                return ((Number) Files.getAttribute(path, "unix:ino")).longValue();
+            }
+            catch (UnsupportedOperationException | IllegalArgumentException e)
+            {
+                // not a unix filesystem, fall back to whatever identifies the file there
+                Object key = attributes.fileKey();
+                return key == null ? 0 : key.hashCode();
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An inclusive byte range of a file, as requested by an RFC 7233 {@code Range} header
+ */
+public class HttpRange
+{
+    private static final String BYTES_UNIT = "bytes=";
+
+    public final long start;
+    public final long end;
+
+    public HttpRange(long start, long end)
+    {
+        this.start = start;
+        this.end = end;
+    }
+
+    public long length()
+    {
+        return end - start + 1;
+    }
+
+    /**
+     * @return the value of the {@code Content-Range} header for this range
+     */
+    public String contentRange(long size)
+    {
+        return "bytes " + start + '-' + end + '/' + size;
+    }
+
+    /**
+     * Parses a {@code Range} header against a file of the given size.  Ranges which start past the end of the file
+     * are dropped, and ranges which end past it are truncated to the last byte.
+     *
+     * @return the satisfiable ranges, in the requested order; empty if none of them can be satisfied
+     * @throws IllegalArgumentException if the header is malformed, in which case it should be ignored
+     */
+    public static List<HttpRange> parse(String header, long size)
+    {
+        if (!header.startsWith(BYTES_UNIT))
+            throw new IllegalArgumentException("Unsupported range unit: " + header);
+
+        List<HttpRange> ranges = new ArrayList<>();
+        for (String spec : header.substring(BYTES_UNIT.length()).split(","))
+        {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0)
+                throw new IllegalArgumentException("Invalid range: " + spec);
+
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty())
+            {
+                // suffix range, the last N bytes of the file
+                long suffix = parsePosition(last);
+                if (suffix == 0 || size == 0)
+                    continue;
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            }
+            else
+            {
+                start = parsePosition(first);
+                end = last.isEmpty() ? Long.MAX_VALUE : parsePosition(last);
+                if (end < start)
+                    throw new IllegalArgumentException("Invalid range: " + spec);
+                if (start >= size)
+                    continue;
+                end = Math.min(end, size - 1);
+            }
+            ranges.add(new HttpRange(start, end));
+        }
+        return ranges;
+    }
+
+    /**
+     * @return how many bytes the ranges add up to, counting overlapping bytes as often as they're requested
+     */
+    public static long totalLength(List<HttpRange> ranges)
+    {
+        long total = 0;
+        for (HttpRange range : ranges)
+            total += range.length();
+        return total;
+    }
+
+    /**
+     * Merges ranges which overlap or are adjacent, as RFC 7233 allows, so no byte is sent more than once
+     *
+     * @return the merged ranges, in ascending order
+     */
+    public static List<HttpRange> coalesce(List<HttpRange> ranges)
+    {
+        List<HttpRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(range -> range.start));
+
+        List<HttpRange> merged = new ArrayList<>(sorted.size());
+        for (HttpRange range : sorted)
+        {
+            int last = merged.size() - 1;
+            if (last >= 0 && range.start <= merged.get(last).end + 1)
+                merged.set(last, new HttpRange(merged.get(last).start, Math.max(merged.get(last).end, range.end)));
+            else
+                merged.add(range);
+        }
+        return merged;
+    }
+
+    private static long parsePosition(String position)
+    {
+        if (position.isEmpty() || position.charAt(0) < '0' || position.charAt(0) > '9')
+            throw new IllegalArgumentException("Invalid range position: " + position);
+        return Long.parseLong(position);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof HttpRange))
+            return false;
+        HttpRange that = (HttpRange) o;
+        return start == that.start && end == that.end;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(start) * 31 + Long.hashCode(end);
+    }
+
+    @Override
+    public String toString()
+    {
+        return start + "-" + end;
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.Provider;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.KeyManagerFactorySpi;
+import javax.net.ssl.ManagerFactoryParameters;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import javax.net.ssl.X509KeyManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.netty.handler.ssl.OpenSslCachingX509KeyManagerFactory;
+import io.netty.handler.ssl.util.SimpleTrustManagerFactory;
+import io.vertx.core.Vertx;
+import io.vertx.core.net.KeyCertOptions;
+import io.vertx.core.net.TrustOptions;
+import org.apache.cassandra.sidecar.Configuration;
+
+/**
+ * Serves the configured keystore and truststore to the HTTP server through {@link ReloadingKeyManager} and
+ * {@link ReloadingTrustManager}, and reloads them when their files change, so rotated certificates are picked up
+ * without restarting the sidecar or dropping connections.
+ *
+ * The files are checked for a new modification time or size every
+ * {@link Configuration#getSslReloadIntervalSeconds()}, on a worker thread.  Paths are resolved on every check, so
+ * stores swapped in through symbolic links, as Kubernetes does with secrets, are noticed too.  A store which fails to
+ * load, for instance because it's still being written, is retried at the next check while the previous one stays in
+ * use.
+ *
+ * With OpenSSL, Netty caches the key material it converts for each alias and never evicts it.  The aliases the
+ * {@link ReloadingKeyManager} hands out carry the generation of the keystore they came from, so the cache is keyed by
+ * generation: a reloaded keystore is converted afresh, and only the few entries of earlier generations linger.
+ */
+@Singleton
+public class KeyStoreReloader
+{
+    private static final Logger logger = LoggerFactory.getLogger(KeyStoreReloader.class);
+    // Provider(String, String, String) only replaced this constructor in Java 9, and the sidecar builds for Java 8
+    @SuppressWarnings("deprecation")
+    private static final Provider PROVIDER = new Provider("SidecarReloading", 1.0, "Reloading key managers")
+    {
+    };
+
+    private final Vertx vertx;
+    private final Configuration config;
+    private Store keyStore;
+    private Store trustStore;
+    private ReloadingKeyManager keyManager;
+    private ReloadingTrustManager trustManager;
+    private long timerId = -1;
+
+    @Inject
+    public KeyStoreReloader(Vertx vertx, Configuration config)
+    {
+        this.vertx = vertx;
+        this.config = config;
+    }
+
+    /**
+     * @param openSsl whether the OpenSSL engine will use the key manager, in which case its key material is cached
+     * @return options serving the keystore, loaded on the first call
+     */
+    public synchronized KeyCertOptions keyCertOptions(boolean openSsl) throws IOException, GeneralSecurityException
+    {
+        if (keyManager == null)
+        {
+            keyStore = new Store(config.getKeyStorePath(), config.getKeystorePassword());
+            keyManager = new ReloadingKeyManager(keyManager(keyStore.load(), keyStore.password));
+        }
+        KeyManagerFactory factory = new SingleKeyManagerFactory(keyManager);
+        // safe to cache across reloads only because the key manager's aliases are tagged with their generation
+        return new ReloadingKeyCertOptions(openSsl ? new OpenSslCachingX509KeyManagerFactory(factory) : factory,
+                                           keyManager);
+    }
+
+    /**
+     * @return options serving the truststore, loaded on the first call
+     */
+    public synchronized TrustOptions trustOptions() throws IOException, GeneralSecurityException
+    {
+        if (trustManager == null)
+        {
+            trustStore = new Store(config.getTrustStorePath(), config.getTruststorePassword());
+            trustManager = new ReloadingTrustManager(trustManager(trustStore.load()));
+        }
+        return new ReloadingTrustOptions(trustManager);
+    }
+
+    /**
+     * Starts checking the stores for changes
+     */
+    public synchronized void start()
+    {
+        long interval = TimeUnit.SECONDS.toMillis(config.getSslReloadIntervalSeconds());
+        if (timerId >= 0 || interval <= 0 || (keyManager == null && trustManager == null))
+            return;
+
+        timerId = vertx.setPeriodic(interval, id ->
+        vertx.<Boolean>executeBlocking(future -> future.complete(reloadIfChanged()), false, ar ->
+        {
+            if (ar.failed())
+                logger.warn("Failed to check the keystores for changes", ar.cause());
+        }));
+    }
+
+    public synchronized void stop()
+    {
+        if (timerId >= 0)
+            vertx.cancelTimer(timerId);
+        timerId = -1;
+    }
+
+    /**
+     * Reloads the stores whose files changed since they were last loaded
+     *
+     * @return whether any store was reloaded
+     */
+    synchronized boolean reloadIfChanged()
+    {
+        boolean reloaded = false;
+        if (keyStore != null && keyStore.changed())
+        {
+            try
+            {
+                keyManager.update(keyManager(keyStore.load(), keyStore.password));
+                logger.info("Reloaded keystore {}", keyStore.path);
+                reloaded = true;
+            }
+            catch (Exception e)
+            {
+                logger.warn("Failed to reload keystore {}, still using the previous one", keyStore.path, e);
+            }
+        }
+        if (trustStore != null && trustStore.changed())
+        {
+            try
+            {
+                trustManager.update(trustManager(trustStore.load()));
+                logger.info("Reloaded truststore {}", trustStore.path);
+                reloaded = true;
+            }
+            catch (Exception e)
+            {
+                logger.warn("Failed to reload truststore {}, still using the previous one", trustStore.path, e);
+            }
+        }
+        return reloaded;
+    }
+
+    private static X509ExtendedKeyManager keyManager(KeyStore store, String password) throws GeneralSecurityException
+    {
+        KeyManagerFactory factory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        factory.init(store, password.toCharArray());
+        for (KeyManager manager : factory.getKeyManagers())
+        {
+            if (manager instanceof X509ExtendedKeyManager)
+                return (X509ExtendedKeyManager) manager;
+        }
+        throw new GeneralSecurityException("No X.509 key manager for " + factory.getAlgorithm());
+    }
+
+    private static X509ExtendedTrustManager trustManager(KeyStore store) throws GeneralSecurityException
+    {
+        TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        factory.init(store);
+        for (TrustManager manager : factory.getTrustManagers())
+        {
+            if (manager instanceof X509ExtendedTrustManager)
+                return (X509ExtendedTrustManager) manager;
+        }
+        throw new GeneralSecurityException("No X.509 trust manager for " + factory.getAlgorithm());
+    }
+
+    /**
+     * A keystore file and the state it was last loaded in
+     */
+    private static class Store
+    {
+        private final String path;
+        private final String password;
+        @Nullable
+        private Object loadedKey;
+
+        Store(String path, String password)
+        {
+            this.path = path;
+            this.password = password;
+        }
+
+        KeyStore load() throws IOException, GeneralSecurityException
+        {
+            Object key = fileKey();
+            KeyStore store = SslUtils.loadKeyStore(path, password);
+            loadedKey = key;
+            return store;
+        }
+
+        boolean changed()
+        {
+            try
+            {
+                return !fileKey().equals(loadedKey);
+            }
+            catch (IOException e)
+            {
+                logger.warn("Failed to check {} for changes", path, e);
+                return false;
+            }
+        }
+
+        private Object fileKey() throws IOException
+        {
+            Path file = Paths.get(path).toRealPath();
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return file + ":" + attributes.lastModifiedTime().toMillis() + ':' + attributes.size();
+        }
+    }
+
+    /**
+     * Serves a single key manager
+     */
+    private static class SingleKeyManagerFactory extends KeyManagerFactory
+    {
+        SingleKeyManagerFactory(KeyManager manager)
+        {
+            super(new KeyManagerFactorySpi()
+            {
+                @Override
+                protected void engineInit(KeyStore store, char[] password)
+                {
+                }
+
+                @Override
+                protected void engineInit(ManagerFactoryParameters parameters)
+                {
+                }
+
+                @Override
+                protected KeyManager[] engineGetKeyManagers()
+                {
+                    return new KeyManager[]{ manager };
+                }
+            }, PROVIDER, "Reloading");
+        }
+    }
+
+    /**
+     * Key options which can be copied freely, as Vert.x does, since all copies share the reloading key manager
+     */
+    private static class ReloadingKeyCertOptions implements KeyCertOptions
+    {
+        private final KeyManagerFactory factory;
+        private final X509KeyManager manager;
+
+        ReloadingKeyCertOptions(KeyManagerFactory factory, X509KeyManager manager)
+        {
+            this.factory = factory;
+            this.manager = manager;
+        }
+
+        @Override
+        public KeyCertOptions copy()
+        {
+            return this;
+        }
+
+        /**
+         * Still abstract in Vert.x 3.8, which calls {@link #copy()} instead
+         */
+        @Override
+        @Deprecated
+        public KeyCertOptions clone()
+        {
+            return copy();
+        }
+
+        @Override
+        public KeyManagerFactory getKeyManagerFactory(Vertx vertx)
+        {
+            return factory;
+        }
+
+        @Override
+        public Function<String, X509KeyManager> keyManagerMapper(Vertx vertx)
+        {
+            return serverName -> manager;
+        }
+    }
+
+    /**
+     * Trust options which can be copied freely, since all copies share the reloading trust manager
+     */
+    private static class ReloadingTrustOptions implements TrustOptions
+    {
+        private final TrustManager[] managers;
+
+        ReloadingTrustOptions(TrustManager manager)
+        {
+            this.managers = new TrustManager[]{ manager };
+        }
+
+        @Override
+        public TrustOptions copy()
+        {
+            return this;
+        }
+
+        /**
+         * Still abstract in Vert.x 3.8, which calls {@link #copy()} instead
+         */
+        @Override
+        @Deprecated
+        public TrustOptions clone()
+        {
+            return copy();
+        }
+
+        @Override
+        public TrustManagerFactory getTrustManagerFactory(Vertx vertx)
+        {
+            return new SimpleTrustManagerFactory()
+            {
+                @Override
+                protected void engineInit(KeyStore store)
+                {
+                }
+
+                @Override
+                protected void engineInit(ManagerFactoryParameters parameters)
+                {
+                }
+
+                @Override
+                protected TrustManager[] engineGetTrustManagers()
+                {
+                    return managers.clone();
+                }
+            };
+        }
+
+        @Override
+        public Function<String, TrustManager[]> trustManagerMapper(Vertx vertx)
+        {
+            return serverName -> managers.clone();
+        }
+    }
+}
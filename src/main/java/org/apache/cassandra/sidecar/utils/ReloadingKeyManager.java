@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.utils;
+
+import java.net.Socket;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedKeyManager;
+
+/**
+ * A key manager which can be swapped for a freshly loaded one while the server is running, so rotated certificates
+ * are used for new TLS handshakes without dropping established connections.
+ *
+ * The aliases handed out are tagged with the generation of the key manager which chose them.  A handshake which races
+ * with an update still gets its certificate chain and private key from the same key manager, and caches keyed by
+ * alias, like the one Netty keeps for OpenSSL, don't serve the old key material after an update.
+ */
+public class ReloadingKeyManager extends X509ExtendedKeyManager
+{
+    private static final char GENERATION_SEPARATOR = '@';
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    public ReloadingKeyManager(X509ExtendedKeyManager manager)
+    {
+        current = new Generation(0, manager);
+    }
+
+    /**
+     * Makes new handshakes use the key manager
+     */
+    public synchronized void update(X509ExtendedKeyManager manager)
+    {
+        Generation next = new Generation(current.number + 1, manager);
+        previous = current;
+        current = next;
+    }
+
+    @Override
+    public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket)
+    {
+        Generation generation = current;
+        return generation.tag(generation.manager.chooseServerAlias(keyType, issuers, socket));
+    }
+
+    @Override
+    public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine)
+    {
+        Generation generation = current;
+        return generation.tag(generation.manager.chooseEngineServerAlias(keyType, issuers, engine));
+    }
+
+    @Override
+    public String chooseClientAlias(String[] keyTypes, Principal[] issuers, Socket socket)
+    {
+        Generation generation = current;
+        return generation.tag(generation.manager.chooseClientAlias(keyTypes, issuers, socket));
+    }
+
+    @Override
+    public String chooseEngineClientAlias(String[] keyTypes, Principal[] issuers, SSLEngine engine)
+    {
+        Generation generation = current;
+        return generation.tag(generation.manager.chooseEngineClientAlias(keyTypes, issuers, engine));
+    }
+
+    @Override
+    public String[] getServerAliases(String keyType, Principal[] issuers)
+    {
+        Generation generation = current;
+        return generation.tag(generation.manager.getServerAliases(keyType, issuers));
+    }
+
+    @Override
+    public String[] getClientAliases(String keyType, Principal[] issuers)
+    {
+        Generation generation = current;
+        return generation.tag(generation.manager.getClientAliases(keyType, issuers));
+    }
+
+    @Override
+    public X509Certificate[] getCertificateChain(String alias)
+    {
+        Generation generation = generation(alias);
+        return generation != null ? generation.manager.getCertificateChain(untag(alias)) : null;
+    }
+
+    @Override
+    public PrivateKey getPrivateKey(String alias)
+    {
+        Generation generation = generation(alias);
+        return generation != null ? generation.manager.getPrivateKey(untag(alias)) : null;
+    }
+
+    /**
+     * @return the key manager which chose the alias, or null if it's been replaced twice since
+     */
+    private Generation generation(String alias)
+    {
+        if (alias == null)
+            return null;
+        int separator = alias.lastIndexOf(GENERATION_SEPARATOR);
+        if (separator < 0)
+            return null;
+
+        long number;
+        try
+        {
+            number = Long.parseLong(alias.substring(separator + 1));
+        }
+        catch (NumberFormatException e)
+        {
+            return null;
+        }
+        Generation generation = current;
+        if (generation.number == number)
+            return generation;
+        generation = previous;
+        return generation != null && generation.number == number ? generation : null;
+    }
+
+    private static String untag(String alias)
+    {
+        return alias.substring(0, alias.lastIndexOf(GENERATION_SEPARATOR));
+    }
+
+    /**
+     * A key manager and the number of updates which preceded it
+     */
+    private static class Generation
+    {
+        private final long number;
+        private final X509ExtendedKeyManager manager;
+
+        Generation(long number, X509ExtendedKeyManager manager)
+        {
+            this.number = number;
+            this.manager = manager;
+        }
+
+        String tag(String alias)
+        {
+            return alias != null ? alias + GENERATION_SEPARATOR + number : null;
+        }
+
+        String[] tag(String[] aliases)
+        {
+            if (aliases == null)
+                return null;
+            String[] tagged = new String[aliases.length];
+            for (int i = 0; i < aliases.length; i++)
+                tagged[i] = tag(aliases[i]);
+            return tagged;
+        }
+    }
+}
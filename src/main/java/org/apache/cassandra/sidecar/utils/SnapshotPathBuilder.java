@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.utils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.ImmutableList;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import org.apache.cassandra.sidecar.Configuration;
+import org.apache.cassandra.sidecar.concurrent.WorkerPool;
+import org.apache.cassandra.sidecar.concurrent.WorkerPools;
+
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateComponentName;
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateKeyspaceName;
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateSnapshotName;
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateTableName;
+
+/**
+ * Resolves SSTable components inside a snapshot to files under the configured Cassandra data directories.
+ *
+ * Every name is validated against the characters Cassandra allows before it is used to build a path, and the
+ * resolved path must still be inside a data directory, so requests can't escape into the rest of the filesystem.
+ */
+@Singleton
+public class SnapshotPathBuilder
+{
+    private final WorkerPools workerPools;
+    private final List<Path> dataDirs;
+
+    @Inject
+    public SnapshotPathBuilder(WorkerPools workerPools, Configuration config)
+    {
+        this.workerPools = workerPools;
+        this.dataDirs = ImmutableList.copyOf(config.getDataDirs()
+                                                   .stream()
+                                                   .map(dir -> Paths.get(dir).toAbsolutePath().normalize())
+                                                   .collect(Collectors.toList()));
+    }
+
+    /**
+     * Resolves the component on the {@link WorkerPool#DISK} pool, since it needs to list directories
+     *
+     * @param resultHandler completed with the file, or failed with an {@link IllegalArgumentException} for invalid
+     *                      names and a {@link FileNotFoundException} if the component doesn't exist
+     */
+    public void build(String keyspace, String table, String snapshot, String component,
+                      Handler<AsyncResult<File>> resultHandler)
+    {
+        workerPools.executeBlocking(WorkerPool.DISK, () -> build(keyspace, table, snapshot, component), resultHandler);
+    }
+
+    /**
+     * Blocking variant of {@link #build(String, String, String, String, Handler)}
+     */
+    public File build(String keyspace, String table, String snapshot, String component) throws FileNotFoundException
+    {
+        validateKeyspaceName(keyspace);
+        validateTableName(table);
+        validateSnapshotName(snapshot);
+        validateComponentName(component);
+
+        for (Path dataDir : dataDirs)
+        {
+            // table directories are suffixed with the table id, e.g. my_table-1b255f4def2540a60000000000000005
+            File[] tableDirs = dataDir.resolve(keyspace)
+                                      .toFile()
+                                      .listFiles((dir, name) -> name.equals(table) || name.startsWith(table + "-"));
+            if (tableDirs == null)
+                continue;
+
+            for (File tableDir : tableDirs)
+            {
+                Path path = tableDir.toPath().resolve("snapshots").resolve(snapshot).resolve(component).normalize();
+                if (!path.startsWith(dataDir))
+                    throw new IllegalArgumentException("Resolved path is outside of the data directories: " + path);
+                if (Files.isRegularFile(path))
+                    return path.toFile();
+            }
+        }
+        throw new FileNotFoundException(String.format("Component %s not found in snapshot %s of %s.%s",
+                                                      component, snapshot, keyspace, table));
+    }
+}
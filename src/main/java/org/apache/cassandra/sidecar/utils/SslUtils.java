@@ -44,6 +44,25 @@ public class SslUtils
                                                                                             NoSuchAlgorithmException,
                                                                                             IOException,
                                                                                             CertificateException
+    {
+        loadKeyStore(keyStorePath, keystorePassword);
+    }
+
+    /**
+     * Loads a PKCS12 or JKS keystore, depending on the file's extension
+     *
+     * @param keyStorePath
+     * @param keystorePassword
+     * @return the loaded keystore
+     * @throws KeyStoreException
+     * @throws NoSuchAlgorithmException
+     * @throws IOException
+     * @throws CertificateException
+     */
+    public static KeyStore loadKeyStore(String keyStorePath, String keystorePassword) throws KeyStoreException,
+                                                                                          NoSuchAlgorithmException,
+                                                                                          IOException,
+                                                                                          CertificateException
     {
         final KeyStore ks;
 
@@ -58,5 +77,6 @@ public class SslUtils
         {
             ks.load(keystore, keystorePassword.toCharArray());
         }
+        return ks;
     }
 }
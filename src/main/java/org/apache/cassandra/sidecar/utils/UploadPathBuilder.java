@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.utils;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.cassandra.sidecar.Configuration;
+
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateComponentName;
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateKeyspaceName;
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateTableName;
+import static org.apache.cassandra.sidecar.utils.CassandraInputValidator.validateUploadId;
+
+/**
+ * Resolves where uploaded SSTable components are staged before they are imported into Cassandra.  Each upload gets
+ * its own directory, laid out as {@code staging_dir/upload_id/keyspace/table/component} so that the
+ * table directory can be handed to Cassandra's import as is.
+ */
+@Singleton
+public class UploadPathBuilder
+{
+    private final Path stagingDir;
+
+    @Inject
+    public UploadPathBuilder(Configuration config)
+    {
+        this.stagingDir = Paths.get(config.getStagingDir()).toAbsolutePath().normalize();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the upload id is invalid
+     */
+    public File uploadDirectory(String uploadId)
+    {
+        return stagingDir.resolve(validateUploadId(uploadId)).toFile();
+    }
+
+    /**
+     * @throws IllegalArgumentException if any of the names are invalid
+     */
+    public File tableDirectory(String uploadId, String keyspace, String table)
+    {
+        return new File(new File(uploadDirectory(uploadId), validateKeyspaceName(keyspace)), validateTableName(table));
+    }
+
+    /**
+     * @throws IllegalArgumentException if any of the names are invalid
+     */
+    public File component(String uploadId, String keyspace, String table, String component)
+    {
+        return new File(tableDirectory(uploadId, keyspace, table), validateComponentName(component));
+    }
+}
@@ -35,7 +35,6 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.util.Modules;
 import io.vertx.core.Vertx;
-import io.vertx.core.http.HttpServer;
 import io.vertx.core.net.JksOptions;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
@@ -54,7 +53,7 @@ public abstract class AbstractHealthServiceTest
     private HealthService service;
     private Vertx vertx;
     private Configuration config;
-    private HttpServer server;
+    private CassandraSidecarDaemon daemon;
     private CassandraAdapterDelegate cassandra;
 
     public abstract boolean isSslEnabled();
@@ -71,7 +70,7 @@ public abstract class AbstractHealthServiceTest
     void setUp() throws InterruptedException
     {
         Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(getTestModule()));
-        server = injector.getInstance(HttpServer.class);
+        daemon = injector.getInstance(CassandraSidecarDaemon.class);
         cassandra = injector.getInstance(CassandraAdapterDelegate.class);
 
         service = injector.getInstance(HealthService.class);
@@ -79,7 +78,7 @@ public abstract class AbstractHealthServiceTest
         config = injector.getInstance(Configuration.class);
 
         VertxTestContext context = new VertxTestContext();
-        server.listen(config.getPort(), context.completing());
+        daemon.start(context.completing());
 
         context.awaitCompletion(5, TimeUnit.SECONDS);
     }
@@ -88,8 +87,8 @@ public abstract class AbstractHealthServiceTest
     void tearDown() throws InterruptedException
     {
         final CountDownLatch closeLatch = new CountDownLatch(1);
-        server.close(res -> closeLatch.countDown());
-        vertx.close();
+        // closing Vert.x undeploys the server verticles
+        vertx.close(res -> closeLatch.countDown());
         if (closeLatch.await(60, TimeUnit.SECONDS))
             logger.info("Close event received before timeout.");
         else
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.net.InetAddress;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.common.ClusterStatus;
+import org.apache.cassandra.sidecar.common.HealthSnapshot;
+import org.apache.cassandra.sidecar.common.NodeStatus;
+import org.apache.cassandra.sidecar.routes.ChangeFeed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests pushing health and node changes to streaming and long-polling clients
+ */
+@DisplayName("Change Stream Test")
+@ExtendWith(VertxExtension.class)
+public class ChangeStreamTest
+{
+    private static final UUID HOST_ID = UUID.fromString("3a9e7ae5-8f0c-4b0e-9d8c-6f2a8f0e4c11");
+    private Vertx vertx;
+    private Configuration config;
+    private CassandraAdapterDelegate delegate;
+    private ChangeFeed feed;
+
+    @BeforeEach
+    void setUp() throws InterruptedException
+    {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new TestModule()));
+        CassandraSidecarDaemon daemon = injector.getInstance(CassandraSidecarDaemon.class);
+        vertx = injector.getInstance(Vertx.class);
+        config = injector.getInstance(Configuration.class);
+        delegate = injector.getInstance(CassandraAdapterDelegate.class);
+        feed = injector.getInstance(ChangeFeed.class);
+        when(delegate.getHealth()).thenReturn(new HealthSnapshot(true, null, 1));
+        when(delegate.getClusterStatus()).thenReturn(ClusterStatus.EMPTY);
+        when(delegate.isUp()).thenReturn(true);
+
+        VertxTestContext context = new VertxTestContext();
+        daemon.start(context.completing());
+        context.awaitCompletion(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        final CountDownLatch closeLatch = new CountDownLatch(1);
+        vertx.close(res -> closeLatch.countDown());
+        closeLatch.await(60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testServerSentEvents(VertxTestContext context)
+    {
+        HttpClient client = vertx.createHttpClient();
+        Buffer received = Buffer.buffer();
+        client.getNow(config.getPort(), "localhost", "/api/v1/events", response ->
+        {
+            assertEquals("text/event-stream", response.getHeader("Content-Type"));
+            response.handler(chunk ->
+            {
+                received.appendBuffer(chunk);
+                String events = received.toString();
+                if (events.contains("event: health\n") && !events.contains("event: node\n"))
+                    feed.onNodeChange(node(NodeStatus.State.DOWN));
+                if (events.contains("event: node\n"))
+                {
+                    context.verify(() -> assertTrue(events.contains("\"state\":\"DOWN\"")));
+                    client.close();
+                    context.completeNow();
+                }
+            });
+        });
+    }
+
+    @Test
+    void testWebSocket(VertxTestContext context)
+    {
+        vertx.createHttpClient().webSocket(config.getPort(), "localhost", "/api/v1/events",
+                                           context.succeeding(webSocket -> webSocket.textMessageHandler(message ->
+        {
+            JsonObject event = new JsonObject(message);
+            if ("health".equals(event.getString("event")))
+            {
+                context.verify(() -> assertTrue(event.getJsonObject("data").getBoolean("up")));
+                feed.onNodeRemoved(HOST_ID);
+            }
+            else
+            {
+                context.verify(() ->
+                {
+                    assertEquals("removed", event.getString("event"));
+                    assertEquals(HOST_ID.toString(), event.getJsonObject("data").getString("hostId"));
+                });
+                webSocket.close();
+                context.completeNow();
+            }
+        })));
+    }
+
+    @Test
+    void testLongPoll(VertxTestContext context)
+    {
+        WebClient client = WebClient.create(vertx);
+        client.get(config.getPort(), "localhost", "/api/v1/__health")
+              .send(context.succeeding(first ->
+              {
+                  String etag = first.getHeader("ETag");
+                  client.get(config.getPort(), "localhost", "/api/v1/__health")
+                        .addQueryParam("waitForChange", etag)
+                        .send(context.succeeding(response -> context.verify(() ->
+                        {
+                            assertEquals(503, response.statusCode());
+                            assertNotEquals(etag, response.getHeader("ETag"));
+                            context.completeNow();
+                        })));
+                  vertx.setTimer(200, id ->
+                  {
+                      when(delegate.isUp()).thenReturn(false);
+                      feed.onHealthChange(new HealthSnapshot(false, null, 2));
+                  });
+              }));
+    }
+
+    private static NodeStatus node(NodeStatus.State state)
+    {
+        InetAddress address = InetAddress.getLoopbackAddress();
+        return new NodeStatus(HOST_ID, address, 7000, address, 9042, "datacenter1", "rack1", "4.0.0", state);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.common.ClusterStatus;
+import org.apache.cassandra.sidecar.common.NodeStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests serving the cached cluster status
+ */
+@DisplayName("Cluster Status Test")
+@ExtendWith(VertxExtension.class)
+public class ClusterStatusServiceTest
+{
+    private static final String ROUTE = "/api/v1/cassandra/status";
+    private static final UUID HOST_ID = UUID.fromString("3a9e7ae5-8f0c-4b0e-9d8c-6f2a8f0e4c11");
+    private Vertx vertx;
+    private Configuration config;
+    private CassandraAdapterDelegate delegate;
+
+    @BeforeEach
+    void setUp() throws InterruptedException
+    {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new TestModule()));
+        CassandraSidecarDaemon daemon = injector.getInstance(CassandraSidecarDaemon.class);
+        vertx = injector.getInstance(Vertx.class);
+        config = injector.getInstance(Configuration.class);
+        delegate = injector.getInstance(CassandraAdapterDelegate.class);
+
+        VertxTestContext context = new VertxTestContext();
+        daemon.start(context.completing());
+        context.awaitCompletion(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        final CountDownLatch closeLatch = new CountDownLatch(1);
+        vertx.close(res -> closeLatch.countDown());
+        closeLatch.await(60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testNotLoaded(VertxTestContext context)
+    {
+        when(delegate.getClusterStatus()).thenReturn(ClusterStatus.EMPTY);
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", ROUTE)
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(503, response.statusCode());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testStatus(VertxTestContext context)
+    {
+        when(delegate.getClusterStatus()).thenReturn(status());
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", ROUTE)
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     JsonObject body = response.bodyAsJsonObject();
+                     assertEquals(1L, body.getLong("version").longValue());
+                     JsonObject node = body.getJsonArray("nodes").getJsonObject(0);
+                     assertEquals(HOST_ID.toString(), node.getString("hostId"));
+                     assertEquals("127.0.0.1", node.getString("address"));
+                     assertEquals("datacenter1", node.getString("datacenter"));
+                     assertEquals("UP", node.getString("state"));
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testNotModified(VertxTestContext context)
+    {
+        when(delegate.getClusterStatus()).thenReturn(status());
+        WebClient client = WebClient.create(vertx);
+        client.get(config.getPort(), "localhost", ROUTE)
+              .send(context.succeeding(first ->
+              {
+                  String etag = first.getHeader("ETag");
+                  client.get(config.getPort(), "localhost", ROUTE)
+                        .putHeader("If-None-Match", etag)
+                        .send(context.succeeding(response -> context.verify(() ->
+                        {
+                            assertEquals(304, response.statusCode());
+                            assertEquals(etag, response.getHeader("ETag"));
+                            context.completeNow();
+                        })));
+              }));
+    }
+
+    private static ClusterStatus status()
+    {
+        InetAddress address = InetAddress.getLoopbackAddress();
+        NodeStatus node = new NodeStatus(HOST_ID, address, 7000, address, 9042, "datacenter1", "rack1", "4.0.0",
+                                         NodeStatus.State.UP);
+        return ClusterStatus.EMPTY.withNodes(Collections.singletonList(node), 1);
+    }
+}
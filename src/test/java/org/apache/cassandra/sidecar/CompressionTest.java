@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.common.ClusterStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the precompressed OpenAPI definition and response compression
+ */
+@DisplayName("Compression Test")
+@ExtendWith(VertxExtension.class)
+public class CompressionTest
+{
+    private static final String OPENAPI = "/api/v1/schema/openapi.json";
+    private Vertx vertx;
+    private Configuration config;
+    private CassandraAdapterDelegate delegate;
+
+    @BeforeEach
+    void setUp() throws InterruptedException
+    {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new TestModule()
+        {
+            @Override
+            protected Configuration abstractConfig()
+            {
+                return new Configuration.Builder()
+                       .setCassandraHost("INVALID_FOR_TEST")
+                       .setCassandraPort(0)
+                       .setDataDirs(Collections.singletonList(dataDir()))
+                       .setStagingDir(stagingDir())
+                       .setHost("127.0.0.1")
+                       .setPort(6475)
+                       .setHealthCheckFrequency(1000)
+                       .setCompressionEnabled(true)
+                       .build();
+            }
+        }));
+        CassandraSidecarDaemon daemon = injector.getInstance(CassandraSidecarDaemon.class);
+        vertx = injector.getInstance(Vertx.class);
+        config = injector.getInstance(Configuration.class);
+        delegate = injector.getInstance(CassandraAdapterDelegate.class);
+
+        VertxTestContext context = new VertxTestContext();
+        daemon.start(context.completing());
+        context.awaitCompletion(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        final CountDownLatch closeLatch = new CountDownLatch(1);
+        vertx.close(res -> closeLatch.countDown());
+        closeLatch.await(60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testPrecompressedOpenApi(VertxTestContext context)
+    {
+        WebClient client = WebClient.create(vertx);
+        client.get(config.getPort(), "localhost", OPENAPI)
+              .send(context.succeeding(plain -> client.get(config.getPort(), "localhost", OPENAPI)
+                                                      .putHeader("Accept-Encoding", "deflate, gzip;q=0.8")
+                                                      .send(context.succeeding(gzipped -> context.verify(() ->
+              {
+                  assertEquals(200, gzipped.statusCode());
+                  assertEquals("gzip", gzipped.getHeader("Content-Encoding"));
+                  assertNotEquals(plain.getHeader("ETag"), gzipped.getHeader("ETag"));
+                  assertTrue(gzipped.body().length() < plain.body().length());
+                  assertEquals(plain.bodyAsString(), gunzip(gzipped.body()));
+                  assertTrue(plain.bodyAsJsonObject().containsKey("openapi"));
+                  context.completeNow();
+              })))));
+    }
+
+    @Test
+    void testOpenApiNotModified(VertxTestContext context)
+    {
+        WebClient client = WebClient.create(vertx);
+        client.get(config.getPort(), "localhost", OPENAPI)
+              .send(context.succeeding(first -> client.get(config.getPort(), "localhost", OPENAPI)
+                                                      .putHeader("Accept-Encoding", "gzip")
+                                                      .putHeader("If-None-Match", first.getHeader("ETag"))
+                                                      .send(context.succeeding(response -> context.verify(() ->
+              {
+                  assertEquals(304, response.statusCode());
+                  assertEquals(0, response.body() == null ? 0 : response.body().length());
+                  context.completeNow();
+              })))));
+    }
+
+    @Test
+    void testCompressesLargeResponses(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", "/metrics")
+                 .putHeader("Accept-Encoding", "gzip")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     assertEquals("gzip", response.getHeader("Content-Encoding"));
+                     assertTrue(gunzip(response.body()).contains("# TYPE "));
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testLeavesSmallResponses(VertxTestContext context)
+    {
+        when(delegate.getClusterStatus()).thenReturn(ClusterStatus.EMPTY);
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", "/api/v1/cassandra/status")
+                 .putHeader("Accept-Encoding", "gzip")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(503, response.statusCode());
+                     assertNotEquals("gzip", response.getHeader("Content-Encoding"));
+                     context.completeNow();
+                 })));
+    }
+
+    private static String gunzip(Buffer buffer) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(buffer.getBytes())))
+        {
+            byte[] chunk = new byte[4096];
+            int read;
+            while ((read = in.read(chunk)) > 0)
+                out.write(chunk, 0, read);
+        }
+        return new String(out.toByteArray(), "UTF-8");
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.codec.BodyCodec;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests serving requests over cleartext HTTP/2
+ */
+@DisplayName("HTTP/2 Test")
+@ExtendWith(VertxExtension.class)
+public class Http2Test
+{
+    private static final String ROUTE = "/api/v1/keyspace/TestKeyspace/table/TestTable/snapshots/TestSnapshot" +
+                                        "/component/";
+    private final List<Vertx> started = new ArrayList<>();
+    private Vertx vertx;
+    private Configuration config;
+    private WebClient client;
+
+    @BeforeEach
+    void setUp() throws InterruptedException
+    {
+        config = start(new TestModule());
+        vertx = started.get(0);
+
+        // prior knowledge, so every request is multiplexed over one connection rather than upgraded
+        client = WebClient.create(vertx, new WebClientOptions().setProtocolVersion(HttpVersion.HTTP_2)
+                                                               .setHttp2ClearTextUpgrade(false)
+                                                               .setHttp2MaxPoolSize(1));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        final CountDownLatch closeLatch = new CountDownLatch(started.size());
+        started.forEach(v -> v.close(res -> closeLatch.countDown()));
+        closeLatch.await(60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testStreamComponent(VertxTestContext context)
+    {
+        client.get(config.getPort(), "localhost", ROUTE + "nb-1-big-Data.db")
+              .as(BodyCodec.string())
+              .send(context.succeeding(response -> context.verify(() ->
+              {
+                  assertEquals(HttpVersion.HTTP_2, response.version());
+                  assertEquals(200, response.statusCode());
+                  assertEquals("data", response.body());
+                  context.completeNow();
+              })));
+    }
+
+    @Test
+    void testSingleRange(VertxTestContext context)
+    {
+        client.get(config.getPort(), "localhost", ROUTE + "nb-1-big-Index.db")
+              .putHeader("Range", "bytes=1-3")
+              .as(BodyCodec.string())
+              .send(context.succeeding(response -> context.verify(() ->
+              {
+                  assertEquals(HttpVersion.HTTP_2, response.version());
+                  assertEquals(206, response.statusCode());
+                  assertEquals("nde", response.body());
+                  context.completeNow();
+              })));
+    }
+
+    @Test
+    void testConcurrentStreams(VertxTestContext context)
+    {
+        int requests = 50;
+        Checkpoint responses = context.checkpoint(requests);
+        for (int i = 0; i < requests; i++)
+        {
+            client.get(config.getPort(), "localhost", ROUTE + "nb-1-big-Data.db")
+                  .as(BodyCodec.string())
+                  .send(context.succeeding(response -> context.verify(() ->
+                  {
+                      assertEquals(HttpVersion.HTTP_2, response.version());
+                      assertEquals("data", response.body());
+                      responses.flag();
+                  })));
+        }
+    }
+
+    @Test
+    void testUpgrade(VertxTestContext context) throws InterruptedException
+    {
+        // Vert.x 3.8 leaves out the server's settings on upgraded connections when compression is enabled
+        Configuration uncompressed = start(new TestModule()
+        {
+            @Override
+            protected Configuration abstractConfig()
+            {
+                return new Configuration.Builder()
+                       .setCassandraHost("INVALID_FOR_TEST")
+                       .setCassandraPort(0)
+                       .setDataDirs(config.getDataDirs())
+                       .setStagingDir(stagingDir())
+                       .setHost("127.0.0.1")
+                       .setPort(config.getPort() + 1)
+                       .setHealthCheckFrequency(1000)
+                       .setCompressionEnabled(false)
+                       .build();
+            }
+        });
+
+        WebClient.create(vertx, new WebClientOptions().setProtocolVersion(HttpVersion.HTTP_2))
+                 .get(uncompressed.getPort(), "localhost", ROUTE + "nb-1-big-Data.db")
+                 .as(BodyCodec.string())
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(HttpVersion.HTTP_2, response.version());
+                     assertEquals("data", response.body());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testDisabled(VertxTestContext context) throws InterruptedException
+    {
+        Configuration http1 = start(new TestModule()
+        {
+            @Override
+            protected Configuration abstractConfig()
+            {
+                return new Configuration.Builder()
+                       .setCassandraHost("INVALID_FOR_TEST")
+                       .setCassandraPort(0)
+                       .setDataDirs(config.getDataDirs())
+                       .setStagingDir(stagingDir())
+                       .setHost("127.0.0.1")
+                       .setPort(config.getPort() + 2)
+                       .setHealthCheckFrequency(1000)
+                       .setHttp2Enabled(false)
+                       .build();
+            }
+        });
+
+        // without setting the JVM-wide property, which would turn h2c off for every other server too
+        assertNull(System.getProperty("vertx.disableH2c"));
+        client.get(http1.getPort(), "localhost", ROUTE + "nb-1-big-Data.db")
+              .send(context.failing(rejected -> WebClient.create(vertx)
+                                                         .get(http1.getPort(), "localhost", ROUTE + "nb-1-big-Data.db")
+                                                         .as(BodyCodec.string())
+                                                         .send(context.succeeding(response -> context.verify(() ->
+              {
+                  assertEquals(HttpVersion.HTTP_1_1, response.version());
+                  assertEquals("data", response.body());
+                  context.completeNow();
+              })))));
+    }
+
+    private Configuration start(TestModule module) throws InterruptedException
+    {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(module));
+        CassandraSidecarDaemon daemon = injector.getInstance(CassandraSidecarDaemon.class);
+        started.add(injector.getInstance(Vertx.class));
+
+        VertxTestContext context = new VertxTestContext();
+        daemon.start(context.completing());
+        context.awaitCompletion(5, TimeUnit.SECONDS);
+        return injector.getInstance(Configuration.class);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests scraping the sidecar's metrics
+ */
+@DisplayName("Metrics Test")
+@ExtendWith(VertxExtension.class)
+public class MetricsServiceTest
+{
+    private Vertx vertx;
+    private Configuration config;
+
+    @BeforeEach
+    void setUp() throws InterruptedException
+    {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new TestModule()));
+        CassandraSidecarDaemon daemon = injector.getInstance(CassandraSidecarDaemon.class);
+        vertx = injector.getInstance(Vertx.class);
+        config = injector.getInstance(Configuration.class);
+
+        VertxTestContext context = new VertxTestContext();
+        daemon.start(context.completing());
+        context.awaitCompletion(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        final CountDownLatch closeLatch = new CountDownLatch(1);
+        vertx.close(res -> closeLatch.countDown());
+        closeLatch.await(60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testScrape(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", "/metrics")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     assertTrue(response.getHeader("Content-Type").startsWith("text/plain; version=0.0.4"));
+                     String body = response.bodyAsString();
+                     assertTrue(body.contains("# TYPE vertx_http_servers_"), body);
+                     assertTrue(body.contains("# TYPE vertx_pools_worker_"), body);
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testRequestLatency(VertxTestContext context)
+    {
+        WebClient client = WebClient.create(vertx);
+        client.get(config.getPort(), "localhost", "/api/v1/keyspace/ks/replicas")
+              .send(context.succeeding(first -> client.get(config.getPort(), "localhost", "/metrics")
+                                                      .send(context.succeeding(response -> context.verify(() ->
+              {
+                  String body = response.bodyAsString();
+                  assertTrue(body.contains("# TYPE sidecar_http_request_duration_seconds summary"), body);
+                  String labels = "route=\"/api/v1/keyspace/:keyspace/replicas\",status=\"400\"";
+                  assertTrue(body.contains("sidecar_http_request_duration_seconds{" + labels + ",quantile=\"0.99\"}"),
+                             body);
+                  assertTrue(body.contains("sidecar_http_request_duration_seconds_count{" + labels + "} 1\n"), body);
+                  context.completeNow();
+              })))));
+    }
+}
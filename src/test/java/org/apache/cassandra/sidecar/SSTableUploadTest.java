@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests uploading SSTable components and importing them
+ */
+@DisplayName("SSTable Upload Test")
+@ExtendWith(VertxExtension.class)
+public class SSTableUploadTest
+{
+    private static final String UPLOAD = "/api/v1/uploads/upload1";
+    private static final String TABLE = UPLOAD + "/keyspace/TestKeyspace/table/TestTable";
+    private static final byte[] CONTENT = "sstable data".getBytes(StandardCharsets.UTF_8);
+    private Vertx vertx;
+    private Configuration config;
+    private CassandraAdapterDelegate delegate;
+    private CassandraSidecarDaemon daemon;
+
+    @BeforeEach
+    void setUp() throws InterruptedException
+    {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new TestModule()));
+        daemon = injector.getInstance(CassandraSidecarDaemon.class);
+        vertx = injector.getInstance(Vertx.class);
+        config = injector.getInstance(Configuration.class);
+        delegate = injector.getInstance(CassandraAdapterDelegate.class);
+
+        VertxTestContext context = new VertxTestContext();
+        daemon.start(context.completing());
+        context.awaitCompletion(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        final CountDownLatch closeLatch = new CountDownLatch(1);
+        vertx.fileSystem().deleteRecursiveBlocking(config.getStagingDir(), true);
+        vertx.close(res -> closeLatch.countDown());
+        closeLatch.await(60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testUpload(VertxTestContext context) throws Exception
+    {
+        String checksum = md5(CONTENT);
+        WebClient.create(vertx)
+                 .put(config.getPort(), "localhost", TABLE + "/component/nb-1-big-Data.db")
+                 .putHeader("Content-MD5", checksum)
+                 .sendBuffer(Buffer.buffer(CONTENT), context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(201, response.statusCode());
+                     assertEquals(checksum, response.bodyAsJsonObject().getString("checksum"));
+                     File uploaded = stagedFile("nb-1-big-Data.db");
+                     assertEquals("sstable data", new String(Files.readAllBytes(uploaded.toPath()),
+                                                             StandardCharsets.UTF_8));
+                     // nothing is left of the temporary file it was received into
+                     assertEquals(Collections.singletonList("nb-1-big-Data.db"), stagedFiles());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testChecksumMismatch(VertxTestContext context) throws Exception
+    {
+        WebClient.create(vertx)
+                 .put(config.getPort(), "localhost", TABLE + "/component/nb-1-big-Data.db")
+                 .putHeader("Content-MD5", md5("other data".getBytes(StandardCharsets.UTF_8)))
+                 .sendBuffer(Buffer.buffer(CONTENT), context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(400, response.statusCode());
+                     assertEquals(Collections.emptyList(), stagedFiles());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testUploadTooLarge(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .put(config.getPort(), "localhost", TABLE + "/component/nb-1-big-Data.db")
+                 .sendBuffer(Buffer.buffer(new byte[2048]), context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(413, response.statusCode());
+                     assertFalse(stagedFile("nb-1-big-Data.db").exists());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testChunkedUploadTooLarge(VertxTestContext context)
+    {
+        HttpClientRequest request = vertx.createHttpClient()
+                                         .put(config.getPort(), "localhost", TABLE + "/component/nb-1-big-Data.db")
+                                         .setChunked(true);
+        request.handler(response -> context.verify(() ->
+        {
+            assertEquals(413, response.statusCode());
+            assertFalse(stagedFile("nb-1-big-Data.db").exists());
+            context.completeNow();
+        }));
+        request.exceptionHandler(context::failNow);
+        for (int i = 0; i < 4; i++)
+            request.write(Buffer.buffer(new byte[512]));
+        request.end();
+    }
+
+    @Test
+    void testLastChunkTooLarge(VertxTestContext context)
+    {
+        HttpClientRequest request = vertx.createHttpClient()
+                                         .put(config.getPort(), "localhost", TABLE + "/component/nb-1-big-Data.db")
+                                         .setChunked(true);
+        request.handler(response -> context.verify(() ->
+        {
+            assertEquals(413, response.statusCode());
+            assertEquals(Collections.emptyList(), stagedFiles());
+            context.completeNow();
+        }));
+        request.exceptionHandler(context::failNow);
+        // the body goes over the limit in the same read as it ends
+        request.write(Buffer.buffer(new byte[512]));
+        request.end(Buffer.buffer(new byte[1024]));
+    }
+
+    @Test
+    void testInvalidComponentName(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .put(config.getPort(), "localhost", TABLE + "/component/..%2F..%2Fcassandra.yaml")
+                 .sendBuffer(Buffer.buffer(CONTENT), context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(400, response.statusCode());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testImport(VertxTestContext context)
+    {
+        File tableDir = stagedFile("nb-1-big-Data.db").getParentFile();
+        when(delegate.importSSTables("TestKeyspace", "TestTable", tableDir.getPath()))
+        .thenReturn(Collections.emptyList());
+
+        WebClient client = WebClient.create(vertx);
+        client.put(config.getPort(), "localhost", TABLE + "/component/nb-1-big-Data.db")
+              .sendBuffer(Buffer.buffer(CONTENT), context.succeeding(upload ->
+              {
+                  client.post(config.getPort(), "localhost", TABLE + "/import")
+                        .send(context.succeeding(response -> context.verify(() ->
+                        {
+                            assertEquals(200, response.statusCode());
+                            verify(delegate).importSSTables("TestKeyspace", "TestTable", tableDir.getPath());
+                            assertFalse(new File(config.getStagingDir(), "upload1").exists());
+                            context.completeNow();
+                        })));
+              }));
+    }
+
+    @Test
+    void testImportOneTableAtATime(VertxTestContext context)
+    {
+        String otherTable = UPLOAD + "/keyspace/TestKeyspace/table/OtherTable";
+        File tableDir = stagedFile("nb-1-big-Data.db").getParentFile();
+        File otherTableDir = new File(tableDir.getParentFile(), "OtherTable");
+        when(delegate.importSSTables("TestKeyspace", "TestTable", tableDir.getPath()))
+        .thenReturn(Collections.emptyList());
+        when(delegate.importSSTables("TestKeyspace", "OtherTable", otherTableDir.getPath()))
+        .thenReturn(Collections.emptyList());
+
+        WebClient client = WebClient.create(vertx);
+        client.put(config.getPort(), "localhost", TABLE + "/component/nb-1-big-Data.db")
+              .sendBuffer(Buffer.buffer(CONTENT), context.succeeding(first ->
+        client.put(config.getPort(), "localhost", otherTable + "/component/nb-1-big-Data.db")
+              .sendBuffer(Buffer.buffer(CONTENT), context.succeeding(second ->
+        client.post(config.getPort(), "localhost", TABLE + "/import")
+              .send(context.succeeding(imported -> context.verify(() ->
+              {
+                  assertEquals(200, imported.statusCode());
+                  assertFalse(tableDir.exists());
+                  // the other table is still there to be imported
+                  assertTrue(new File(otherTableDir, "nb-1-big-Data.db").exists());
+
+                  client.post(config.getPort(), "localhost", otherTable + "/import")
+                        .send(context.succeeding(response -> context.verify(() ->
+                        {
+                            assertEquals(200, response.statusCode());
+                            assertFalse(new File(config.getStagingDir(), "upload1").exists());
+                            context.completeNow();
+                        })));
+              })))))));
+    }
+
+    @Test
+    void testImportWithoutUpload(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .post(config.getPort(), "localhost", TABLE + "/import")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(404, response.statusCode());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testDeleteUpload(VertxTestContext context)
+    {
+        WebClient client = WebClient.create(vertx);
+        client.put(config.getPort(), "localhost", TABLE + "/component/nb-1-big-Data.db")
+              .sendBuffer(Buffer.buffer(CONTENT), context.succeeding(upload ->
+              {
+                  assertTrue(stagedFile("nb-1-big-Data.db").exists());
+                  client.delete(config.getPort(), "localhost", UPLOAD)
+                        .send(context.succeeding(response -> context.verify(() ->
+                        {
+                            assertEquals(200, response.statusCode());
+                            assertFalse(new File(config.getStagingDir(), "upload1").exists());
+                            context.completeNow();
+                        })));
+              }));
+    }
+
+    private File stagedFile(String component)
+    {
+        return new File(config.getStagingDir(), "upload1/TestKeyspace/TestTable/" + component);
+    }
+
+    private List<String> stagedFiles()
+    {
+        String[] files = stagedFile("nb-1-big-Data.db").getParentFile().list();
+        return files == null ? Collections.emptyList() : Arrays.asList(files);
+    }
+
+    private static String md5(byte[] content) throws Exception
+    {
+        return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(content));
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests taking, listing and clearing snapshots, directly and as jobs
+ */
+@DisplayName("Snapshot Service Test")
+@ExtendWith(VertxExtension.class)
+public class SnapshotServiceTest
+{
+    private Vertx vertx;
+    private Configuration config;
+    private CassandraAdapterDelegate delegate;
+
+    @BeforeEach
+    void setUp() throws InterruptedException
+    {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new TestModule()));
+        CassandraSidecarDaemon daemon = injector.getInstance(CassandraSidecarDaemon.class);
+        vertx = injector.getInstance(Vertx.class);
+        config = injector.getInstance(Configuration.class);
+        delegate = injector.getInstance(CassandraAdapterDelegate.class);
+
+        VertxTestContext context = new VertxTestContext();
+        daemon.start(context.completing());
+        context.awaitCompletion(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        final CountDownLatch closeLatch = new CountDownLatch(1);
+        vertx.close(res -> closeLatch.countDown());
+        closeLatch.await(60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testListSnapshots(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", "/api/v1/snapshots?keyspace=TestKeyspace")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     JsonArray snapshots = response.bodyAsJsonObject().getJsonArray("snapshots");
+                     assertEquals(1, snapshots.size());
+                     JsonObject snapshot = snapshots.getJsonObject(0);
+                     assertEquals("TestSnapshot", snapshot.getString("name"));
+                     assertEquals("TestTable", snapshot.getString("table"));
+                     assertEquals(2, (int) snapshot.getInteger("files"));
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testUnknownSnapshot(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", "/api/v1/snapshots/OtherSnapshot")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(404, response.statusCode());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testTakeSnapshot(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .put(config.getPort(), "localhost", "/api/v1/snapshots/NewSnapshot?keyspace=TestKeyspace&table=t1")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     verify(delegate).takeSnapshot("NewSnapshot", Collections.singletonList("TestKeyspace.t1"));
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testTakeSnapshotAsJob(VertxTestContext context)
+    {
+        WebClient client = WebClient.create(vertx);
+        client.put(config.getPort(), "localhost", "/api/v1/snapshots/AsyncSnapshot?keyspace=TestKeyspace&async=true")
+              .send(context.succeeding(response -> context.verify(() ->
+              {
+                  assertEquals(202, response.statusCode());
+                  String location = response.getHeader("Location");
+                  assertEquals("/api/v1/jobs/" + response.bodyAsJsonObject().getString("id"), location);
+                  assertEquals("snapshot", response.bodyAsJsonObject().getString("type"));
+
+                  // streamed until the job finishes, so the last event is the finished job
+                  client.get(config.getPort(), "localhost", location)
+                        .putHeader("Accept", "text/event-stream")
+                        .send(context.succeeding(stream -> context.verify(() ->
+                        {
+                            assertEquals(200, stream.statusCode());
+                            String body = stream.bodyAsString();
+                            String last = body.substring(body.lastIndexOf("data: ") + "data: ".length()).trim();
+                            assertEquals("SUCCEEDED", new JsonObject(last).getString("status"));
+                            verify(delegate).takeSnapshot("AsyncSnapshot", Collections.singletonList("TestKeyspace"));
+                            context.completeNow();
+                        })));
+              })));
+    }
+
+    @Test
+    void testInvalidSnapshotJob(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .delete(config.getPort(), "localhost", "/api/v1/snapshots/snap%2Fshot?async=true")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(400, response.statusCode());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testUnknownJob(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", "/api/v1/jobs/none")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(404, response.statusCode());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testTakeExistingSnapshot(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .put(config.getPort(), "localhost", "/api/v1/snapshots/TestSnapshot")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(409, response.statusCode());
+                     verify(delegate, never()).takeSnapshot(any(String.class), anyListOf(String.class));
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testClearSnapshot(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .delete(config.getPort(), "localhost", "/api/v1/snapshots/OldSnapshot?keyspace=ks1&keyspace=ks2")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     verify(delegate).clearSnapshot("OldSnapshot", Arrays.asList("ks1", "ks2"));
+                     context.completeNow();
+                 })));
+    }
+}
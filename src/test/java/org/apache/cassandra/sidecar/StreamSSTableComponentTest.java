@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.codec.BodyCodec;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests streaming SSTable components out of snapshots
+ */
+@DisplayName("Stream SSTable Component Test")
+@ExtendWith(VertxExtension.class)
+public class StreamSSTableComponentTest
+{
+    private static final String ROUTE = "/api/v1/keyspace/TestKeyspace/table/TestTable/snapshots/TestSnapshot" +
+                                        "/component/";
+    private Vertx vertx;
+    private Configuration config;
+    private CassandraSidecarDaemon daemon;
+
+    @BeforeEach
+    void setUp() throws InterruptedException
+    {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new TestModule()));
+        daemon = injector.getInstance(CassandraSidecarDaemon.class);
+        vertx = injector.getInstance(Vertx.class);
+        config = injector.getInstance(Configuration.class);
+
+        VertxTestContext context = new VertxTestContext();
+        daemon.start(context.completing());
+        context.awaitCompletion(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        final CountDownLatch closeLatch = new CountDownLatch(1);
+        // closing Vert.x undeploys the server verticles
+        vertx.close(res -> closeLatch.countDown());
+        closeLatch.await(60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testStreamComponent(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", ROUTE + "nb-1-big-Data.db")
+                 .as(BodyCodec.string())
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     assertEquals("data", response.body());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testSingleRange(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", ROUTE + "nb-1-big-Index.db")
+                 .putHeader("Range", "bytes=1-3")
+                 .as(BodyCodec.string())
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(206, response.statusCode());
+                     assertEquals("bytes 1-3/5", response.getHeader("Content-Range"));
+                     assertEquals("nde", response.body());
+                     assertNotNull(response.getHeader("ETag"));
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testMultipleRanges(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", ROUTE + "nb-1-big-Index.db")
+                 .putHeader("Range", "bytes=0-0,-2")
+                 .as(BodyCodec.string())
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(206, response.statusCode());
+                     String contentType = response.getHeader("Content-Type");
+                     assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+                     String boundary = contentType.substring(contentType.indexOf('=') + 1);
+                     assertEquals("--" + boundary + "\r\n" +
+                                  "content-type: application/octet-stream\r\n" +
+                                  "content-range: bytes 0-0/5\r\n\r\n" +
+                                  "i\r\n--" + boundary + "\r\n" +
+                                  "content-type: application/octet-stream\r\n" +
+                                  "content-range: bytes 3-4/5\r\n\r\n" +
+                                  "ex\r\n--" + boundary + "--\r\n", response.body());
+                     assertEquals(Integer.toString(response.body().length()), response.getHeader("Content-Length"));
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testOverlappingRangesMerged(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", ROUTE + "nb-1-big-Index.db")
+                 .putHeader("Range", "bytes=2-3,0-0,0-1")
+                 .as(BodyCodec.string())
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(206, response.statusCode());
+                     assertEquals("bytes 0-3/5", response.getHeader("Content-Range"));
+                     assertEquals("inde", response.body());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testRepeatedRangesReturnWholeFile(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", ROUTE + "nb-1-big-Index.db")
+                 .putHeader("Range", "bytes=0-,0-,0-,0-")
+                 .as(BodyCodec.string())
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     assertEquals("index", response.body());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testStaleIfRangeReturnsWholeFile(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", ROUTE + "nb-1-big-Index.db")
+                 .putHeader("Range", "bytes=1-3")
+                 .putHeader("If-Range", "\"stale\"")
+                 .as(BodyCodec.string())
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     assertEquals("index", response.body());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testMatchingIfRangeReturnsRange(VertxTestContext context)
+    {
+        WebClient client = WebClient.create(vertx);
+        client.head(config.getPort(), "localhost", ROUTE + "nb-1-big-Index.db")
+              .send(context.succeeding(head -> client.get(config.getPort(), "localhost", ROUTE + "nb-1-big-Index.db")
+                                                     .putHeader("Range", "bytes=3-")
+                                                     .putHeader("If-Range", head.getHeader("ETag"))
+                                                     .as(BodyCodec.string())
+                                                     .send(context.succeeding(response -> context.verify(() ->
+              {
+                  assertEquals(206, response.statusCode());
+                  assertEquals("ex", response.body());
+                  context.completeNow();
+              })))));
+    }
+
+    @Test
+    void testUnsatisfiableRange(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", ROUTE + "nb-1-big-Index.db")
+                 .putHeader("Range", "bytes=10-20")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(416, response.statusCode());
+                     assertEquals("bytes */5", response.getHeader("Content-Range"));
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testMissingComponent(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", ROUTE + "nb-2-big-Data.db")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(404, response.statusCode());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testInvalidComponentName(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", ROUTE + "nb-1-big-Data.sh")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(400, response.statusCode());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testPathTraversalRejected(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost",
+                      "/api/v1/keyspace/TestKeyspace/table/TestTable/snapshots/..%2F..%2F..%2F/component/TOC.txt")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(400, response.statusCode());
+                     context.completeNow();
+                 })));
+    }
+}
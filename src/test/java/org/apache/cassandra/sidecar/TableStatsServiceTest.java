@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the table stats endpoint
+ */
+@DisplayName("Table Stats Test")
+@ExtendWith(VertxExtension.class)
+public class TableStatsServiceTest
+{
+    private static final Map<String, Map<String, Object>> STATS =
+    ImmutableMap.of("LiveSSTableCount", ImmutableMap.of("Value", 4),
+                    "ReadLatency", ImmutableMap.of("Count", 10L, "99thPercentile", 1.5));
+    private Vertx vertx;
+    private Configuration config;
+
+    @BeforeEach
+    void setUp() throws InterruptedException
+    {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new TestModule()));
+        CassandraSidecarDaemon daemon = injector.getInstance(CassandraSidecarDaemon.class);
+        vertx = injector.getInstance(Vertx.class);
+        config = injector.getInstance(Configuration.class);
+        CassandraAdapterDelegate delegate = injector.getInstance(CassandraAdapterDelegate.class);
+        when(delegate.getTableStats("ks", "tbl")).thenReturn(STATS);
+        when(delegate.getTableStats("ks", "missing")).thenThrow(new NoSuchElementException("Unknown table"));
+        when(delegate.getTableStats("ks", "down")).thenThrow(new IllegalStateException("Cassandra is not available"));
+
+        VertxTestContext context = new VertxTestContext();
+        daemon.start(context.completing());
+        context.awaitCompletion(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        final CountDownLatch closeLatch = new CountDownLatch(1);
+        vertx.close(res -> closeLatch.countDown());
+        closeLatch.await(60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testStats(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", "/api/v1/keyspace/ks/table/tbl/stats")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     JsonObject body = response.bodyAsJsonObject();
+                     assertEquals("tbl", body.getString("table"));
+                     JsonObject metrics = body.getJsonObject("metrics");
+                     assertEquals(4, metrics.getJsonObject("LiveSSTableCount").getInteger("Value").intValue());
+                     assertEquals(1.5, metrics.getJsonObject("ReadLatency").getDouble("99thPercentile"), 0);
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testUnknownTable(VertxTestContext context)
+    {
+        assertStatus(context, "/api/v1/keyspace/ks/table/missing/stats", 404);
+    }
+
+    @Test
+    void testInvalidTable(VertxTestContext context)
+    {
+        assertStatus(context, "/api/v1/keyspace/ks/table/not-a-table/stats", 400);
+    }
+
+    @Test
+    void testCassandraUnavailable(VertxTestContext context)
+    {
+        assertStatus(context, "/api/v1/keyspace/ks/table/down/stats", 503);
+    }
+
+    private void assertStatus(VertxTestContext context, String uri, int status)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", uri)
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(status, response.statusCode());
+                     context.completeNow();
+                 })));
+    }
+}
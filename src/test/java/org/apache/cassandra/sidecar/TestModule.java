@@ -18,16 +18,23 @@
 
 package org.apache.cassandra.sidecar;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
-
+import io.vertx.core.Vertx;
 import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
 import org.apache.cassandra.sidecar.common.CassandraVersionProvider;
 import org.apache.cassandra.sidecar.common.MockCassandraFactory;
+import org.apache.cassandra.sidecar.routes.ChangeFeed;
 import org.apache.cassandra.sidecar.routes.HealthService;
 
 import static org.mockito.Mockito.mock;
@@ -48,9 +55,9 @@ public class TestModule extends AbstractModule
 
     @Singleton
     @Provides
-    public HealthService healthService(CassandraAdapterDelegate delegate)
+    public HealthService healthService(Vertx vertx, CassandraAdapterDelegate delegate, ChangeFeed feed)
     {
-        return new HealthService(delegate);
+        return new HealthService(vertx, delegate, feed);
     }
 
 
@@ -66,6 +73,9 @@ public class TestModule extends AbstractModule
         return new Configuration.Builder()
                            .setCassandraHost("INVALID_FOR_TEST")
                            .setCassandraPort(0)
+                           .setDataDirs(Collections.singletonList(dataDir()))
+                           .setStagingDir(stagingDir())
+                           .setMaxUploadSizeBytes(1024)
                            .setHost("127.0.0.1")
                            .setPort(6475)
                            .setHealthCheckFrequency(1000)
@@ -73,6 +83,25 @@ public class TestModule extends AbstractModule
                            .build();
     }
 
+    protected String dataDir()
+    {
+        return TestModule.class.getClassLoader().getResource("data").getPath();
+    }
+
+    protected String stagingDir()
+    {
+        try
+        {
+            File dir = Files.createTempDirectory("sidecar-staging").toFile();
+            dir.deleteOnExit();
+            return dir.getPath();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * The Mock factory is used for testing purposes, enabling us to test all failures and possible results
      * @return
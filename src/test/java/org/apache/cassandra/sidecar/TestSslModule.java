@@ -19,6 +19,7 @@
 package org.apache.cassandra.sidecar;
 
 import java.io.File;
+import java.util.Collections;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +53,8 @@ public class TestSslModule extends TestModule
         return new Configuration.Builder()
                            .setCassandraHost("INVALID_FOR_TEST")
                            .setCassandraPort(0)
+                           .setDataDirs(Collections.singletonList(dataDir()))
+                           .setStagingDir(stagingDir())
                            .setHost("127.0.0.1")
                            .setPort(6475)
                            .setHealthCheckFrequency(1000)
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.common.TokenRing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the token ring and replica lookup endpoints
+ */
+@DisplayName("Token Ring Test")
+@ExtendWith(VertxExtension.class)
+public class TokenRingServiceTest
+{
+    private static final TokenRing RING = new TokenRing("ks", new long[]{ -100, 0, 100 },
+                                                        Arrays.asList(Arrays.asList("10.0.0.1"),
+                                                                      Arrays.asList("10.0.0.2"),
+                                                                      Arrays.asList("10.0.0.3")));
+    private Vertx vertx;
+    private Configuration config;
+    private CassandraAdapterDelegate delegate;
+
+    @BeforeEach
+    void setUp() throws InterruptedException
+    {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new TestModule()));
+        CassandraSidecarDaemon daemon = injector.getInstance(CassandraSidecarDaemon.class);
+        vertx = injector.getInstance(Vertx.class);
+        config = injector.getInstance(Configuration.class);
+        delegate = injector.getInstance(CassandraAdapterDelegate.class);
+        when(delegate.getTokenRing("ks")).thenReturn(RING);
+        when(delegate.getTokenRing("missing")).thenThrow(new NoSuchElementException("Unknown keyspace missing"));
+
+        VertxTestContext context = new VertxTestContext();
+        daemon.start(context.completing());
+        context.awaitCompletion(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        final CountDownLatch closeLatch = new CountDownLatch(1);
+        vertx.close(res -> closeLatch.countDown());
+        closeLatch.await(60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testRing(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", "/api/v1/keyspace/ks/ring")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     JsonArray ranges = response.bodyAsJsonObject().getJsonArray("ranges");
+                     assertEquals(3, ranges.size());
+                     assertEquals("100", ranges.getJsonObject(0).getString("start"));
+                     assertEquals("-100", ranges.getJsonObject(0).getString("end"));
+                     assertEquals("10.0.0.1", ranges.getJsonObject(0).getJsonArray("replicas").getString(0));
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testUnknownKeyspace(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", "/api/v1/keyspace/missing/ring")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(404, response.statusCode());
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testReplicasOfToken(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .get(config.getPort(), "localhost", "/api/v1/keyspace/ks/replicas?token=1&token=101")
+                 .send(context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     JsonArray replicas = response.bodyAsJsonObject().getJsonArray("replicas");
+                     assertEquals("10.0.0.3", replicas.getJsonObject(0).getJsonArray("replicas").getString(0));
+                     assertEquals("10.0.0.1", replicas.getJsonObject(1).getJsonArray("replicas").getString(0));
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testBatchOfKeys(VertxTestContext context)
+    {
+        // "key" hashes to -6847573755651342660, in the first range, and 0x6b6579 is the same key as hex
+        JsonObject request = new JsonObject().put("keys", new JsonArray().add("6b6579"))
+                                             .put("keyEncoding", "hex");
+        WebClient.create(vertx)
+                 .post(config.getPort(), "localhost", "/api/v1/keyspace/ks/replicas")
+                 .sendJsonObject(request, context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(200, response.statusCode());
+                     JsonObject replica = response.bodyAsJsonObject().getJsonArray("replicas").getJsonObject(0);
+                     assertEquals("6b6579", replica.getString("key"));
+                     assertEquals("-6847573755651342660", replica.getString("token"));
+                     assertEquals("10.0.0.1", replica.getJsonArray("replicas").getString(0));
+                     context.completeNow();
+                 })));
+    }
+
+    @Test
+    void testMalformedContentLength(VertxTestContext context)
+    {
+        // HTTP/1.1 requests with a malformed length are turned away by the codec, HTTP/2 ones reach the handler
+        HttpClientRequest request = http2Client().post(config.getPort(), "localhost", "/api/v1/keyspace/ks/replicas");
+        request.handler(response -> context.verify(() ->
+        {
+            assertEquals(400, response.statusCode());
+            context.completeNow();
+        }));
+        request.exceptionHandler(context::failNow);
+        request.putHeader("Content-Length", "lots").end();
+    }
+
+    @Test
+    void testDeclaredTooLarge(VertxTestContext context)
+    {
+        HttpClientRequest request = http2Client().post(config.getPort(), "localhost", "/api/v1/keyspace/ks/replicas");
+        request.handler(response -> context.verify(() ->
+        {
+            assertEquals(413, response.statusCode());
+            context.completeNow();
+        }));
+        request.exceptionHandler(context::failNow);
+        request.putHeader("Content-Length", Long.toString(Long.MAX_VALUE)).end();
+    }
+
+    @Test
+    void testNothingToLookUp(VertxTestContext context)
+    {
+        WebClient.create(vertx)
+                 .post(config.getPort(), "localhost", "/api/v1/keyspace/ks/replicas")
+                 .sendJsonObject(new JsonObject(), context.succeeding(response -> context.verify(() ->
+                 {
+                     assertEquals(400, response.statusCode());
+                     context.completeNow();
+                 })));
+    }
+
+    private HttpClient http2Client()
+    {
+        return vertx.createHttpClient(new HttpClientOptions().setProtocolVersion(HttpVersion.HTTP_2)
+                                                             .setHttp2ClearTextUpgrade(false));
+    }
+}
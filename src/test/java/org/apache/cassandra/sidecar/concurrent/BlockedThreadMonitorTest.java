@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import org.apache.cassandra.sidecar.Configuration;
+import org.apache.cassandra.sidecar.metrics.PrometheusExporter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests running blocking work on the named pools, and noticing event loops and workers which are stuck
+ */
+public class BlockedThreadMonitorTest
+{
+    private Vertx vertx;
+    private MetricRegistry registry;
+    private WorkerPools pools;
+    private BlockedThreadMonitor monitor;
+
+    @BeforeEach
+    void setUp()
+    {
+        Configuration config = new Configuration.Builder()
+                               .setEventLoopPoolSize(2)
+                               .setBlockedEventLoopThresholdMillis(200)
+                               .setBlockedWorkerThresholdMillis(200)
+                               .build();
+        vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(2));
+        registry = new MetricRegistry();
+        pools = new WorkerPools(vertx, config);
+        monitor = new BlockedThreadMonitor(vertx, pools, registry, config);
+        monitor.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        monitor.stop();
+        pools.close();
+        CountDownLatch closed = new CountDownLatch(1);
+        vertx.close(v -> closed.countDown());
+        closed.await(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testRunsOnNamedPools() throws Exception
+    {
+        for (WorkerPool pool : WorkerPool.values())
+        {
+            CompletableFuture<String> thread = new CompletableFuture<>();
+            pools.executeBlocking(pool, () -> Thread.currentThread().getName(), ar -> thread.complete(ar.result()));
+            assertTrue(thread.get(5, TimeUnit.SECONDS).startsWith(pool.poolName()));
+        }
+    }
+
+    @Test
+    void testRunsInVirtualThreads() throws Exception
+    {
+        Configuration config = new Configuration.Builder().setVirtualThreadsEnabled(true).build();
+        WorkerPools virtual = new WorkerPools(vertx, config);
+        try
+        {
+            // falls back to the pools on JDKs without virtual threads
+            String suffix = VirtualThreads.isAvailable() ? "-virtual-" : "";
+            for (WorkerPool pool : WorkerPool.values())
+            {
+                CompletableFuture<String> thread = new CompletableFuture<>();
+                CompletableFuture<Boolean> onContext = new CompletableFuture<>();
+                virtual.executeBlocking(pool, () -> Thread.currentThread().getName(), ar ->
+                {
+                    onContext.complete(Vertx.currentContext() != null);
+                    thread.complete(ar.result());
+                });
+                assertTrue(thread.get(5, TimeUnit.SECONDS).startsWith(pool.poolName() + suffix));
+                assertTrue(onContext.get(5, TimeUnit.SECONDS));
+            }
+
+            CompletableFuture<Throwable> failure = new CompletableFuture<>();
+            virtual.executeBlocking(WorkerPool.JMX, () ->
+            {
+                throw new IllegalStateException("boom");
+            }, ar -> failure.complete(ar.cause()));
+            assertEquals("boom", failure.get(5, TimeUnit.SECONDS).getMessage());
+        }
+        finally
+        {
+            virtual.close();
+        }
+    }
+
+    @Test
+    void testDetectsBlockedEventLoop() throws Exception
+    {
+        // the monitor measures the lag of idle event loops
+        assertTrue(eventually(() -> registry.timer(BlockedThreadMonitor.LAG_METRIC).getCount() > 0));
+        assertEquals(0, registry.meter(BlockedThreadMonitor.BLOCKED_EVENT_LOOP_METRIC).getCount());
+
+        CountDownLatch release = new CountDownLatch(1);
+        vertx.runOnContext(v ->
+        {
+            try
+            {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(eventually(() -> monitor.blockedEventLoops() == 1));
+        assertEquals(1, registry.meter(BlockedThreadMonitor.BLOCKED_EVENT_LOOP_METRIC).getCount());
+
+        release.countDown();
+        assertTrue(eventually(() -> monitor.blockedEventLoops() == 0));
+        // counted once however long it was blocked for
+        assertEquals(1, registry.meter(BlockedThreadMonitor.BLOCKED_EVENT_LOOP_METRIC).getCount());
+    }
+
+    @Test
+    void testDetectsBlockedWorker() throws Exception
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        pools.executeBlocking(WorkerPool.JMX, () -> release.await(10, TimeUnit.SECONDS),
+                              ar -> done.complete(ar.result()));
+
+        String jmx = PrometheusExporter.name(BlockedThreadMonitor.BLOCKED_WORKER_METRIC, "pool", "sidecar-jmx");
+        String cql = PrometheusExporter.name(BlockedThreadMonitor.BLOCKED_WORKER_METRIC, "pool", "sidecar-cql");
+        assertTrue(eventually(() -> registry.meter(jmx).getCount() == 1));
+        assertEquals(0, registry.meter(cql).getCount());
+
+        release.countDown();
+        assertTrue(done.get(5, TimeUnit.SECONDS));
+        assertEquals(1, registry.meter(jmx).getCount());
+    }
+
+    private static boolean eventually(BooleanSupplier check) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline)
+        {
+            if (check.getAsBoolean())
+                return true;
+            Thread.sleep(20);
+        }
+        return false;
+    }
+}
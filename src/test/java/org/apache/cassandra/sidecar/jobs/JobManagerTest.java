@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.jobs;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.Vertx;
+import org.apache.cassandra.sidecar.Configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests running jobs on bounded pools per type, and evicting them once finished
+ */
+public class JobManagerTest
+{
+    private Vertx vertx;
+    private JobManager jobs;
+
+    @BeforeEach
+    void setUp()
+    {
+        vertx = Vertx.vertx();
+        jobs = new JobManager(vertx, new Configuration.Builder()
+                                     .setJobConcurrency(Collections.singletonMap("fast", 4))
+                                     .setDefaultJobConcurrency(1)
+                                     .setMaxQueuedJobs(2)
+                                     .setJobRetentionSeconds(60)
+                                     .build());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        jobs.close();
+        CountDownLatch closed = new CountDownLatch(1);
+        vertx.close(v -> closed.countDown());
+        closed.await(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testSucceeds() throws InterruptedException
+    {
+        Job job = jobs.submit("test", j ->
+        {
+            j.reportProgress(0.5, "halfway");
+            return "result";
+        });
+        assertTrue(eventually(() -> job.getStatus().isDone()));
+        assertEquals(JobStatus.SUCCEEDED, job.getStatus());
+        assertEquals("result", job.getResult());
+        assertEquals("halfway", job.getMessage());
+        assertEquals(1.0, job.getProgress());
+        assertTrue(job.getCompletedAt() >= job.getStartedAt());
+        assertEquals(job, jobs.get(job.getId()));
+    }
+
+    @Test
+    void testFails() throws InterruptedException
+    {
+        Job job = jobs.submit("test", j ->
+        {
+            throw new IllegalStateException("broken");
+        });
+        assertTrue(eventually(() -> job.getStatus().isDone()));
+        assertEquals(JobStatus.FAILED, job.getStatus());
+        assertEquals("broken", job.getError());
+        assertNull(job.getResult());
+    }
+
+    @Test
+    void testConcurrencyAndQueueBounds() throws InterruptedException
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        JobTask<Void> blocked = j ->
+        {
+            release.await();
+            return null;
+        };
+
+        // one at a time by default, the second waits
+        Job first = jobs.submit("slow", blocked);
+        Job second = jobs.submit("slow", blocked);
+        assertTrue(eventually(() -> first.getStatus() == JobStatus.RUNNING));
+        assertEquals(JobStatus.PENDING, second.getStatus());
+        assertThrows(RejectedExecutionException.class, () -> jobs.submit("slow", blocked));
+
+        // other types have their own pools
+        Job fast = jobs.submit("fast", j -> "done");
+        assertTrue(eventually(() -> fast.getStatus() == JobStatus.SUCCEEDED));
+
+        release.countDown();
+        assertTrue(eventually(() -> second.getStatus() == JobStatus.SUCCEEDED));
+        assertEquals(3, jobs.list(null).size());
+        assertEquals(2, jobs.list("slow").size());
+        assertNotNull(jobs.submit("slow", j -> null));
+    }
+
+    @Test
+    void testEvictsFinishedJobs() throws InterruptedException
+    {
+        CountDownLatch release = new CountDownLatch(1);
+        Job done = jobs.submit("test", j -> null);
+        Job running = jobs.submit("other", j ->
+        {
+            release.await();
+            return null;
+        });
+        assertTrue(eventually(() -> done.getStatus().isDone()));
+
+        jobs.evict(done.getCompletedAt() + TimeUnit.SECONDS.toMillis(59));
+        assertEquals(done, jobs.get(done.getId()));
+
+        jobs.evict(done.getCompletedAt() + TimeUnit.SECONDS.toMillis(60));
+        assertNull(jobs.get(done.getId()));
+        assertEquals(running, jobs.get(running.getId()));
+        release.countDown();
+    }
+
+    private static boolean eventually(BooleanSupplier check) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline)
+        {
+            if (check.getAsBoolean())
+                return true;
+            Thread.sleep(10);
+        }
+        return false;
+    }
+}
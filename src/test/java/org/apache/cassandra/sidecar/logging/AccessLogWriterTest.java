@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.logging;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests formatting and queueing access log lines
+ */
+public class AccessLogWriterTest
+{
+    // Tue, 3 Jun 2008 11:05:30 GMT
+    private static final long TIMESTAMP = 1212491130000L;
+
+    @Test
+    void testFormat()
+    {
+        AccessLogWriter writer = new AccessLogWriter(new MetricRegistry(), 16);
+        StringBuilder line = new StringBuilder();
+        writer.format(entry(TimeUnit.MICROSECONDS.toNanos(12_045), "Mozilla \"5.0\""), line);
+        assertEquals("127.0.0.1 - - [Tue, 3 Jun 2008 11:05:30 GMT] \"GET /api/v1/__health HTTP/1.1\" 200 15 \"-\" " +
+                     "\"Mozilla \\\"5.0\\\"\" 12.045", line.toString());
+
+        line.setLength(0);
+        writer.format(entry(TimeUnit.MICROSECONDS.toNanos(3), null), line);
+        assertTrue(line.toString().endsWith("\"-\" \"-\" 0.003"), line.toString());
+    }
+
+    @Test
+    void testDropsWhenFull()
+    {
+        MetricRegistry registry = new MetricRegistry();
+        AccessLogWriter writer = new AccessLogWriter(registry, 2);
+        assertTrue(writer.offer(entry(1, null)));
+        assertTrue(writer.offer(entry(1, null)));
+        assertFalse(writer.offer(entry(1, null)));
+        assertEquals(1, registry.meter(AccessLogWriter.DROPPED_METRIC).getCount());
+
+        assertEquals(2, writer.drain());
+        assertTrue(writer.offer(entry(1, null)));
+        assertEquals(1, writer.drain());
+        assertEquals(1, registry.meter(AccessLogWriter.DROPPED_METRIC).getCount());
+    }
+
+    private static AccessLogWriter.Entry entry(long durationNanos, String userAgent)
+    {
+        return new AccessLogWriter.Entry(TIMESTAMP, "127.0.0.1", HttpMethod.GET, "/api/v1/__health",
+                                         HttpVersion.HTTP_1_1, 200, 15, null, userAgent, durationNanos);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests recording latencies into rolling log-linear buckets
+ */
+public class LatencyReservoirTest
+{
+    @Test
+    void testBucketsAreWithinOnePercentAndAHalf()
+    {
+        int previous = -1;
+        for (long micros = 0; micros < 10_000_000; micros += 1 + micros / 100)
+        {
+            int bucket = LatencyReservoir.bucket(micros);
+            assertTrue(bucket >= previous, "buckets must not decrease");
+            previous = bucket;
+            long highest = LatencyReservoir.highestValue(bucket);
+            assertTrue(highest >= micros, micros + " is above its bucket's highest value " + highest);
+            assertTrue(highest - micros <= micros / 64, micros + " is too far from " + highest);
+        }
+        assertEquals(LatencyReservoir.BUCKETS - 1, LatencyReservoir.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testPercentiles()
+    {
+        LatencyReservoir reservoir = new LatencyReservoir(60, TimeUnit.SECONDS);
+        for (int millis = 1; millis <= 1000; millis++)
+            reservoir.update(TimeUnit.MILLISECONDS.toNanos(millis));
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(1000, snapshot.size());
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(500), snapshot.getMedian());
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(990), snapshot.get99thPercentile());
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(999), snapshot.get999thPercentile());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getMax());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), (long) snapshot.getValue(1));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(500_500), (long) snapshot.getMean());
+    }
+
+    @Test
+    void testRollingWindow()
+    {
+        ManualClock clock = new ManualClock();
+        LatencyReservoir reservoir = new LatencyReservoir(40, TimeUnit.SECONDS, clock);
+        reservoir.update(TimeUnit.SECONDS.toNanos(1));
+        clock.advance(TimeUnit.SECONDS.toNanos(20));
+        reservoir.update(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(2, reservoir.getSnapshot().size());
+        assertEquals(TimeUnit.SECONDS.toNanos(2), reservoir.getSnapshot().getMax());
+
+        // the first value's slice has expired, the second's hasn't
+        clock.advance(TimeUnit.SECONDS.toNanos(30));
+        assertEquals(1, reservoir.getSnapshot().size());
+
+        clock.advance(TimeUnit.SECONDS.toNanos(40));
+        assertEquals(0, reservoir.getSnapshot().size());
+        assertEquals(0, reservoir.getSnapshot().getMax());
+    }
+
+    private static void assertWithin(long expected, double actual)
+    {
+        assertTrue(actual >= expected && actual <= expected + expected / 64, actual + " is not close to " + expected);
+    }
+
+    /**
+     * A clock which only moves when told to
+     */
+    private static class ManualClock extends Clock
+    {
+        private long tick = 0;
+
+        void advance(long nanos)
+        {
+            tick += nanos;
+        }
+
+        @Override
+        public long getTick()
+        {
+            return tick;
+        }
+    }
+}
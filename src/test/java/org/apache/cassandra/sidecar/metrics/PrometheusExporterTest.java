@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests rendering Dropwizard metrics in the Prometheus text format
+ */
+public class PrometheusExporterTest
+{
+    @Test
+    void testSanitize()
+    {
+        assertEquals("vertx_http_servers_0_0_0_0_9043_requests",
+                     PrometheusExporter.sanitize("vertx.http.servers.0.0.0.0:9043.requests"));
+        assertEquals("_1xx", PrometheusExporter.sanitize("1xx"));
+    }
+
+    @Test
+    void testRendersEachType()
+    {
+        MetricRegistry registry = new MetricRegistry();
+        PrometheusExporter exporter = new PrometheusExporter(registry);
+        registry.counter("requests.count").inc(3);
+        registry.meter("bytes-read").mark(1024);
+        registry.register("pool.in-use", (Gauge<Double>) () -> 0.25);
+        registry.register("pool.name", (Gauge<String>) () -> "not a number");
+        registry.timer("request.latency").update(5, TimeUnit.MILLISECONDS);
+
+        String rendered = exporter.render().toString();
+        assertTrue(rendered.contains("# TYPE requests_count gauge\nrequests_count 3\n"), rendered);
+        assertTrue(rendered.contains("# TYPE bytes_read_total counter\nbytes_read_total 1024\n"), rendered);
+        assertTrue(rendered.contains("# TYPE pool_in_use gauge\npool_in_use 0.25\n"), rendered);
+        assertFalse(rendered.contains("pool_name"), rendered);
+        assertTrue(rendered.contains("# TYPE request_latency summary\n"), rendered);
+        assertTrue(rendered.contains("request_latency{quantile=\"0.99\"} 0.005\n"), rendered);
+        assertTrue(rendered.contains("request_latency_count 1\n"), rendered);
+    }
+
+    @Test
+    void testFollowsTheRegistry()
+    {
+        MetricRegistry registry = new MetricRegistry();
+        registry.counter("before").inc();
+        PrometheusExporter exporter = new PrometheusExporter(registry);
+        registry.counter("after").inc(2);
+        registry.remove("before");
+
+        String rendered = exporter.render().toString();
+        assertFalse(rendered.contains("before"), rendered);
+        assertTrue(rendered.contains("after 2\n"), rendered);
+    }
+
+    @Test
+    void testNamesDontClash()
+    {
+        MetricRegistry registry = new MetricRegistry();
+        PrometheusExporter exporter = new PrometheusExporter(registry);
+        registry.counter("a.b").inc(1);
+        registry.counter("a-b").inc(2);
+
+        String rendered = exporter.render().toString();
+        assertTrue(rendered.contains("a_b 1\n") && rendered.contains("a_b_2 2\n"), rendered);
+    }
+
+    @Test
+    void testFamiliesAreWrittenTogether()
+    {
+        MetricRegistry registry = new MetricRegistry();
+        PrometheusExporter exporter = new PrometheusExporter(registry);
+        registry.counter("foo").inc(1);
+        registry.counter("foo.x").inc(2);
+        registry.counter(PrometheusExporter.name("foo", "a", "1")).inc(3);
+        registry.timer(PrometheusExporter.name("foo", "a", "2")).update(1, TimeUnit.MILLISECONDS);
+
+        String rendered = exporter.render().toString();
+        assertEquals(rendered.indexOf("# TYPE foo "), rendered.lastIndexOf("# TYPE foo "), rendered);
+        assertTrue(rendered.contains("# TYPE foo gauge\nfoo 1\nfoo{a=\"1\"} 3\n# TYPE foo_2 summary\n"), rendered);
+        assertTrue(rendered.contains("# TYPE foo_x gauge\nfoo_x 2\n"), rendered);
+    }
+
+    @Test
+    void testLabels()
+    {
+        MetricRegistry registry = new MetricRegistry();
+        PrometheusExporter exporter = new PrometheusExporter(registry);
+        assertEquals("latency{route=\"/a\\\"b\"}", PrometheusExporter.name("latency", "route", "/a\"b"));
+        assertEquals("latency", PrometheusExporter.name("latency"));
+        registry.timer(PrometheusExporter.name("latency", "route", "/a", "status", "200"))
+                .update(2, TimeUnit.MILLISECONDS);
+        registry.timer(PrometheusExporter.name("latency", "route", "/b", "status", "200"))
+                .update(3, TimeUnit.MILLISECONDS);
+
+        String rendered = exporter.render().toString();
+        assertEquals(rendered.indexOf("# TYPE latency summary\n"), rendered.lastIndexOf("# TYPE latency"), rendered);
+        assertTrue(rendered.contains("latency{route=\"/a\",status=\"200\",quantile=\"0.99\"} 0.002\n"), rendered);
+        assertTrue(rendered.contains("latency{route=\"/b\",status=\"200\",quantile=\"1.0\"} 0.003\n"), rendered);
+        assertTrue(rendered.contains("latency_count{route=\"/b\",status=\"200\"} 1\n"), rendered);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.ratelimit;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.apache.cassandra.sidecar.CassandraSidecarDaemon;
+import org.apache.cassandra.sidecar.Configuration;
+import org.apache.cassandra.sidecar.MainModule;
+import org.apache.cassandra.sidecar.TestModule;
+import org.apache.cassandra.sidecar.common.CassandraAdapterDelegate;
+import org.apache.cassandra.sidecar.common.ClusterStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests rejecting requests over each client's limits
+ */
+@DisplayName("Rate Limiter Test")
+@ExtendWith(VertxExtension.class)
+public class RateLimiterTest
+{
+    private static final String EXPENSIVE_ROUTE = "/api/v1/keyspace/:keyspace/table/:table/snapshots/:snapshot" +
+                                                  "/component/:component";
+    private static final String EXPENSIVE = "/api/v1/keyspace/TestKeyspace/table/TestTable/snapshots/TestSnapshot" +
+                                            "/component/nb-1-big-Data.db";
+    private static final String STATS = "/api/v1/keyspace/ks/table/tbl/stats";
+    private Vertx vertx;
+    private Configuration config;
+    private RateLimiter rateLimiter;
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+    {
+        final CountDownLatch closeLatch = new CountDownLatch(1);
+        vertx.close(res -> closeLatch.countDown());
+        closeLatch.await(60, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testRejectsOverRate(VertxTestContext context) throws InterruptedException
+    {
+        start(new RateLimit(1, 2, 0));
+        WebClient client = WebClient.create(vertx);
+        client.get(config.getPort(), "localhost", EXPENSIVE).send(context.succeeding(first ->
+            client.get(config.getPort(), "localhost", EXPENSIVE).send(context.succeeding(second ->
+                client.get(config.getPort(), "localhost", EXPENSIVE).send(context.succeeding(third ->
+                    client.get(config.getPort(), "localhost", "/metrics").send(context.succeeding(cheap ->
+                        context.verify(() ->
+        {
+            assertEquals(200, first.statusCode());
+            assertEquals(200, second.statusCode());
+            assertEquals(429, third.statusCode());
+            assertEquals("1", third.getHeader("Retry-After"));
+            // cheap routes have their own budget
+            assertEquals(200, cheap.statusCode());
+
+            rateLimiter.prune(System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+            assertEquals(0, rateLimiter.clientCount(EXPENSIVE_ROUTE));
+            context.completeNow();
+        })))))))));
+    }
+
+    @Test
+    void testRejectsOverInFlight(VertxTestContext context) throws InterruptedException
+    {
+        CassandraAdapterDelegate delegate = start(new RateLimit(0, 0, 1));
+        CountDownLatch held = new CountDownLatch(1);
+        when(delegate.getTableStats("ks", "tbl")).thenAnswer(invocation ->
+        {
+            held.await(10, TimeUnit.SECONDS);
+            return Collections.emptyMap();
+        });
+
+        // the first request is held on the worker pool, so it's still in flight when the second arrives
+        WebClient client = WebClient.create(vertx);
+        client.get(config.getPort(), "localhost", STATS).send(context.succeeding(first -> context.verify(() ->
+        {
+            assertEquals(200, first.statusCode());
+            // its slot was released when it ended
+            client.get(config.getPort(), "localhost", STATS).send(context.succeeding(third -> context.verify(() ->
+            {
+                assertEquals(200, third.statusCode());
+                context.completeNow();
+            })));
+        })));
+        vertx.setTimer(200, id -> client.get(config.getPort(), "localhost", STATS)
+                                        .send(context.succeeding(second -> context.verify(() ->
+        {
+            assertEquals(429, second.statusCode());
+            assertEquals("1", second.getHeader("Retry-After"));
+            held.countDown();
+        }))));
+    }
+
+    @Test
+    void testStreamHeadersDontSkipInFlight(VertxTestContext context) throws InterruptedException
+    {
+        CassandraAdapterDelegate delegate = start(new RateLimit(0, 0, 1));
+        CountDownLatch held = new CountDownLatch(1);
+        when(delegate.getTableStats("ks", "tbl")).thenAnswer(invocation ->
+        {
+            held.await(10, TimeUnit.SECONDS);
+            return Collections.emptyMap();
+        });
+
+        // asking for a stream on a route which doesn't stream is still counted
+        Checkpoint responses = context.checkpoint(2);
+        WebClient client = WebClient.create(vertx);
+        client.get(config.getPort(), "localhost", STATS).send(context.succeeding(first -> context.verify(() ->
+        {
+            assertEquals(200, first.statusCode());
+            responses.flag();
+        })));
+        vertx.setTimer(200, id -> client.get(config.getPort(), "localhost", STATS)
+                                        .putHeader("Upgrade", "websocket")
+                                        .putHeader("Accept", "text/event-stream")
+                                        .send(context.succeeding(second -> context.verify(() ->
+        {
+            assertEquals(429, second.statusCode());
+            held.countDown();
+            responses.flag();
+        }))));
+    }
+
+    @Test
+    void testStreamsAreNotInFlight(VertxTestContext context) throws InterruptedException
+    {
+        CassandraAdapterDelegate delegate = start(new RateLimit(0, 0, 1));
+        when(delegate.getClusterStatus()).thenReturn(ClusterStatus.EMPTY);
+
+        // event streams stay open for as long as the client wants, so they'd otherwise use up the client's slots
+        HttpClient events = vertx.createHttpClient();
+        events.getNow(config.getPort(), "localhost", "/api/v1/events", first ->
+            events.getNow(config.getPort(), "localhost", "/api/v1/events", second -> context.verify(() ->
+            {
+                assertEquals(200, first.statusCode());
+                assertEquals(200, second.statusCode());
+                assertEquals(0, rateLimiter.inFlight("/api/v1/events"));
+                events.close();
+                context.completeNow();
+            })));
+    }
+
+    private CassandraAdapterDelegate start(RateLimit expensive) throws InterruptedException
+    {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new TestModule()
+        {
+            @Override
+            protected Configuration abstractConfig()
+            {
+                return new Configuration.Builder()
+                       .setCassandraHost("INVALID_FOR_TEST")
+                       .setCassandraPort(0)
+                       .setDataDirs(Collections.singletonList(dataDir()))
+                       .setStagingDir(stagingDir())
+                       .setHost("127.0.0.1")
+                       .setPort(6475)
+                       .setHealthCheckFrequency(1000)
+                       .setExpensiveRateLimit(expensive)
+                       .build();
+            }
+        }));
+        CassandraSidecarDaemon daemon = injector.getInstance(CassandraSidecarDaemon.class);
+        vertx = injector.getInstance(Vertx.class);
+        config = injector.getInstance(Configuration.class);
+        rateLimiter = injector.getInstance(RateLimiter.class);
+
+        VertxTestContext context = new VertxTestContext();
+        daemon.start(context.completing());
+        context.awaitCompletion(5, TimeUnit.SECONDS);
+        return injector.getInstance(CassandraAdapterDelegate.class);
+    }
+}
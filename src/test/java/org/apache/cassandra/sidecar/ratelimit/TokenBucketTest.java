@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the token bucket refills at its rate and holds no more than its burst
+ */
+public class TokenBucketTest
+{
+    @Test
+    void testRefill()
+    {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(10, 2, now);
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.tryAcquire(now));
+        assertFalse(bucket.isFull(now));
+
+        now += TimeUnit.MILLISECONDS.toNanos(100);
+        assertEquals(0, bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now) > 0);
+
+        now += TimeUnit.MILLISECONDS.toNanos(200);
+        assertTrue(bucket.isFull(now));
+    }
+
+    @Test
+    void testBurst()
+    {
+        TokenBucket bucket = new TokenBucket(1, 5, 0);
+        long later = TimeUnit.HOURS.toNanos(1);
+        for (int i = 0; i < 5; i++)
+            assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.tryAcquire(later));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.routes;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.Router;
+import org.apache.cassandra.sidecar.MainModule;
+import org.apache.cassandra.sidecar.TestModule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the translation of JAX-RS paths into native Vert.x routes, and that every route bound is documented
+ */
+public class RouteBinderTest
+{
+    @Test
+    void testStaticPath()
+    {
+        assertEquals("/api/v1/__health", RouteBinder.toVertxPath("/api/v1/__health"));
+    }
+
+    @Test
+    void testPathParams()
+    {
+        assertEquals("/api/v1/keyspace/:keyspace/table/:table",
+                     RouteBinder.toVertxPath("/api/v1/keyspace/{keyspace}/table/{table}"));
+    }
+
+    @Test
+    void testRegexParamsRejected()
+    {
+        assertThrows(IllegalArgumentException.class,
+                     () -> RouteBinder.toVertxPath("/api/v1/schema/openapi.{type:json}"));
+    }
+
+    @Test
+    void testEveryRouteDocumented()
+    {
+        Injector injector = Guice.createInjector(Modules.override(new MainModule()).with(new TestModule()));
+        Vertx vertx = injector.getInstance(Vertx.class);
+        try
+        {
+            Set<String> documented = SwaggerOpenApiResource.OAS.getPaths()
+                                                               .keySet()
+                                                               .stream()
+                                                               .map(RouteBinder::toVertxPath)
+                                                               .collect(Collectors.toSet());
+            for (Route route : injector.getInstance(Router.class).getRoutes())
+            {
+                String path = route.getPath();
+                // static content, and the definition itself, aren't described
+                if (path != null && !path.endsWith("/") && !path.startsWith("/api/v1/schema/"))
+                    assertTrue(documented.contains(path), path + " is missing from the OpenAPI definition");
+            }
+        }
+        finally
+        {
+            vertx.close();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.snapshots;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.cassandra.sidecar.Configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests listing snapshots and telling their own files from hard links shared with live SSTables
+ */
+public class SnapshotListerTest
+{
+    private SnapshotLister lister;
+
+    @AfterEach
+    void tearDown()
+    {
+        if (lister != null)
+            lister.close();
+    }
+
+    @Test
+    void testSharedAndTrueSize(@TempDir Path dataDir) throws Exception
+    {
+        Path table = dataDir.resolve("ks/tbl-1b255f4def2540a60000000000000005");
+        Path snapshot = Files.createDirectories(table.resolve("snapshots/snap1"));
+        // still live, so linked from the table directory too
+        Files.write(table.resolve("nb-1-big-Data.db"), new byte[100]);
+        Files.createLink(snapshot.resolve("nb-1-big-Data.db"), table.resolve("nb-1-big-Data.db"));
+        // compacted away since the snapshot was taken
+        Files.write(snapshot.resolve("nb-2-big-Data.db"), new byte[10]);
+        // linked twice within the snapshot, still only the snapshot's
+        Files.createLink(snapshot.resolve("nb-2-big-Index.db"), snapshot.resolve("nb-2-big-Data.db"));
+
+        lister = new SnapshotLister(config(dataDir));
+        List<SnapshotInfo> snapshots = lister.list(null);
+        assertEquals(1, snapshots.size());
+        SnapshotInfo info = snapshots.get(0);
+        assertEquals("snap1", info.getName());
+        assertEquals("ks", info.getKeyspace());
+        assertEquals("tbl", info.getTable());
+        assertEquals(3, info.getFiles());
+        assertEquals(110, info.getSizeOnDisk());
+        assertEquals(10, info.getTrueSize());
+        assertEquals(100, info.getSharedSize());
+    }
+
+    @Test
+    void testListsEveryDataDirectory(@TempDir Path dir) throws Exception
+    {
+        Path first = dir.resolve("data1");
+        Path second = dir.resolve("data2");
+        for (String keyspace : Arrays.asList("ks1", "ks2", "ks3"))
+        {
+            Files.createDirectories(first.resolve(keyspace + "/tbl-1/snapshots/snap1"));
+            Files.createDirectories(second.resolve(keyspace + "/tbl-1/snapshots/snap1"));
+        }
+
+        lister = new SnapshotLister(new Configuration.Builder()
+                                    .setDataDirs(Arrays.asList(first.toString(), second.toString()))
+                                    .setSnapshotListParallelism(2)
+                                    .build());
+        assertEquals(6, lister.list(null).size());
+        assertEquals(2, lister.list("ks2").size());
+        assertEquals(0, lister.list("other").size());
+        assertThrows(IllegalArgumentException.class, () -> lister.list("../ks1"));
+    }
+
+    @Test
+    void testCachedUntilSnapshotsChange(@TempDir Path dataDir) throws Exception
+    {
+        Path snapshots = Files.createDirectories(dataDir.resolve("ks/tbl-1/snapshots"));
+        Files.createDirectories(snapshots.resolve("snap1"));
+
+        lister = new SnapshotLister(config(dataDir));
+        List<SnapshotInfo> listed = lister.list("ks");
+        assertEquals(1, listed.size());
+        assertSame(listed.get(0), lister.list("ks").get(0));
+
+        Files.createDirectories(snapshots.resolve("snap2"));
+        assertTrue(eventually(() -> lister.list("ks").size() == 2));
+
+        Files.delete(snapshots.resolve("snap1"));
+        Files.delete(snapshots.resolve("snap2"));
+        assertTrue(eventually(() -> lister.list("ks").isEmpty()));
+
+        // a snapshots directory appearing under a table which had none
+        Files.createDirectories(dataDir.resolve("ks/tbl2-2/snapshots/snap3"));
+        assertTrue(eventually(() -> lister.list("ks").size() == 1));
+    }
+
+    @Test
+    void testTrueSizeAfterCompaction(@TempDir Path dataDir) throws Exception
+    {
+        Path table = dataDir.resolve("ks/tbl-1");
+        Path snapshot = Files.createDirectories(table.resolve("snapshots/snap1"));
+        Path backups = Files.createDirectories(table.resolve("backups"));
+        Files.write(table.resolve("nb-1-big-Data.db"), new byte[100]);
+        Files.createLink(snapshot.resolve("nb-1-big-Data.db"), table.resolve("nb-1-big-Data.db"));
+        Files.write(table.resolve("nb-2-big-Data.db"), new byte[10]);
+        Files.createLink(snapshot.resolve("nb-2-big-Data.db"), table.resolve("nb-2-big-Data.db"));
+        Files.createLink(backups.resolve("nb-2-big-Data.db"), table.resolve("nb-2-big-Data.db"));
+
+        lister = new SnapshotLister(config(dataDir));
+        assertEquals(0, lister.list("ks").get(0).getTrueSize());
+
+        // compaction removes the live SSTable, leaving it to the snapshot
+        Files.delete(table.resolve("nb-1-big-Data.db"));
+        assertTrue(eventually(() -> lister.list("ks").get(0).getTrueSize() == 100));
+
+        // as does clearing the incremental backups
+        Files.delete(table.resolve("nb-2-big-Data.db"));
+        assertTrue(eventually(() -> lister.list("ks").get(0).getTrueSize() == 100));
+        Files.delete(backups.resolve("nb-2-big-Data.db"));
+        assertTrue(eventually(() -> lister.list("ks").get(0).getTrueSize() == 110));
+    }
+
+    @Test
+    void testInvalidate(@TempDir Path dataDir) throws Exception
+    {
+        Files.createDirectories(dataDir.resolve("ks/tbl-1/snapshots/snap1"));
+        lister = new SnapshotLister(config(dataDir));
+        SnapshotInfo listed = lister.list(null).get(0);
+        assertSame(listed, lister.list(null).get(0));
+
+        lister.invalidate();
+        assertNotSame(listed, lister.list(null).get(0));
+    }
+
+    private static boolean eventually(BooleanSupplier check) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline)
+        {
+            if (check.getAsBoolean())
+                return true;
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private static Configuration config(Path dataDir)
+    {
+        return new Configuration.Builder()
+               .setDataDirs(Collections.singletonList(dataDir.toString()))
+               .build();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests parsing of RFC 7233 Range headers
+ */
+public class HttpRangeTest
+{
+    @Test
+    void testSingleRange()
+    {
+        assertEquals(Collections.singletonList(new HttpRange(0, 499)), HttpRange.parse("bytes=0-499", 1000));
+    }
+
+    @Test
+    void testOpenEndedRange()
+    {
+        assertEquals(Collections.singletonList(new HttpRange(900, 999)), HttpRange.parse("bytes=900-", 1000));
+    }
+
+    @Test
+    void testSuffixRange()
+    {
+        assertEquals(Collections.singletonList(new HttpRange(800, 999)), HttpRange.parse("bytes=-200", 1000));
+        assertEquals(Collections.singletonList(new HttpRange(0, 999)), HttpRange.parse("bytes=-2000", 1000));
+    }
+
+    @Test
+    void testEndTruncatedToFileSize()
+    {
+        assertEquals(Collections.singletonList(new HttpRange(500, 999)), HttpRange.parse("bytes=500-5000", 1000));
+    }
+
+    @Test
+    void testMultipleRanges()
+    {
+        assertEquals(Arrays.asList(new HttpRange(0, 9), new HttpRange(100, 199), new HttpRange(990, 999)),
+                     HttpRange.parse("bytes=0-9, 100-199,-10", 1000));
+    }
+
+    @Test
+    void testUnsatisfiableRangesDropped()
+    {
+        assertEquals(Collections.emptyList(), HttpRange.parse("bytes=1000-1999", 1000));
+        assertEquals(Collections.singletonList(new HttpRange(0, 9)), HttpRange.parse("bytes=0-9,2000-", 1000));
+    }
+
+    @Test
+    void testCoalesce()
+    {
+        // sorted, with overlapping and adjacent ranges merged
+        assertEquals(Arrays.asList(new HttpRange(0, 19), new HttpRange(100, 199)),
+                     HttpRange.coalesce(HttpRange.parse("bytes=100-199,10-19,0-9,5-12", 1000)));
+        assertEquals(Collections.singletonList(new HttpRange(0, 999)),
+                     HttpRange.coalesce(HttpRange.parse("bytes=0-,0-,-10", 1000)));
+        assertEquals(3010, HttpRange.totalLength(HttpRange.parse("bytes=0-,0-,0-,-10", 1000)));
+    }
+
+    @Test
+    void testMalformedRanges()
+    {
+        assertThrows(IllegalArgumentException.class, () -> HttpRange.parse("items=0-9", 1000));
+        assertThrows(IllegalArgumentException.class, () -> HttpRange.parse("bytes=9-0", 1000));
+        assertThrows(IllegalArgumentException.class, () -> HttpRange.parse("bytes=abc", 1000));
+        assertThrows(IllegalArgumentException.class, () -> HttpRange.parse("bytes=--5", 1000));
+    }
+
+    @Test
+    void testContentRange()
+    {
+        assertEquals("bytes 100-199/1000", new HttpRange(100, 199).contentRange(1000));
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.cassandra.sidecar.utils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509KeyManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.netty.handler.ssl.OpenSsl;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.net.OpenSSLEngineOptions;
+import org.apache.cassandra.sidecar.Configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests picking up rotated keystores
+ */
+public class KeyStoreReloaderTest
+{
+    private static final String PASSWORD = "password";
+
+    @Test
+    void testReloadsChangedKeyStore(@TempDir Path dir) throws Exception
+    {
+        Path test = resource("certs/test.p12");
+        Path ca = resource("certs/ca.p12");
+        Path keyStore = dir.resolve("keystore.p12");
+        Files.copy(test, keyStore);
+
+        KeyStoreReloader reloader = new KeyStoreReloader(null, config(keyStore.toString()));
+        X509KeyManager manager = (X509KeyManager) reloader.keyCertOptions(false)
+                                                          .getKeyManagerFactory(null)
+                                                          .getKeyManagers()[0];
+        String before = manager.chooseServerAlias("RSA", null, null);
+        assertEquals(certificate(test), manager.getCertificateChain(before)[0]);
+        assertFalse(reloader.reloadIfChanged());
+
+        replace(keyStore, ca);
+        assertTrue(reloader.reloadIfChanged());
+        String after = manager.chooseServerAlias("RSA", null, null);
+        assertNotEquals(before, after);
+        assertEquals(certificate(ca), manager.getCertificateChain(after)[0]);
+        assertTrue(manager.getPrivateKey(after) != null);
+        // a handshake which chose its alias before the reload still gets a consistent chain
+        assertEquals(certificate(test), manager.getCertificateChain(before)[0]);
+    }
+
+    @Test
+    void testReloadsOnOpenSsl(@TempDir Path dir) throws Exception
+    {
+        assumeTrue(OpenSSLEngineOptions.isAvailable() && OpenSsl.supportsKeyManagerFactory(),
+                   "OpenSSL is not available");
+        Path test = resource("certs/test.p12");
+        Path ca = resource("certs/ca.p12");
+        Path keyStore = dir.resolve("keystore.p12");
+        Files.copy(test, keyStore);
+
+        Vertx vertx = Vertx.vertx();
+        try
+        {
+            KeyStoreReloader reloader = new KeyStoreReloader(vertx, config(keyStore.toString()));
+            HttpServerOptions options = new HttpServerOptions().setSsl(true)
+                                                               .setSslEngineOptions(new OpenSSLEngineOptions())
+                                                               .setKeyCertOptions(reloader.keyCertOptions(true));
+            CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+            vertx.createHttpServer(options)
+                 .requestHandler(request -> request.response().end())
+                 .listen(0, "127.0.0.1", ar ->
+                 {
+                     if (ar.succeeded())
+                         listening.complete(ar.result());
+                     else
+                         listening.completeExceptionally(ar.cause());
+                 });
+            int port = listening.get(10, TimeUnit.SECONDS).actualPort();
+
+            assertEquals(certificate(test), serverCertificate(port));
+            replace(keyStore, ca);
+            assertTrue(reloader.reloadIfChanged());
+            assertEquals(certificate(ca), serverCertificate(port));
+        }
+        finally
+        {
+            vertx.close();
+        }
+    }
+
+    @Test
+    void testKeepsKeyStoreWhenReloadFails(@TempDir Path dir) throws Exception
+    {
+        Path test = resource("certs/test.p12");
+        Path keyStore = dir.resolve("keystore.p12");
+        Files.copy(test, keyStore);
+
+        KeyStoreReloader reloader = new KeyStoreReloader(null, config(keyStore.toString()));
+        X509KeyManager manager = (X509KeyManager) reloader.keyCertOptions(false)
+                                                          .getKeyManagerFactory(null)
+                                                          .getKeyManagers()[0];
+        Files.write(keyStore, "half written".getBytes());
+        Files.setLastModifiedTime(keyStore, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        assertFalse(reloader.reloadIfChanged());
+        String alias = manager.chooseServerAlias("RSA", null, null);
+        assertEquals(certificate(test), manager.getCertificateChain(alias)[0]);
+    }
+
+    /**
+     * @return the certificate the server presents to a new client, which can't resume an earlier session
+     */
+    private static Certificate serverCertificate(int port) throws Exception
+    {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, new TrustManager[]{ new TrustAll() }, null);
+        try (SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket("127.0.0.1", port))
+        {
+            socket.startHandshake();
+            return socket.getSession().getPeerCertificates()[0];
+        }
+    }
+
+    private static void replace(Path target, Path source) throws Exception
+    {
+        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+    }
+
+    private static Configuration config(String keyStorePath)
+    {
+        return new Configuration.Builder()
+                                .setKeyStorePath(keyStorePath)
+                                .setKeyStorePassword(PASSWORD)
+                                .setSslEnabled(true)
+                                .build();
+    }
+
+    private static X509Certificate certificate(Path path) throws Exception
+    {
+        KeyStore store = SslUtils.loadKeyStore(path.toString(), PASSWORD);
+        Certificate certificate = store.getCertificate(store.aliases().nextElement());
+        return (X509Certificate) certificate;
+    }
+
+    private static Path resource(String name) throws Exception
+    {
+        return Paths.get(new File(KeyStoreReloaderTest.class.getClassLoader().getResource(name).toURI()).getPath());
+    }
+
+    /**
+     * Accepts the test certificates, which are self-signed and may have expired
+     */
+    private static class TrustAll implements X509TrustManager
+    {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType)
+        {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType)
+        {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers()
+        {
+            return new X509Certificate[0];
+        }
+    }
+}